@@ -3,6 +3,7 @@ package com.example.chart.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -23,6 +24,41 @@ public class ChartConfigProperties {
      */
     private Config config = new Config();
     
+    /**
+     * 渲染输出配置
+     */
+    private Render render = new Render();
+    
+    /**
+     * 批量导入配置
+     */
+    private Ingest ingest = new Ingest();
+    
+    /**
+     * 数据存储持久化配置
+     */
+    private Store store = new Store();
+    
+    /**
+     * 模板/规范制品存储配置
+     */
+    private Artifacts artifacts = new Artifacts();
+    
+    /**
+     * ECharts示例目录配置
+     */
+    private Examples examples = new Examples();
+    
+    /**
+     * 监控指标配置
+     */
+    private Metrics metrics = new Metrics();
+    
+    /**
+     * 查询执行配置
+     */
+    private Query query = new Query();
+    
     public static class Template {
         /**
          * 系列配置
@@ -105,10 +141,249 @@ public class ChartConfigProperties {
         public void setDefaultTemplateType(String defaultTemplateType) { this.defaultTemplateType = defaultTemplateType; }
     }
     
+    public static class Render {
+        /**
+         * 渲染结果缓存配置
+         */
+        private Cache cache = new Cache();
+        
+        public static class Cache {
+            private boolean enabled = true;
+            private int maxEntries = 256;
+            private int compressionMinBytes = 1024;
+            private int compressionLevel = 9;
+            
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+            public int getMaxEntries() { return maxEntries; }
+            public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+            public int getCompressionMinBytes() { return compressionMinBytes; }
+            public void setCompressionMinBytes(int compressionMinBytes) { this.compressionMinBytes = compressionMinBytes; }
+            public int getCompressionLevel() { return compressionLevel; }
+            public void setCompressionLevel(int compressionLevel) { this.compressionLevel = compressionLevel; }
+        }
+        
+        /**
+         * 渲染轨迹采样配置
+         */
+        private Trace trace = new Trace();
+        
+        public static class Trace {
+            // 采样比例（0~1），0表示只在调试接口按需开启
+            private double sampleRate = 0.0;
+            private int maxEvents = 1000;
+            private int recentSize = 20;
+            
+            public double getSampleRate() { return sampleRate; }
+            public void setSampleRate(double sampleRate) { this.sampleRate = sampleRate; }
+            public int getMaxEvents() { return maxEvents; }
+            public void setMaxEvents(int maxEvents) { this.maxEvents = maxEvents; }
+            public int getRecentSize() { return recentSize; }
+            public void setRecentSize(int recentSize) { this.recentSize = recentSize; }
+        }
+        
+        /**
+         * 慢渲染日志配置
+         */
+        private SlowLog slowLog = new SlowLog();
+        
+        public static class SlowLog {
+            private boolean enabled = true;
+            // 渲染耗时超过该毫秒数时记录
+            private long thresholdMs = 200;
+            // 环形缓冲区保留的条数
+            private int capacity = 50;
+            
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+            public long getThresholdMs() { return thresholdMs; }
+            public void setThresholdMs(long thresholdMs) { this.thresholdMs = thresholdMs; }
+            public int getCapacity() { return capacity; }
+            public void setCapacity(int capacity) { this.capacity = capacity; }
+        }
+        
+        public Cache getCache() { return cache; }
+        public void setCache(Cache cache) { this.cache = cache; }
+        public Trace getTrace() { return trace; }
+        public void setTrace(Trace trace) { this.trace = trace; }
+        public SlowLog getSlowLog() { return slowLog; }
+        public void setSlowLog(SlowLog slowLog) { this.slowLog = slowLog; }
+    }
+    
+    public static class Ingest {
+        private int batchSize = 5000;
+        private int maxErrorDetails = 20;
+        
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        public int getMaxErrorDetails() { return maxErrorDetails; }
+        public void setMaxErrorDetails(int maxErrorDetails) { this.maxErrorDetails = maxErrorDetails; }
+    }
+    
+    public static class Store {
+        private boolean enabled = false;
+        private String directory = "data/store";
+        private boolean fsync = true;
+        private int groupCommitMaxSize = 1024;
+        private int snapshotIntervalSeconds = 300;
+        private long snapshotMinLogBytes = 4L * 1024 * 1024;
+        private int commitTimeoutSeconds = 30;
+        
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+        public boolean isFsync() { return fsync; }
+        public void setFsync(boolean fsync) { this.fsync = fsync; }
+        public int getGroupCommitMaxSize() { return groupCommitMaxSize; }
+        public void setGroupCommitMaxSize(int groupCommitMaxSize) { this.groupCommitMaxSize = groupCommitMaxSize; }
+        public int getSnapshotIntervalSeconds() { return snapshotIntervalSeconds; }
+        public void setSnapshotIntervalSeconds(int snapshotIntervalSeconds) { this.snapshotIntervalSeconds = snapshotIntervalSeconds; }
+        public long getSnapshotMinLogBytes() { return snapshotMinLogBytes; }
+        public void setSnapshotMinLogBytes(long snapshotMinLogBytes) { this.snapshotMinLogBytes = snapshotMinLogBytes; }
+        public int getCommitTimeoutSeconds() { return commitTimeoutSeconds; }
+        public void setCommitTimeoutSeconds(int commitTimeoutSeconds) { this.commitTimeoutSeconds = commitTimeoutSeconds; }
+    }
+    
+    public static class Artifacts {
+        private String directory = "data/artifacts";
+        
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+    }
+    
+    public static class Examples {
+        private String directory = "";
+        private boolean watch = true;
+        
+        public String getDirectory() { return directory; }
+        public void setDirectory(String directory) { this.directory = directory; }
+        public boolean isWatch() { return watch; }
+        public void setWatch(boolean watch) { this.watch = watch; }
+    }
+    
+    public static class Metrics {
+        // 按chartId打标签会增加时间序列数量，默认关闭
+        private boolean chartIdTags = false;
+        
+        public boolean isChartIdTags() { return chartIdTags; }
+        public void setChartIdTags(boolean chartIdTags) { this.chartIdTags = chartIdTags; }
+    }
+    
+    public static class Query {
+        private Parallel parallel = new Parallel();
+        
+        public static class Parallel {
+            private boolean enabled = true;
+            // 行数达到阈值才并行扫描，小查询在请求线程上执行更快
+            private int thresholdRows = 500000;
+            private int partitionRows = 131072;
+            // 扫描线程数，0表示CPU核数减1
+            private int parallelism = 0;
+            
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+            public int getThresholdRows() { return thresholdRows; }
+            public void setThresholdRows(int thresholdRows) { this.thresholdRows = thresholdRows; }
+            public int getPartitionRows() { return partitionRows; }
+            public void setPartitionRows(int partitionRows) { this.partitionRows = partitionRows; }
+            public int getParallelism() { return parallelism; }
+            public void setParallelism(int parallelism) { this.parallelism = parallelism; }
+        }
+        
+        private Jdbc jdbc = new Jdbc();
+        
+        public static class Jdbc {
+            // 配置url后映射定义中指定了source.table的占位符改为查询数据库
+            private boolean enabled = false;
+            private String url;
+            private String username;
+            private String password;
+            private String driverClassName;
+            private int maximumPoolSize = 8;
+            private int minimumIdle = 1;
+            private long connectionTimeoutMs = 5000;
+            private int queryTimeoutSeconds = 30;
+            // 每次网络往返读取的行数，结果集按批流式读取
+            private int fetchSize = 1000;
+            // 结果行数上限，防止未聚合的查询读取整张表
+            private int maxRows = 100000;
+            // 传给驱动的属性，如MySQL的cachePrepStmts、PostgreSQL的preparedStatementCacheQueries
+            private Map<String, String> dataSourceProperties = new LinkedHashMap<>();
+            
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+            public String getUrl() { return url; }
+            public void setUrl(String url) { this.url = url; }
+            public String getUsername() { return username; }
+            public void setUsername(String username) { this.username = username; }
+            public String getPassword() { return password; }
+            public void setPassword(String password) { this.password = password; }
+            public String getDriverClassName() { return driverClassName; }
+            public void setDriverClassName(String driverClassName) { this.driverClassName = driverClassName; }
+            public int getMaximumPoolSize() { return maximumPoolSize; }
+            public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+            public int getMinimumIdle() { return minimumIdle; }
+            public void setMinimumIdle(int minimumIdle) { this.minimumIdle = minimumIdle; }
+            public long getConnectionTimeoutMs() { return connectionTimeoutMs; }
+            public void setConnectionTimeoutMs(long connectionTimeoutMs) { this.connectionTimeoutMs = connectionTimeoutMs; }
+            public int getQueryTimeoutSeconds() { return queryTimeoutSeconds; }
+            public void setQueryTimeoutSeconds(int queryTimeoutSeconds) { this.queryTimeoutSeconds = queryTimeoutSeconds; }
+            public int getFetchSize() { return fetchSize; }
+            public void setFetchSize(int fetchSize) { this.fetchSize = fetchSize; }
+            public int getMaxRows() { return maxRows; }
+            public void setMaxRows(int maxRows) { this.maxRows = maxRows; }
+            public Map<String, String> getDataSourceProperties() { return dataSourceProperties; }
+            public void setDataSourceProperties(Map<String, String> dataSourceProperties) { this.dataSourceProperties = dataSourceProperties; }
+        }
+        
+        private Cache cache = new Cache();
+        
+        public static class Cache {
+            private boolean enabled = true;
+            // 按估算的结果大小计量
+            private long maxBytes = 64L * 1024 * 1024;
+            // 准入窗口占总容量的百分比，新结果先进入窗口，淘汰时与主区按访问频率比较
+            private int windowPercent = 1;
+            // 默认过期时间，0表示只在数据版本变化时失效；映射可单独声明cacheTtlSeconds
+            private long defaultTtlSeconds = 0;
+            
+            public boolean isEnabled() { return enabled; }
+            public void setEnabled(boolean enabled) { this.enabled = enabled; }
+            public long getMaxBytes() { return maxBytes; }
+            public void setMaxBytes(long maxBytes) { this.maxBytes = maxBytes; }
+            public int getWindowPercent() { return windowPercent; }
+            public void setWindowPercent(int windowPercent) { this.windowPercent = windowPercent; }
+            public long getDefaultTtlSeconds() { return defaultTtlSeconds; }
+            public void setDefaultTtlSeconds(long defaultTtlSeconds) { this.defaultTtlSeconds = defaultTtlSeconds; }
+        }
+        
+        public Parallel getParallel() { return parallel; }
+        public void setParallel(Parallel parallel) { this.parallel = parallel; }
+        public Jdbc getJdbc() { return jdbc; }
+        public void setJdbc(Jdbc jdbc) { this.jdbc = jdbc; }
+        public Cache getCache() { return cache; }
+        public void setCache(Cache cache) { this.cache = cache; }
+    }
+    
     public Template getTemplate() { return template; }
     public void setTemplate(Template template) { this.template = template; }
     public Config getConfig() { return config; }
     public void setConfig(Config config) { this.config = config; }
+    public Render getRender() { return render; }
+    public void setRender(Render render) { this.render = render; }
+    public Ingest getIngest() { return ingest; }
+    public void setIngest(Ingest ingest) { this.ingest = ingest; }
+    public Store getStore() { return store; }
+    public void setStore(Store store) { this.store = store; }
+    public Artifacts getArtifacts() { return artifacts; }
+    public void setArtifacts(Artifacts artifacts) { this.artifacts = artifacts; }
+    public Examples getExamples() { return examples; }
+    public void setExamples(Examples examples) { this.examples = examples; }
+    public Metrics getMetrics() { return metrics; }
+    public void setMetrics(Metrics metrics) { this.metrics = metrics; }
+    public Query getQuery() { return query; }
+    public void setQuery(Query query) { this.query = query; }
     
     /**
      * 根据模板类型获取默认系列数量
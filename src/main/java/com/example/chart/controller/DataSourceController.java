@@ -1,17 +1,36 @@
 package com.example.chart.controller;
 
 import com.example.api.ApiResponse;
+import com.example.chart.model.Mapping;
+import com.example.chart.query.jdbc.CompiledSql;
+import com.example.chart.query.jdbc.JdbcDataSourceAdapter;
+import com.example.chart.query.jdbc.SqlCompiler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.sql.SQLException;
 import java.util.*;
 
 @RestController
 @RequestMapping("/api/datasource")
 public class DataSourceController {
 
+    @Autowired
+    private JdbcDataSourceAdapter jdbcAdapter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
     @GetMapping("/schema")
     public ResponseEntity<ApiResponse<Map<String,Object>>> schema() {
+        if (jdbcAdapter.isEnabled()) {
+            try {
+                return ResponseEntity.ok(ApiResponse.ok(jdbcAdapter.describeSchema()));
+            } catch (SQLException e) {
+                return ResponseEntity.ok(ApiResponse.error("DATASOURCE_ERROR", "读取数据库结构失败: " + e.getMessage()));
+            }
+        }
         Map<String,Object> schema = new LinkedHashMap<>();
         schema.put("tables", List.of(
                 Map.of("name","chart_config","columns", List.of("title","stack_group","chart_type")),
@@ -45,6 +64,22 @@ public class DataSourceController {
 
     @PostMapping("/query/preview")
     public ResponseEntity<ApiResponse<Map<String,Object>>> queryPreview(@RequestBody Map<String,Object> body) {
+        if (jdbcAdapter.isEnabled() && body.containsKey("source")) {
+            // 请求体为一个映射项：返回编译出的SQL和查询结果
+            Map<String,Object> out = new LinkedHashMap<>();
+            try {
+                Mapping.Item item = objectMapper.convertValue(body, Mapping.Item.class);
+                CompiledSql compiled = SqlCompiler.compile(item);
+                out.put("sql", compiled.getSql());
+                out.put("parameters", compiled.getParameters());
+                out.put("value", jdbcAdapter.execute(compiled));
+                return ResponseEntity.ok(ApiResponse.ok(out));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.ok(ApiResponse.error("INVALID_MAPPING", e.getMessage()));
+            } catch (SQLException e) {
+                return ResponseEntity.ok(ApiResponse.error("DATASOURCE_ERROR", "查询失败: " + e.getMessage()));
+            }
+        }
         // 简化：直接回显筛选条件，并返回固定聚合/透视样例
         Map<String,Object> out = new LinkedHashMap<>();
         out.put("input", body);
@@ -55,5 +90,9 @@ public class DataSourceController {
         ));
         return ResponseEntity.ok(ApiResponse.ok(out));
     }
-}
 
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<Map<String,Object>>> stats() {
+        return ResponseEntity.ok(ApiResponse.ok(jdbcAdapter.getStatistics()));
+    }
+}
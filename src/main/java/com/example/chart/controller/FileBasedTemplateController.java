@@ -1,9 +1,13 @@
 package com.example.chart.controller;
 
 import com.example.api.ApiResponse;
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.StoredArtifact;
+import com.example.chart.store.StoredArtifact.Kind;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -11,15 +15,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.*;
-import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * 基于文件的模板管理控制器
- * 提供模板文件和JOLT规范文件的上传、下载、列表查询等管理功能
+ * 提供模板文件和JOLT规范文件的上传、下载、列表查询等管理功能，文件保存在内容寻址的制品存储中
  */
 @RestController
 @RequestMapping("/api/file-templates")
@@ -27,10 +27,8 @@ public class FileBasedTemplateController {
 
     private static final Logger logger = LoggerFactory.getLogger(FileBasedTemplateController.class);
     
-    // 模板文件存储路径
-    private static final String TEMPLATE_BASE_PATH = "src/main/resources/echarts";
-    // JOLT规范文件存储路径
-    private static final String JOLT_SPEC_BASE_PATH = "src/main/resources/jolt-specs";
+    @Autowired
+    private ArtifactStore artifactStore;
     
     // 支持的图表类型目录
     private static final List<String> CHART_CATEGORIES = Arrays.asList(
@@ -47,35 +45,8 @@ public class FileBasedTemplateController {
         
         try {
             List<Map<String, Object>> templates = new ArrayList<>();
-            Path basePath = Paths.get(TEMPLATE_BASE_PATH);
-            
-            if (!Files.exists(basePath)) {
-                logger.warn("⚠️ [模板列表] 模板基础路径不存在: {}", basePath);
-                return ResponseEntity.ok(ApiResponse.ok(templates));
-            }
-            
-            // 遍历所有分类目录
-            try (Stream<Path> paths = Files.list(basePath)) {
-                List<Path> categoryDirs = paths
-                    .filter(Files::isDirectory)
-                    .filter(path -> category == null || path.getFileName().toString().equals(category))
-                    .collect(Collectors.toList());
-                
-                for (Path categoryDir : categoryDirs) {
-                    String categoryName = categoryDir.getFileName().toString();
-                    
-                    try (Stream<Path> files = Files.list(categoryDir)) {
-                        List<Path> jsonFiles = files
-                            .filter(Files::isRegularFile)
-                            .filter(path -> path.toString().endsWith(".json"))
-                            .collect(Collectors.toList());
-                        
-                        for (Path file : jsonFiles) {
-                            Map<String, Object> fileInfo = createFileInfo(file, categoryName, "template");
-                            templates.add(fileInfo);
-                        }
-                    }
-                }
+            for (StoredArtifact artifact : artifactStore.list(Kind.ECHARTS_EXAMPLE, category)) {
+                templates.add(createFileInfo(artifact, "template"));
             }
             
             logger.info("✅ [模板列表] 获取成功，共 {} 个文件", templates.size());
@@ -96,23 +67,8 @@ public class FileBasedTemplateController {
         
         try {
             List<Map<String, Object>> specs = new ArrayList<>();
-            Path basePath = Paths.get(JOLT_SPEC_BASE_PATH);
-            
-            if (!Files.exists(basePath)) {
-                logger.warn("⚠️ [规范列表] JOLT规范基础路径不存在: {}", basePath);
-                return ResponseEntity.ok(ApiResponse.ok(specs));
-            }
-            
-            try (Stream<Path> paths = Files.list(basePath)) {
-                List<Path> jsonFiles = paths
-                    .filter(Files::isRegularFile)
-                    .filter(path -> path.toString().endsWith(".json"))
-                    .collect(Collectors.toList());
-                
-                for (Path file : jsonFiles) {
-                    Map<String, Object> fileInfo = createFileInfo(file, null, "jolt-spec");
-                    specs.add(fileInfo);
-                }
+            for (StoredArtifact artifact : artifactStore.list(Kind.JOLT_SPEC, null)) {
+                specs.add(createFileInfo(artifact, "jolt-spec"));
             }
             
             logger.info("✅ [规范列表] 获取成功，共 {} 个文件", specs.size());
@@ -125,7 +81,7 @@ public class FileBasedTemplateController {
     }
 
     /**
-     * 上传模板文件
+     * 上传模板文件（存入内容寻址存储，同名文件保留历史版本）
      */
     @PostMapping("/templates/upload")
     public ResponseEntity<ApiResponse<Map<String, Object>>> uploadTemplate(
@@ -149,23 +105,14 @@ public class FileBasedTemplateController {
                 return ResponseEntity.badRequest().body(ApiResponse.error("INVALID_CATEGORY", "无效的图表分类"));
             }
             
-            // 创建分类目录（如果不存在）
-            Path categoryPath = Paths.get(TEMPLATE_BASE_PATH, category);
-            if (!Files.exists(categoryPath)) {
-                Files.createDirectories(categoryPath);
-            }
-            
-            // 保存文件
-            Path filePath = categoryPath.resolve(file.getOriginalFilename());
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            
-            // 返回文件信息
-            Map<String, Object> fileInfo = createFileInfo(filePath, category, "template");
-            fileInfo.put("description", description);
+            StoredArtifact artifact = artifactStore.put(Kind.ECHARTS_EXAMPLE, category,
+                    file.getOriginalFilename(), null, file.getBytes(), description);
             
             logger.info("✅ [模板上传] 上传成功: {}", file.getOriginalFilename());
-            return ResponseEntity.ok(ApiResponse.ok(fileInfo));
+            return ResponseEntity.ok(ApiResponse.ok(createFileInfo(artifact, "template")));
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("INVALID_CONTENT", e.getMessage()));
         } catch (Exception e) {
             logger.error("❌ [模板上传] 上传失败: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(ApiResponse.error("UPLOAD_FAILED", e.getMessage()));
@@ -173,7 +120,7 @@ public class FileBasedTemplateController {
     }
 
     /**
-     * 上传JOLT规范文件
+     * 上传JOLT规范文件（上传时即编译校验）
      */
     @PostMapping("/jolt-specs/upload")
     public ResponseEntity<ApiResponse<Map<String, Object>>> uploadJoltSpec(
@@ -191,23 +138,14 @@ public class FileBasedTemplateController {
                 return ResponseEntity.badRequest().body(ApiResponse.error("INVALID_FILE_TYPE", "只支持JSON文件"));
             }
             
-            // 创建规范目录（如果不存在）
-            Path basePath = Paths.get(JOLT_SPEC_BASE_PATH);
-            if (!Files.exists(basePath)) {
-                Files.createDirectories(basePath);
-            }
-            
-            // 保存文件
-            Path filePath = basePath.resolve(file.getOriginalFilename());
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-            
-            // 返回文件信息
-            Map<String, Object> fileInfo = createFileInfo(filePath, null, "jolt-spec");
-            fileInfo.put("description", description);
+            StoredArtifact artifact = artifactStore.put(Kind.JOLT_SPEC, null, file.getOriginalFilename(), null,
+                    file.getBytes(), description);
             
             logger.info("✅ [规范上传] 上传成功: {}", file.getOriginalFilename());
-            return ResponseEntity.ok(ApiResponse.ok(fileInfo));
+            return ResponseEntity.ok(ApiResponse.ok(createFileInfo(artifact, "jolt-spec")));
             
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("INVALID_CONTENT", e.getMessage()));
         } catch (Exception e) {
             logger.error("❌ [规范上传] 上传失败: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(ApiResponse.error("UPLOAD_FAILED", e.getMessage()));
@@ -223,30 +161,12 @@ public class FileBasedTemplateController {
             @PathVariable String filename) {
         logger.info("📥 [模板下载] 下载模板文件: {}/{}", category, filename);
         
-        try {
-            Path filePath = Paths.get(TEMPLATE_BASE_PATH, category, filename);
-            
-            if (!Files.exists(filePath)) {
-                logger.warn("⚠️ [模板下载] 文件不存在: {}", filePath);
-                return ResponseEntity.notFound().build();
-            }
-            
-            InputStreamResource resource = new InputStreamResource(new FileInputStream(filePath.toFile()));
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
-            
-            logger.info("✅ [模板下载] 下载成功: {}", filename);
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentLength(filePath.toFile().length())
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            logger.error("❌ [模板下载] 下载失败: {}", e.getMessage(), e);
-            return ResponseEntity.status(500).build();
+        Optional<StoredArtifact> artifact = artifactStore.latest(Kind.ECHARTS_EXAMPLE, category, filename);
+        if (!artifact.isPresent()) {
+            logger.warn("⚠️ [模板下载] 文件不存在: {}/{}", category, filename);
+            return ResponseEntity.notFound().build();
         }
+        return download(artifact.get());
     }
 
     /**
@@ -256,30 +176,12 @@ public class FileBasedTemplateController {
     public ResponseEntity<Resource> downloadJoltSpec(@PathVariable String filename) {
         logger.info("📥 [规范下载] 下载JOLT规范文件: {}", filename);
         
-        try {
-            Path filePath = Paths.get(JOLT_SPEC_BASE_PATH, filename);
-            
-            if (!Files.exists(filePath)) {
-                logger.warn("⚠️ [规范下载] 文件不存在: {}", filePath);
-                return ResponseEntity.notFound().build();
-            }
-            
-            InputStreamResource resource = new InputStreamResource(new FileInputStream(filePath.toFile()));
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename);
-            
-            logger.info("✅ [规范下载] 下载成功: {}", filename);
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentLength(filePath.toFile().length())
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            logger.error("❌ [规范下载] 下载失败: {}", e.getMessage(), e);
-            return ResponseEntity.status(500).build();
+        Optional<StoredArtifact> artifact = artifactStore.latest(Kind.JOLT_SPEC, null, filename);
+        if (!artifact.isPresent()) {
+            logger.warn("⚠️ [规范下载] 文件不存在: {}", filename);
+            return ResponseEntity.notFound().build();
         }
+        return download(artifact.get());
     }
 
     /**
@@ -292,15 +194,11 @@ public class FileBasedTemplateController {
         logger.info("🗑️ [模板删除] 删除模板文件: {}/{}", category, filename);
         
         try {
-            Path filePath = Paths.get(TEMPLATE_BASE_PATH, category, filename);
-            
-            if (!Files.exists(filePath)) {
-                logger.warn("⚠️ [模板删除] 文件不存在: {}", filePath);
+            if (!artifactStore.remove(Kind.ECHARTS_EXAMPLE, category, filename)) {
+                logger.warn("⚠️ [模板删除] 文件不存在: {}/{}", category, filename);
                 return ResponseEntity.notFound().build();
             }
             
-            Files.delete(filePath);
-            
             logger.info("✅ [模板删除] 删除成功: {}", filename);
             return ResponseEntity.ok(ApiResponse.ok(null));
             
@@ -318,15 +216,11 @@ public class FileBasedTemplateController {
         logger.info("🗑️ [规范删除] 删除JOLT规范文件: {}", filename);
         
         try {
-            Path filePath = Paths.get(JOLT_SPEC_BASE_PATH, filename);
-            
-            if (!Files.exists(filePath)) {
-                logger.warn("⚠️ [规范删除] 文件不存在: {}", filePath);
+            if (!artifactStore.remove(Kind.JOLT_SPEC, null, filename)) {
+                logger.warn("⚠️ [规范删除] 文件不存在: {}", filename);
                 return ResponseEntity.notFound().build();
             }
             
-            Files.delete(filePath);
-            
             logger.info("✅ [规范删除] 删除成功: {}", filename);
             return ResponseEntity.ok(ApiResponse.ok(null));
             
@@ -336,6 +230,29 @@ public class FileBasedTemplateController {
         }
     }
 
+    /**
+     * 获取文件的版本历史（版本号即内容哈希，可用于图表注册表激活）
+     */
+    @GetMapping("/versions")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> listVersions(
+            @RequestParam Kind kind,
+            @RequestParam(required = false) String category,
+            @RequestParam String name) {
+        List<Map<String, Object>> versions = new ArrayList<>();
+        for (StoredArtifact artifact : artifactStore.history(kind, category, name)) {
+            versions.add(artifact.toFileInfo());
+        }
+        return ResponseEntity.ok(ApiResponse.ok(versions));
+    }
+
+    /**
+     * 获取制品存储统计信息
+     */
+    @GetMapping("/store/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStoreStatistics() {
+        return ResponseEntity.ok(ApiResponse.ok(artifactStore.getStatistics()));
+    }
+
     /**
      * 获取支持的图表分类列表
      */
@@ -355,19 +272,22 @@ public class FileBasedTemplateController {
     /**
      * 创建文件信息对象
      */
-    private Map<String, Object> createFileInfo(Path filePath, String category, String type) throws IOException {
-        Map<String, Object> fileInfo = new HashMap<>();
-        
-        fileInfo.put("name", filePath.getFileName().toString());
-        fileInfo.put("path", filePath.toString());
-        fileInfo.put("size", Files.size(filePath));
-        fileInfo.put("lastModified", Files.getLastModifiedTime(filePath).toMillis());
+    private Map<String, Object> createFileInfo(StoredArtifact artifact, String type) {
+        Map<String, Object> fileInfo = artifact.toFileInfo();
         fileInfo.put("type", type);
-        
-        if (category != null) {
-            fileInfo.put("category", category);
-        }
-        
         return fileInfo;
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<Resource> download(StoredArtifact artifact) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + artifact.getName());
+        headers.setETag("\"" + artifact.getHash() + "\"");
+        
+        logger.info("✅ [文件下载] 下载成功: {}", artifact.getName());
+        return ResponseEntity.ok()
+                .headers(headers)
+                .contentLength(artifact.getSize())
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new ByteArrayResource(artifact.getContent()));
+    }
+}
@@ -22,6 +22,8 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.api.ApiResponse;
+import com.example.chart.diagnostics.SlowRenderLog;
+import com.example.chart.model.Mapping;
 import com.example.chart.service.PlaceholderManager;
 import com.example.chart.service.PlaceholderMappingManager;
 import com.example.chart.service.TemplateService;
@@ -50,6 +52,9 @@ public class PlaceholderMappingController {
     @Autowired
     private TemplateService templateService;
 
+    @Autowired
+    private SlowRenderLog slowRenderLog;
+
     /**
      * 获取图表的占位符列表
      */
@@ -133,7 +138,37 @@ public class PlaceholderMappingController {
                 Map<String, Object> filters = (Map<String, Object>) mappingData.get("filters");
                 mapping.setFilters(filters != null ? filters : new HashMap<>());
 
+                mapping.setFilterExpression((String) mappingData.get("filterExpression"));
                 mapping.setTransformExpression((String) mappingData.get("transformExpression"));
+                if (mappingData.get("cacheTtlSeconds") instanceof Number) {
+                    mapping.setCacheTtlSeconds(((Number) mappingData.get("cacheTtlSeconds")).intValue());
+                }
+
+                @SuppressWarnings("unchecked")
+                Map<String, Object> pivotData = (Map<String, Object>) mappingData.get("pivot");
+                if (pivotData != null) {
+                    PlaceholderMappingManager.PivotMapping pivot = new PlaceholderMappingManager.PivotMapping();
+                    pivot.setCategoryKey((String) pivotData.get("categoryKey"));
+                    pivot.setTimeBucket((String) pivotData.get("timeBucket"));
+                    pivot.setSeriesKey((String) pivotData.get("seriesKey"));
+                    pivot.setSeriesValue((String) pivotData.get("seriesValue"));
+                    pivot.setOutput((String) pivotData.getOrDefault("output", "series"));
+                    pivot.setNullHandling((String) pivotData.getOrDefault("nullHandling", "zero"));
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> orderBy = (List<Map<String, Object>>) pivotData.get("orderBy");
+                    if (orderBy != null) {
+                        for (Map<String, Object> orderData : orderBy) {
+                            Mapping.Order order = new Mapping.Order();
+                            order.setField((String) orderData.get("field"));
+                            order.setDir((String) orderData.get("dir"));
+                            pivot.getOrderBy().add(order);
+                        }
+                    }
+                    if (pivotData.get("limit") instanceof Number) {
+                        pivot.setLimit(((Number) pivotData.get("limit")).intValue());
+                    }
+                    mapping.setPivot(pivot);
+                }
 
                 mappings.put(placeholder, mapping);
             }
@@ -150,6 +185,9 @@ public class PlaceholderMappingController {
             logger.info("✅ [占位符映射] 成功配置 {} 个映射关系", mappings.size());
             return ResponseEntity.ok(ApiResponse.ok(response));
 
+        } catch (IllegalArgumentException e) {
+            logger.warn("❌ [占位符映射] 映射表达式无效: {}", e.getMessage());
+            return ResponseEntity.ok(ApiResponse.error("INVALID_EXPRESSION", e.getMessage()));
         } catch (Exception e) {
             logger.error("❌ [占位符映射] 配置映射关系失败", e);
             return ResponseEntity.ok(ApiResponse.error("ERROR", "配置映射关系失败: " + e.getMessage()));
@@ -225,7 +263,10 @@ public class PlaceholderMappingController {
                     createAggregationInfo("count", "计数", "统计记录数量"),
                     createAggregationInfo("max", "最大值", "获取数值字段最大值"),
                     createAggregationInfo("min", "最小值", "获取数值字段最小值"),
-                    createAggregationInfo("list", "列表", "返回所有值的数组"));
+                    createAggregationInfo("list", "列表", "返回所有值的数组"),
+                    createAggregationInfo("count_distinct", "去重计数", "估计不同值的个数（HyperLogLog，误差约1%）"),
+                    createAggregationInfo("median", "中位数", "估计数值字段的中位数（t-digest）"),
+                    createAggregationInfo("p95", "分位数", "估计数值字段的分位数，p后接0到100的分位点，如p90、p99"));
 
             Map<String, Object> response = new HashMap<>();
             response.put("fields", fields);
@@ -373,6 +414,27 @@ public class PlaceholderMappingController {
         }
     }
 
+    /**
+     * 慢渲染日志：超过阈值的渲染及其阶段耗时、占位符查询明细（从新到旧）
+     */
+    @GetMapping("/debug/slow-renders")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getSlowRenders() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("statistics", slowRenderLog.getStatistics());
+        result.put("entries", slowRenderLog.getEntries());
+        return ResponseEntity.ok(ApiResponse.ok(result));
+    }
+
+    /**
+     * 清空慢渲染日志
+     */
+    @DeleteMapping("/debug/slow-renders")
+    public ResponseEntity<ApiResponse<String>> clearSlowRenders() {
+        slowRenderLog.clear();
+        logger.info("🧹 [占位符映射] 已清空慢渲染日志");
+        return ResponseEntity.ok(ApiResponse.ok("慢渲染日志已清空"));
+    }
+
     // 测试用的辅助方法
     private String getChartTypeFromTestId(String chartId) {
         if (chartId.contains("line"))
@@ -1,13 +1,18 @@
 package com.example.chart.controller;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -19,10 +24,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.api.ApiResponse;
 import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.query.ParallelScanExecutor;
+import com.example.chart.query.QueryResultCache;
+import com.example.chart.service.BulkDataImportService;
 import com.example.chart.service.SimpleUniversalDataCrudService;
+import com.example.chart.store.DataStoreJournal;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
  * 简化的UniversalChartDataView CRUD控制器
@@ -38,9 +52,27 @@ public class SimpleUniversalDataController {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleUniversalDataController.class);
 
+    // 游标分页单页最大记录数
+    private static final int MAX_CURSOR_LIMIT = 1000;
+
     @Autowired
     private SimpleUniversalDataCrudService crudService;
 
+    @Autowired
+    private BulkDataImportService importService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private DataStoreJournal journal;
+
+    @Autowired
+    private ParallelScanExecutor scanExecutor;
+
+    @Autowired
+    private QueryResultCache queryCache;
+
     /**
      * 获取所有数据记录（支持年份和地区筛选）
      */
@@ -53,33 +85,35 @@ public class SimpleUniversalDataController {
         logger.info("📋 [简化CRUD] 获取数据记录列表，页码: {}, 大小: {}, 年份: {}, 地区: {}", page, size, year, region);
 
         try {
-            List<UniversalChartDataView> allRecords;
-            
+            List<UniversalChartDataView> records;
+            long totalCount;
+
             // 根据筛选条件获取数据
             if (year != null || region != null) {
-                allRecords = crudService.findWithFilters(year, region);
+                List<UniversalChartDataView> allRecords = crudService.findWithFilters(year, region);
                 logger.info("📊 [筛选查询] 筛选条件 - 年份: {}, 地区: {}, 筛选后数量: {}", year, region, allRecords.size());
-            } else {
-                allRecords = crudService.findAll();
-                logger.info("📊 [全量查询] 无筛选条件，返回全部数据: {} 条", allRecords.size());
-            }
 
-            // 计算筛选后的总数
-            long totalCount = allRecords.size();
+                // 计算筛选后的总数
+                totalCount = allRecords.size();
 
-            // 分页处理
-            List<UniversalChartDataView> records;
-            if (page >= 0 && size > 0) {
-                int start = page * size;
-                int end = Math.min(start + size, allRecords.size());
-                
-                if (start >= allRecords.size()) {
-                    records = new ArrayList<>();
+                // 分页处理
+                if (page >= 0 && size > 0) {
+                    int start = page * size;
+                    int end = Math.min(start + size, allRecords.size());
+
+                    if (start >= allRecords.size()) {
+                        records = new ArrayList<>();
+                    } else {
+                        records = allRecords.subList(start, end);
+                    }
                 } else {
-                    records = allRecords.subList(start, end);
+                    records = allRecords;
                 }
             } else {
-                records = allRecords;
+                // 无筛选条件时直接在有序存储上分页，不复制全量数据
+                totalCount = crudService.count();
+                records = page >= 0 && size > 0 ? crudService.findWithPagination(page, size) : crudService.findAll();
+                logger.info("📊 [全量查询] 无筛选条件，总数: {} 条", totalCount);
             }
 
             Map<String, Object> response = new HashMap<>();
@@ -103,6 +137,69 @@ public class SimpleUniversalDataController {
         }
     }
 
+    /**
+     * 游标分页获取数据记录
+     * 按ID升序返回after之后的limit条记录，nextCursor传给下一次请求的after参数
+     */
+    @GetMapping("/records/cursor")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getRecordsByCursor(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "100") int limit) {
+        logger.debug("📋 [简化CRUD] 游标分页，after: {}, limit: {}", after, limit);
+
+        try {
+            int pageSize = Math.max(1, Math.min(limit, MAX_CURSOR_LIMIT));
+            // 多取一条用于判断是否还有下一页
+            List<UniversalChartDataView> records = crudService.findAfter(after, pageSize + 1);
+            boolean hasMore = records.size() > pageSize;
+            if (hasMore) {
+                records = records.subList(0, pageSize);
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("records", records);
+            response.put("limit", pageSize);
+            response.put("hasMore", hasMore);
+            response.put("nextCursor", hasMore ? records.get(records.size() - 1).getId() : null);
+
+            return ResponseEntity.ok(ApiResponse.ok(response));
+
+        } catch (Exception e) {
+            logger.error("❌ [简化CRUD] 游标分页失败", e);
+            return ResponseEntity.ok(ApiResponse.error("ERROR", "游标分页失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 流式导出数据记录（NDJSON）
+     * 按ID升序逐条写出，不在内存中构建完整结果
+     */
+    @GetMapping(value = "/records/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportRecords(@RequestParam(required = false) Long after) {
+        logger.info("📤 [简化CRUD] 流式导出数据记录，after: {}", after);
+
+        ObjectWriter writer = objectMapper.writerFor(UniversalChartDataView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n");
+
+        StreamingResponseBody body = outputStream -> {
+            long exported = 0;
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                for (UniversalChartDataView record : crudService.recordsAfter(after)) {
+                    writer.writeValue(generator, record);
+                    exported++;
+                }
+                generator.writeRaw('\n');
+            }
+            logger.info("✅ [简化CRUD] 流式导出完成: {} 条", exported);
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"records.ndjson\"")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
     /**
      * 根据ID获取单条记录
      */
@@ -150,6 +247,32 @@ public class SimpleUniversalDataController {
         }
     }
 
+    /**
+     * 批量导入数据记录
+     * 请求体为NDJSON（application/x-ndjson）或CSV（text/csv），以流的方式解析并按批写入
+     */
+    @PostMapping("/records/bulk")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> bulkImportRecords(HttpServletRequest request,
+            @RequestParam(required = false) String format) {
+        String contentType = request.getContentType();
+        boolean csv = format != null ? "csv".equalsIgnoreCase(format)
+                : contentType != null && contentType.toLowerCase().contains("csv");
+        logger.info("📥 [简化CRUD] 批量导入数据记录，格式: {}", csv ? "csv" : "ndjson");
+
+        try (InputStream body = request.getInputStream()) {
+            BulkDataImportService.ImportResult result = csv
+                    ? importService.importCsv(body)
+                    : importService.importNdjson(body);
+
+            logger.info("✅ [简化CRUD] 批量导入完成: 成功 {} 条, 拒绝 {} 条", result.getImported(), result.getRejected());
+            return ResponseEntity.ok(ApiResponse.ok(result.toMap()));
+
+        } catch (Exception e) {
+            logger.error("❌ [简化CRUD] 批量导入失败", e);
+            return ResponseEntity.ok(ApiResponse.error("IMPORT_FAILED", "批量导入失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 更新数据记录
      */
@@ -359,6 +482,56 @@ public class SimpleUniversalDataController {
         }
     }
 
+    /**
+     * 获取持久化统计信息（恢复耗时、日志大小、fsync延迟等）
+     */
+    @GetMapping("/store/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getStoreStatistics() {
+        return ResponseEntity.ok(ApiResponse.ok(journal.getStatistics()));
+    }
+
+    /**
+     * 获取并行扫描统计信息（并行/顺序扫描次数、分区数、线程池状态）
+     */
+    @GetMapping("/scan/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getScanStatistics() {
+        return ResponseEntity.ok(ApiResponse.ok(scanExecutor.getStatistics()));
+    }
+
+    /**
+     * 获取查询结果缓存统计信息（命中率、淘汰次数、按查询形状的命中率）
+     */
+    @GetMapping("/query-cache/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getQueryCacheStatistics() {
+        return ResponseEntity.ok(ApiResponse.ok(queryCache.getStatistics()));
+    }
+
+    /**
+     * 清空查询结果缓存
+     */
+    @DeleteMapping("/query-cache")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> clearQueryCache() {
+        queryCache.clear();
+        return ResponseEntity.ok(ApiResponse.ok(queryCache.getStatistics()));
+    }
+
+    /**
+     * 立即生成快照并清理已覆盖的日志段
+     */
+    @PostMapping("/store/snapshot")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> createSnapshot() {
+        try {
+            Map<String, Object> result = journal.snapshot();
+            logger.info("📸 [简化CRUD] 手动快照完成: {}", result);
+            return ResponseEntity.ok(ApiResponse.ok(result));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.ok(ApiResponse.error("STORE_DISABLED", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("❌ [简化CRUD] 生成快照失败", e);
+            return ResponseEntity.ok(ApiResponse.error("ERROR", "生成快照失败: " + e.getMessage()));
+        }
+    }
+
     /**
      * 测试筛选参数接收
      */
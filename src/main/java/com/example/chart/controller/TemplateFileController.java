@@ -1,20 +1,18 @@
 package com.example.chart.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.StoredArtifact;
+import com.example.chart.store.StoredArtifact.Kind;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 模板文件管理控制器
@@ -24,13 +22,9 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/template-files")
 public class TemplateFileController {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    
-    // 文件存储路径配置
-    private static final String TEMPLATE_BASE_PATH = "src/main/resources";
-    private static final String JSON_TEMPLATE_PATH = TEMPLATE_BASE_PATH + "/universal-templates";
-    private static final String JOLT_SPEC_PATH = TEMPLATE_BASE_PATH + "/jolt-specs";
-    private static final String ECHARTS_EXAMPLES_PATH = TEMPLATE_BASE_PATH + "/echarts";
+    // 模板和规范文件保存在内容寻址的制品存储中，读取不访问文件系统
+    @Autowired
+    private ArtifactStore artifactStore;
 
     /**
      * 获取模板管理数据表格
@@ -95,22 +89,17 @@ public class TemplateFileController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            // 验证JSON内容
-            String content = new String(file.getBytes(), StandardCharsets.UTF_8);
-            objectMapper.readValue(content, Map.class); // 验证JSON格式
-            
-            // 保存文件
+            // 存入制品存储（同时校验JSON格式），同名文件保留历史版本
             String fileName = getJsonTemplateFileName(chartType);
-            Path filePath = Paths.get(JSON_TEMPLATE_PATH, fileName);
-            Files.createDirectories(filePath.getParent());
-            Files.write(filePath, file.getBytes());
+            StoredArtifact artifact = artifactStore.put(Kind.TEMPLATE, null, fileName, chartType, file.getBytes(), null);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("fileName", fileName);
-            response.put("filePath", filePath.toString());
+            response.put("filePath", artifact.getPath());
+            response.put("hash", artifact.getHash());
             response.put("size", file.getSize());
-            response.put("uploadTime", System.currentTimeMillis());
+            response.put("uploadTime", artifact.getCreatedAt());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -141,22 +130,17 @@ public class TemplateFileController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            // 验证JSON内容
-            String content = new String(file.getBytes(), StandardCharsets.UTF_8);
-            objectMapper.readValue(content, Object.class); // 验证JSON格式
-            
-            // 保存文件
+            // 存入制品存储（同时校验JSON格式并编译规范），同名文件保留历史版本
             String fileName = getJoltSpecFileName(chartType);
-            Path filePath = Paths.get(JOLT_SPEC_PATH, fileName);
-            Files.createDirectories(filePath.getParent());
-            Files.write(filePath, file.getBytes());
+            StoredArtifact artifact = artifactStore.put(Kind.JOLT_SPEC, null, fileName, chartType, file.getBytes(), null);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("fileName", fileName);
-            response.put("filePath", filePath.toString());
+            response.put("filePath", artifact.getPath());
+            response.put("hash", artifact.getHash());
             response.put("size", file.getSize());
-            response.put("uploadTime", System.currentTimeMillis());
+            response.put("uploadTime", artifact.getCreatedAt());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -173,18 +157,17 @@ public class TemplateFileController {
     public ResponseEntity<Resource> downloadJsonTemplate(@RequestParam("chartType") String chartType) {
         try {
             String fileName = getJsonTemplateFileName(chartType);
-            Path filePath = Paths.get(JSON_TEMPLATE_PATH, fileName);
+            Optional<StoredArtifact> artifact = artifactStore.resolveForChart(Kind.TEMPLATE, chartType, null, fileName);
             
-            if (!Files.exists(filePath)) {
+            if (!artifact.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
             
-            Resource resource = new org.springframework.core.io.FileSystemResource(filePath.toFile());
-            
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                    .eTag("\"" + artifact.get().getHash() + "\"")
                     .contentType(MediaType.APPLICATION_JSON)
-                    .body(resource);
+                    .body(new ByteArrayResource(artifact.get().getContent()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -197,18 +180,17 @@ public class TemplateFileController {
     public ResponseEntity<Resource> downloadJoltSpec(@RequestParam("chartType") String chartType) {
         try {
             String fileName = getJoltSpecFileName(chartType);
-            Path filePath = Paths.get(JOLT_SPEC_PATH, fileName);
+            Optional<StoredArtifact> artifact = artifactStore.resolveForChart(Kind.JOLT_SPEC, chartType, null, fileName);
             
-            if (!Files.exists(filePath)) {
+            if (!artifact.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
             
-            Resource resource = new org.springframework.core.io.FileSystemResource(filePath.toFile());
-            
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                    .eTag("\"" + artifact.get().getHash() + "\"")
                     .contentType(MediaType.APPLICATION_JSON)
-                    .body(resource);
+                    .body(new ByteArrayResource(artifact.get().getContent()));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -221,11 +203,7 @@ public class TemplateFileController {
     public ResponseEntity<Map<String, Object>> deleteJsonTemplate(@RequestParam("chartType") String chartType) {
         try {
             String fileName = getJsonTemplateFileName(chartType);
-            Path filePath = Paths.get(JSON_TEMPLATE_PATH, fileName);
-            
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-            }
+            artifactStore.remove(Kind.TEMPLATE, null, fileName);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -248,11 +226,7 @@ public class TemplateFileController {
     public ResponseEntity<Map<String, Object>> deleteJoltSpec(@RequestParam("chartType") String chartType) {
         try {
             String fileName = getJoltSpecFileName(chartType);
-            Path filePath = Paths.get(JOLT_SPEC_PATH, fileName);
-            
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-            }
+            artifactStore.remove(Kind.JOLT_SPEC, null, fileName);
             
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -275,23 +249,19 @@ public class TemplateFileController {
     public ResponseEntity<Map<String, Object>> previewJsonTemplate(@RequestParam("chartType") String chartType) {
         try {
             String fileName = getJsonTemplateFileName(chartType);
-            Path filePath = Paths.get(JSON_TEMPLATE_PATH, fileName);
+            Optional<StoredArtifact> artifact = artifactStore.resolveForChart(Kind.TEMPLATE, chartType, null, fileName);
             
-            if (!Files.exists(filePath)) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "文件不存在: " + fileName);
+            if (!artifact.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
             
-            String content = Files.readString(filePath, StandardCharsets.UTF_8);
-            Map<String, Object> jsonContent = objectMapper.readValue(content, Map.class);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("fileName", fileName);
-            response.put("content", jsonContent);
-            response.put("rawContent", content);
-            response.put("size", Files.size(filePath));
-            response.put("lastModified", Files.getLastModifiedTime(filePath).toMillis());
+            response.put("content", artifact.get().getParsed());
+            response.put("rawContent", artifact.get().getContentAsString());
+            response.put("size", artifact.get().getSize());
+            response.put("lastModified", artifact.get().getCreatedAt());
+            response.put("hash", artifact.get().getHash());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -308,23 +278,19 @@ public class TemplateFileController {
     public ResponseEntity<Map<String, Object>> previewJoltSpec(@RequestParam("chartType") String chartType) {
         try {
             String fileName = getJoltSpecFileName(chartType);
-            Path filePath = Paths.get(JOLT_SPEC_PATH, fileName);
+            Optional<StoredArtifact> artifact = artifactStore.resolveForChart(Kind.JOLT_SPEC, chartType, null, fileName);
             
-            if (!Files.exists(filePath)) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "文件不存在: " + fileName);
+            if (!artifact.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
             
-            String content = Files.readString(filePath, StandardCharsets.UTF_8);
-            Object jsonContent = objectMapper.readValue(content, Object.class);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("fileName", fileName);
-            response.put("content", jsonContent);
-            response.put("rawContent", content);
-            response.put("size", Files.size(filePath));
-            response.put("lastModified", Files.getLastModifiedTime(filePath).toMillis());
+            response.put("content", artifact.get().getParsed());
+            response.put("rawContent", artifact.get().getContentAsString());
+            response.put("size", artifact.get().getSize());
+            response.put("lastModified", artifact.get().getCreatedAt());
+            response.put("hash", artifact.get().getHash());
             
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -403,19 +369,16 @@ public class TemplateFileController {
     private Map<String, Object> getJsonTemplateInfo(String chartType) {
         Map<String, Object> info = new HashMap<>();
         String fileName = getJsonTemplateFileName(chartType);
-        Path filePath = Paths.get(JSON_TEMPLATE_PATH, fileName);
+        Optional<StoredArtifact> artifact = artifactStore.resolveForChart(Kind.TEMPLATE, chartType, null, fileName);
         
         info.put("fileName", fileName);
-        info.put("exists", Files.exists(filePath));
+        info.put("exists", artifact.isPresent());
         
-        if (Files.exists(filePath)) {
-            try {
-                info.put("size", Files.size(filePath));
-                info.put("lastModified", Files.getLastModifiedTime(filePath).toMillis());
-            } catch (IOException e) {
-                info.put("error", e.getMessage());
-            }
-        }
+        artifact.ifPresent(a -> {
+            info.put("size", a.getSize());
+            info.put("lastModified", a.getCreatedAt());
+            info.put("hash", a.getHash());
+        });
         
         return info;
     }
@@ -423,19 +386,16 @@ public class TemplateFileController {
     private Map<String, Object> getJoltSpecInfo(String chartType) {
         Map<String, Object> info = new HashMap<>();
         String fileName = getJoltSpecFileName(chartType);
-        Path filePath = Paths.get(JOLT_SPEC_PATH, fileName);
+        Optional<StoredArtifact> artifact = artifactStore.resolveForChart(Kind.JOLT_SPEC, chartType, null, fileName);
         
         info.put("fileName", fileName);
-        info.put("exists", Files.exists(filePath));
+        info.put("exists", artifact.isPresent());
         
-        if (Files.exists(filePath)) {
-            try {
-                info.put("size", Files.size(filePath));
-                info.put("lastModified", Files.getLastModifiedTime(filePath).toMillis());
-            } catch (IOException e) {
-                info.put("error", e.getMessage());
-            }
-        }
+        artifact.ifPresent(a -> {
+            info.put("size", a.getSize());
+            info.put("lastModified", a.getCreatedAt());
+            info.put("hash", a.getHash());
+        });
         
         return info;
     }
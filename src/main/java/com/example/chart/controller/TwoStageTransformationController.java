@@ -7,18 +7,27 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.chart.diagnostics.RenderTracer;
 import com.example.chart.model.TemplateType;
+import com.example.chart.service.ChartRenderService;
+import com.example.chart.service.EChartsExampleCatalog;
 import com.example.chart.service.MappingRelationshipService;
 import com.example.chart.service.PlaceholderManager;
 import com.example.chart.service.PlaceholderMappingManager;
+import com.example.chart.service.RenderedOutputCache;
 import com.example.chart.service.TemplateService;
 import com.example.chart.service.TwoStageTransformationService;
 import com.example.chart.service.TwoStageTransformationService.TransformationResult;
@@ -49,6 +58,18 @@ public class TwoStageTransformationController {
     @Autowired
     private PlaceholderMappingManager placeholderMappingManager;
 
+    @Autowired
+    private ChartRenderService chartRenderService;
+
+    @Autowired
+    private RenderedOutputCache renderedOutputCache;
+
+    @Autowired
+    private EChartsExampleCatalog echartsExampleCatalog;
+
+    @Autowired
+    private RenderTracer renderTracer;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -200,8 +221,7 @@ public class TwoStageTransformationController {
                 }
             }
 
-            System.out.println("🔄 执行第一阶段转换，图表类型: " + chartId);
-            logger.info("📎 [阶段1转换] 正在调用 transformationService.executeStage1Transformation({})", chartId);
+            logger.debug("📎 [阶段1转换] 正在调用 transformationService.executeStage1Transformation({})", chartId);
 
             TwoStageTransformationService.TransformationResult result = transformationService
                     .executeStage1Transformation(chartId, universalTemplate);
@@ -246,7 +266,6 @@ public class TwoStageTransformationController {
             long duration = System.currentTimeMillis() - startTime;
             logger.error("❌ [阶段1转换] 第一阶段转换异常，耗时: {}ms, 图表: {}, 错误: {}", duration, chartId, e.getMessage(), e);
 
-            System.err.println("❌ 第一阶段转换失败: " + e.getMessage());
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
             errorResponse.put("message", "第一阶段转换失败: " + e.getMessage());
@@ -280,7 +299,7 @@ public class TwoStageTransformationController {
                 }
             }
 
-            logger.info("📎 [阶段2转换] 正在调用 transformationService.executeStage2Transformation({})", chartId);
+            logger.debug("📎 [阶段2转换] 正在调用 transformationService.executeStage2Transformation({})", chartId);
 
             TwoStageTransformationService.TransformationResult result = transformationService
                     .executeStage2Transformation(chartId, echartsTemplate);
@@ -425,144 +444,43 @@ public class TwoStageTransformationController {
     }
 
     /**
-     * 扫描ECharts目录结构
+     * 获取ECharts示例目录结构
+     * 目录索引常驻内存，只在示例变化时重建；支持If-None-Match，未变化时返回304
      */
     @GetMapping("/echarts-directory")
-    public ResponseEntity<com.example.api.ApiResponse<Map<String, Object>>> scanEChartsDirectory() {
-        logger.info("📁 [目录扫描] 开始扫描ECharts目录结构");
-        long startTime = System.currentTimeMillis();
+    public ResponseEntity<com.example.api.ApiResponse<Map<String, Object>>> scanEChartsDirectory(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        long startTime = System.nanoTime();
 
         try {
-            Map<String, Object> response = new HashMap<>();
-            Map<String, java.util.List<Map<String, String>>> directoryStructure = new HashMap<>();
+            EChartsExampleCatalog.Snapshot catalog = echartsExampleCatalog.getSnapshot();
 
-            // 扫描echarts目录
-            java.io.File echartsDir = new java.io.File("src/main/resources/echarts");
-            logger.debug("📂 [目录扫描] 扫描路径: {}", echartsDir.getAbsolutePath());
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(catalog.getEtag());
+            headers.setCacheControl(CacheControl.noCache());
 
-            if (!echartsDir.exists() || !echartsDir.isDirectory()) {
-                logger.error("❌ [目录扫描] ECharts目录不存在: {}", echartsDir.getAbsolutePath());
-                response.put("error", "ECharts目录不存在");
-                return ResponseEntity.status(404)
-                        .body(com.example.api.ApiResponse.error("DIRECTORY_NOT_FOUND", "ECharts目录不存在"));
+            if (catalog.getEtag().equals(ifNoneMatch)) {
+                logger.debug("📁 [目录索引] 未变化，返回304: {}", catalog.getEtag());
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
             }
 
-            java.io.File[] categories = echartsDir.listFiles(java.io.File::isDirectory);
-            if (categories != null) {
-                logger.debug("📁 [目录扫描] 发现 {} 个类别目录", categories.length);
-
-                for (java.io.File category : categories) {
-                    String categoryName = category.getName();
-                    java.util.List<Map<String, String>> files = new java.util.ArrayList<>();
-
-                    java.io.File[] jsonFiles = category.listFiles((dir, name) -> name.endsWith(".json"));
-                    if (jsonFiles != null) {
-                        logger.debug("📄 [目录扫描] 类别 '{}' 包含 {} 个JSON文件", categoryName, jsonFiles.length);
-
-                        for (java.io.File jsonFile : jsonFiles) {
-                            String fileName = jsonFile.getName();
-                            String displayName = fileName.replace(".json", "");
-                            String filePath = categoryName + "/" + fileName;
-                            String chartId = generateChartIdFromFilePath(filePath);
-
-                            Map<String, String> fileInfo = new HashMap<>();
-                            fileInfo.put("fileName", fileName);
-                            fileInfo.put("displayName", displayName);
-                            fileInfo.put("filePath", filePath);
-                            fileInfo.put("chartId", chartId);
-                            fileInfo.put("status", getChartImplementationStatus(chartId));
-                            files.add(fileInfo);
-
-                            logger.trace("📄 [目录扫描] 添加文件: {} -> {} (chartId: {})", fileName, displayName, chartId);
-                        }
-                    } else {
-                        logger.debug("📁 [目录扫描] 类别 '{}' 不包含JSON文件", categoryName);
-                    }
-
-                    directoryStructure.put(categoryName, files);
-                }
-            } else {
-                logger.warn("⚠️ [目录扫描] 无法读取类别目录");
+            if (catalog.getTotalFiles() == 0) {
+                logger.error("❌ [目录索引] 没有可用的ECharts示例");
+                return ResponseEntity.status(404)
+                        .body(com.example.api.ApiResponse.error("DIRECTORY_NOT_FOUND", "ECharts目录不存在"));
             }
 
-            response.put("directoryStructure", directoryStructure);
-            response.put("categories", directoryStructure.keySet());
-            response.put("totalCategories", directoryStructure.size());
-
-            int totalFiles = directoryStructure.values().stream()
-                    .mapToInt(java.util.List::size)
-                    .sum();
-            response.put("totalFiles", totalFiles);
-
-            long duration = System.currentTimeMillis() - startTime;
-            logger.info("✅ [目录扫描] 扫描完成，耗时: {}ms, 类别: {}个, 文件: {}个",
-                    duration, directoryStructure.size(), totalFiles);
-
-            if (logger.isDebugEnabled()) {
-                logger.debug("📤 [目录扫描] 扫描结果概要:");
-                for (Map.Entry<String, java.util.List<Map<String, String>>> entry : directoryStructure.entrySet()) {
-                    logger.debug("📁   类别 '{}': {} 个文件", entry.getKey(), entry.getValue().size());
-                }
-            }
+            logger.info("✅ [目录索引] 返回目录结构，耗时: {}μs, 类别: {}个, 文件: {}个",
+                    (System.nanoTime() - startTime) / 1000, catalog.getTotalCategories(), catalog.getTotalFiles());
 
-            return ResponseEntity.ok(com.example.api.ApiResponse.ok(response));
+            return new ResponseEntity<>(com.example.api.ApiResponse.ok(catalog.getView()), headers, HttpStatus.OK);
 
         } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            logger.error("❌ [目录扫描] 扫描失败，耗时: {}ms, 错误: {}", duration, e.getMessage(), e);
-
-            System.err.println("扫描ECharts目录失败: " + e.getMessage());
-            Map<String, Object> errorResponse = new HashMap<>();
-            errorResponse.put("error", e.getMessage());
+            logger.error("❌ [目录索引] 获取失败: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(com.example.api.ApiResponse.error("SCAN_ERROR", e.getMessage()));
         }
     }
 
-    /**
-     * 根据文件路径生成chartId
-     */
-    private String generateChartIdFromFilePath(String filePath) {
-        Map<String, String> pathToIdMapping = new HashMap<>();
-
-        // 映射关系
-        pathToIdMapping.put("折线图/基础折线图.json", "basic_line_chart");
-        pathToIdMapping.put("折线图/基础平滑折线图.json", "smooth_line_chart");
-        pathToIdMapping.put("折线图/折线图堆叠.json", "stacked_line_chart");
-        pathToIdMapping.put("柱状图/基础柱状图.json", "basic_bar_chart");
-        pathToIdMapping.put("柱状图/堆叠柱状图.json", "stacked_bar_chart");
-        pathToIdMapping.put("饼图/富文本标签.json", "basic_pie_chart");
-        pathToIdMapping.put("饼图/圆角环形图.json", "ring_chart");
-        pathToIdMapping.put("饼图/嵌套饼图.json", "nested_pie_chart");
-        pathToIdMapping.put("雷达图/基础雷达图.json", "basic_radar_chart");
-        pathToIdMapping.put("仪表盘/基础仪表盘.json", "basic_gauge_chart");
-        pathToIdMapping.put("仪表盘/进度仪表盘.json", "progress_gauge_chart");
-        pathToIdMapping.put("仪表盘/等级仪表盘.json", "grade_gauge_chart");
-
-        return pathToIdMapping.getOrDefault(filePath, filePath.replace(".json", "").replaceAll("[/\\\\]", "_"));
-    }
-
-    /**
-     * 获取图表实现状态
-     */
-    private String getChartImplementationStatus(String chartId) {
-        java.util.Set<String> implementedCharts = java.util.Set.of(
-                "stacked_line_chart", "basic_bar_chart", "stacked_bar_chart",
-                "basic_line_chart", "smooth_line_chart", "basic_pie_chart",
-                "ring_chart", "nested_pie_chart", "basic_radar_chart", "basic_gauge_chart",
-                "progress_gauge_chart", "grade_gauge_chart");
-
-        java.util.Set<String> plannedCharts = java.util.Set.of(
-                "basic_area_chart", "rose_chart", "filled_radar_chart");
-
-        if (implementedCharts.contains(chartId)) {
-            return "implemented";
-        } else if (plannedCharts.contains(chartId)) {
-            return "planned";
-        } else {
-            return "unknown";
-        }
-    }
-
     /**
      * 获取图表分类列表（错误恢复时使用）
      */
@@ -663,6 +581,144 @@ public class TwoStageTransformationController {
         }
     }
 
+    /**
+     * 渲染最终ECharts配置（直接返回JSON，按Accept-Encoding返回预压缩版本）
+     */
+    @GetMapping("/render/{chartId}")
+    public ResponseEntity<byte[]> renderChart(
+            @PathVariable String chartId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        logger.info("🖼️ [图表渲染] 开始渲染: {}", chartId);
+        long startTime = System.currentTimeMillis();
+
+        try {
+            ChartRenderService.RenderResult renderResult = chartRenderService.render(chartId);
+            RenderedOutputCache.Entry entry = renderResult.getEntry();
+
+            // 压缩在后台进行，只读取一次，只在已生成的版本中协商
+            byte[] gzip = entry.getGzip();
+            byte[] deflate = entry.getDeflate();
+            String encoding = negotiateEncoding(acceptEncoding, gzip != null, deflate != null);
+            byte[] body = "gzip".equals(encoding) ? gzip : "deflate".equals(encoding) ? deflate : entry.getRaw();
+            String etag = entry.getEtag(encoding);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setETag(etag);
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            headers.add("X-Render-Cache", renderResult.isCacheHit() ? "HIT" : "MISS");
+
+            if (matchesIfNoneMatch(ifNoneMatch, etag)) {
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+
+            if (encoding != null) {
+                headers.add(HttpHeaders.CONTENT_ENCODING, encoding);
+                renderedOutputCache.recordCompressedServe();
+            }
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setContentLength(body.length);
+
+            logger.info("✅ [图表渲染] 渲染完成: {}, 缓存: {}, 编码: {}, 大小: {} 字节, 耗时: {}ms",
+                    chartId, renderResult.isCacheHit() ? "命中" : "未命中",
+                    encoding != null ? encoding : "identity", body.length, System.currentTimeMillis() - startTime);
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+
+        } catch (Exception e) {
+            logger.error("❌ [图表渲染] 渲染失败: {}, 错误: {}", chartId, e.getMessage(), e);
+            return ResponseEntity.status(500).contentType(MediaType.TEXT_PLAIN)
+                    .body(("渲染失败: " + e.getMessage()).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 渲染结果缓存统计
+     */
+    @GetMapping("/render-cache/stats")
+    public ResponseEntity<com.example.api.ApiResponse<Map<String, Object>>> getRenderCacheStats() {
+        return ResponseEntity.ok(com.example.api.ApiResponse.ok(renderedOutputCache.getStatistics()));
+    }
+
+    /**
+     * 按需采集一次渲染的完整轨迹（绕过渲染结果缓存，不写入缓存）
+     */
+    @GetMapping("/debug/trace/{chartId}")
+    public ResponseEntity<com.example.api.ApiResponse<Map<String, Object>>> traceRender(@PathVariable String chartId) {
+        logger.info("🧭 [渲染轨迹] 按需采集: {}", chartId);
+        return ResponseEntity.ok(com.example.api.ApiResponse.ok(chartRenderService.renderWithTrace(chartId)));
+    }
+
+    /**
+     * 最近的渲染轨迹（采样和按需采集的）
+     */
+    @GetMapping("/debug/traces")
+    public ResponseEntity<com.example.api.ApiResponse<java.util.List<Map<String, Object>>>> recentTraces() {
+        return ResponseEntity.ok(com.example.api.ApiResponse.ok(renderTracer.getRecent()));
+    }
+
+    /**
+     * If-None-Match是否包含当前响应体的ETag（逗号分隔的列表、*，按弱比较忽略W/前缀）
+     */
+    private static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 根据Accept-Encoding选择可用的预压缩版本，压缩尚未完成时返回null（原始字节）
+     */
+    private String negotiateEncoding(String acceptEncoding, boolean gzipAvailable, boolean deflateAvailable) {
+        if (acceptEncoding == null || (!gzipAvailable && !deflateAvailable)) {
+            return null;
+        }
+        // 未列出的编码取*的权重，显式列出的编码（包括q=0）不受*影响
+        Double gzipQ = null;
+        Double deflateQ = null;
+        double wildcardQ = 0;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase();
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                gzipQ = q;
+            } else if ("deflate".equals(coding)) {
+                deflateQ = q;
+            } else if ("*".equals(coding)) {
+                wildcardQ = q;
+            }
+        }
+        double gzip = !gzipAvailable ? 0 : gzipQ != null ? gzipQ : wildcardQ;
+        double deflate = !deflateAvailable ? 0 : deflateQ != null ? deflateQ : wildcardQ;
+        if (gzip > 0 && gzip >= deflate) {
+            return "gzip";
+        }
+        if (deflate > 0) {
+            return "deflate";
+        }
+        return null;
+    }
+
     /**
      * 健康检查
      */
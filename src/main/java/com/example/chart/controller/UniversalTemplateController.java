@@ -1,24 +1,20 @@
 package com.example.chart.controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.chart.service.UniversalTemplateService;
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.StoredArtifact;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.FileCopyUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * 通用模板管理控制器
@@ -32,11 +28,10 @@ public class UniversalTemplateController {
     private static final Logger logger = LoggerFactory.getLogger(UniversalTemplateController.class);
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private UniversalTemplateService universalTemplateService;
     
-    // 通用模板文件存储路径
-    private static final String TEMPLATE_BASE_PATH = "src/main/resources/universal-templates/";
-    private static final String CLASSPATH_TEMPLATE_BASE = "universal-templates/";
+    @Autowired
+    private ArtifactStore artifactStore;
     
     // 7个通用模板的映射关系
     private static final Map<String, String> TEMPLATE_MAPPINGS = new HashMap<String, String>() {{
@@ -169,21 +164,18 @@ public class UniversalTemplateController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            Resource resource = new ClassPathResource(CLASSPATH_TEMPLATE_BASE + templateFile);
-            if (!resource.exists()) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "模板文件不存在: " + templateFile);
+            if (!checkTemplateExists(templateFile)) {
                 return ResponseEntity.notFound().build();
             }
             
-            InputStream inputStream = resource.getInputStream();
-            String content = new String(FileCopyUtils.copyToByteArray(inputStream), StandardCharsets.UTF_8);
-            Map<String, Object> template = objectMapper.readValue(content, Map.class);
+            // 直接返回缓存中的不可变模板，只读序列化不需要复制
+            UniversalTemplateService.ParsedTemplate parsed = universalTemplateService.getParsedTemplate(templateKey);
             
             Map<String, Object> response = new HashMap<>();
             response.put("templateKey", templateKey);
             response.put("fileName", templateFile);
-            response.put("content", template);
+            response.put("content", parsed.getTemplate());
+            response.put("version", parsed.getHash());
             response.put("timestamp", System.currentTimeMillis());
             
             return ResponseEntity.ok(response);
@@ -241,32 +233,25 @@ public class UniversalTemplateController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            // 验证文件是否为有效的JSON
-            String content = new String(file.getBytes(), StandardCharsets.UTF_8);
+            // 存入制品存储（同时校验JSON格式），并丢弃旧的模板缓存
+            String templateFile = TEMPLATE_MAPPINGS.get(templateKey);
+            StoredArtifact artifact;
             try {
-                objectMapper.readValue(content, Map.class);
-            } catch (Exception e) {
+                artifact = artifactStore.put(StoredArtifact.Kind.TEMPLATE, null, templateFile, null,
+                        file.getBytes(), null);
+            } catch (IllegalArgumentException e) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("error", "文件不是有效的JSON格式: " + e.getMessage());
                 return ResponseEntity.badRequest().body(error);
             }
-            
-            // 保存文件到对应位置
-            String templateFile = TEMPLATE_MAPPINGS.get(templateKey);
-            Path targetPath = Paths.get(TEMPLATE_BASE_PATH + templateFile);
-            
-            // 确保目录存在
-            Files.createDirectories(targetPath.getParent());
-            
-            // 写入文件
-            Files.write(targetPath, file.getBytes(), StandardOpenOption.CREATE, 
-                       StandardOpenOption.TRUNCATE_EXISTING);
+            universalTemplateService.invalidate(templateKey);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "通用模板上传成功");
             response.put("templateKey", templateKey);
             response.put("fileName", templateFile);
             response.put("fileSize", file.getSize());
+            response.put("version", artifact.getHash());
             response.put("timestamp", System.currentTimeMillis());
             
             logger.info("通用模板上传成功: {} -> {}", templateKey, templateFile);
@@ -292,15 +277,16 @@ public class UniversalTemplateController {
                 return ResponseEntity.badRequest().build();
             }
             
-            Resource resource = new ClassPathResource(CLASSPATH_TEMPLATE_BASE + templateFile);
-            if (!resource.exists()) {
+            Optional<StoredArtifact> artifact = latest(templateFile);
+            if (!artifact.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
             
             return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + templateFile + "\"")
+                .eTag("\"" + artifact.get().getHash() + "\"")
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(new InputStreamResource(resource.getInputStream()));
+                .body(new ByteArrayResource(artifact.get().getContent()));
                 
         } catch (Exception e) {
             logger.error("下载通用模板失败: " + templateKey, e);
@@ -321,14 +307,10 @@ public class UniversalTemplateController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            Path targetPath = Paths.get(TEMPLATE_BASE_PATH + templateFile);
-            if (!Files.exists(targetPath)) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "模板文件不存在: " + templateFile);
+            if (!artifactStore.remove(StoredArtifact.Kind.TEMPLATE, null, templateFile)) {
                 return ResponseEntity.notFound().build();
             }
-            
-            Files.delete(targetPath);
+            universalTemplateService.invalidate(templateKey);
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "通用模板删除成功");
@@ -361,20 +343,15 @@ public class UniversalTemplateController {
                 return ResponseEntity.badRequest().body(error);
             }
             
-            Resource resource = new ClassPathResource(CLASSPATH_TEMPLATE_BASE + templateFile);
-            if (!resource.exists()) {
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", "模板文件不存在: " + templateFile);
+            Optional<StoredArtifact> artifact = latest(templateFile);
+            if (!artifact.isPresent()) {
                 return ResponseEntity.notFound().build();
             }
             
-            InputStream inputStream = resource.getInputStream();
-            String content = new String(FileCopyUtils.copyToByteArray(inputStream), StandardCharsets.UTF_8);
-            
             Map<String, Object> response = new HashMap<>();
             response.put("templateKey", templateKey);
             response.put("fileName", templateFile);
-            response.put("content", content);
+            response.put("content", artifact.get().getContentAsString());
             response.put("displayName", getTemplateDisplayName(templateKey));
             response.put("category", getTemplateCategory(templateKey));
             response.put("timestamp", System.currentTimeMillis());
@@ -431,33 +408,29 @@ public class UniversalTemplateController {
         response.put("timestamp", System.currentTimeMillis());
         response.put("totalTemplates", TEMPLATE_MAPPINGS.size());
         response.put("totalSupportedChartTypes", CHART_TYPE_TO_TEMPLATE.size());
+        response.put("templateCache", universalTemplateService.getCacheStatistics());
         
         return ResponseEntity.ok(response);
     }
 
     // 私有辅助方法
 
+    private Optional<StoredArtifact> latest(String templateFile) {
+        return artifactStore.latest(StoredArtifact.Kind.TEMPLATE, null, templateFile);
+    }
+
     private boolean checkTemplateExists(String templateFile) {
-        try {
-            Resource resource = new ClassPathResource(CLASSPATH_TEMPLATE_BASE + templateFile);
-            return resource.exists();
-        } catch (Exception e) {
-            return false;
-        }
+        return latest(templateFile).isPresent();
     }
 
     private Map<String, Object> getTemplateFileInfo(String templateFile) {
         Map<String, Object> info = new HashMap<>();
-        try {
-            Resource resource = new ClassPathResource(CLASSPATH_TEMPLATE_BASE + templateFile);
-            if (resource.exists()) {
-                info.put("size", resource.contentLength());
-                info.put("lastModified", resource.lastModified());
-                info.put("readable", resource.isReadable());
-            }
-        } catch (Exception e) {
-            logger.warn("获取模板文件信息失败: " + templateFile, e);
-        }
+        latest(templateFile).ifPresent(artifact -> {
+            info.put("size", artifact.getSize());
+            info.put("lastModified", artifact.getCreatedAt());
+            info.put("readable", true);
+            info.put("version", artifact.getHash());
+        });
         return info;
     }
 
@@ -0,0 +1,29 @@
+package com.example.chart.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：一次Jolt规范执行
+ */
+@Name("com.example.chart.JoltExecution")
+@Label("Jolt Execution")
+@Category({ "Chart", "Transformation" })
+@Description("执行已编译的Jolt规范")
+@StackTrace(false)
+public class JoltExecutionEvent extends Event {
+
+    @Label("Chart ID")
+    public String chartId;
+
+    @Label("Spec File")
+    public String specFile;
+
+    @Label("Result Size")
+    @Description("转换结果的顶层字段数")
+    public int resultSize;
+}
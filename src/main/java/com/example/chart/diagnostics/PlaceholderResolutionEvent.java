@@ -0,0 +1,42 @@
+package com.example.chart.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：单个占位符的数据查询和聚合
+ */
+@Name("com.example.chart.PlaceholderResolution")
+@Label("Placeholder Resolution")
+@Category({ "Chart", "Mapping" })
+@Description("按字段映射查询数据并聚合出占位符的值")
+@StackTrace(false)
+public class PlaceholderResolutionEvent extends Event {
+
+    @Label("Chart ID")
+    public String chartId;
+
+    @Label("Placeholder")
+    public String placeholder;
+
+    @Label("Field")
+    public String fieldName;
+
+    @Label("Aggregation")
+    public String aggregationType;
+
+    @Label("Rows Scanned")
+    public int rowsScanned;
+
+    @Label("Rows Matched")
+    @Description("通过过滤条件的行数")
+    public int rowsMatched;
+
+    @Label("Result Size")
+    @Description("结果的元素个数（标量为1）")
+    public int resultSize;
+}
@@ -0,0 +1,128 @@
+package com.example.chart.diagnostics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单次渲染的耗时剖面
+ * 每次渲染都会收集（只记录阶段耗时和每个占位符的查询概况，开销很小），
+ * 渲染结束后由SlowRenderLog判断是否超过慢渲染阈值
+ */
+public final class RenderProfile {
+
+    private static final ThreadLocal<RenderProfile> CURRENT = new ThreadLocal<>();
+
+    private final String chartId;
+    private final long startedAt;
+    private final long startNanos;
+    private final Map<String, Long> stageMicros = new LinkedHashMap<>();
+    private final List<PlaceholderProfile> placeholders = new ArrayList<>();
+    private long durationMicros = -1;
+    private int resultBytes = -1;
+    private String outcome;
+
+    /**
+     * 单个占位符的查询概况
+     */
+    public static final class PlaceholderProfile {
+        private final String placeholder;
+        private final String fieldName;
+        private final Map<String, Object> filters;
+        private final String aggregationType;
+        private final int rowsScanned;
+        private final int rowsMatched;
+        private final int resultSize;
+        private final long micros;
+
+        PlaceholderProfile(String placeholder, String fieldName, Map<String, Object> filters,
+                String aggregationType, int rowsScanned, int rowsMatched, int resultSize, long micros) {
+            this.placeholder = placeholder;
+            this.fieldName = fieldName;
+            this.filters = filters == null || filters.isEmpty() ? null : new LinkedHashMap<>(filters);
+            this.aggregationType = aggregationType;
+            this.rowsScanned = rowsScanned;
+            this.rowsMatched = rowsMatched;
+            this.resultSize = resultSize;
+            this.micros = micros;
+        }
+
+        public String getPlaceholder() { return placeholder; }
+        public String getFieldName() { return fieldName; }
+        public Map<String, Object> getFilters() { return filters; }
+        public String getAggregationType() { return aggregationType; }
+        public int getRowsScanned() { return rowsScanned; }
+        public int getRowsMatched() { return rowsMatched; }
+        public int getResultSize() { return resultSize; }
+        public long getMicros() { return micros; }
+    }
+
+    private RenderProfile(String chartId) {
+        this.chartId = chartId;
+        this.startedAt = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 在当前线程开始收集；已有剖面时返回null（不嵌套）
+     */
+    static RenderProfile begin(String chartId) {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        RenderProfile profile = new RenderProfile(chartId);
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    /**
+     * 结束收集并从当前线程解绑
+     */
+    void end(String outcome, int resultBytes) {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        this.durationMicros = (System.nanoTime() - startNanos) / 1000;
+        this.outcome = outcome;
+        this.resultBytes = resultBytes;
+    }
+
+    /**
+     * 记录一个阶段的耗时（当前线程没有剖面时忽略，同名阶段累加）
+     */
+    public static void stage(String stage, long nanos) {
+        RenderProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.stageMicros.merge(stage, nanos / 1000, Long::sum);
+        }
+    }
+
+    /**
+     * 记录一个占位符的查询概况（当前线程没有剖面时忽略）
+     */
+    public static void placeholder(String placeholder, String fieldName, Map<String, Object> filters,
+            String aggregationType, int rowsScanned, int rowsMatched, int resultSize, long nanos) {
+        RenderProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.placeholders.add(new PlaceholderProfile(placeholder, fieldName, filters, aggregationType,
+                    rowsScanned, rowsMatched, resultSize, nanos / 1000));
+        }
+    }
+
+    public String getChartId() { return chartId; }
+    public long getDurationMicros() { return durationMicros; }
+    public List<PlaceholderProfile> getPlaceholders() { return placeholders; }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("chartId", chartId);
+        map.put("startedAt", startedAt);
+        map.put("durationMicros", durationMicros);
+        map.put("outcome", outcome);
+        map.put("resultBytes", resultBytes);
+        map.put("stageMicros", stageMicros);
+        map.put("placeholders", placeholders);
+        return map;
+    }
+}
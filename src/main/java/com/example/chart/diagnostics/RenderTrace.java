@@ -0,0 +1,193 @@
+package com.example.chart.diagnostics;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.helpers.MessageFormatter;
+
+import com.example.chart.query.DoubleSeries;
+import com.example.chart.query.LongSeries;
+
+/**
+ * 单次渲染的执行轨迹
+ * 绑定到当前线程，只有被采样或按需开启时才存在；未开启时event()只是一次ThreadLocal读取，
+ * 消息格式与SLF4J相同（{}占位），只在轨迹开启时才格式化
+ */
+public final class RenderTrace {
+
+    private static final ThreadLocal<RenderTrace> CURRENT = new ThreadLocal<>();
+
+    private static final int MAX_VALUE_LENGTH = 80;
+
+    private final String chartId;
+    private final String reason;
+    private final long startedAt;
+    private final long startNanos;
+    private final int maxEvents;
+    private final List<Event> events = new ArrayList<>();
+    private int droppedEvents;
+    private long durationNanos = -1;
+    private String outcome;
+
+    /**
+     * 轨迹中的一条事件
+     */
+    public static final class Event {
+        private final long offsetMicros;
+        private final String stage;
+        private final String message;
+
+        Event(long offsetMicros, String stage, String message) {
+            this.offsetMicros = offsetMicros;
+            this.stage = stage;
+            this.message = message;
+        }
+
+        public long getOffsetMicros() { return offsetMicros; }
+        public String getStage() { return stage; }
+        public String getMessage() { return message; }
+    }
+
+    private RenderTrace(String chartId, String reason, int maxEvents) {
+        this.chartId = chartId;
+        this.reason = reason;
+        this.maxEvents = maxEvents;
+        this.startedAt = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 在当前线程开启轨迹；已有轨迹时返回null（不嵌套）
+     */
+    static RenderTrace begin(String chartId, String reason, int maxEvents) {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        RenderTrace trace = new RenderTrace(chartId, reason, maxEvents);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * 结束轨迹并从当前线程解绑
+     */
+    void end(String outcome) {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+        this.durationNanos = System.nanoTime() - startNanos;
+        this.outcome = outcome;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * 记录一条事件（当前线程没有轨迹时忽略）
+     */
+    public static void event(String stage, String format, Object... args) {
+        RenderTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.add(stage, MessageFormatter.arrayFormat(format, args).getMessage());
+        }
+    }
+
+    private void add(String stage, String message) {
+        if (events.size() >= maxEvents) {
+            droppedEvents++;
+            return;
+        }
+        events.add(new Event((System.nanoTime() - startNanos) / 1000, stage, message));
+    }
+
+    /**
+     * 值的简短描述：集合和序列只给出类型和长度，长字符串截断，避免把整列数据写进日志
+     */
+    public static String describe(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Collection) {
+            return "List[" + ((Collection<?>) value).size() + "]";
+        }
+        if (value instanceof Map) {
+            return "Map[" + ((Map<?, ?>) value).size() + "]";
+        }
+        if (value instanceof DoubleSeries) {
+            return "DoubleSeries[" + ((DoubleSeries) value).size() + "]";
+        }
+        if (value instanceof LongSeries) {
+            return "LongSeries[" + ((LongSeries) value).size() + "]";
+        }
+        if (value.getClass().isArray()) {
+            return value.getClass().getComponentType().getSimpleName() + "[" + Array.getLength(value) + "]";
+        }
+        String text = String.valueOf(value);
+        return text.length() <= MAX_VALUE_LENGTH ? text
+                : text.substring(0, MAX_VALUE_LENGTH) + "...(" + text.length() + " chars)";
+    }
+
+    /**
+     * 值包含的元素个数：集合、序列和数组为长度，null为0，其余为1
+     */
+    public static int sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        }
+        if (value instanceof DoubleSeries) {
+            return ((DoubleSeries) value).size();
+        }
+        if (value instanceof LongSeries) {
+            return ((LongSeries) value).size();
+        }
+        if (value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+        return 1;
+    }
+
+    public String getChartId() { return chartId; }
+    public long getDurationMicros() { return durationNanos < 0 ? -1 : durationNanos / 1000; }
+    public List<Event> getEvents() { return events; }
+
+    /**
+     * 单行文本形式，用于采样日志
+     */
+    public String toLogString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(chartId).append(" (").append(reason).append(", ").append(getDurationMicros()).append("μs, ")
+                .append(outcome).append(')');
+        for (Event event : events) {
+            sb.append("\n  +").append(event.offsetMicros).append("μs [").append(event.stage).append("] ")
+                    .append(event.message);
+        }
+        if (droppedEvents > 0) {
+            sb.append("\n  ... 丢弃 ").append(droppedEvents).append(" 条事件");
+        }
+        return sb.toString();
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("chartId", chartId);
+        map.put("reason", reason);
+        map.put("startedAt", startedAt);
+        map.put("durationMicros", getDurationMicros());
+        map.put("outcome", outcome);
+        map.put("eventCount", events.size());
+        map.put("droppedEvents", droppedEvents);
+        map.put("events", events);
+        return map;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.chart.diagnostics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.config.ChartConfigProperties;
+
+/**
+ * 渲染轨迹的开启、采样和保留
+ * 采样到的轨迹写入独立的日志（com.example.chart.trace，INFO级别），并保留最近若干条供调试接口查看
+ */
+@Component
+public class RenderTracer {
+
+    private static final Logger traceLogger = LoggerFactory.getLogger("com.example.chart.trace");
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    private final Deque<RenderTrace> recent = new ArrayDeque<>();
+
+    /**
+     * 按采样比例决定是否为本次渲染开启轨迹，未采样时返回null
+     */
+    public RenderTrace maybeBegin(String chartId) {
+        ChartConfigProperties.Render.Trace config = chartConfigProperties.getRender().getTrace();
+        double sampleRate = config.getSampleRate();
+        if (sampleRate <= 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return null;
+        }
+        return RenderTrace.begin(chartId, "sampled", config.getMaxEvents());
+    }
+
+    /**
+     * 强制开启轨迹（调试接口使用），当前线程已有轨迹时返回null
+     */
+    public RenderTrace begin(String chartId) {
+        return RenderTrace.begin(chartId, "on-demand", chartConfigProperties.getRender().getTrace().getMaxEvents());
+    }
+
+    /**
+     * 结束轨迹；采样轨迹写日志并保留
+     */
+    public void finish(RenderTrace trace, String outcome) {
+        if (trace == null) {
+            return;
+        }
+        trace.end(outcome);
+        if (traceLogger.isInfoEnabled()) {
+            traceLogger.info("🧭 [渲染轨迹] {}", trace.toLogString());
+        }
+        int recentSize = chartConfigProperties.getRender().getTrace().getRecentSize();
+        synchronized (recent) {
+            recent.addFirst(trace);
+            while (recent.size() > recentSize) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 最近的轨迹（从新到旧）
+     */
+    public List<Map<String, Object>> getRecent() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (recent) {
+            for (RenderTrace trace : recent) {
+                result.add(trace.toMap());
+            }
+        }
+        return result;
+    }
+}
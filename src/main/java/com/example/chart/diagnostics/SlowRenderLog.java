@@ -0,0 +1,103 @@
+package com.example.chart.diagnostics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.config.ChartConfigProperties;
+
+/**
+ * 慢渲染日志
+ * 耗时超过阈值的渲染连同阶段耗时和每个占位符的查询概况保存在有界环形缓冲区中（新的覆盖旧的）。
+ * 完整渲染在ChartRenderService中收集；单独执行映射的入口（/stage2、/validate、映射测试）在映射执行时收集
+ */
+@Component
+public class SlowRenderLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowRenderLog.class);
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    private final Deque<RenderProfile> entries = new ArrayDeque<>();
+
+    private final AtomicLong totalRenders = new AtomicLong();
+    private final AtomicLong slowRenders = new AtomicLong();
+
+    /**
+     * 开始收集本次渲染的剖面，关闭时或当前线程已有剖面时返回null
+     */
+    public RenderProfile begin(String chartId) {
+        if (!chartConfigProperties.getRender().getSlowLog().isEnabled()) {
+            return null;
+        }
+        return RenderProfile.begin(chartId);
+    }
+
+    /**
+     * 结束收集，超过阈值时写入缓冲区
+     */
+    public void finish(RenderProfile profile, String outcome, int resultBytes) {
+        if (profile == null) {
+            return;
+        }
+        profile.end(outcome, resultBytes);
+        totalRenders.incrementAndGet();
+
+        ChartConfigProperties.Render.SlowLog config = chartConfigProperties.getRender().getSlowLog();
+        if (profile.getDurationMicros() < config.getThresholdMs() * 1000L) {
+            return;
+        }
+        slowRenders.incrementAndGet();
+        logger.warn("🐢 [慢渲染] {} 耗时 {}ms（阈值 {}ms），占位符 {} 个", profile.getChartId(),
+                profile.getDurationMicros() / 1000, config.getThresholdMs(), profile.getPlaceholders().size());
+        synchronized (entries) {
+            entries.addFirst(profile);
+            while (entries.size() > config.getCapacity()) {
+                entries.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 缓冲区中的慢渲染记录（从新到旧）
+     */
+    public List<Map<String, Object>> getEntries() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (entries) {
+            for (RenderProfile profile : entries) {
+                result.add(profile.toMap());
+            }
+        }
+        return result;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        ChartConfigProperties.Render.SlowLog config = chartConfigProperties.getRender().getSlowLog();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("thresholdMs", config.getThresholdMs());
+        stats.put("capacity", config.getCapacity());
+        stats.put("totalRenders", totalRenders.get());
+        stats.put("slowRenders", slowRenders.get());
+        synchronized (entries) {
+            stats.put("buffered", entries.size());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.chart.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：第一阶段结构转换
+ * 未开启录制时begin/end/shouldCommit只是空操作
+ */
+@Name("com.example.chart.Stage1Transform")
+@Label("Stage 1 Transform")
+@Category({ "Chart", "Transformation" })
+@Description("通用模板到ECharts结构的转换（保留占位符）")
+@StackTrace(false)
+public class Stage1TransformEvent extends Event {
+
+    @Label("Chart ID")
+    public String chartId;
+
+    @Label("Spec")
+    @Description("使用的转换规范或引擎")
+    public String specFile;
+
+    @Label("Placeholder Count")
+    @Description("转换后保留的占位符数量")
+    public int placeholderCount;
+
+    @Label("Success")
+    public boolean success;
+}
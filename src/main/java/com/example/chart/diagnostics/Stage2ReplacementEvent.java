@@ -0,0 +1,33 @@
+package com.example.chart.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：第二阶段占位符替换
+ */
+@Name("com.example.chart.Stage2Replacement")
+@Label("Stage 2 Replacement")
+@Category({ "Chart", "Mapping" })
+@Description("把查询结果回填到ECharts结构中")
+@StackTrace(false)
+public class Stage2ReplacementEvent extends Event {
+
+    @Label("Chart ID")
+    public String chartId;
+
+    @Label("Placeholder Count")
+    @Description("已映射并替换的占位符数量")
+    public int placeholderCount;
+
+    @Label("Unmapped Count")
+    public int unmappedCount;
+
+    @Label("Result Size")
+    @Description("回填的数据元素总数")
+    public int resultSize;
+}
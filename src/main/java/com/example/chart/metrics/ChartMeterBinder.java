@@ -0,0 +1,121 @@
+package com.example.chart.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.query.ParallelScanExecutor;
+import com.example.chart.query.QueryResultCache;
+import com.example.chart.service.RenderedOutputCache;
+import com.example.chart.service.SimpleUniversalDataCrudService;
+import com.example.chart.service.UniversalTemplateService;
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.DataStoreJournal;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 缓存、数据存储和制品存储的指标
+ * 直接读取各组件已有的计数器，采集时才取值，不影响请求路径
+ */
+@Component
+public class ChartMeterBinder implements MeterBinder {
+
+    @Autowired
+    private RenderedOutputCache renderedOutputCache;
+
+    @Autowired
+    private UniversalTemplateService universalTemplateService;
+
+    @Autowired
+    private SimpleUniversalDataCrudService dataService;
+
+    @Autowired
+    private DataStoreJournal journal;
+
+    @Autowired
+    private ArtifactStore artifactStore;
+
+    @Autowired
+    private ParallelScanExecutor scanExecutor;
+
+    @Autowired
+    private QueryResultCache queryCache;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // 缓存命中/未命中
+        FunctionCounter.builder("chart.cache.requests", renderedOutputCache, RenderedOutputCache::getHits)
+                .tags("cache", "render", "result", "hit")
+                .description("渲染结果缓存请求数")
+                .register(registry);
+        FunctionCounter.builder("chart.cache.requests", renderedOutputCache, RenderedOutputCache::getMisses)
+                .tags("cache", "render", "result", "miss")
+                .description("渲染结果缓存请求数")
+                .register(registry);
+        FunctionCounter.builder("chart.cache.requests", universalTemplateService,
+                UniversalTemplateService::getCacheHits)
+                .tags("cache", "universal_template", "result", "hit")
+                .description("通用模板缓存请求数")
+                .register(registry);
+        FunctionCounter.builder("chart.cache.requests", universalTemplateService,
+                UniversalTemplateService::getCacheLoads)
+                .tags("cache", "universal_template", "result", "miss")
+                .description("通用模板缓存请求数")
+                .register(registry);
+        Gauge.builder("chart.cache.entries", renderedOutputCache, RenderedOutputCache::size)
+                .tags("cache", "render")
+                .description("渲染结果缓存条目数")
+                .register(registry);
+        FunctionCounter.builder("chart.cache.requests", queryCache, QueryResultCache::getHits)
+                .tags("cache", "query", "result", "hit")
+                .description("查询结果缓存请求数")
+                .register(registry);
+        FunctionCounter.builder("chart.cache.requests", queryCache, QueryResultCache::getMisses)
+                .tags("cache", "query", "result", "miss")
+                .description("查询结果缓存请求数")
+                .register(registry);
+        Gauge.builder("chart.cache.entries", queryCache, QueryResultCache::size)
+                .tags("cache", "query")
+                .description("查询结果缓存条目数")
+                .register(registry);
+        Gauge.builder("chart.cache.weight", queryCache, QueryResultCache::getWeightedBytes)
+                .tags("cache", "query")
+                .baseUnit("bytes")
+                .description("查询结果缓存估算占用")
+                .register(registry);
+
+        // 数据存储
+        Gauge.builder("chart.store.records", dataService, SimpleUniversalDataCrudService::count)
+                .description("数据存储中的记录数")
+                .register(registry);
+        Gauge.builder("chart.store.base.rows", journal, DataStoreJournal::getBaseRows)
+                .description("内存映射列式快照的行数")
+                .register(registry);
+        Gauge.builder("chart.store.mapped", journal, DataStoreJournal::getMappedBytes)
+                .baseUnit("bytes")
+                .description("内存映射的列文件大小")
+                .register(registry);
+        Gauge.builder("chart.store.wal", journal, DataStoreJournal::getLogBytes)
+                .baseUnit("bytes")
+                .description("预写日志大小")
+                .register(registry);
+
+        // 查询扫描方式
+        FunctionCounter.builder("chart.query.scans", scanExecutor, ParallelScanExecutor::getParallelScans)
+                .tags("mode", "parallel")
+                .description("聚合查询扫描次数")
+                .register(registry);
+        FunctionCounter.builder("chart.query.scans", scanExecutor, ParallelScanExecutor::getSequentialScans)
+                .tags("mode", "sequential")
+                .description("聚合查询扫描次数")
+                .register(registry);
+
+        // 制品存储
+        Gauge.builder("chart.artifacts.revision", artifactStore, ArtifactStore::getRevision)
+                .description("制品存储修订号")
+                .register(registry);
+    }
+}
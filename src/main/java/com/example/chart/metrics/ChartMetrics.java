@@ -0,0 +1,85 @@
+package com.example.chart.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.config.ChartConfigProperties;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * 转换流程的Micrometer计时指标
+ * 各阶段用System.nanoTime()自行计时后调用record方法，避免在热路径上创建Timer.Sample；
+ * 是否附加chartId标签由chart.metrics.chart-id-tags控制
+ */
+@Component
+public class ChartMetrics {
+
+    public static final String PIPELINE_STAGE = "chart.pipeline.stage";
+    public static final String JOLT_EXECUTION = "chart.jolt.execution";
+    public static final String PLACEHOLDER_EXTRACTION = "chart.placeholder.extraction";
+    public static final String PLACEHOLDER_QUERY = "chart.placeholder.query";
+    public static final String PLACEHOLDER_REPLACEMENT = "chart.placeholder.replacement";
+
+    /** 第一阶段：结构转换 */
+    public static final String STAGE_STRUCTURE = "structure";
+    /** 第二阶段：数据回填 */
+    public static final String STAGE_BACKFILL = "backfill";
+    /** 第二阶段：回退到旧映射服务的数据回填 */
+    public static final String STAGE_BACKFILL_LEGACY = "backfill_legacy";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    /**
+     * 记录一个转换阶段的耗时
+     */
+    public void recordStage(String stage, String chartId, boolean success, long nanos) {
+        record(PIPELINE_STAGE, chartId, nanos, "stage", stage, "outcome", success ? "success" : "failure");
+    }
+
+    /**
+     * 记录一次Jolt规范执行的耗时（按规范文件打标签）
+     */
+    public void recordJolt(String spec, String chartId, long nanos) {
+        record(JOLT_EXECUTION, chartId, nanos, "spec", spec);
+    }
+
+    /**
+     * 记录一次占位符提取的耗时
+     */
+    public void recordExtraction(long nanos) {
+        meterRegistry.timer(PLACEHOLDER_EXTRACTION).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录单个占位符查询的耗时（按聚合类型打标签）
+     */
+    public void recordQuery(String aggregationType, String chartId, long nanos) {
+        String aggregation = aggregationType == null ? "none" : aggregationType.toLowerCase();
+        record(PLACEHOLDER_QUERY, chartId, nanos, "aggregation", aggregation);
+    }
+
+    /**
+     * 记录一次占位符替换的耗时
+     */
+    public void recordReplacement(long nanos) {
+        meterRegistry.timer(PLACEHOLDER_REPLACEMENT).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void record(String name, String chartId, long nanos, String... tags) {
+        String[] allTags = tags;
+        if (chartId != null && chartConfigProperties.getMetrics().isChartIdTags()) {
+            allTags = new String[tags.length + 2];
+            System.arraycopy(tags, 0, allTags, 0, tags.length);
+            allTags[tags.length] = "chartId";
+            allTags[tags.length + 1] = chartId;
+        }
+        meterRegistry.timer(name, allTags).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
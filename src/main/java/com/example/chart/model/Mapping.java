@@ -47,7 +47,7 @@ public class Mapping {
     }
 
     public static class Transform {
-        private String aggregation; // sum/avg/min/max/count/null
+        private String aggregation; // sum/avg/min/max/count/count_distinct/median/p95/null
         private List<String> groupBy = new ArrayList<>();
         private List<Filter> filters = new ArrayList<>();
         private List<Order> orderBy = new ArrayList<>();
@@ -0,0 +1,321 @@
+package com.example.chart.model.echarts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * 类型化的ECharts配置
+ * 不可变对象，通过Builder构建；可能承载占位符的槽位声明为Object，由OptionValueSerializer输出
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({ "title", "tooltip", "legend", "toolbox", "grid", "xAxis", "yAxis", "radar", "series" })
+public final class EChartsOption {
+
+    private final Title title;
+    private final Tooltip tooltip;
+    private final Legend legend;
+    private final Toolbox toolbox;
+    private final Grid grid;
+    private final Axis xAxis;
+    private final Axis yAxis;
+    private final RadarCoordinate radar;
+    private final List<EChartsSeries> series;
+
+    private EChartsOption(Builder builder) {
+        this.title = builder.title;
+        this.tooltip = builder.tooltip;
+        this.legend = builder.legend;
+        this.toolbox = builder.toolbox;
+        this.grid = builder.grid;
+        this.xAxis = builder.xAxis;
+        this.yAxis = builder.yAxis;
+        this.radar = builder.radar;
+        this.series = builder.series == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(builder.series));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Title getTitle() { return title; }
+    public Tooltip getTooltip() { return tooltip; }
+    public Legend getLegend() { return legend; }
+    public Toolbox getToolbox() { return toolbox; }
+    public Grid getGrid() { return grid; }
+
+    // Jackson默认会把getXAxis推断为"xaxis"，需显式指定属性名
+    @JsonProperty("xAxis")
+    public Axis getXAxis() { return xAxis; }
+
+    @JsonProperty("yAxis")
+    public Axis getYAxis() { return yAxis; }
+
+    public RadarCoordinate getRadar() { return radar; }
+    public List<EChartsSeries> getSeries() { return series; }
+
+    /**
+     * 是否为直角坐标系配置
+     */
+    public boolean hasCartesianAxis() {
+        return xAxis != null;
+    }
+
+    public static class Builder {
+        private Title title;
+        private Tooltip tooltip;
+        private Legend legend;
+        private Toolbox toolbox;
+        private Grid grid;
+        private Axis xAxis;
+        private Axis yAxis;
+        private RadarCoordinate radar;
+        private List<EChartsSeries> series;
+
+        public Builder title(Title title) { this.title = title; return this; }
+        public Builder tooltip(Tooltip tooltip) { this.tooltip = tooltip; return this; }
+        public Builder legend(Legend legend) { this.legend = legend; return this; }
+        public Builder toolbox(Toolbox toolbox) { this.toolbox = toolbox; return this; }
+        public Builder grid(Grid grid) { this.grid = grid; return this; }
+        public Builder xAxis(Axis xAxis) { this.xAxis = xAxis; return this; }
+        public Builder yAxis(Axis yAxis) { this.yAxis = yAxis; return this; }
+        public Builder radar(RadarCoordinate radar) { this.radar = radar; return this; }
+        public Builder series(List<EChartsSeries> series) { this.series = series; return this; }
+
+        public Builder addSeries(EChartsSeries item) {
+            if (this.series == null) {
+                this.series = new ArrayList<>();
+            }
+            this.series.add(item);
+            return this;
+        }
+
+        /**
+         * 是否已设置x轴（用于决定是否添加网格）
+         */
+        public boolean hasXAxis() {
+            return xAxis != null;
+        }
+
+        public EChartsOption build() {
+            return new EChartsOption(this);
+        }
+    }
+
+    // ========== 组件 ==========
+
+    /**
+     * 标题
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Title {
+        private final Object text;
+
+        public Title(Object text) {
+            this.text = text;
+        }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getText() { return text; }
+    }
+
+    /**
+     * 提示框
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Tooltip {
+        public static final Tooltip AXIS = new Tooltip("axis");
+        public static final Tooltip ITEM = new Tooltip("item");
+
+        private final String trigger;
+
+        public Tooltip(String trigger) {
+            this.trigger = trigger;
+        }
+
+        public String getTrigger() { return trigger; }
+    }
+
+    /**
+     * 图例
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Legend {
+        private final List<Object> data;
+        private final Boolean show;
+
+        public Legend(List<Object> data, Boolean show) {
+            this.data = data == null ? null : Collections.unmodifiableList(new ArrayList<>(data));
+            this.show = show;
+        }
+
+        public List<Object> getData() { return data; }
+        public Boolean getShow() { return show; }
+    }
+
+    /**
+     * 工具箱
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Toolbox {
+        public static final Toolbox SAVE_AS_IMAGE = new Toolbox(
+                Collections.singletonMap("saveAsImage", Collections.emptyMap()));
+
+        private final Map<String, Object> feature;
+
+        public Toolbox(Map<String, Object> feature) {
+            this.feature = feature == null ? null : Collections.unmodifiableMap(feature);
+        }
+
+        public Map<String, Object> getFeature() { return feature; }
+    }
+
+    /**
+     * 网格
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Grid {
+        public static final Grid DEFAULT = new Grid("3%", "4%", "3%", true);
+
+        private final String left;
+        private final String right;
+        private final String bottom;
+        private final Boolean containLabel;
+
+        public Grid(String left, String right, String bottom, Boolean containLabel) {
+            this.left = left;
+            this.right = right;
+            this.bottom = bottom;
+            this.containLabel = containLabel;
+        }
+
+        public String getLeft() { return left; }
+        public String getRight() { return right; }
+        public String getBottom() { return bottom; }
+        public Boolean getContainLabel() { return containLabel; }
+    }
+
+    /**
+     * 坐标轴
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Axis {
+        private final Object type;
+        private final Object name;
+        private final Object data;
+        private final Object boundaryGap;
+        private final Map<String, Object> extra;
+
+        public Axis(Object type, Object name, Object data, Object boundaryGap) {
+            this(type, name, data, boundaryGap, null);
+        }
+
+        public Axis(Object type, Object name, Object data, Object boundaryGap, Map<String, Object> extra) {
+            this.type = type;
+            this.name = name;
+            this.data = data;
+            this.boundaryGap = boundaryGap;
+            this.extra = extra == null ? Collections.emptyMap() : Collections.unmodifiableMap(extra);
+        }
+
+        /**
+         * 从通用模板的坐标轴定义创建；未单独声明的属性（axisLabel、min、max等）原样保留
+         */
+        public static Axis fromTemplate(Map<?, ?> axis) {
+            if (axis == null) {
+                return null;
+            }
+            return new Axis(axis.get("type"), axis.get("name"), axis.get("data"), axis.get("boundaryGap"),
+                    extraProperties(axis, "type", "name", "data", "boundaryGap"));
+        }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getType() { return type; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getName() { return name; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getData() { return data; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getBoundaryGap() { return boundaryGap; }
+
+        /**
+         * 其余属性，序列化时与已声明的属性平铺输出
+         */
+        @JsonAnyGetter
+        public Map<String, Object> getExtra() { return extra; }
+    }
+
+    /**
+     * 雷达坐标系
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class RadarCoordinate {
+        private final Object indicator;
+        private final Object shape;
+        private final Object radius;
+        private final Map<String, Object> extra;
+
+        public RadarCoordinate(Object indicator, Object shape, Object radius) {
+            this(indicator, shape, radius, null);
+        }
+
+        public RadarCoordinate(Object indicator, Object shape, Object radius, Map<String, Object> extra) {
+            this.indicator = indicator;
+            this.shape = shape;
+            this.radius = radius;
+            this.extra = extra == null ? Collections.emptyMap() : Collections.unmodifiableMap(extra);
+        }
+
+        /**
+         * 从通用模板的雷达坐标系定义创建；未单独声明的属性（center、splitArea等）原样保留
+         */
+        public static RadarCoordinate fromTemplate(Map<?, ?> radar) {
+            if (radar == null) {
+                return null;
+            }
+            return new RadarCoordinate(radar.get("indicator"), radar.get("shape"), radar.get("radius"),
+                    extraProperties(radar, "indicator", "shape", "radius"));
+        }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getIndicator() { return indicator; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getShape() { return shape; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getRadius() { return radius; }
+
+        /**
+         * 其余属性，序列化时与已声明的属性平铺输出
+         */
+        @JsonAnyGetter
+        public Map<String, Object> getExtra() { return extra; }
+    }
+
+    /**
+     * 模板定义中除已声明属性之外的键值（保持原顺序）；与NON_NULL一致，值为null的键不输出
+     */
+    private static Map<String, Object> extraProperties(Map<?, ?> source, String... declared) {
+        Map<String, Object> extra = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            String key = String.valueOf(entry.getKey());
+            if (entry.getValue() != null && !List.of(declared).contains(key)) {
+                extra.put(key, entry.getValue());
+            }
+        }
+        return extra;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.chart.model.echarts;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * 类型化的ECharts系列
+ * 按图表分类提供直角坐标系、饼图、雷达图和仪表盘四种系列
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public abstract class EChartsSeries {
+
+    private final String type;
+    private final Object data;
+
+    protected EChartsSeries(String type, Object data) {
+        this.type = type;
+        this.data = data;
+    }
+
+    public String getType() { return type; }
+
+    @JsonSerialize(using = OptionValueSerializer.class)
+    public Object getData() { return data; }
+
+    public static Cartesian.Builder cartesian(String type) {
+        return new Cartesian.Builder(type);
+    }
+
+    public static Pie.Builder pie() {
+        return new Pie.Builder();
+    }
+
+    public static Radar.Builder radar() {
+        return new Radar.Builder();
+    }
+
+    public static Gauge.Builder gauge() {
+        return new Gauge.Builder();
+    }
+
+    /**
+     * 直角坐标系系列（折线图、柱状图）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Cartesian extends EChartsSeries {
+        private final Object name;
+        private final Object smooth;
+        private final Object stack;
+
+        private Cartesian(Builder builder) {
+            super(builder.type, builder.data);
+            this.name = builder.name;
+            this.smooth = builder.smooth;
+            this.stack = builder.stack;
+        }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getName() { return name; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getSmooth() { return smooth; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getStack() { return stack; }
+
+        public static class Builder {
+            private final String type;
+            private Object name;
+            private Object data;
+            private Object smooth;
+            private Object stack;
+
+            private Builder(String type) {
+                this.type = type;
+            }
+
+            public Builder name(Object name) { this.name = name; return this; }
+            public Builder data(Object data) { this.data = data; return this; }
+            public Builder smooth(Object smooth) { this.smooth = smooth; return this; }
+            public Builder stack(Object stack) { this.stack = stack; return this; }
+
+            public Cartesian build() {
+                return new Cartesian(this);
+            }
+        }
+    }
+
+    /**
+     * 饼图系列
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Pie extends EChartsSeries {
+        private final Object name;
+        private final Object radius;
+        private final Object center;
+
+        private Pie(Builder builder) {
+            super("pie", builder.data);
+            this.name = builder.name;
+            this.radius = builder.radius;
+            this.center = builder.center;
+        }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getName() { return name; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getRadius() { return radius; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getCenter() { return center; }
+
+        public static class Builder {
+            private Object name;
+            private Object data;
+            private Object radius;
+            private Object center;
+
+            private Builder() {
+            }
+
+            public Builder name(Object name) { this.name = name; return this; }
+            public Builder data(Object data) { this.data = data; return this; }
+            public Builder radius(Object radius) { this.radius = radius; return this; }
+            public Builder center(Object center) { this.center = center; return this; }
+
+            public Pie build() {
+                return new Pie(this);
+            }
+        }
+    }
+
+    /**
+     * 雷达图系列
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Radar extends EChartsSeries {
+        private final Object name;
+
+        private Radar(Builder builder) {
+            super("radar", builder.data);
+            this.name = builder.name;
+        }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getName() { return name; }
+
+        public static class Builder {
+            private Object name;
+            private Object data;
+
+            private Builder() {
+            }
+
+            public Builder name(Object name) { this.name = name; return this; }
+            public Builder data(Object data) { this.data = data; return this; }
+
+            public Radar build() {
+                return new Radar(this);
+            }
+        }
+    }
+
+    /**
+     * 仪表盘系列
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Gauge extends EChartsSeries {
+        private final Object min;
+        private final Object max;
+        private final Object detail;
+        private final Object pointer;
+
+        private Gauge(Builder builder) {
+            super("gauge", builder.data);
+            this.min = builder.min;
+            this.max = builder.max;
+            this.detail = builder.detail;
+            this.pointer = builder.pointer;
+        }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getMin() { return min; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getMax() { return max; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getDetail() { return detail; }
+
+        @JsonSerialize(using = OptionValueSerializer.class)
+        public Object getPointer() { return pointer; }
+
+        public static class Builder {
+            private Object min;
+            private Object max;
+            private Object data;
+            private Object detail;
+            private Object pointer;
+
+            private Builder() {
+            }
+
+            public Builder min(Object min) { this.min = min; return this; }
+            public Builder max(Object max) { this.max = max; return this; }
+            public Builder data(Object data) { this.data = data; return this; }
+            public Builder detail(Object detail) { this.detail = detail; return this; }
+            public Builder pointer(Object pointer) { this.pointer = pointer; return this; }
+
+            public Gauge build() {
+                return new Gauge(this);
+            }
+        }
+    }
+}
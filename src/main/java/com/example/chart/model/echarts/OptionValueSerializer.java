@@ -0,0 +1,35 @@
+package com.example.chart.model.echarts;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * ECharts配置值序列化器
+ * 数据槽位可能是占位符字符串，也可能是真实数据；基本类型数组直接写出，避免装箱和反射
+ */
+public class OptionValueSerializer extends JsonSerializer<Object> {
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (value instanceof String) {
+            gen.writeString((String) value);
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            gen.writeArray(array, 0, array.length);
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            gen.writeArray(array, 0, array.length);
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            gen.writeArray(array, 0, array.length);
+        } else if (value instanceof String[]) {
+            String[] array = (String[]) value;
+            gen.writeArray(array, 0, array.length);
+        } else {
+            provider.defaultSerializeValue(value, gen);
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package com.example.chart.query;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToIntFunction;
+
+import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.store.ColumnTable;
+import com.example.chart.store.ColumnTable.Column;
+import com.example.chart.store.ColumnTable.Type;
+import com.example.chart.store.RecordStore;
+
+/**
+ * 内存中的列向量批次
+ * 某个数据版本的全部记录按列存放为原始类型数组，字符串列按字典编码（空值编码为-1）。
+ * 构建后不可修改，可被多个查询线程共享；查询时过滤和聚合只读取数组，不访问数据对象
+ */
+public final class ColumnBatch {
+
+    private static final int COLUMN_COUNT = Column.values().length;
+
+    private final int rowCount;
+    private final long[][] longs = new long[COLUMN_COUNT][];
+    private final int[][] ints = new int[COLUMN_COUNT][];
+    private final double[][] doubles = new double[COLUMN_COUNT][];
+    private final int[][] codes = new int[COLUMN_COUNT][];
+    private final String[][] dictionaries = new String[COLUMN_COUNT][];
+    private final Map<String, Integer>[] codeIndex;
+    // 数值和时间列的空值位图
+    private final long[][] nulls = new long[COLUMN_COUNT][];
+    // 时间列的纳秒部分（秒数存放在longs中）
+    private final int[][] nanos = new int[COLUMN_COUNT][];
+    // 业务日期的epoch-day（date，缺失时取year/month的第一天），无法确定时为NO_DAY
+    private int[] epochDays;
+    // 按粒度懒加载的分桶索引
+    private final TimeBuckets[] timeBuckets = new TimeBuckets[TimeBucket.values().length];
+    // 数组是否已交给追加构建器（只有第一次追加可以共用数组）
+    private final AtomicBoolean extended = new AtomicBoolean();
+
+    /**
+     * epochDays中表示无日期的值
+     */
+    public static final int NO_DAY = Integer.MIN_VALUE;
+
+    @SuppressWarnings("unchecked")
+    private ColumnBatch(int rowCount) {
+        this.rowCount = rowCount;
+        this.codeIndex = new Map[COLUMN_COUNT];
+    }
+
+    /**
+     * 从记录构建列向量批次（保持记录的遍历顺序）
+     */
+    public static ColumnBatch of(Collection<UniversalChartDataView> records) {
+        Builder builder = new Builder(records.size());
+        for (UniversalChartDataView data : records) {
+            builder.addRecord(data);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 在这个批次之后追加行的构建器
+     * 第一次追加与这个批次共用数组，只写入rowCount之后的位置，这个批次的内容不变；
+     * 再次追加时复制数组
+     */
+    public Builder extend() {
+        return new Builder(this, extended.compareAndSet(false, true));
+    }
+
+    /**
+     * 逐行构建列向量批次
+     * 内存映射表的行直接从列缓冲区复制原始值，字符串按表的字典编码查一次表换算，不还原数据对象
+     */
+    public static final class Builder implements RecordStore.RowSink {
+        private int rows;
+        private int capacity;
+        private final long[][] longs = new long[COLUMN_COUNT][];
+        private final int[][] ints = new int[COLUMN_COUNT][];
+        private final double[][] doubles = new double[COLUMN_COUNT][];
+        private final int[][] codes = new int[COLUMN_COUNT][];
+        private final long[][] nulls = new long[COLUMN_COUNT][];
+        private final int[][] nanos = new int[COLUMN_COUNT][];
+        // 追加时与之前的批次共用，查询线程可能同时读取
+        private final Map<String, Integer>[] codeIndex;
+        private int[] epochDays;
+        private int daysComputed;
+        // 映射表的字典编码到批次编码的换算（-1表示尚未换算）
+        private ColumnTable mappedTable;
+        private final int[][] remap = new int[COLUMN_COUNT][];
+
+        @SuppressWarnings("unchecked")
+        public Builder(int expectedRows) {
+            this.capacity = Math.max(16, expectedRows);
+            this.codeIndex = new Map[COLUMN_COUNT];
+            this.epochDays = new int[capacity];
+            for (Column column : Column.values()) {
+                int c = column.ordinal();
+                switch (column.getType()) {
+                    case LONG:
+                        longs[c] = new long[capacity];
+                        nulls[c] = new long[(capacity + 63) >>> 6];
+                        break;
+                    case INT:
+                        ints[c] = new int[capacity];
+                        nulls[c] = new long[(capacity + 63) >>> 6];
+                        break;
+                    case DOUBLE:
+                        doubles[c] = new double[capacity];
+                        nulls[c] = new long[(capacity + 63) >>> 6];
+                        break;
+                    case STRING:
+                        codes[c] = new int[capacity];
+                        codeIndex[c] = new ConcurrentHashMap<>();
+                        break;
+                    case TIME:
+                        longs[c] = new long[capacity];
+                        nanos[c] = new int[capacity];
+                        nulls[c] = new long[(capacity + 63) >>> 6];
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Builder(ColumnBatch batch, boolean share) {
+            this.rows = batch.rowCount;
+            this.daysComputed = batch.rowCount;
+            this.capacity = Math.max(16, batch.epochDays.length);
+            this.codeIndex = new Map[COLUMN_COUNT];
+            int words = (capacity + 63) >>> 6;
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                longs[c] = share || batch.longs[c] == null ? batch.longs[c] : Arrays.copyOf(batch.longs[c], capacity);
+                ints[c] = share || batch.ints[c] == null ? batch.ints[c] : Arrays.copyOf(batch.ints[c], capacity);
+                doubles[c] = share || batch.doubles[c] == null
+                        ? batch.doubles[c] : Arrays.copyOf(batch.doubles[c], capacity);
+                codes[c] = share || batch.codes[c] == null ? batch.codes[c] : Arrays.copyOf(batch.codes[c], capacity);
+                nanos[c] = share || batch.nanos[c] == null ? batch.nanos[c] : Arrays.copyOf(batch.nanos[c], capacity);
+                nulls[c] = share || batch.nulls[c] == null ? batch.nulls[c] : Arrays.copyOf(batch.nulls[c], words);
+                codeIndex[c] = share || batch.codeIndex[c] == null
+                        ? batch.codeIndex[c] : indexOf(batch.dictionaries[c]);
+            }
+            this.epochDays = share ? batch.epochDays : Arrays.copyOf(batch.epochDays, capacity);
+            if (!share) {
+                // 之前的追加可能已在位图中rowCount之后的位置写入空值标记
+                for (int c = 0; c < COLUMN_COUNT; c++) {
+                    if (nulls[c] != null) {
+                        clearBits(nulls[c], rows);
+                    }
+                }
+            }
+        }
+
+        private static Map<String, Integer> indexOf(String[] dictionary) {
+            Map<String, Integer> index = new ConcurrentHashMap<>();
+            for (int code = 0; code < dictionary.length; code++) {
+                index.put(dictionary[code], code);
+            }
+            return index;
+        }
+
+        private static void clearBits(long[] bits, int from) {
+            int word = from >>> 6;
+            if (word < bits.length) {
+                bits[word] &= (1L << (from & 63)) - 1;
+                Arrays.fill(bits, word + 1, bits.length, 0L);
+            }
+        }
+
+        @Override
+        public void addRecord(UniversalChartDataView data) {
+            int row = nextRow();
+            putLong(Column.ID, row, data.getId());
+            putString(Column.YEAR, row, data.getYear());
+            putString(Column.MONTH, row, data.getMonth());
+            putString(Column.DATE, row, data.getDate());
+            putString(Column.CATEGORY, row, data.getCategory());
+            putString(Column.CHANNEL, row, data.getChannel());
+            putString(Column.PRODUCT, row, data.getProduct());
+            putString(Column.REGION, row, data.getRegion());
+            putDouble(Column.AMOUNT, row, data.getAmount());
+            putInt(Column.QUANTITY, row, data.getQuantity());
+            putDouble(Column.PERCENTAGE, row, data.getPercentage());
+            putString(Column.SALESMAN, row, data.getSalesman());
+            putTime(Column.CREATED_AT, row, data.getCreatedAt());
+            putTime(Column.UPDATED_AT, row, data.getUpdatedAt());
+        }
+
+        @Override
+        public void addBaseRow(ColumnTable table, int source) {
+            if (table != mappedTable) {
+                mappedTable = table;
+                for (Column column : Column.values()) {
+                    if (column.getType() == Type.STRING) {
+                        remap[column.ordinal()] = new int[table.getDictionary(column).length];
+                        Arrays.fill(remap[column.ordinal()], -1);
+                    }
+                }
+            }
+            int row = nextRow();
+            for (Column column : Column.values()) {
+                int c = column.ordinal();
+                Type type = column.getType();
+                if (type == Type.STRING) {
+                    codes[c][row] = mapCode(table, column, table.getCode(column, source));
+                    continue;
+                }
+                if (column != Column.ID && table.isNull(column, source)) {
+                    setNull(column, row);
+                    continue;
+                }
+                switch (type) {
+                    case LONG:
+                        longs[c][row] = table.getLong(column, source);
+                        break;
+                    case INT:
+                        ints[c][row] = table.getInt(column, source);
+                        break;
+                    case DOUBLE:
+                        doubles[c][row] = table.getDouble(column, source);
+                        break;
+                    case TIME:
+                        longs[c][row] = table.getSeconds(column, source);
+                        nanos[c][row] = table.getNanos(column, source);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private int mapCode(ColumnTable table, Column column, int code) {
+            if (code < 0) {
+                return -1;
+            }
+            int[] mapping = remap[column.ordinal()];
+            int mapped = mapping[code];
+            if (mapped < 0) {
+                Map<String, Integer> index = codeIndex[column.ordinal()];
+                mapped = index.computeIfAbsent(table.getDictionary(column)[code], key -> index.size());
+                mapping[code] = mapped;
+            }
+            return mapped;
+        }
+
+        private int nextRow() {
+            if (rows == capacity) {
+                grow();
+            }
+            return rows++;
+        }
+
+        private void grow() {
+            capacity = capacity * 2;
+            int words = (capacity + 63) >>> 6;
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                longs[c] = longs[c] == null ? null : Arrays.copyOf(longs[c], capacity);
+                ints[c] = ints[c] == null ? null : Arrays.copyOf(ints[c], capacity);
+                doubles[c] = doubles[c] == null ? null : Arrays.copyOf(doubles[c], capacity);
+                codes[c] = codes[c] == null ? null : Arrays.copyOf(codes[c], capacity);
+                nanos[c] = nanos[c] == null ? null : Arrays.copyOf(nanos[c], capacity);
+                nulls[c] = nulls[c] == null ? null : Arrays.copyOf(nulls[c], words);
+            }
+            epochDays = Arrays.copyOf(epochDays, capacity);
+        }
+
+        private void putLong(Column column, int row, Long value) {
+            if (value == null) {
+                setNull(column, row);
+            } else {
+                longs[column.ordinal()][row] = value;
+            }
+        }
+
+        private void putInt(Column column, int row, Integer value) {
+            if (value == null) {
+                setNull(column, row);
+            } else {
+                ints[column.ordinal()][row] = value;
+            }
+        }
+
+        private void putDouble(Column column, int row, Double value) {
+            if (value == null) {
+                setNull(column, row);
+            } else {
+                doubles[column.ordinal()][row] = value;
+            }
+        }
+
+        private void putString(Column column, int row, String value) {
+            if (value == null) {
+                codes[column.ordinal()][row] = -1;
+            } else {
+                Map<String, Integer> index = codeIndex[column.ordinal()];
+                codes[column.ordinal()][row] = index.computeIfAbsent(value, key -> index.size());
+            }
+        }
+
+        private void putTime(Column column, int row, LocalDateTime value) {
+            if (value == null) {
+                setNull(column, row);
+            } else {
+                longs[column.ordinal()][row] = value.toEpochSecond(ZoneOffset.UTC);
+                nanos[column.ordinal()][row] = value.getNano();
+            }
+        }
+
+        private void setNull(Column column, int row) {
+            nulls[column.ordinal()][row >>> 6] |= 1L << (row & 63);
+        }
+
+        /**
+         * 生成批次；数组容量可能大于行数，查询只访问前rowCount行
+         */
+        public ColumnBatch build() {
+            ColumnBatch batch = new ColumnBatch(rows);
+            for (int c = 0; c < COLUMN_COUNT; c++) {
+                batch.longs[c] = longs[c];
+                batch.ints[c] = ints[c];
+                batch.doubles[c] = doubles[c];
+                batch.codes[c] = codes[c];
+                batch.nulls[c] = nulls[c];
+                batch.nanos[c] = nanos[c];
+                Map<String, Integer> index = codeIndex[c];
+                if (index != null) {
+                    String[] dictionary = new String[index.size()];
+                    for (Map.Entry<String, Integer> entry : index.entrySet()) {
+                        dictionary[entry.getValue()] = entry.getKey();
+                    }
+                    batch.codeIndex[c] = index;
+                    batch.dictionaries[c] = dictionary;
+                }
+            }
+            batch.epochDays = epochDays;
+            batch.fillEpochDays(epochDays, daysComputed);
+            daysComputed = rows;
+            return batch;
+        }
+    }
+
+    /**
+     * 计算from之后各行的epoch-day；日期字符串只按字典值解析一次，每行只做编码查表
+     */
+    private void fillEpochDays(int[] days, int from) {
+        int[] dateDays = parseDictionary(Column.DATE, ColumnBatch::parseDate);
+        int[] years = parseDictionary(Column.YEAR, ColumnBatch::parseYear);
+        int[] months = parseDictionary(Column.MONTH, ColumnBatch::parseMonth);
+        int[] dateCodes = codes(Column.DATE);
+        int[] yearCodes = codes(Column.YEAR);
+        int[] monthCodes = codes(Column.MONTH);
+        for (int row = from; row < rowCount; row++) {
+            int day = dateCodes[row] >= 0 ? dateDays[dateCodes[row]] : NO_DAY;
+            if (day == NO_DAY && yearCodes[row] >= 0 && years[yearCodes[row]] != NO_DAY) {
+                int month = monthCodes[row] >= 0 ? months[monthCodes[row]] : NO_DAY;
+                day = (int) LocalDate.of(years[yearCodes[row]], month == NO_DAY ? 1 : month, 1).toEpochDay();
+            }
+            days[row] = day;
+        }
+    }
+
+    private int[] parseDictionary(Column column, ToIntFunction<String> parser) {
+        String[] dictionary = dictionary(column);
+        int[] parsed = new int[dictionary.length];
+        for (int code = 0; code < dictionary.length; code++) {
+            parsed[code] = parser.applyAsInt(dictionary[code].trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * yyyy-MM-dd或yyyy/MM/dd（之后的时间部分忽略）
+     */
+    private static int parseDate(String text) {
+        String[] parts = (text.length() > 10 ? text.substring(0, 10) : text).split("[-/]");
+        if (parts.length != 3) {
+            return NO_DAY;
+        }
+        try {
+            return (int) LocalDate.of(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2])).toEpochDay();
+        } catch (NumberFormatException | DateTimeException e) {
+            return NO_DAY;
+        }
+    }
+
+    private static int parseYear(String text) {
+        try {
+            int year = Integer.parseInt(text);
+            return year >= 1 && year <= 9999 ? year : NO_DAY;
+        } catch (NumberFormatException e) {
+            return NO_DAY;
+        }
+    }
+
+    /**
+     * MM、M或yyyy-MM
+     */
+    private static int parseMonth(String text) {
+        int separator = Math.max(text.lastIndexOf('-'), text.lastIndexOf('/'));
+        try {
+            int month = Integer.parseInt(separator >= 0 ? text.substring(separator + 1) : text);
+            return month >= 1 && month <= 12 ? month : NO_DAY;
+        } catch (NumberFormatException e) {
+            return NO_DAY;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 是否为空值（字符串列判断编码是否为-1）
+     */
+    public boolean isNull(Column column, int row) {
+        if (column.getType() == Type.STRING) {
+            return codes[column.ordinal()][row] < 0;
+        }
+        return (nulls[column.ordinal()][row >>> 6] & (1L << (row & 63))) != 0;
+    }
+
+    /**
+     * 数值和时间列的空值位图（第row位为1表示空值）
+     */
+    public long[] nulls(Column column) {
+        return nulls[column.ordinal()];
+    }
+
+    /**
+     * LONG列的值，TIME列的秒数
+     */
+    public long[] longs(Column column) {
+        return longs[column.ordinal()];
+    }
+
+    public int[] ints(Column column) {
+        return ints[column.ordinal()];
+    }
+
+    public double[] doubles(Column column) {
+        return doubles[column.ordinal()];
+    }
+
+    /**
+     * 字符串列的字典编码，空值为-1
+     */
+    public int[] codes(Column column) {
+        return codes[column.ordinal()];
+    }
+
+    public String[] dictionary(Column column) {
+        return dictionaries[column.ordinal()];
+    }
+
+    /**
+     * 字符串在字典中的编码，不存在时返回-1
+     */
+    public int codeOf(Column column, String value) {
+        Map<String, Integer> index = codeIndex[column.ordinal()];
+        Integer code = index == null ? null : index.get(value);
+        // 字典表与之后追加的批次共用，只认这个批次字典范围内的编码
+        return code == null || code >= dictionaries[column.ordinal()].length ? -1 : code;
+    }
+
+    /**
+     * 每行业务日期的epoch-day，无日期为NO_DAY；数组长度可能大于行数
+     */
+    public int[] epochDays() {
+        return epochDays;
+    }
+
+    /**
+     * 指定粒度的分桶索引，首次使用时按epoch-day整数运算生成并缓存
+     */
+    public TimeBuckets timeBuckets(TimeBucket bucket) {
+        TimeBuckets result = timeBuckets[bucket.ordinal()];
+        if (result == null) {
+            result = TimeBuckets.of(epochDays, rowCount, bucket);
+            // 并发构建时结果相同，后写入的覆盖先写入的即可
+            timeBuckets[bucket.ordinal()] = result;
+        }
+        return result;
+    }
+
+    /**
+     * 分桶索引：每行相对于最早一个桶的稠密编号（无日期为-1），编号区间内的桶连续
+     */
+    public static final class TimeBuckets {
+        private final TimeBucket bucket;
+        private final int[] ids;
+        private final int first;
+        private final int count;
+
+        private TimeBuckets(TimeBucket bucket, int[] ids, int first, int count) {
+            this.bucket = bucket;
+            this.ids = ids;
+            this.first = first;
+            this.count = count;
+        }
+
+        static TimeBuckets of(int[] epochDays, int rows, TimeBucket bucket) {
+            int[] ids = new int[rows];
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int row = 0; row < rows; row++) {
+                int day = epochDays[row];
+                if (day == NO_DAY) {
+                    ids[row] = Integer.MIN_VALUE;
+                    continue;
+                }
+                int id = bucket.bucketOf(day);
+                ids[row] = id;
+                min = Math.min(min, id);
+                max = Math.max(max, id);
+            }
+            if (min > max) {
+                Arrays.fill(ids, -1);
+                return new TimeBuckets(bucket, ids, 0, 0);
+            }
+            for (int row = 0; row < rows; row++) {
+                ids[row] = ids[row] == Integer.MIN_VALUE ? -1 : ids[row] - min;
+            }
+            return new TimeBuckets(bucket, ids, min, max - min + 1);
+        }
+
+        public TimeBucket getBucket() { return bucket; }
+
+        /**
+         * 每行的稠密桶编号，无日期为-1
+         */
+        public int[] ids() { return ids; }
+
+        /**
+         * 稠密编号0对应的桶编号
+         */
+        public int getFirst() { return first; }
+
+        /**
+         * 最早到最晚之间（含空档）的桶数
+         */
+        public int getCount() { return count; }
+
+        /**
+         * 稠密编号对应的分类标签
+         */
+        public String label(int id) {
+            return bucket.label(first + id);
+        }
+    }
+
+    public LocalDateTime getTime(Column column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(longs[column.ordinal()][row], nanos[column.ordinal()][row],
+                ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,916 @@
+package com.example.chart.query;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BinaryOperator;
+
+import com.example.chart.query.expr.CompiledNumeric;
+import com.example.chart.query.expr.CompiledPredicate;
+import com.example.chart.query.expr.ExpressionCompiler;
+import com.example.chart.query.expr.NumericColumn;
+import com.example.chart.query.sketch.HyperLogLog;
+import com.example.chart.query.sketch.TDigest;
+import com.example.chart.store.ColumnTable.Column;
+import com.example.chart.store.ColumnTable.Type;
+
+/**
+ * 编译后的字段映射
+ * 字段名、过滤条件和聚合类型在配置映射时解析一次：过滤条件按列类型特化
+ * （字符串比较字典编码，数值比较原始类型），聚合按值列类型走对应的原始类型循环。
+ * 执行时每行只读取几个数组元素，不做字符串处理，也不装箱。
+ * 过滤表达式和转换表达式同样在编译时解析，见{@link ExpressionCompiler}
+ */
+public final class CompiledMapping {
+
+    /**
+     * 聚合类型
+     */
+    public enum Aggregation {
+        SUM, AVG, COUNT, MAX, MIN, LIST, NONE,
+        /** 不同值个数（HyperLogLog估计） */
+        COUNT_DISTINCT,
+        /** 中位数（t-digest估计） */
+        MEDIAN,
+        /** 分位数（t-digest估计），写作 p95 或 percentile_95 */
+        PERCENTILE;
+
+        /**
+         * 解析聚合类型，未知或为空时按NONE处理（取第一个值）
+         */
+        public static Aggregation parse(String aggregationType) {
+            if (aggregationType == null) {
+                return NONE;
+            }
+            String normalized = aggregationType.trim().toUpperCase(Locale.ROOT);
+            if ("DISTINCT".equals(normalized) || "DISTINCT_COUNT".equals(normalized)) {
+                return COUNT_DISTINCT;
+            }
+            if (!Double.isNaN(percentileOf(normalized))) {
+                return PERCENTILE;
+            }
+            try {
+                return valueOf(normalized);
+            } catch (IllegalArgumentException e) {
+                return NONE;
+            }
+        }
+
+        /**
+         * 分位数聚合对应的分位点（0到1），中位数为0.5，其他聚合返回NaN
+         */
+        public static double quantileOf(String aggregationType) {
+            if (aggregationType == null) {
+                return Double.NaN;
+            }
+            String normalized = aggregationType.trim().toUpperCase(Locale.ROOT);
+            return "MEDIAN".equals(normalized) ? 0.5 : percentileOf(normalized);
+        }
+
+        private static double percentileOf(String normalized) {
+            String number;
+            if (normalized.startsWith("PERCENTILE_")) {
+                number = normalized.substring("PERCENTILE_".length());
+            } else if (normalized.length() > 1 && normalized.charAt(0) == 'P' && Character.isDigit(normalized.charAt(1))) {
+                number = normalized.substring(1);
+            } else {
+                return Double.NaN;
+            }
+            try {
+                double percentile = Double.parseDouble(number);
+                return percentile >= 0 && percentile <= 100 ? percentile / 100 : Double.NaN;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        /**
+         * 是否使用可合并的概率摘要计算
+         */
+        public boolean isSketch() {
+            return this == COUNT_DISTINCT || this == MEDIAN || this == PERCENTILE;
+        }
+    }
+
+    /**
+     * 执行结果：聚合值和通过过滤的行数
+     */
+    public static final class Result {
+        private final Object value;
+        private final int rowsMatched;
+
+        Result(Object value, int rowsMatched) {
+            this.value = value;
+            this.rowsMatched = rowsMatched;
+        }
+
+        public Object getValue() { return value; }
+        public int getRowsMatched() { return rowsMatched; }
+    }
+
+    private final FieldRef field;
+    private final Aggregation aggregation;
+    private final double quantile;
+    private final String dataType;
+    private final EqualsFilter[] filters;
+    private final CompiledPredicate condition;
+    private final CompiledNumeric transform;
+    private final String signature;
+    private final String shape;
+
+    private CompiledMapping(FieldRef field, Aggregation aggregation, double quantile, String dataType,
+            EqualsFilter[] filters, CompiledPredicate condition, CompiledNumeric transform, String signature,
+            String shape) {
+        this.field = field;
+        this.aggregation = aggregation;
+        this.quantile = quantile;
+        this.dataType = dataType;
+        this.filters = filters;
+        this.condition = condition;
+        this.transform = transform;
+        this.signature = signature;
+        this.shape = shape;
+    }
+
+    /**
+     * 编译字段映射
+     */
+    public static CompiledMapping compile(String fieldName, String aggregationType, String dataType,
+            Map<String, Object> filters) {
+        return compile(fieldName, aggregationType, dataType, filters, null, null);
+    }
+
+    /**
+     * 编译字段映射，包括过滤表达式（与等值过滤条件取AND）和转换表达式（对每行的值先转换再聚合）
+     *
+     * @throws IllegalArgumentException 表达式语法错误或类型不匹配，或分位数聚合没有写明分位点
+     */
+    public static CompiledMapping compile(String fieldName, String aggregationType, String dataType,
+            Map<String, Object> filters, String filterExpression, String transformExpression) {
+        Aggregation aggregation = Aggregation.parse(aggregationType);
+        double quantile = Aggregation.quantileOf(aggregationType);
+        if (aggregation == Aggregation.PERCENTILE && Double.isNaN(quantile)) {
+            throw new IllegalArgumentException("分位数聚合需要写明0到100之间的分位点，如 p95: " + aggregationType);
+        }
+        List<EqualsFilter> compiledFilters = new ArrayList<>();
+        if (filters != null) {
+            for (Map.Entry<String, Object> filter : filters.entrySet()) {
+                compiledFilters.add(new EqualsFilter(FieldRef.resolve(filter.getKey()), filter.getValue()));
+            }
+        }
+        FieldRef field = FieldRef.resolve(fieldName);
+        CompiledPredicate condition = isBlank(filterExpression) ? null
+                : ExpressionCompiler.compilePredicate(filterExpression, field);
+        CompiledNumeric transform = isBlank(transformExpression) ? null
+                : ExpressionCompiler.compileNumeric(transformExpression, field);
+        String fieldKey = field != null ? field.getFieldName() : String.valueOf(fieldName);
+        String aggregationName = aggregation == Aggregation.PERCENTILE ? "PERCENTILE_" + quantile
+                : aggregation.name();
+        String signature = String.join("|", fieldKey, aggregationName, String.valueOf(dataType),
+                canonicalFilters(filters), String.valueOf(filterExpression), String.valueOf(transformExpression));
+        String shape = describeShape(fieldKey, aggregationName, filters, filterExpression, transformExpression);
+        return new CompiledMapping(field, aggregation, quantile, dataType,
+                compiledFilters.toArray(new EqualsFilter[0]), condition, transform, signature, shape);
+    }
+
+    /**
+     * 过滤条件的规范化描述：按字段名排序，值带类型（"2025"和2025是不同的条件）
+     */
+    static String canonicalFilters(Map<String, Object> filters) {
+        if (filters == null || filters.isEmpty()) {
+            return "{}";
+        }
+        StringBuilder text = new StringBuilder("{");
+        for (Map.Entry<String, Object> filter : new TreeMap<>(filters).entrySet()) {
+            Object value = filter.getValue();
+            if (text.length() > 1) {
+                text.append(", ");
+            }
+            text.append(filter.getKey()).append('=');
+            text.append(value == null ? "null" : value.getClass().getSimpleName() + ":" + value);
+        }
+        return text.append('}').toString();
+    }
+
+    /**
+     * 查询形状：字段、聚合和过滤字段，不含过滤值，用于按形状统计缓存命中率
+     */
+    static String describeShape(String fieldKey, String aggregationName, Map<String, Object> filters,
+            String filterExpression, String transformExpression) {
+        StringBuilder text = new StringBuilder(aggregationName.toLowerCase(Locale.ROOT)).append('(')
+                .append(isBlank(transformExpression) ? fieldKey : "expr").append(')');
+        if (filters != null && !filters.isEmpty()) {
+            text.append(" where ").append(new TreeMap<>(filters).keySet());
+        }
+        if (!isBlank(filterExpression)) {
+            text.append(" filter");
+        }
+        return text.toString();
+    }
+
+    private static boolean isBlank(String expression) {
+        return expression == null || expression.trim().isEmpty();
+    }
+
+    public FieldRef getField() {
+        return field;
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    /**
+     * 查询的规范化描述：签名相同的映射在同一数据版本上结果相同
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * 查询形状（不含过滤值）
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * 分位数聚合的分位点（0到1），其他聚合为NaN
+     */
+    public double getQuantile() {
+        return quantile;
+    }
+
+    /**
+     * 在列向量批次上执行过滤和聚合（当前线程顺序扫描）
+     */
+    public Result execute(ColumnBatch batch) {
+        return execute(batch, null);
+    }
+
+    /**
+     * 在列向量批次上执行过滤和聚合，行数超过阈值时由scanExecutor分区并行扫描
+     *
+     * @param scanExecutor 为null时顺序扫描
+     */
+    public Result execute(ColumnBatch batch, ParallelScanExecutor scanExecutor) {
+        RowPredicate[] predicates = bindPredicates(batch);
+        if (predicates == null) {
+            return new Result(getDefaultValue(dataType), 0);
+        }
+        // 绑定后的条件和数值列只读取不可变数组，可以被多个分区同时使用
+        int rows = batch.getRowCount();
+        if (aggregation == Aggregation.COUNT_DISTINCT) {
+            RowHash hashes = bindHashes(batch);
+            if (hashes != null) {
+                return finishSketch(scan(scanExecutor, rows,
+                        (from, to) -> scanDistinct(predicates, hashes, from, to), SketchAccumulator::merge));
+            }
+        } else if (aggregation.isSketch()) {
+            NumericColumn values = bindValues(batch);
+            if (values != null) {
+                return finishSketch(scan(scanExecutor, rows,
+                        (from, to) -> scanQuantile(predicates, values, from, to), SketchAccumulator::merge));
+            }
+        }
+        if (transform != null) {
+            // 转换后的值统一按double聚合
+            NumericColumn transformed = transform.bind(batch);
+            return finishDouble(scan(scanExecutor, rows,
+                    (from, to) -> scanDouble(predicates, transformed, null, null, from, to), DoubleAccumulator::merge));
+        }
+        if (field == null) {
+            if (predicates.length == 0) {
+                return new Result(getDefaultValue(dataType), rows);
+            }
+            return new Result(getDefaultValue(dataType), scan(scanExecutor, rows,
+                    (from, to) -> countMatched(predicates, from, to), Integer::sum));
+        }
+
+        Column column = field.getColumn();
+        switch (field.getType()) {
+            case DOUBLE: {
+                double[] values = batch.doubles(column);
+                long[] nulls = batch.nulls(column);
+                return finishDouble(scan(scanExecutor, rows,
+                        (from, to) -> scanDouble(predicates, null, values, nulls, from, to), DoubleAccumulator::merge));
+            }
+            case LONG:
+            case INT: {
+                long[] longValues = field.getType() == Type.INT ? null : batch.longs(column);
+                int[] intValues = field.getType() == Type.INT ? batch.ints(column) : null;
+                long[] nulls = batch.nulls(column);
+                return finishLong(scan(scanExecutor, rows,
+                        (from, to) -> scanLong(predicates, longValues, intValues, nulls, from, to),
+                        LongAccumulator::merge));
+            }
+            default:
+                return finishObjects(scan(scanExecutor, rows,
+                        (from, to) -> scanObjects(batch, predicates, from, to), ObjectAccumulator::merge));
+        }
+    }
+
+    /**
+     * 绑定等值过滤条件和过滤表达式，任一条件恒为假时返回null
+     */
+    RowPredicate[] bindPredicates(ColumnBatch batch) {
+        List<RowPredicate> bound = new ArrayList<>(filters.length + 1);
+        for (EqualsFilter filter : filters) {
+            RowPredicate predicate = filter.bind(batch);
+            if (predicate == RowPredicate.ALWAYS_FALSE) {
+                return null;
+            }
+            bound.add(predicate);
+        }
+        if (condition != null) {
+            RowPredicate predicate = condition.bind(batch);
+            if (predicate == RowPredicate.ALWAYS_FALSE) {
+                return null;
+            }
+            if (predicate != RowPredicate.ALWAYS_TRUE) {
+                bound.add(predicate);
+            }
+        }
+        return bound.toArray(new RowPredicate[0]);
+    }
+
+    /**
+     * 绑定值列：有转换表达式时为转换后的值，否则为数值字段；非数值字段返回null
+     */
+    NumericColumn bindValues(ColumnBatch batch) {
+        if (transform != null) {
+            return transform.bind(batch);
+        }
+        if (field == null || !field.isNumeric()) {
+            return null;
+        }
+        Column column = field.getColumn();
+        long[] nulls = batch.nulls(column);
+        switch (field.getType()) {
+            case DOUBLE: {
+                double[] values = batch.doubles(column);
+                return new NumericColumn() {
+                    public boolean isNull(int row) { return (nulls[row >>> 6] & (1L << (row & 63))) != 0; }
+                    public double get(int row) { return values[row]; }
+                };
+            }
+            case INT: {
+                int[] values = batch.ints(column);
+                return new NumericColumn() {
+                    public boolean isNull(int row) { return (nulls[row >>> 6] & (1L << (row & 63))) != 0; }
+                    public double get(int row) { return values[row]; }
+                };
+            }
+            case LONG:
+            default: {
+                long[] values = batch.longs(column);
+                return new NumericColumn() {
+                    public boolean isNull(int row) { return (nulls[row >>> 6] & (1L << (row & 63))) != 0; }
+                    public double get(int row) { return values[row]; }
+                };
+            }
+        }
+    }
+
+    /**
+     * 绑定不同值计数使用的行哈希：字符串列每个字典项只计算一次哈希，数值列哈希原始值，
+     * 时间列哈希秒数；有转换表达式时哈希转换后的值。没有字段时返回null
+     */
+    RowHash bindHashes(ColumnBatch batch) {
+        if (transform != null) {
+            NumericColumn transformed = transform.bind(batch);
+            return new RowHash() {
+                public boolean isNull(int row) { return transformed.isNull(row); }
+                public long hash(int row) { return HyperLogLog.hash(transformed.get(row)); }
+            };
+        }
+        if (field == null) {
+            return null;
+        }
+        Column column = field.getColumn();
+        switch (field.getType()) {
+            case STRING: {
+                int[] codes = batch.codes(column);
+                String[] dictionary = batch.dictionary(column);
+                long[] codeHashes = new long[dictionary.length];
+                for (int code = 0; code < dictionary.length; code++) {
+                    codeHashes[code] = HyperLogLog.hash(dictionary[code]);
+                }
+                return new RowHash() {
+                    public boolean isNull(int row) { return codes[row] < 0; }
+                    public long hash(int row) { return codeHashes[codes[row]]; }
+                };
+            }
+            case DOUBLE: {
+                double[] values = batch.doubles(column);
+                long[] nulls = batch.nulls(column);
+                return new RowHash() {
+                    public boolean isNull(int row) { return (nulls[row >>> 6] & (1L << (row & 63))) != 0; }
+                    public long hash(int row) { return HyperLogLog.hash(values[row]); }
+                };
+            }
+            case INT: {
+                int[] values = batch.ints(column);
+                long[] nulls = batch.nulls(column);
+                return new RowHash() {
+                    public boolean isNull(int row) { return (nulls[row >>> 6] & (1L << (row & 63))) != 0; }
+                    public long hash(int row) { return HyperLogLog.hash((long) values[row]); }
+                };
+            }
+            case LONG:
+            case TIME:
+            default: {
+                long[] values = batch.longs(column);
+                long[] nulls = batch.nulls(column);
+                return new RowHash() {
+                    public boolean isNull(int row) { return (nulls[row >>> 6] & (1L << (row & 63))) != 0; }
+                    public long hash(int row) { return HyperLogLog.hash(values[row]); }
+                };
+            }
+        }
+    }
+
+    static <S> S scan(ParallelScanExecutor scanExecutor, int rows, ParallelScanExecutor.RangeScan<S> scan,
+            BinaryOperator<S> merge) {
+        return scanExecutor != null ? scanExecutor.scan(rows, scan, merge) : scan.scan(0, rows);
+    }
+
+    private static int countMatched(RowPredicate[] predicates, int from, int to) {
+        SelectionVector selection = new SelectionVector();
+        int matched = 0;
+        for (int start = from; start < to; start += SelectionVector.BATCH_SIZE) {
+            matched += selection.select(predicates, start, Math.min(to, start + SelectionVector.BATCH_SIZE));
+        }
+        return matched;
+    }
+
+    /**
+     * 扫描浮点列（values/nulls）或转换后的值（transformed）的[from, to)区间
+     */
+    private DoubleAccumulator scanDouble(RowPredicate[] predicates, NumericColumn transformed, double[] values,
+            long[] nulls, int from, int to) {
+        SelectionVector selection = new SelectionVector();
+        double[] buffer = new double[SelectionVector.BATCH_SIZE];
+        DoubleAccumulator accumulator = new DoubleAccumulator(aggregation == Aggregation.LIST);
+        for (int start = from; start < to; start += SelectionVector.BATCH_SIZE) {
+            int selected = selection.select(predicates, start, Math.min(to, start + SelectionVector.BATCH_SIZE));
+            if (selected == 0) {
+                continue;
+            }
+            accumulator.matched += selected;
+            int n = transformed != null ? transformed.gather(selection.rows(), selected, buffer)
+                    : selection.gather(values, nulls, buffer);
+            accumulator.add(buffer, n);
+        }
+        return accumulator;
+    }
+
+    /**
+     * 浮点列和转换后的值：统计结果为double，与DoubleSeries的聚合结果一致
+     */
+    private Result finishDouble(DoubleAccumulator accumulator) {
+        int matched = accumulator.matched;
+        if (accumulator.count == 0) {
+            return new Result(getDefaultValue(dataType), matched);
+        }
+        switch (aggregation) {
+            case SUM:
+                return new Result(accumulator.sum, matched);
+            case AVG:
+                return new Result(accumulator.sum / accumulator.count, matched);
+            case COUNT:
+                return new Result(accumulator.count, matched);
+            case MAX:
+                return new Result(accumulator.max, matched);
+            case MIN:
+                return new Result(accumulator.min, matched);
+            case LIST:
+                return new Result(accumulator.list, matched);
+            case NONE:
+            default:
+                return new Result(accumulator.first, matched);
+        }
+    }
+
+    private LongAccumulator scanLong(RowPredicate[] predicates, long[] longValues, int[] intValues, long[] nulls,
+            int from, int to) {
+        SelectionVector selection = new SelectionVector();
+        long[] buffer = new long[SelectionVector.BATCH_SIZE];
+        LongAccumulator accumulator = new LongAccumulator(aggregation == Aggregation.LIST);
+        for (int start = from; start < to; start += SelectionVector.BATCH_SIZE) {
+            int selected = selection.select(predicates, start, Math.min(to, start + SelectionVector.BATCH_SIZE));
+            if (selected == 0) {
+                continue;
+            }
+            accumulator.matched += selected;
+            int n = intValues != null ? selection.gather(intValues, nulls, buffer)
+                    : selection.gather(longValues, nulls, buffer);
+            accumulator.add(buffer, n);
+        }
+        return accumulator;
+    }
+
+    /**
+     * 整数列：求和、最大最小值输出为double，列表和单值保持为long，与LongSeries的聚合结果一致
+     */
+    private Result finishLong(LongAccumulator accumulator) {
+        int matched = accumulator.matched;
+        if (accumulator.count == 0) {
+            return new Result(getDefaultValue(dataType), matched);
+        }
+        switch (aggregation) {
+            case SUM:
+                return new Result((double) accumulator.sum, matched);
+            case AVG:
+                return new Result((double) accumulator.sum / accumulator.count, matched);
+            case COUNT:
+                return new Result(accumulator.count, matched);
+            case MAX:
+                return new Result((double) accumulator.max, matched);
+            case MIN:
+                return new Result((double) accumulator.min, matched);
+            case LIST:
+                return new Result(accumulator.list, matched);
+            case NONE:
+            default:
+                return new Result(accumulator.first, matched);
+        }
+    }
+
+    private static SketchAccumulator scanDistinct(RowPredicate[] predicates, RowHash hashes, int from, int to) {
+        SelectionVector selection = new SelectionVector();
+        SketchAccumulator accumulator = new SketchAccumulator(new HyperLogLog(), null);
+        for (int start = from; start < to; start += SelectionVector.BATCH_SIZE) {
+            int selected = selection.select(predicates, start, Math.min(to, start + SelectionVector.BATCH_SIZE));
+            accumulator.matched += selected;
+            int[] selectedRows = selection.rows();
+            for (int i = 0; i < selected; i++) {
+                int row = selectedRows[i];
+                if (!hashes.isNull(row)) {
+                    accumulator.distinct.addHash(hashes.hash(row));
+                    accumulator.count++;
+                }
+            }
+        }
+        return accumulator;
+    }
+
+    private static SketchAccumulator scanQuantile(RowPredicate[] predicates, NumericColumn values, int from,
+            int to) {
+        SelectionVector selection = new SelectionVector();
+        double[] buffer = new double[SelectionVector.BATCH_SIZE];
+        SketchAccumulator accumulator = new SketchAccumulator(null, new TDigest());
+        for (int start = from; start < to; start += SelectionVector.BATCH_SIZE) {
+            int selected = selection.select(predicates, start, Math.min(to, start + SelectionVector.BATCH_SIZE));
+            if (selected == 0) {
+                continue;
+            }
+            accumulator.matched += selected;
+            int n = values.gather(selection.rows(), selected, buffer);
+            accumulator.digest.add(buffer, n);
+            accumulator.count += n;
+        }
+        return accumulator;
+    }
+
+    /**
+     * 概率摘要：不同值个数输出为long，分位数输出为double
+     */
+    private Result finishSketch(SketchAccumulator accumulator) {
+        int matched = accumulator.matched;
+        if (accumulator.count == 0) {
+            return new Result(getDefaultValue(dataType), matched);
+        }
+        if (accumulator.distinct != null) {
+            return new Result(accumulator.distinct.estimate(), matched);
+        }
+        return new Result(accumulator.digest.quantile(quantile), matched);
+    }
+
+    private ObjectAccumulator scanObjects(ColumnBatch batch, RowPredicate[] predicates, int from, int to) {
+        SelectionVector selection = new SelectionVector();
+        ObjectAccumulator accumulator = new ObjectAccumulator();
+        for (int start = from; start < to; start += SelectionVector.BATCH_SIZE) {
+            int selected = selection.select(predicates, start, Math.min(to, start + SelectionVector.BATCH_SIZE));
+            accumulator.matched += selected;
+            int[] selectedRows = selection.rows();
+            for (int i = 0; i < selected; i++) {
+                Object value = field.get(batch, selectedRows[i]);
+                if (value != null) {
+                    accumulator.values.add(value);
+                }
+            }
+        }
+        return accumulator;
+    }
+
+    /**
+     * 字符串和时间列：非数值，求和等统计为0.0，计数为非空值个数
+     */
+    private Result finishObjects(ObjectAccumulator accumulator) {
+        int matched = accumulator.matched;
+        List<Object> values = accumulator.values;
+        if (values.isEmpty()) {
+            return new Result(getDefaultValue(dataType), matched);
+        }
+        switch (aggregation) {
+            case SUM:
+            case AVG:
+            case MAX:
+            case MIN:
+            case MEDIAN:
+            case PERCENTILE:
+                return new Result(0.0, matched);
+            case COUNT:
+                return new Result(values.size(), matched);
+            case LIST:
+                return new Result(values, matched);
+            case NONE:
+            default:
+                return new Result(values.get(0), matched);
+        }
+    }
+
+    /**
+     * double部分结果：对收集好的连续缓冲区做无分支的求和与最大最小值；分区结果按行顺序合并
+     */
+    private static final class DoubleAccumulator {
+        int matched;
+        int count;
+        double sum;
+        double max;
+        double min;
+        double first;
+        final DoubleSeries list;
+
+        DoubleAccumulator(boolean collectList) {
+            this.list = collectList ? new DoubleSeries() : null;
+        }
+
+        void add(double[] values, int n) {
+            if (n == 0) {
+                return;
+            }
+            if (count == 0) {
+                first = values[0];
+                max = values[0];
+                min = values[0];
+            }
+            double s = sum;
+            double hi = max;
+            double lo = min;
+            for (int i = 0; i < n; i++) {
+                double value = values[i];
+                s += value;
+                hi = Math.max(hi, value);
+                lo = Math.min(lo, value);
+            }
+            sum = s;
+            max = hi;
+            min = lo;
+            count += n;
+            if (list != null) {
+                for (int i = 0; i < n; i++) {
+                    list.append(values[i]);
+                }
+            }
+        }
+
+        DoubleAccumulator merge(DoubleAccumulator next) {
+            matched += next.matched;
+            if (next.count == 0) {
+                return this;
+            }
+            if (count == 0) {
+                first = next.first;
+                max = next.max;
+                min = next.min;
+            } else {
+                max = Math.max(max, next.max);
+                min = Math.min(min, next.min);
+            }
+            sum += next.sum;
+            count += next.count;
+            if (list != null) {
+                for (int i = 0; i < next.list.size(); i++) {
+                    list.append(next.list.getDouble(i));
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * long部分结果
+     */
+    private static final class LongAccumulator {
+        int matched;
+        int count;
+        long sum;
+        long max;
+        long min;
+        long first;
+        final LongSeries list;
+
+        LongAccumulator(boolean collectList) {
+            this.list = collectList ? new LongSeries() : null;
+        }
+
+        void add(long[] values, int n) {
+            if (n == 0) {
+                return;
+            }
+            if (count == 0) {
+                first = values[0];
+                max = values[0];
+                min = values[0];
+            }
+            long s = sum;
+            long hi = max;
+            long lo = min;
+            for (int i = 0; i < n; i++) {
+                long value = values[i];
+                s += value;
+                hi = Math.max(hi, value);
+                lo = Math.min(lo, value);
+            }
+            sum = s;
+            max = hi;
+            min = lo;
+            count += n;
+            if (list != null) {
+                for (int i = 0; i < n; i++) {
+                    list.append(values[i]);
+                }
+            }
+        }
+
+        LongAccumulator merge(LongAccumulator next) {
+            matched += next.matched;
+            if (next.count == 0) {
+                return this;
+            }
+            if (count == 0) {
+                first = next.first;
+                max = next.max;
+                min = next.min;
+            } else {
+                max = Math.max(max, next.max);
+                min = Math.min(min, next.min);
+            }
+            sum += next.sum;
+            count += next.count;
+            if (list != null) {
+                for (int i = 0; i < next.list.size(); i++) {
+                    list.append(next.list.getLong(i));
+                }
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 不同值个数或分位数的部分结果，分区之间合并摘要
+     */
+    private static final class SketchAccumulator {
+        int matched;
+        long count;
+        final HyperLogLog distinct;
+        final TDigest digest;
+
+        SketchAccumulator(HyperLogLog distinct, TDigest digest) {
+            this.distinct = distinct;
+            this.digest = digest;
+        }
+
+        SketchAccumulator merge(SketchAccumulator next) {
+            matched += next.matched;
+            count += next.count;
+            if (distinct != null) {
+                distinct.merge(next.distinct);
+            }
+            if (digest != null) {
+                digest.merge(next.digest);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * 非数值列的部分结果
+     */
+    private static final class ObjectAccumulator {
+        int matched;
+        final List<Object> values = new ArrayList<>();
+
+        ObjectAccumulator merge(ObjectAccumulator next) {
+            matched += next.matched;
+            values.addAll(next.values);
+            return this;
+        }
+    }
+
+    /**
+     * 获取数据类型的默认值
+     */
+    public static Object getDefaultValue(String dataType) {
+        if (dataType == null) {
+            return null;
+        }
+        switch (dataType.toLowerCase(Locale.ROOT)) {
+            case "number":
+                return 0;
+            case "string":
+                return "";
+            case "boolean":
+                return false;
+            case "array":
+                return new ArrayList<>();
+            case "object":
+                return new HashMap<>();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 等值过滤条件：编译时确定列和比较方式，绑定批次时取出数组和字典编码
+     */
+    private static final class EqualsFilter {
+        private final FieldRef field;
+        private final Object value;
+
+        EqualsFilter(FieldRef field, Object value) {
+            this.field = field;
+            this.value = value;
+        }
+
+        RowPredicate bind(ColumnBatch batch) {
+            if (field == null) {
+                // 未知字段的值恒为空
+                return value == null ? RowPredicate.ALWAYS_TRUE : RowPredicate.ALWAYS_FALSE;
+            }
+            Column column = field.getColumn();
+            if (value == null) {
+                return row -> batch.isNull(column, row);
+            }
+            switch (field.getType()) {
+                case STRING: {
+                    if (!(value instanceof String)) {
+                        return RowPredicate.ALWAYS_FALSE;
+                    }
+                    int code = batch.codeOf(column, (String) value);
+                    if (code < 0) {
+                        return RowPredicate.ALWAYS_FALSE;
+                    }
+                    int[] codes = batch.codes(column);
+                    return row -> codes[row] == code;
+                }
+                case LONG:
+                case INT: {
+                    if (!isIntegral(value)) {
+                        return RowPredicate.ALWAYS_FALSE;
+                    }
+                    long expected = ((Number) value).longValue();
+                    long[] nulls = batch.nulls(column);
+                    if (field.getType() == Type.INT) {
+                        int[] ints = batch.ints(column);
+                        return row -> ints[row] == expected && (nulls[row >>> 6] & (1L << (row & 63))) == 0;
+                    }
+                    long[] longs = batch.longs(column);
+                    return row -> longs[row] == expected && (nulls[row >>> 6] & (1L << (row & 63))) == 0;
+                }
+                case DOUBLE: {
+                    if (!(value instanceof Number)) {
+                        return RowPredicate.ALWAYS_FALSE;
+                    }
+                    double expected = ((Number) value).doubleValue();
+                    double[] doubles = batch.doubles(column);
+                    long[] nulls = batch.nulls(column);
+                    return row -> doubles[row] == expected && (nulls[row >>> 6] & (1L << (row & 63))) == 0;
+                }
+                case TIME: {
+                    if (!(value instanceof LocalDateTime)) {
+                        return RowPredicate.ALWAYS_FALSE;
+                    }
+                    LocalDateTime expected = (LocalDateTime) value;
+                    long seconds = expected.toEpochSecond(ZoneOffset.UTC);
+                    long[] longs = batch.longs(column);
+                    return row -> longs[row] == seconds && expected.equals(batch.getTime(column, row));
+                }
+                default:
+                    return RowPredicate.ALWAYS_FALSE;
+            }
+        }
+
+        private static boolean isIntegral(Object value) {
+            return value instanceof Long || value instanceof Integer || value instanceof Short
+                    || value instanceof Byte;
+        }
+    }
+}
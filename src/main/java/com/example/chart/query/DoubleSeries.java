@@ -0,0 +1,146 @@
+package com.example.chart.query;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * 基于double[]的数值序列
+ * 从数据存储到聚合再到序列化全程使用原始类型数组；实现List接口只是为了兼容已有的instanceof List判断，
+ * 通过get访问时才会装箱
+ */
+@JsonSerialize(using = DoubleSeries.Serializer.class)
+public final class DoubleSeries extends AbstractList<Double> implements RandomAccess {
+
+    private double[] values;
+    private int length;
+    private boolean frozen;
+
+    public DoubleSeries() {
+        this(16);
+    }
+
+    public DoubleSeries(int capacity) {
+        this.values = new double[Math.max(capacity, 4)];
+    }
+
+    private DoubleSeries(double[] values, int length) {
+        this.values = values;
+        this.length = length;
+    }
+
+    /**
+     * 包装已有数组（不拷贝）
+     */
+    public static DoubleSeries wrap(double[] values, int length) {
+        if (length < 0 || length > values.length) {
+            throw new IllegalArgumentException("序列长度越界: " + length);
+        }
+        return new DoubleSeries(values, length);
+    }
+
+    /**
+     * 冻结为只读：之后追加会抛出UnsupportedOperationException，array返回拷贝。
+     * 序列被多个结果共享前（如放入查询结果缓存）调用
+     */
+    public DoubleSeries freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * 追加一个值
+     */
+    public void append(double value) {
+        if (frozen) {
+            throw new UnsupportedOperationException("序列已冻结，不能修改");
+        }
+        if (length == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+        values[length++] = value;
+    }
+
+    public double getDouble(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+        }
+        return values[index];
+    }
+
+    @Override
+    public Double get(int index) {
+        return getDouble(index);
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    /**
+     * 底层数组（长度可能大于size）；冻结后返回长度为size的拷贝
+     */
+    public double[] array() {
+        return frozen ? Arrays.copyOf(values, length) : values;
+    }
+
+    public double sum() {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public double average() {
+        return length == 0 ? 0.0 : sum() / length;
+    }
+
+    public double max() {
+        if (length == 0) {
+            return 0.0;
+        }
+        double max = values[0];
+        for (int i = 1; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    public double min() {
+        if (length == 0) {
+            return 0.0;
+        }
+        double min = values[0];
+        for (int i = 1; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * 直接写出原始类型数组，不经过逐元素装箱
+     */
+    public static class Serializer extends StdSerializer<DoubleSeries> {
+
+        public Serializer() {
+            super(DoubleSeries.class);
+        }
+
+        @Override
+        public void serialize(DoubleSeries series, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeArray(series.values, 0, series.length);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.chart.query;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.example.chart.store.ColumnTable.Column;
+import com.example.chart.store.ColumnTable.Type;
+
+/**
+ * 解析后的字段引用
+ * 字段名在配置映射时解析一次（不区分大小写，兼容created_at这类下划线写法），
+ * 之后按列类型直接读取列向量，不再做字符串比较
+ */
+public final class FieldRef {
+
+    private static final Map<String, FieldRef> BY_NAME = new HashMap<>();
+
+    static {
+        for (Column column : Column.values()) {
+            BY_NAME.put(normalize(column.getFieldName()), new FieldRef(column));
+        }
+    }
+
+    private final Column column;
+
+    private FieldRef(Column column) {
+        this.column = column;
+    }
+
+    /**
+     * 按字段名解析，未知字段返回null
+     */
+    public static FieldRef resolve(String fieldName) {
+        return fieldName == null ? null : BY_NAME.get(normalize(fieldName));
+    }
+
+    private static String normalize(String fieldName) {
+        return fieldName.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    public Column getColumn() {
+        return column;
+    }
+
+    public Type getType() {
+        return column.getType();
+    }
+
+    public String getFieldName() {
+        return column.getFieldName();
+    }
+
+    public boolean isNumeric() {
+        Type type = column.getType();
+        return type == Type.LONG || type == Type.INT || type == Type.DOUBLE;
+    }
+
+    /**
+     * 读取一行的值（装箱），只用于结果输出，过滤和聚合直接读取列向量
+     */
+    public Object get(ColumnBatch batch, int row) {
+        switch (column.getType()) {
+            case LONG:
+                return batch.isNull(column, row) ? null : batch.longs(column)[row];
+            case INT:
+                return batch.isNull(column, row) ? null : batch.ints(column)[row];
+            case DOUBLE:
+                return batch.isNull(column, row) ? null : batch.doubles(column)[row];
+            case STRING:
+                int code = batch.codes(column)[row];
+                return code < 0 ? null : batch.dictionary(column)[code];
+            case TIME:
+                return batch.getTime(column, row);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return column.getFieldName();
+    }
+}
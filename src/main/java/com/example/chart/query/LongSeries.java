@@ -0,0 +1,145 @@
+package com.example.chart.query;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * 基于long[]的整数序列
+ * 用于id、quantity等整数字段，用法与DoubleSeries一致
+ */
+@JsonSerialize(using = LongSeries.Serializer.class)
+public final class LongSeries extends AbstractList<Long> implements RandomAccess {
+
+    private long[] values;
+    private int length;
+    private boolean frozen;
+
+    public LongSeries() {
+        this(16);
+    }
+
+    public LongSeries(int capacity) {
+        this.values = new long[Math.max(capacity, 4)];
+    }
+
+    private LongSeries(long[] values, int length) {
+        this.values = values;
+        this.length = length;
+    }
+
+    /**
+     * 包装已有数组（不拷贝）
+     */
+    public static LongSeries wrap(long[] values, int length) {
+        if (length < 0 || length > values.length) {
+            throw new IllegalArgumentException("序列长度越界: " + length);
+        }
+        return new LongSeries(values, length);
+    }
+
+    /**
+     * 冻结为只读：之后追加会抛出UnsupportedOperationException，array返回拷贝。
+     * 序列被多个结果共享前（如放入查询结果缓存）调用
+     */
+    public LongSeries freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * 追加一个值
+     */
+    public void append(long value) {
+        if (frozen) {
+            throw new UnsupportedOperationException("序列已冻结，不能修改");
+        }
+        if (length == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+        values[length++] = value;
+    }
+
+    public long getLong(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + length);
+        }
+        return values[index];
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public int size() {
+        return length;
+    }
+
+    /**
+     * 底层数组（长度可能大于size）；冻结后返回长度为size的拷贝
+     */
+    public long[] array() {
+        return frozen ? Arrays.copyOf(values, length) : values;
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    public double average() {
+        return length == 0 ? 0.0 : (double) sum() / length;
+    }
+
+    public long max() {
+        if (length == 0) {
+            return 0L;
+        }
+        long max = values[0];
+        for (int i = 1; i < length; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    public long min() {
+        if (length == 0) {
+            return 0L;
+        }
+        long min = values[0];
+        for (int i = 1; i < length; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return min;
+    }
+
+    /**
+     * 直接写出原始类型数组，不经过逐元素装箱
+     */
+    public static class Serializer extends StdSerializer<LongSeries> {
+
+        public Serializer() {
+            super(LongSeries.class);
+        }
+
+        @Override
+        public void serialize(LongSeries series, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeArray(series.values, 0, series.length);
+        }
+    }
+}
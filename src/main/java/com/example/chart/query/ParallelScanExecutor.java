@@ -0,0 +1,159 @@
+package com.example.chart.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.config.ChartConfigProperties;
+
+/**
+ * 并行扫描执行器
+ * 行数超过阈值的聚合查询按分区拆分，在独立的ForkJoinPool中计算每个分区的部分结果后按分区顺序合并。
+ * 使用独立线程池而不是公共池，大扫描不会占满Tomcat工作线程或其他并行流的线程
+ */
+@Component
+public class ParallelScanExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelScanExecutor.class);
+
+    /**
+     * 对[from, to)行区间计算部分结果
+     */
+    @FunctionalInterface
+    public interface RangeScan<S> {
+        S scan(int from, int to);
+    }
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    private volatile ForkJoinPool pool;
+
+    private final AtomicLong parallelScans = new AtomicLong();
+    private final AtomicLong sequentialScans = new AtomicLong();
+    private final AtomicLong partitionsScanned = new AtomicLong();
+
+    /**
+     * 扫描全部行：超过阈值时分区并行，否则在调用线程上顺序执行
+     *
+     * @param merge 合并相邻分区的部分结果（左侧在前），需满足结合律
+     */
+    public <S> S scan(int rowCount, RangeScan<S> scan, BinaryOperator<S> merge) {
+        ChartConfigProperties.Query.Parallel config = chartConfigProperties.getQuery().getParallel();
+        if (!config.isEnabled() || rowCount < config.getThresholdRows()) {
+            sequentialScans.incrementAndGet();
+            return scan.scan(0, rowCount);
+        }
+        int partitionRows = Math.max(SelectionVector.BATCH_SIZE, config.getPartitionRows());
+        parallelScans.incrementAndGet();
+        return pool().invoke(new ScanTask<>(scan, merge, 0, rowCount, partitionRows));
+    }
+
+    public long getParallelScans() {
+        return parallelScans.get();
+    }
+
+    public long getSequentialScans() {
+        return sequentialScans.get();
+    }
+
+    public Map<String, Object> getStatistics() {
+        ChartConfigProperties.Query.Parallel config = chartConfigProperties.getQuery().getParallel();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("thresholdRows", config.getThresholdRows());
+        stats.put("partitionRows", config.getPartitionRows());
+        stats.put("parallelScans", parallelScans.get());
+        stats.put("sequentialScans", sequentialScans.get());
+        stats.put("partitionsScanned", partitionsScanned.get());
+        ForkJoinPool current = pool;
+        if (current != null) {
+            stats.put("parallelism", current.getParallelism());
+            stats.put("activeThreads", current.getActiveThreadCount());
+            stats.put("steals", current.getStealCount());
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ForkJoinPool current = pool;
+        if (current != null) {
+            current.shutdownNow();
+        }
+    }
+
+    /**
+     * 首次并行扫描时创建线程池
+     */
+    private ForkJoinPool pool() {
+        ForkJoinPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                current = pool;
+                if (current == null) {
+                    int parallelism = chartConfigProperties.getQuery().getParallel().getParallelism();
+                    if (parallelism <= 0) {
+                        parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                    }
+                    current = new ForkJoinPool(parallelism, p -> {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                        thread.setName("chart-scan-" + thread.getPoolIndex());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, null, false);
+                    pool = current;
+                    logger.info("✅ [并行扫描] 创建扫描线程池，并行度 {}", parallelism);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 二分拆分行区间，区间不超过分区大小时直接扫描
+     */
+    private final class ScanTask<S> extends RecursiveTask<S> {
+        private final RangeScan<S> scan;
+        private final BinaryOperator<S> merge;
+        private final int from;
+        private final int to;
+        private final int partitionRows;
+
+        ScanTask(RangeScan<S> scan, BinaryOperator<S> merge, int from, int to, int partitionRows) {
+            this.scan = scan;
+            this.merge = merge;
+            this.from = from;
+            this.to = to;
+            this.partitionRows = partitionRows;
+        }
+
+        @Override
+        protected S compute() {
+            if (to - from <= partitionRows) {
+                partitionsScanned.incrementAndGet();
+                return scan.scan(from, to);
+            }
+            // 切分点对齐到行块边界，分区内的选择向量批次保持完整
+            int middle = from + ((to - from) / 2 / SelectionVector.BATCH_SIZE) * SelectionVector.BATCH_SIZE;
+            if (middle <= from) {
+                middle = from + (to - from) / 2;
+            }
+            ScanTask<S> right = new ScanTask<>(scan, merge, middle, to, partitionRows);
+            right.fork();
+            S left = new ScanTask<>(scan, merge, from, middle, partitionRows).compute();
+            return merge.apply(left, right.join());
+        }
+    }
+}
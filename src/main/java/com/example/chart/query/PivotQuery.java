@@ -0,0 +1,711 @@
+package com.example.chart.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import com.example.chart.model.Mapping;
+import com.example.chart.query.CompiledMapping.Aggregation;
+import com.example.chart.query.expr.NumericColumn;
+import com.example.chart.query.sketch.HyperLogLog;
+import com.example.chart.query.sketch.TDigest;
+import com.example.chart.store.ColumnTable.Column;
+import com.example.chart.store.ColumnTable.Type;
+
+/**
+ * 分组透视查询
+ * 一次扫描按（系列, 分类）分组聚合，输出有序的分类轴和每个系列一个与分类轴对齐的数值数组。
+ * 字符串分组键直接使用字典编码作为稠密数组下标，聚合状态保存在按系列×分类展开的原始类型数组中。
+ * 同一图表中分组条件相同的多个占位符（分类轴、各系列数据）共用一次执行结果，见{@link #getSignature()}。
+ * 配置了排序或limit时，分类按排序键经有界堆选出前N个（{@link TopN}），只有入选的分类被展开输出
+ */
+public final class PivotQuery {
+
+    /**
+     * 透视表单元格上限，防止高基数字段作为分组键时占用过多内存
+     */
+    private static final int MAX_CELLS = 1 << 22;
+
+    /**
+     * 并行扫描的每个分区各自分配全部单元格的聚合状态，单元格数超过此值时改为顺序扫描，
+     * 内存不随分区数成倍增长
+     */
+    private static final int MAX_PARALLEL_CELLS = 1 << 16;
+
+    /**
+     * 单元格中HyperLogLog的精度：4096个寄存器（4KB），相对误差约1.6%；只为有数据的单元格分配，
+     * 不同值不超过128个的单元格保持稀疏表示（精确计数，只占用实际哈希值的空间）
+     */
+    private static final int CELL_HLL_PRECISION = 12;
+
+    /**
+     * 缺失单元格的处理方式，与Mapping.Transform.nullHandling的取值一致
+     */
+    public enum NullHandling {
+        /** 保留为null（图表中显示为断点） */
+        SKIP,
+        /** 补0 */
+        ZERO,
+        /** 沿用同一系列中前一个分类的值，开头缺失时补0 */
+        FILL;
+
+        /**
+         * 解析缺失值处理方式，未知或为空时按ZERO处理
+         */
+        public static NullHandling parse(String nullHandling) {
+            if (nullHandling == null) {
+                return ZERO;
+            }
+            try {
+                return valueOf(nullHandling.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return ZERO;
+            }
+        }
+    }
+
+    private final CompiledMapping mapping;
+    private final FieldRef categoryField;
+    private final TimeBucket timeBucket;
+    private final FieldRef seriesField;
+    private final NullHandling nullHandling;
+    private final OrderKey[] orderBy;
+    private final int limit;
+    private final String signature;
+    private final String shape;
+
+    private PivotQuery(CompiledMapping mapping, FieldRef categoryField, TimeBucket timeBucket, FieldRef seriesField,
+            NullHandling nullHandling, OrderKey[] orderBy, int limit, String signature, String shape) {
+        this.mapping = mapping;
+        this.categoryField = categoryField;
+        this.timeBucket = timeBucket;
+        this.seriesField = seriesField;
+        this.nullHandling = nullHandling;
+        this.orderBy = orderBy;
+        this.limit = limit;
+        this.signature = signature;
+        this.shape = shape;
+    }
+
+    /**
+     * 编译透视查询
+     *
+     * @param categoryKey 分类轴字段
+     * @param timeBucket 时间分桶粒度（day/week/month/quarter/year），分类轴为date/year/month时可用；
+     *                   分类为按时间排序的桶标签，最早到最晚之间没有数据的桶也会输出
+     * @param seriesKey 系列字段，为空时只有一个系列
+     * @param orderBy 分类的排序：field为value（聚合值，多系列时为各系列之和）、count（行数）或分类字段，
+     *                dir为asc/desc；为空时按分类键升序
+     * @param limit 只保留排序后的前limit个分类，为null时不限制
+     * @throws IllegalArgumentException 字段未知、聚合类型不支持、非数值的值字段使用了count/count_distinct以外的聚合，
+     *                                  或表达式有误
+     */
+    public static PivotQuery compile(String fieldName, String aggregationType, String dataType,
+            Map<String, Object> filters, String filterExpression, String transformExpression,
+            String categoryKey, String timeBucket, String seriesKey, String nullHandling, List<Mapping.Order> orderBy,
+            Integer limit) {
+        TimeBucket bucket = TimeBucket.parse(timeBucket);
+        FieldRef categoryField = FieldRef.resolve(bucket != null && categoryKey == null ? "date" : categoryKey);
+        if (categoryField == null) {
+            throw new IllegalArgumentException("未知的分类字段: " + categoryKey);
+        }
+        if (bucket != null && categoryField.getColumn() != Column.DATE && categoryField.getColumn() != Column.YEAR
+                && categoryField.getColumn() != Column.MONTH) {
+            throw new IllegalArgumentException("时间分桶只支持date、year、month字段: " + categoryKey);
+        }
+        FieldRef seriesField = null;
+        if (seriesKey != null && !seriesKey.trim().isEmpty()) {
+            seriesField = FieldRef.resolve(seriesKey);
+            if (seriesField == null) {
+                throw new IllegalArgumentException("未知的系列字段: " + seriesKey);
+            }
+        }
+        CompiledMapping mapping = CompiledMapping.compile(fieldName, aggregationType, dataType, filters,
+                filterExpression, transformExpression);
+        if (mapping.getAggregation() == Aggregation.LIST) {
+            throw new IllegalArgumentException("透视查询不支持list聚合");
+        }
+        // 没有值字段时统计行数；字符串等非数值字段只能计数，不能求和、取值或排序
+        FieldRef valueField = FieldRef.resolve(fieldName);
+        boolean blankField = fieldName == null || fieldName.trim().isEmpty();
+        if (!blankField && valueField == null && transformExpression == null) {
+            throw new IllegalArgumentException("未知的值字段: " + fieldName);
+        }
+        if (valueField != null && !valueField.isNumeric() && transformExpression == null
+                && mapping.getAggregation() != Aggregation.COUNT
+                && mapping.getAggregation() != Aggregation.COUNT_DISTINCT) {
+            throw new IllegalArgumentException("值字段 " + valueField.getFieldName() + " 不是数值类型，只能使用count或"
+                    + "count_distinct聚合: " + aggregationType);
+        }
+        NullHandling handling = NullHandling.parse(nullHandling);
+        List<OrderKey> orderKeys = new ArrayList<>();
+        if (orderBy != null) {
+            for (Mapping.Order order : orderBy) {
+                orderKeys.add(OrderKey.parse(order, categoryField));
+            }
+        }
+        if (limit != null && limit < 0) {
+            throw new IllegalArgumentException("limit不能为负数: " + limit);
+        }
+        // 数据类型只影响普通映射无数据时的默认值，不参与透视签名，分类轴和各系列可以共用一次扫描
+        String aggregation = mapping.getAggregation() == Aggregation.PERCENTILE
+                ? "PERCENTILE_" + mapping.getQuantile() : mapping.getAggregation().name();
+        String signature = String.join("|", categoryField.getFieldName(), String.valueOf(bucket),
+                seriesField != null ? seriesField.getFieldName() : "", String.valueOf(fieldName), aggregation,
+                CompiledMapping.canonicalFilters(filters), String.valueOf(filterExpression),
+                String.valueOf(transformExpression), handling.name(), orderKeys.toString(), String.valueOf(limit));
+        String shape = "pivot " + mapping.getShape() + " by " + categoryField.getFieldName()
+                + (bucket != null ? "/" + bucket.name().toLowerCase(Locale.ROOT) : "")
+                + (seriesField != null ? " x " + seriesField.getFieldName() : "")
+                + (limit != null || !orderKeys.isEmpty() ? " top" : "");
+        return new PivotQuery(mapping, categoryField, bucket, seriesField, handling, orderKeys.toArray(new OrderKey[0]),
+                limit != null ? limit : -1, signature, shape);
+    }
+
+    /**
+     * 查询的规范化描述：签名相同的透视查询结果相同，同一次渲染中只执行一次
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * 查询形状（不含过滤值）
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    public Result execute(ColumnBatch batch) {
+        return execute(batch, null);
+    }
+
+    /**
+     * 在列向量批次上一次扫描完成分组聚合，行数超过阈值时由scanExecutor分区并行扫描
+     */
+    public Result execute(ColumnBatch batch, ParallelScanExecutor scanExecutor) {
+        RowPredicate[] predicates = mapping.bindPredicates(batch);
+        if (predicates == null) {
+            return new Result(Collections.emptyList(), Collections.emptyList(), Collections.emptyList(), 0);
+        }
+        KeyColumn categories = timeBucket != null ? KeyColumn.of(batch.timeBuckets(timeBucket))
+                : KeyColumn.of(batch, categoryField);
+        KeyColumn series = seriesField != null ? KeyColumn.of(batch, seriesField) : null;
+        int categoryCount = categories.keys.length;
+        int seriesCount = series != null ? series.keys.length : 1;
+        if ((long) categoryCount * seriesCount > MAX_CELLS) {
+            throw new IllegalArgumentException("分组数过多: " + categoryCount + " 个分类 × " + seriesCount + " 个系列");
+        }
+        Aggregation aggregation = mapping.getAggregation();
+        boolean distinct = aggregation == Aggregation.COUNT_DISTINCT;
+        NumericColumn values = distinct ? null : mapping.bindValues(batch);
+        RowHash hashes = distinct ? mapping.bindHashes(batch) : null;
+        double quantile = mapping.getQuantile();
+        int cellCount = categoryCount * seriesCount;
+        Cells cells = CompiledMapping.scan(cellCount > MAX_PARALLEL_CELLS ? null : scanExecutor, batch.getRowCount(),
+                (from, to) -> scanCells(predicates, categories, series, values, hashes, aggregation, quantile,
+                        cellCount, from, to),
+                Cells::merge);
+        return build(cells, categories, series, values != null || hashes != null);
+    }
+
+    private static Cells scanCells(RowPredicate[] predicates, KeyColumn categories, KeyColumn series,
+            NumericColumn values, RowHash hashes, Aggregation aggregation, double quantile, int cellCount, int from,
+            int to) {
+        Cells cells = new Cells(cellCount, aggregation, quantile);
+        int categoryCount = categories.keys.length;
+        int[] categoryIds = categories.ids;
+        int[] seriesIds = series != null ? series.ids : null;
+        SelectionVector selection = new SelectionVector();
+        for (int start = from; start < to; start += SelectionVector.BATCH_SIZE) {
+            int selected = selection.select(predicates, start, Math.min(to, start + SelectionVector.BATCH_SIZE));
+            int[] rows = selection.rows();
+            for (int i = 0; i < selected; i++) {
+                int row = rows[i];
+                int category = categoryIds[row];
+                int seriesId = seriesIds != null ? seriesIds[row] : 0;
+                if (category < 0 || seriesId < 0) {
+                    // 分组键为空的行不参与透视
+                    continue;
+                }
+                cells.matched++;
+                int cell = seriesId * categoryCount + category;
+                if (hashes != null) {
+                    if (!hashes.isNull(row)) {
+                        cells.addHash(cell, hashes.hash(row));
+                    }
+                } else if (values == null) {
+                    cells.add(cell, 1);
+                } else if (!values.isNull(row)) {
+                    cells.add(cell, values.get(row));
+                }
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * 去掉没有数据的分类和系列，按分组键排序后展开为输出数组
+     */
+    private Result build(Cells cells, KeyColumn categories, KeyColumn series, boolean hasValues) {
+        int categoryCount = categories.keys.length;
+        int seriesCount = series != null ? series.keys.length : 1;
+        boolean[] usedCategories = new boolean[categoryCount];
+        boolean[] usedSeries = new boolean[seriesCount];
+        for (int s = 0; s < seriesCount; s++) {
+            for (int c = 0; c < categoryCount; c++) {
+                if (cells.count[s * categoryCount + c] > 0) {
+                    usedCategories[c] = true;
+                    usedSeries[s] = true;
+                }
+            }
+        }
+        if (timeBucket != null) {
+            // 时间轴补齐空档：最早到最晚的有数据的桶之间全部输出
+            int firstUsed = -1;
+            int lastUsed = -1;
+            for (int c = 0; c < categoryCount; c++) {
+                if (usedCategories[c]) {
+                    firstUsed = firstUsed < 0 ? c : firstUsed;
+                    lastUsed = c;
+                }
+            }
+            for (int c = Math.max(firstUsed, 0); c <= lastUsed; c++) {
+                usedCategories[c] = true;
+            }
+        }
+        Aggregation aggregation = mapping.getAggregation();
+        // 没有值字段（或count聚合非数值字段）时输出行数
+        boolean counts = aggregation == Aggregation.COUNT || !hasValues;
+        boolean integral = counts || aggregation == Aggregation.COUNT_DISTINCT;
+        int[] categoryOrder = orderCategories(cells, categories.keys, usedCategories, seriesCount, counts);
+        Integer[] seriesOrder = series != null ? sortedIds(series.keys, usedSeries)
+                : (usedSeries[0] ? new Integer[] { 0 } : new Integer[0]);
+
+        List<Object> categoryKeys = new ArrayList<>(categoryOrder.length);
+        for (int c : categoryOrder) {
+            categoryKeys.add(categories.keys[c]);
+        }
+        List<Object> seriesKeys = new ArrayList<>(seriesOrder.length);
+        List<List<? extends Number>> data = new ArrayList<>(seriesOrder.length);
+        for (Integer s : seriesOrder) {
+            seriesKeys.add(series != null ? series.keys[s] : null);
+            double[] row = new double[categoryOrder.length];
+            boolean[] present = new boolean[categoryOrder.length];
+            for (int i = 0; i < categoryOrder.length; i++) {
+                int cell = s * categoryCount + categoryOrder[i];
+                if (cells.count[cell] > 0) {
+                    present[i] = true;
+                    row[i] = counts ? cells.count[cell] : cells.value(cell, aggregation);
+                }
+            }
+            data.add(toSeries(row, present, integral));
+        }
+        return new Result(categoryKeys, seriesKeys, data, cells.matched);
+    }
+
+    /**
+     * 确定输出的分类及顺序：先计算每个分类的原始类型排序键，再用有界堆选出前limit个
+     */
+    private int[] orderCategories(Cells cells, Object[] keys, boolean[] used, int seriesCount, boolean counts) {
+        int categoryCount = keys.length;
+        int[] candidates = new int[categoryCount];
+        int candidateCount = 0;
+        for (int c = 0; c < categoryCount; c++) {
+            if (used[c]) {
+                candidates[candidateCount++] = c;
+            }
+        }
+        if (orderBy.length == 0 && limit < 0) {
+            Integer[] sorted = sortedIds(keys, used);
+            int[] order = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) {
+                order[i] = sorted[i];
+            }
+            return order;
+        }
+
+        double[] totals = null;
+        double[] rowCounts = null;
+        Aggregation aggregation = mapping.getAggregation();
+        for (OrderKey key : orderBy) {
+            if (key.kind == OrderKey.Kind.VALUE && totals == null) {
+                totals = new double[categoryCount];
+                for (int s = 0; s < seriesCount; s++) {
+                    for (int c = 0; c < categoryCount; c++) {
+                        int cell = s * categoryCount + c;
+                        if (cells.count[cell] > 0) {
+                            totals[c] += counts ? cells.count[cell] : cells.value(cell, aggregation);
+                        }
+                    }
+                }
+            } else if (key.kind == OrderKey.Kind.COUNT && rowCounts == null) {
+                rowCounts = new double[categoryCount];
+                for (int s = 0; s < seriesCount; s++) {
+                    for (int c = 0; c < categoryCount; c++) {
+                        rowCounts[c] += cells.count[s * categoryCount + c];
+                    }
+                }
+            }
+        }
+
+        // 多个排序键依次比较，最后按分类键升序保证结果稳定
+        TopN.IntComparator comparator = (a, b) -> compareKeys(keys[a], keys[b]);
+        for (int i = orderBy.length - 1; i >= 0; i--) {
+            OrderKey key = orderBy[i];
+            TopN.IntComparator next = comparator;
+            TopN.IntComparator primary;
+            switch (key.kind) {
+                case VALUE: {
+                    double[] values = totals;
+                    primary = (a, b) -> Double.compare(values[a], values[b]);
+                    break;
+                }
+                case COUNT: {
+                    double[] values = rowCounts;
+                    primary = (a, b) -> Double.compare(values[a], values[b]);
+                    break;
+                }
+                case CATEGORY:
+                default:
+                    primary = (a, b) -> compareKeys(keys[a], keys[b]);
+                    break;
+            }
+            boolean descending = key.descending;
+            comparator = (a, b) -> {
+                int result = primary.compare(a, b);
+                if (result != 0) {
+                    return descending ? -result : result;
+                }
+                return next.compare(a, b);
+            };
+        }
+        return TopN.select(candidates, candidateCount, comparator, limit);
+    }
+
+    private static Integer[] sortedIds(Object[] keys, boolean[] used) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                ids.add(i);
+            }
+        }
+        ids.sort((a, b) -> compareKeys(keys[a], keys[b]));
+        return ids.toArray(new Integer[0]);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareKeys(Object a, Object b) {
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        return String.valueOf(a).compareTo(String.valueOf(b));
+    }
+
+    /**
+     * 按缺失值处理方式输出一个系列：没有缺失值时使用原始类型序列，SKIP且有缺失时使用带null的列表；
+     * 计数和不同值个数输出为整数
+     */
+    private List<? extends Number> toSeries(double[] row, boolean[] present, boolean counts) {
+        boolean missing = false;
+        double previous = 0;
+        for (int i = 0; i < row.length; i++) {
+            if (present[i]) {
+                previous = row[i];
+            } else {
+                missing = true;
+                if (nullHandling == NullHandling.FILL) {
+                    row[i] = previous;
+                }
+            }
+        }
+        if (missing && nullHandling == NullHandling.SKIP) {
+            List<Number> values = new ArrayList<>(row.length);
+            for (int i = 0; i < row.length; i++) {
+                values.add(present[i] ? (counts ? (Number) (long) row[i] : (Number) row[i]) : null);
+            }
+            return values;
+        }
+        if (counts) {
+            long[] longs = new long[row.length];
+            for (int i = 0; i < row.length; i++) {
+                longs[i] = (long) row[i];
+            }
+            return LongSeries.wrap(longs, longs.length);
+        }
+        return DoubleSeries.wrap(row, row.length);
+    }
+
+    /**
+     * 透视结果
+     */
+    public final class Result {
+        private final List<Object> categories;
+        private final List<Object> seriesNames;
+        private final List<List<? extends Number>> series;
+        private final int rowsMatched;
+
+        @SuppressWarnings("unchecked")
+        Result(List<Object> categories, List<Object> seriesNames, List<List<? extends Number>> series,
+                int rowsMatched) {
+            // 结果会经查询结果缓存在多个渲染之间共享，构造时即冻结
+            List<List<? extends Number>> frozen = new ArrayList<>(series.size());
+            for (List<? extends Number> values : series) {
+                frozen.add((List<? extends Number>) QueryResultCache.freeze(values));
+            }
+            this.categories = Collections.unmodifiableList(categories);
+            this.seriesNames = Collections.unmodifiableList(seriesNames);
+            this.series = Collections.unmodifiableList(frozen);
+            this.rowsMatched = rowsMatched;
+        }
+
+        /**
+         * 有序的分类轴
+         */
+        public List<Object> getCategories() { return categories; }
+
+        /**
+         * 有数据的系列名称（有序）
+         */
+        public List<Object> getSeriesNames() { return seriesNames; }
+
+        public int getRowsMatched() { return rowsMatched; }
+
+        /**
+         * 指定系列与分类轴对齐的数值数组；没有系列字段时传null；系列不存在时整列按缺失处理
+         */
+        public List<? extends Number> getSeries(Object seriesName) {
+            for (int i = 0; i < seriesNames.size(); i++) {
+                Object name = seriesNames.get(i);
+                if (Objects.equals(name, seriesName)
+                        || (name != null && seriesName != null && name.toString().equals(seriesName.toString()))) {
+                    return series.get(i);
+                }
+            }
+            if (seriesNames.isEmpty() && seriesName == null && !series.isEmpty()) {
+                return series.get(0);
+            }
+            double[] empty = new double[categories.size()];
+            return toSeries(empty, new boolean[empty.length], false);
+        }
+
+        /**
+         * 全部系列，格式为ECharts的series数组：[{name, data}, ...]
+         */
+        public List<Map<String, Object>> getSeriesList() {
+            List<Map<String, Object>> list = new ArrayList<>(series.size());
+            for (int i = 0; i < series.size(); i++) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("name", seriesNames.get(i));
+                item.put("data", series.get(i));
+                list.add(item);
+            }
+            return list;
+        }
+
+        /**
+         * 估算占用的字节数，供查询结果缓存计量容量
+         */
+        long estimatedBytes() {
+            return 32 + QueryResultCache.estimateBytes(categories) + QueryResultCache.estimateBytes(seriesNames)
+                    + QueryResultCache.estimateBytes(series);
+        }
+    }
+
+    /**
+     * 分类排序键
+     */
+    private static final class OrderKey {
+        enum Kind { VALUE, COUNT, CATEGORY }
+
+        final Kind kind;
+        final boolean descending;
+
+        OrderKey(Kind kind, boolean descending) {
+            this.kind = kind;
+            this.descending = descending;
+        }
+
+        static OrderKey parse(Mapping.Order order, FieldRef categoryField) {
+            boolean descending = order.getDir() != null && "desc".equalsIgnoreCase(order.getDir().trim());
+            String field = order.getField();
+            if (field == null || field.trim().isEmpty() || "value".equalsIgnoreCase(field.trim())) {
+                return new OrderKey(Kind.VALUE, descending);
+            }
+            if ("count".equalsIgnoreCase(field.trim())) {
+                return new OrderKey(Kind.COUNT, descending);
+            }
+            if (FieldRef.resolve(field) == categoryField) {
+                return new OrderKey(Kind.CATEGORY, descending);
+            }
+            throw new IllegalArgumentException("只能按value、count或分类字段排序: " + field);
+        }
+
+        @Override
+        public String toString() {
+            return kind + (descending ? " desc" : " asc");
+        }
+    }
+
+    /**
+     * 分组键列：每行的分组编号和编号对应的键值；空值编号为-1
+     */
+    private static final class KeyColumn {
+        final int[] ids;
+        final Object[] keys;
+
+        KeyColumn(int[] ids, Object[] keys) {
+            this.ids = ids;
+            this.keys = keys;
+        }
+
+        static KeyColumn of(ColumnBatch.TimeBuckets buckets) {
+            // 桶编号本身是稠密且按时间有序的
+            Object[] labels = new Object[buckets.getCount()];
+            for (int id = 0; id < labels.length; id++) {
+                labels[id] = buckets.label(id);
+            }
+            return new KeyColumn(buckets.ids(), labels);
+        }
+
+        static KeyColumn of(ColumnBatch batch, FieldRef field) {
+            if (field.getType() == Type.STRING) {
+                // 字典编码本身就是稠密的分组编号
+                return new KeyColumn(batch.codes(field.getColumn()), batch.dictionary(field.getColumn()));
+            }
+            int rows = batch.getRowCount();
+            int[] ids = new int[rows];
+            Map<Object, Integer> index = new HashMap<>();
+            List<Object> keys = new ArrayList<>();
+            for (int row = 0; row < rows; row++) {
+                Object value = field.get(batch, row);
+                if (value == null) {
+                    ids[row] = -1;
+                    continue;
+                }
+                Integer id = index.get(value);
+                if (id == null) {
+                    id = keys.size();
+                    index.put(value, id);
+                    keys.add(value);
+                }
+                ids[row] = id;
+            }
+            return new KeyColumn(ids, keys.toArray());
+        }
+    }
+
+    /**
+     * 按系列×分类展开的聚合状态，只分配聚合类型需要的数组；分区结果按行顺序合并。
+     * 不同值个数和分位数的单元格保存可合并的摘要，在单元格第一次有值时创建
+     */
+    private static final class Cells {
+        int matched;
+        final double quantile;
+        final int[] count;
+        final double[] sum;
+        final double[] min;
+        final double[] max;
+        final double[] first;
+        final HyperLogLog[] distinct;
+        final TDigest[] digests;
+
+        Cells(int cellCount, Aggregation aggregation, double quantile) {
+            this.quantile = quantile;
+            this.count = new int[cellCount];
+            this.sum = aggregation == Aggregation.SUM || aggregation == Aggregation.AVG ? new double[cellCount] : null;
+            this.min = aggregation == Aggregation.MIN ? new double[cellCount] : null;
+            this.max = aggregation == Aggregation.MAX ? new double[cellCount] : null;
+            this.first = aggregation == Aggregation.NONE ? new double[cellCount] : null;
+            this.distinct = aggregation == Aggregation.COUNT_DISTINCT ? new HyperLogLog[cellCount] : null;
+            this.digests = aggregation == Aggregation.MEDIAN || aggregation == Aggregation.PERCENTILE
+                    ? new TDigest[cellCount] : null;
+        }
+
+        void addHash(int cell, long hash) {
+            if (count[cell]++ == 0) {
+                distinct[cell] = new HyperLogLog(CELL_HLL_PRECISION);
+            }
+            distinct[cell].addHash(hash);
+        }
+
+        void add(int cell, double value) {
+            int n = count[cell]++;
+            if (digests != null) {
+                if (n == 0) {
+                    digests[cell] = new TDigest();
+                }
+                digests[cell].add(value);
+            }
+            if (sum != null) {
+                sum[cell] += value;
+            }
+            if (min != null) {
+                min[cell] = n == 0 ? value : Math.min(min[cell], value);
+            }
+            if (max != null) {
+                max[cell] = n == 0 ? value : Math.max(max[cell], value);
+            }
+            if (first != null && n == 0) {
+                first[cell] = value;
+            }
+        }
+
+        double value(int cell, Aggregation aggregation) {
+            switch (aggregation) {
+                case SUM:
+                    return sum[cell];
+                case AVG:
+                    return sum[cell] / count[cell];
+                case MIN:
+                    return min[cell];
+                case MAX:
+                    return max[cell];
+                case COUNT_DISTINCT:
+                    return distinct[cell].estimate();
+                case MEDIAN:
+                case PERCENTILE:
+                    return digests[cell].quantile(quantile);
+                case NONE:
+                default:
+                    return first[cell];
+            }
+        }
+
+        Cells merge(Cells next) {
+            matched += next.matched;
+            for (int cell = 0; cell < count.length; cell++) {
+                int n = next.count[cell];
+                if (n == 0) {
+                    continue;
+                }
+                boolean empty = count[cell] == 0;
+                count[cell] += n;
+                if (sum != null) {
+                    sum[cell] += next.sum[cell];
+                }
+                if (min != null) {
+                    min[cell] = empty ? next.min[cell] : Math.min(min[cell], next.min[cell]);
+                }
+                if (max != null) {
+                    max[cell] = empty ? next.max[cell] : Math.max(max[cell], next.max[cell]);
+                }
+                if (first != null && empty) {
+                    first[cell] = next.first[cell];
+                }
+                if (distinct != null) {
+                    distinct[cell] = empty ? next.distinct[cell] : distinct[cell].merge(next.distinct[cell]);
+                }
+                if (digests != null) {
+                    digests[cell] = empty ? next.digests[cell] : digests[cell].merge(next.digests[cell]);
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.chart.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.query.sketch.HyperLogLog;
+
+/**
+ * 查询结果缓存
+ * 以编译后查询的规范化签名为键，在多个图表之间共用聚合和透视结果；数据版本变化时整体失效，
+ * 映射声明了过期时间时按时间失效。容量按估算的结果字节数计量，淘汰策略为W-TinyLFU：
+ * 新结果先进入小的LRU窗口，被挤出窗口时与主区（试用段+保护段的SLRU）中最久未用的结果比较
+ * 近期访问频率（Count-Min计数，定期减半），频率更高的留下。一次性的查询不会把常用结果挤出缓存。
+ * 同一签名并发未命中时只执行一次查询，其余请求等待这次的结果。
+ * 缓存的结果在多个渲染之间共享，写入前深度冻结（原始类型序列只读，Map/List不可修改）
+ */
+@Component
+public class QueryResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryResultCache.class);
+
+    /**
+     * 保护段占主区的比例
+     */
+    private static final double PROTECTED_RATIO = 0.8;
+
+    /**
+     * 单独统计命中率的查询形状上限，超出后计入"other"
+     */
+    private static final int MAX_SHAPES = 512;
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+    private long dataVersion = Long.MIN_VALUE;
+    private final FrequencySketch frequency = new FrequencySketch();
+    private final Map<String, CompletableFuture<Object>> loading = new HashMap<>();
+    private LongSupplier clock = System::nanoTime;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry {
+        final String key;
+        final Object value;
+        final long weight;
+        final long hash;
+        final long createdAt;
+        final long ttlNanos;
+
+        Entry(String key, Object value, long weight, long hash, long createdAt, long ttlNanos) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.hash = hash;
+            this.createdAt = createdAt;
+            this.ttlNanos = ttlNanos;
+        }
+
+        boolean isExpired(long now) {
+            return ttlNanos > 0 && now - createdAt >= ttlNanos;
+        }
+    }
+
+    /**
+     * 每种查询形状的命中统计
+     */
+    private static final class ShapeStats {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+
+    /**
+     * 取缓存的结果，未命中时执行查询并按估算大小决定是否缓存
+     *
+     * @param fingerprint 查询的规范化签名
+     * @param shape 查询形状（不含过滤值），用于命中率统计
+     * @param version 执行查询前读取的数据版本
+     * @param ttlSeconds 映射声明的过期时间，为null时使用默认值，小于等于0时不缓存
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String fingerprint, String shape, long version, Integer ttlSeconds, Supplier<T> query) {
+        ChartConfigProperties.Query.Cache config = chartConfigProperties.getQuery().getCache();
+        if (!config.isEnabled() || (ttlSeconds != null && ttlSeconds <= 0)) {
+            return query.get();
+        }
+        ShapeStats shapeStats = shapeStats(shape);
+        long hash = HyperLogLog.hash(fingerprint);
+        CompletableFuture<Object> pending;
+        CompletableFuture<Object> load = null;
+        synchronized (this) {
+            if (!checkVersion(version)) {
+                // 查询前读取的版本已经过期，结果不可复用
+                return query.get();
+            }
+            frequency.increment(hash);
+            Entry entry = lookup(fingerprint);
+            if (entry != null) {
+                if (!entry.isExpired(clock.getAsLong())) {
+                    hits.incrementAndGet();
+                    shapeStats.hits.incrementAndGet();
+                    return (T) entry.value;
+                }
+                remove(entry.key);
+                expirations.incrementAndGet();
+            }
+            pending = loading.get(fingerprint);
+            if (pending == null) {
+                load = new CompletableFuture<>();
+                loading.put(fingerprint, load);
+            }
+        }
+        if (pending != null) {
+            // 同一版本的相同查询正在执行，等待其结果
+            hits.incrementAndGet();
+            shapeStats.hits.incrementAndGet();
+            try {
+                return (T) pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        misses.incrementAndGet();
+        shapeStats.misses.incrementAndGet();
+
+        long createdAt = clock.getAsLong();
+        T value;
+        try {
+            value = (T) freeze(query.get());
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                loading.remove(fingerprint, load);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        long weight = estimateBytes(value);
+        long ttl = ttlSeconds != null ? ttlSeconds : config.getDefaultTtlSeconds();
+        synchronized (this) {
+            loading.remove(fingerprint, load);
+            if (version == dataVersion) {
+                insert(new Entry(fingerprint, value, weight, hash, createdAt, Math.max(0, ttl) * 1_000_000_000L));
+            }
+        }
+        load.complete(value);
+        return value;
+    }
+
+    /**
+     * 数据版本变化时清空缓存；返回false表示调用方的版本比缓存的版本旧
+     */
+    private boolean checkVersion(long version) {
+        if (version == dataVersion) {
+            return true;
+        }
+        if (version < dataVersion) {
+            return false;
+        }
+        if (size() > 0) {
+            invalidations.incrementAndGet();
+            logger.debug("🔄 [查询缓存] 数据版本 {} -> {}，清空 {} 个结果", dataVersion, version, size());
+        }
+        clearSegments();
+        // 旧版本正在执行的查询照常完成，但新版本的请求不再等待它们
+        loading.clear();
+        dataVersion = version;
+        return true;
+    }
+
+    private Entry lookup(String key) {
+        Entry entry = window.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        entry = protectedSegment.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        entry = probation.remove(key);
+        if (entry != null) {
+            // 试用段再次命中：晋升到保护段，保护段超出容量时把最久未用的降回试用段
+            probationBytes -= entry.weight;
+            protectedSegment.put(key, entry);
+            protectedBytes += entry.weight;
+            long protectedMax = (long) (mainCapacity() * PROTECTED_RATIO);
+            Iterator<Entry> eldest = protectedSegment.values().iterator();
+            while (protectedBytes > protectedMax && eldest.hasNext()) {
+                Entry demoted = eldest.next();
+                if (demoted == entry) {
+                    break;
+                }
+                eldest.remove();
+                protectedBytes -= demoted.weight;
+                probation.put(demoted.key, demoted);
+                probationBytes += demoted.weight;
+            }
+        }
+        return entry;
+    }
+
+    private void insert(Entry entry) {
+        long maxBytes = chartConfigProperties.getQuery().getCache().getMaxBytes();
+        if (entry.weight > maxBytes - windowCapacity()) {
+            rejections.incrementAndGet();
+            return;
+        }
+        remove(entry.key);
+        window.put(entry.key, entry);
+        windowBytes += entry.weight;
+        long windowMax = windowCapacity();
+        Iterator<Entry> eldest = window.values().iterator();
+        while (windowBytes > windowMax && eldest.hasNext()) {
+            Entry candidate = eldest.next();
+            eldest.remove();
+            windowBytes -= candidate.weight;
+            admit(candidate);
+        }
+    }
+
+    /**
+     * 窗口挤出的结果进入主区：主区已满时与试用段（为空时为保护段）最久未用的结果比较访问频率
+     */
+    private void admit(Entry candidate) {
+        long mainMax = mainCapacity();
+        int candidateFrequency = frequency.frequency(candidate.hash);
+        while (probationBytes + protectedBytes + candidate.weight > mainMax) {
+            boolean fromProbation = !probation.isEmpty();
+            LinkedHashMap<String, Entry> segment = fromProbation ? probation : protectedSegment;
+            Iterator<Entry> eldest = segment.values().iterator();
+            if (!eldest.hasNext()) {
+                break;
+            }
+            Entry victim = eldest.next();
+            if (candidateFrequency <= frequency.frequency(victim.hash)) {
+                rejections.incrementAndGet();
+                return;
+            }
+            eldest.remove();
+            if (fromProbation) {
+                probationBytes -= victim.weight;
+            } else {
+                protectedBytes -= victim.weight;
+            }
+            evictions.incrementAndGet();
+        }
+        probation.put(candidate.key, candidate);
+        probationBytes += candidate.weight;
+    }
+
+    private void remove(String key) {
+        Entry entry = window.remove(key);
+        if (entry != null) {
+            windowBytes -= entry.weight;
+        }
+        entry = probation.remove(key);
+        if (entry != null) {
+            probationBytes -= entry.weight;
+        }
+        entry = protectedSegment.remove(key);
+        if (entry != null) {
+            protectedBytes -= entry.weight;
+        }
+    }
+
+    private long windowCapacity() {
+        ChartConfigProperties.Query.Cache config = chartConfigProperties.getQuery().getCache();
+        return Math.max(1, config.getMaxBytes() * Math.max(1, Math.min(100, config.getWindowPercent())) / 100);
+    }
+
+    private long mainCapacity() {
+        return chartConfigProperties.getQuery().getCache().getMaxBytes() - windowCapacity();
+    }
+
+    private void clearSegments() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowBytes = 0;
+        probationBytes = 0;
+        protectedBytes = 0;
+    }
+
+    private ShapeStats shapeStats(String shape) {
+        ShapeStats stats = shapes.get(shape);
+        if (stats != null) {
+            return stats;
+        }
+        return shapes.computeIfAbsent(shapes.size() < MAX_SHAPES ? shape : "other", key -> new ShapeStats());
+    }
+
+    /**
+     * 清空缓存
+     */
+    public synchronized void clear() {
+        clearSegments();
+        invalidations.incrementAndGet();
+        logger.info("🗑️ [查询缓存] 已清空");
+    }
+
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    public synchronized long getWeightedBytes() {
+        return windowBytes + probationBytes + protectedBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public Map<String, Object> getStatistics() {
+        ChartConfigProperties.Query.Cache config = chartConfigProperties.getQuery().getCache();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", config.isEnabled());
+        stats.put("maxBytes", config.getMaxBytes());
+        synchronized (this) {
+            stats.put("dataVersion", dataVersion);
+            stats.put("entries", size());
+            stats.put("bytes", getWeightedBytes());
+            stats.put("windowEntries", window.size());
+            stats.put("probationEntries", probation.size());
+            stats.put("protectedEntries", protectedSegment.size());
+        }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", ratio(hitCount, missCount));
+        stats.put("evictions", evictions.get());
+        stats.put("rejections", rejections.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+
+        // 按请求数从多到少列出各查询形状的命中率
+        List<Map<String, Object>> shapeList = new ArrayList<>();
+        shapes.forEach((shape, shapeStats) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            long shapeHits = shapeStats.hits.get();
+            long shapeMisses = shapeStats.misses.get();
+            item.put("shape", shape);
+            item.put("hits", shapeHits);
+            item.put("misses", shapeMisses);
+            item.put("hitRatio", ratio(shapeHits, shapeMisses));
+            shapeList.add(item);
+        });
+        shapeList.sort((a, b) -> Long.compare((Long) b.get("hits") + (Long) b.get("misses"),
+                (Long) a.get("hits") + (Long) a.get("misses")));
+        stats.put("shapes", shapeList);
+        return stats;
+    }
+
+    private static double ratio(long hits, long misses) {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : Math.round(hits * 10000.0 / requests) / 10000.0;
+    }
+
+    /**
+     * 深度冻结查询结果：原始类型序列标记为只读，Map/List换成不可修改的副本，透视结果构造时已冻结
+     */
+    @SuppressWarnings("unchecked")
+    static Object freeze(Object value) {
+        if (value instanceof CompiledMapping.Result) {
+            CompiledMapping.Result result = (CompiledMapping.Result) value;
+            return new CompiledMapping.Result(freeze(result.getValue()), result.getRowsMatched());
+        }
+        if (value instanceof DoubleSeries) {
+            return ((DoubleSeries) value).freeze();
+        }
+        if (value instanceof LongSeries) {
+            return ((LongSeries) value).freeze();
+        }
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), freeze(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            for (Object element : (Collection<?>) value) {
+                copy.add(freeze(element));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    /**
+     * 估算结果占用的字节数（对象头和引用按64位JVM压缩指针估算）
+     */
+    static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CompiledMapping.Result) {
+            return 24 + estimateBytes(((CompiledMapping.Result) value).getValue());
+        }
+        if (value instanceof PivotQuery.Result) {
+            return ((PivotQuery.Result) value).estimatedBytes();
+        }
+        if (value instanceof DoubleSeries) {
+            return 32 + 8L * ((DoubleSeries) value).size();
+        }
+        if (value instanceof LongSeries) {
+            return 32 + 8L * ((LongSeries) value).size();
+        }
+        if (value instanceof String) {
+            return 40 + ((String) value).length();
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return 16;
+        }
+        if (value instanceof Collection) {
+            long bytes = 40;
+            for (Object element : (Collection<?>) value) {
+                bytes += 4 + estimateBytes(element);
+            }
+            return bytes;
+        }
+        if (value instanceof Map) {
+            long bytes = 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        return 16;
+    }
+
+    /**
+     * 访问频率的Count-Min估计：4行4位计数器，累计增加到采样上限后全部减半，使频率反映近期访问
+     */
+    private static final class FrequencySketch {
+        private static final int WIDTH = 1 << 12;
+        private static final int ROWS = 4;
+        private static final int SAMPLE_SIZE = 10 * WIDTH;
+
+        private final byte[][] counters = new byte[ROWS][WIDTH];
+        private int additions;
+
+        void increment(long hash) {
+            boolean added = false;
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(hash, row);
+                if (counters[row][index] < 15) {
+                    counters[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= SAMPLE_SIZE) {
+                for (byte[] row : counters) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] >>= 1;
+                    }
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(long hash) {
+            int min = 15;
+            for (int row = 0; row < ROWS; row++) {
+                min = Math.min(min, counters[row][index(hash, row)]);
+            }
+            return min;
+        }
+
+        private static int index(long hash, int row) {
+            // 每行使用64位哈希的不同16位
+            return (int) (hash >>> (row * 16)) & (WIDTH - 1);
+        }
+    }
+}
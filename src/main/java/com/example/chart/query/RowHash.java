@@ -0,0 +1,12 @@
+package com.example.chart.query;
+
+/**
+ * 绑定到某个列向量批次的行哈希，用于不同值计数
+ * 相同的值哈希相同；空值不参与计数
+ */
+interface RowHash {
+
+    boolean isNull(int row);
+
+    long hash(int row);
+}
@@ -0,0 +1,14 @@
+package com.example.chart.query;
+
+/**
+ * 绑定到某个列向量批次的行过滤条件
+ * 实现只读取绑定时取出的数组，按行号判断
+ */
+@FunctionalInterface
+public interface RowPredicate {
+
+    RowPredicate ALWAYS_TRUE = row -> true;
+    RowPredicate ALWAYS_FALSE = row -> false;
+
+    boolean test(int row);
+}
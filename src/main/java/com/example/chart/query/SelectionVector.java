@@ -0,0 +1,91 @@
+package com.example.chart.query;
+
+/**
+ * 选择向量
+ * 按固定大小的行块执行过滤：第一个条件把通过的行号写入数组，后续条件只在已选中的行上压缩，
+ * 聚合再把选中行的非空值收集到连续的原始类型缓冲区里统计。
+ * 每次查询使用一个实例，不是线程安全的
+ */
+final class SelectionVector {
+
+    /**
+     * 行块大小：行号数组和值缓冲区都能留在L1/L2缓存中
+     */
+    static final int BATCH_SIZE = 1024;
+
+    private final int[] rows = new int[BATCH_SIZE];
+    private int size;
+
+    int[] rows() {
+        return rows;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 选出[from, to)中满足全部条件的行，to - from不能超过BATCH_SIZE
+     */
+    int select(RowPredicate[] predicates, int from, int to) {
+        int n = 0;
+        if (predicates.length == 0) {
+            for (int row = from; row < to; row++) {
+                rows[n++] = row;
+            }
+            size = n;
+            return n;
+        }
+        // 无分支写入：总是写入行号，只有通过时才推进游标
+        RowPredicate first = predicates[0];
+        for (int row = from; row < to; row++) {
+            rows[n] = row;
+            n += first.test(row) ? 1 : 0;
+        }
+        for (int p = 1; p < predicates.length && n > 0; p++) {
+            RowPredicate predicate = predicates[p];
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                int row = rows[i];
+                rows[kept] = row;
+                kept += predicate.test(row) ? 1 : 0;
+            }
+            n = kept;
+        }
+        size = n;
+        return n;
+    }
+
+    /**
+     * 收集选中行的非空值，返回个数
+     */
+    int gather(double[] values, long[] nulls, double[] out) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            out[n] = values[row];
+            n += (nulls[row >>> 6] & (1L << (row & 63))) == 0 ? 1 : 0;
+        }
+        return n;
+    }
+
+    int gather(long[] values, long[] nulls, long[] out) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            out[n] = values[row];
+            n += (nulls[row >>> 6] & (1L << (row & 63))) == 0 ? 1 : 0;
+        }
+        return n;
+    }
+
+    int gather(int[] values, long[] nulls, long[] out) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            out[n] = values[row];
+            n += (nulls[row >>> 6] & (1L << (row & 63))) == 0 ? 1 : 0;
+        }
+        return n;
+    }
+}
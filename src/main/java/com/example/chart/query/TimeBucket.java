@@ -0,0 +1,121 @@
+package com.example.chart.query;
+
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.Locale;
+
+/**
+ * 时间分桶粒度
+ * 日期以epoch-day整数表示，分桶编号全部用整数运算得到（不创建日期对象，不做字符串处理）；
+ * 相邻的桶编号连续，补齐空档时直接枚举编号区间。只有输出分类标签时才转换为日期
+ */
+public enum TimeBucket {
+
+    /** 按天，编号为epoch-day */
+    DAY,
+    /** 按ISO周（周一开始），编号为自1969-12-29所在周起的周数 */
+    WEEK,
+    /** 按月，编号为 年*12+月-1 */
+    MONTH,
+    /** 按季度，编号为 年*4+季度-1 */
+    QUARTER,
+    /** 按年，编号为年份 */
+    YEAR;
+
+    /**
+     * 解析分桶粒度，为空时返回null，未知时抛出IllegalArgumentException
+     */
+    public static TimeBucket parse(String bucket) {
+        if (bucket == null || bucket.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return valueOf(bucket.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("未知的时间分桶: " + bucket + "（可选 day/week/month/quarter/year）");
+        }
+    }
+
+    /**
+     * epoch-day所在桶的编号
+     */
+    public int bucketOf(int epochDay) {
+        switch (this) {
+            case DAY:
+                return epochDay;
+            case WEEK:
+                // 1970-01-01是周四，+3后以周一为一周的开始
+                return Math.floorDiv(epochDay + 3, 7);
+            default:
+                break;
+        }
+        long yearMonth = civilYearMonth(epochDay);
+        int year = (int) (yearMonth >> 4);
+        int month = (int) (yearMonth & 15);
+        switch (this) {
+            case MONTH:
+                return year * 12 + month - 1;
+            case QUARTER:
+                return year * 4 + (month - 1) / 3;
+            case YEAR:
+            default:
+                return year;
+        }
+    }
+
+    /**
+     * 桶的第一天
+     */
+    public LocalDate startOf(int bucket) {
+        switch (this) {
+            case DAY:
+                return LocalDate.ofEpochDay(bucket);
+            case WEEK:
+                return LocalDate.ofEpochDay(bucket * 7L - 3);
+            case MONTH:
+                return LocalDate.of(Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1, 1);
+            case QUARTER:
+                return LocalDate.of(Math.floorDiv(bucket, 4), Math.floorMod(bucket, 4) * 3 + 1, 1);
+            case YEAR:
+            default:
+                return LocalDate.of(bucket, 1, 1);
+        }
+    }
+
+    /**
+     * 分类标签：2025-01-05、2025-W02、2025-01、2025-Q1、2025（同一粒度下按字符串排序即按时间排序）
+     */
+    public String label(int bucket) {
+        LocalDate start = startOf(bucket);
+        switch (this) {
+            case DAY:
+                return start.toString();
+            case WEEK:
+                return String.format("%d-W%02d", start.get(IsoFields.WEEK_BASED_YEAR),
+                        start.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            case MONTH:
+                return String.format("%d-%02d", start.getYear(), start.getMonthValue());
+            case QUARTER:
+                return start.getYear() + "-Q" + (Math.floorMod(bucket, 4) + 1);
+            case YEAR:
+            default:
+                return String.valueOf(start.getYear());
+        }
+    }
+
+    /**
+     * epoch-day转公历年月（整数运算），返回 年<<4 | 月
+     */
+    static long civilYearMonth(int epochDay) {
+        // 以0000-03-01为起点的400年周期算法
+        long z = epochDay + 719468L;
+        long era = Math.floorDiv(z, 146097L);
+        long dayOfEra = z - era * 146097L;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (year << 4) | month;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.chart.query;
+
+/**
+ * 基于有界堆的Top-N选择
+ * 候选以int编号表示，比较器直接比较预先计算好的原始类型排序键；
+ * 从n个候选中选出前k个的代价为O(n log k)，只有入选的编号需要后续物化
+ */
+public final class TopN {
+
+    /**
+     * 按编号比较两个候选，返回负数表示a排在b之前
+     */
+    @FunctionalInterface
+    public interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private TopN() {
+    }
+
+    /**
+     * 选出排在最前的limit个候选并按顺序返回
+     *
+     * @param candidates 候选编号
+     * @param count 候选个数（candidates的前count个）
+     * @param limit 保留个数，小于0表示不限制
+     */
+    public static int[] select(int[] candidates, int count, IntComparator comparator, int limit) {
+        if (limit < 0 || limit >= count) {
+            int[] all = new int[count];
+            System.arraycopy(candidates, 0, all, 0, count);
+            sort(all, all.length, comparator);
+            return all;
+        }
+        if (limit == 0) {
+            return new int[0];
+        }
+        // 堆顶是已选中候选里排在最后的一个，新候选只需与堆顶比较
+        int[] heap = new int[limit];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int candidate = candidates[i];
+            if (size < limit) {
+                heap[size] = candidate;
+                siftUp(heap, size, comparator);
+                size++;
+            } else if (comparator.compare(candidate, heap[0]) < 0) {
+                heap[0] = candidate;
+                siftDown(heap, 0, size, comparator);
+            }
+        }
+        sort(heap, size, comparator);
+        return heap;
+    }
+
+    /**
+     * 堆排序后得到升序（排在前面的在前）
+     */
+    private static void sort(int[] values, int size, IntComparator comparator) {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(values, i, size, comparator);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            int top = values[0];
+            values[0] = values[end];
+            values[end] = top;
+            siftDown(values, 0, end, comparator);
+        }
+    }
+
+    /**
+     * 维护“排在最后的在堆顶”的堆
+     */
+    private static void siftUp(int[] heap, int index, IntComparator comparator) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (comparator.compare(value, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int index, int size, IntComparator comparator) {
+        int value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && comparator.compare(heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (comparator.compare(value, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
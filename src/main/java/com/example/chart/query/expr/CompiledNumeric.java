@@ -0,0 +1,12 @@
+package com.example.chart.query.expr;
+
+import com.example.chart.query.ColumnBatch;
+
+/**
+ * 编译后的数值表达式，绑定到批次后得到数值列
+ */
+@FunctionalInterface
+public interface CompiledNumeric {
+
+    NumericColumn bind(ColumnBatch batch);
+}
@@ -0,0 +1,13 @@
+package com.example.chart.query.expr;
+
+import com.example.chart.query.ColumnBatch;
+import com.example.chart.query.RowPredicate;
+
+/**
+ * 编译后的过滤表达式，与具体数据无关；绑定到批次时取出数组和字典编码
+ */
+@FunctionalInterface
+public interface CompiledPredicate {
+
+    RowPredicate bind(ColumnBatch batch);
+}
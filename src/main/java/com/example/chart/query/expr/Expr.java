@@ -0,0 +1,292 @@
+package com.example.chart.query.expr;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.example.chart.query.FieldRef;
+
+/**
+ * 表达式语法树
+ * 由ExpressionParser生成，只在编译阶段使用；执行时使用编译后的谓词和数值列
+ */
+public abstract class Expr {
+
+    Expr() {
+    }
+
+    /**
+     * 字面量：数字（Double或Long）、字符串、日期（LocalDate）或布尔值
+     */
+    public static final class Literal extends Expr {
+        final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        boolean isNumber() { return value instanceof Number; }
+        boolean isString() { return value instanceof String; }
+        boolean isDate() { return value instanceof LocalDate; }
+
+        @Override
+        public String toString() {
+            if (value instanceof String) {
+                return "'" + ((String) value).replace("'", "''") + "'";
+            }
+            if (value instanceof LocalDate) {
+                return "DATE '" + value + "'";
+            }
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * 字段引用；field为null表示映射的值字段（value）
+     */
+    public static final class Field extends Expr {
+        final String name;
+        final FieldRef field;
+
+        Field(String name, FieldRef field) {
+            this.name = name;
+            this.field = field;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * 算术运算：+ - * / %
+     */
+    public static final class Arithmetic extends Expr {
+        final char op;
+        final Expr left;
+        final Expr right;
+
+        Arithmetic(char op, Expr left, Expr right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + op + " " + right + ")";
+        }
+    }
+
+    /**
+     * 取负
+     */
+    public static final class Negate extends Expr {
+        final Expr operand;
+
+        Negate(Expr operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public String toString() {
+            return "-" + operand;
+        }
+    }
+
+    /**
+     * 函数调用：abs、round、floor、ceil、min、max
+     */
+    public static final class Call extends Expr {
+        final String function;
+        final List<Expr> args;
+
+        Call(String function, List<Expr> args) {
+            this.function = function;
+            this.args = args;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(function).append('(');
+            for (int i = 0; i < args.size(); i++) {
+                sb.append(i > 0 ? ", " : "").append(args.get(i));
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * 比较运算
+     */
+    public static final class Compare extends Expr {
+        final CompareOp op;
+        final Expr left;
+        final Expr right;
+
+        Compare(CompareOp op, Expr left, Expr right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public String toString() {
+            return left + " " + op.symbol + " " + right;
+        }
+    }
+
+    /**
+     * IN / NOT IN（列表只允许字面量）
+     */
+    public static final class In extends Expr {
+        final Expr operand;
+        final List<Literal> values;
+        final boolean negated;
+
+        In(Expr operand, List<Literal> values, boolean negated) {
+            this.operand = operand;
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        public String toString() {
+            return operand + (negated ? " NOT IN " : " IN ") + values;
+        }
+    }
+
+    /**
+     * BETWEEN / NOT BETWEEN（闭区间）
+     */
+    public static final class Between extends Expr {
+        final Expr operand;
+        final Expr low;
+        final Expr high;
+        final boolean negated;
+
+        Between(Expr operand, Expr low, Expr high, boolean negated) {
+            this.operand = operand;
+            this.low = low;
+            this.high = high;
+            this.negated = negated;
+        }
+
+        @Override
+        public String toString() {
+            return operand + (negated ? " NOT BETWEEN " : " BETWEEN ") + low + " AND " + high;
+        }
+    }
+
+    /**
+     * IS NULL / IS NOT NULL
+     */
+    public static final class IsNull extends Expr {
+        final Expr operand;
+        final boolean negated;
+
+        IsNull(Expr operand, boolean negated) {
+            this.operand = operand;
+            this.negated = negated;
+        }
+
+        @Override
+        public String toString() {
+            return operand + (negated ? " IS NOT NULL" : " IS NULL");
+        }
+    }
+
+    /**
+     * AND / OR
+     */
+    public static final class Logical extends Expr {
+        final boolean and;
+        final List<Expr> operands;
+
+        Logical(boolean and, List<Expr> operands) {
+            this.and = and;
+            this.operands = operands;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("(");
+            for (int i = 0; i < operands.size(); i++) {
+                sb.append(i > 0 ? (and ? " AND " : " OR ") : "").append(operands.get(i));
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * NOT
+     */
+    public static final class Not extends Expr {
+        final Expr operand;
+
+        Not(Expr operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + operand;
+        }
+    }
+
+    /**
+     * 比较运算符
+     */
+    public enum CompareOp {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        CompareOp(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * 交换左右操作数后的运算符（a < b 等价于 b > a）
+         */
+        CompareOp flip() {
+            switch (this) {
+                case LT: return GT;
+                case LE: return GE;
+                case GT: return LT;
+                case GE: return LE;
+                default: return this;
+            }
+        }
+
+        /**
+         * 取反后的运算符（NOT a < b 等价于 a >= b）
+         */
+        CompareOp negate() {
+            switch (this) {
+                case EQ: return NE;
+                case NE: return EQ;
+                case LT: return GE;
+                case LE: return GT;
+                case GT: return LE;
+                case GE:
+                default: return LT;
+            }
+        }
+
+        /**
+         * 按比较结果（compareTo的符号）判断
+         */
+        boolean test(int comparison) {
+            switch (this) {
+                case EQ: return comparison == 0;
+                case NE: return comparison != 0;
+                case LT: return comparison < 0;
+                case LE: return comparison <= 0;
+                case GT: return comparison > 0;
+                case GE: return comparison >= 0;
+                default: return false;
+            }
+        }
+    }
+}
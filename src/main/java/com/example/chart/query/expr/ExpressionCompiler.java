@@ -0,0 +1,808 @@
+package com.example.chart.query.expr;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import com.example.chart.query.ColumnBatch;
+import com.example.chart.query.FieldRef;
+import com.example.chart.query.RowPredicate;
+import com.example.chart.store.ColumnTable.Column;
+import com.example.chart.store.ColumnTable.Type;
+
+/**
+ * 表达式编译器
+ * 把语法树编译成按列类型特化的谓词和数值列：
+ * <ul>
+ * <li>字符串列与字面量的比较、IN、BETWEEN在绑定时对字典逐项求值一次，得到编码掩码，每行只读一次编码数组</li>
+ * <li>数值列与常量的比较直接读取原始类型数组</li>
+ * <li>时间列与日期的比较换算为秒数区间（DATE上界包含当天）</li>
+ * <li>其余情况按算术表达式求值后比较</li>
+ * </ul>
+ * 逻辑为二值逻辑：空值参与的比较、IN、BETWEEN为假，在NOT之下也为假——NOT按相反的比较编译，
+ * AND/OR按德摩根律展开，所以NOT (x = 1)与x != 1、NOT (x IN (...))与x NOT IN (...)结果相同；
+ * "= NULL"等价于IS NULL
+ */
+public final class ExpressionCompiler {
+
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    private final FieldRef valueField;
+
+    private ExpressionCompiler(FieldRef valueField) {
+        this.valueField = valueField;
+    }
+
+    /**
+     * 编译过滤表达式
+     *
+     * @param valueField 表达式中value所指的字段，可以为null
+     */
+    public static CompiledPredicate compilePredicate(String source, FieldRef valueField) {
+        return new ExpressionCompiler(valueField).predicate(ExpressionParser.parse(source));
+    }
+
+    /**
+     * 编译数值转换表达式
+     *
+     * @param valueField 表达式中value所指的字段，可以为null
+     */
+    public static CompiledNumeric compileNumeric(String source, FieldRef valueField) {
+        return new ExpressionCompiler(valueField).numeric(ExpressionParser.parse(source));
+    }
+
+    // ==================== 谓词 ====================
+
+    private CompiledPredicate predicate(Expr expr) {
+        if (expr instanceof Expr.Logical) {
+            return logical((Expr.Logical) expr);
+        }
+        if (expr instanceof Expr.Not) {
+            return negation(((Expr.Not) expr).operand);
+        }
+        if (expr instanceof Expr.Literal && ((Expr.Literal) expr).value instanceof Boolean) {
+            RowPredicate constant = (Boolean) ((Expr.Literal) expr).value ? RowPredicate.ALWAYS_TRUE
+                    : RowPredicate.ALWAYS_FALSE;
+            return batch -> constant;
+        }
+        if (expr instanceof Expr.IsNull) {
+            Expr.IsNull isNull = (Expr.IsNull) expr;
+            CompiledPredicate test = nullTest(isNull.operand);
+            return isNull.negated ? batch -> not(test.bind(batch)) : test;
+        }
+        if (expr instanceof Expr.Compare) {
+            return compare((Expr.Compare) expr);
+        }
+        if (expr instanceof Expr.In) {
+            return in((Expr.In) expr);
+        }
+        if (expr instanceof Expr.Between) {
+            return between((Expr.Between) expr);
+        }
+        throw new IllegalArgumentException("不是条件表达式: " + expr);
+    }
+
+    /**
+     * NOT expr：比较、IN、BETWEEN改为相反的条件，空值参与时仍为假；AND/OR按德摩根律展开，
+     * IS NULL和布尔常量直接取反
+     */
+    private CompiledPredicate negation(Expr expr) {
+        if (expr instanceof Expr.Not) {
+            return predicate(((Expr.Not) expr).operand);
+        }
+        if (expr instanceof Expr.Logical) {
+            Expr.Logical logical = (Expr.Logical) expr;
+            List<Expr> operands = new ArrayList<>();
+            for (Expr operand : logical.operands) {
+                operands.add(new Expr.Not(operand));
+            }
+            return logical(new Expr.Logical(!logical.and, operands));
+        }
+        if (expr instanceof Expr.Compare) {
+            Expr.Compare compare = (Expr.Compare) expr;
+            return compare(new Expr.Compare(compare.op.negate(), compare.left, compare.right));
+        }
+        if (expr instanceof Expr.In) {
+            Expr.In in = (Expr.In) expr;
+            return in(new Expr.In(in.operand, in.values, !in.negated));
+        }
+        if (expr instanceof Expr.Between) {
+            Expr.Between between = (Expr.Between) expr;
+            return between(new Expr.Between(between.operand, between.low, between.high, !between.negated));
+        }
+        CompiledPredicate operand = predicate(expr);
+        return batch -> not(operand.bind(batch));
+    }
+
+    private CompiledPredicate logical(Expr.Logical logical) {
+        List<CompiledPredicate> operands = new ArrayList<>();
+        for (Expr operand : logical.operands) {
+            operands.add(predicate(operand));
+        }
+        boolean and = logical.and;
+        return batch -> {
+            // 绑定时消去恒真/恒假的分支
+            RowPredicate absorbing = and ? RowPredicate.ALWAYS_FALSE : RowPredicate.ALWAYS_TRUE;
+            RowPredicate neutral = and ? RowPredicate.ALWAYS_TRUE : RowPredicate.ALWAYS_FALSE;
+            List<RowPredicate> bound = new ArrayList<>();
+            for (CompiledPredicate operand : operands) {
+                RowPredicate predicate = operand.bind(batch);
+                if (predicate == absorbing) {
+                    return absorbing;
+                }
+                if (predicate != neutral) {
+                    bound.add(predicate);
+                }
+            }
+            if (bound.isEmpty()) {
+                return neutral;
+            }
+            if (bound.size() == 1) {
+                return bound.get(0);
+            }
+            if (bound.size() == 2) {
+                RowPredicate first = bound.get(0);
+                RowPredicate second = bound.get(1);
+                return and ? row -> first.test(row) && second.test(row) : row -> first.test(row) || second.test(row);
+            }
+            RowPredicate[] all = bound.toArray(new RowPredicate[0]);
+            if (and) {
+                return row -> {
+                    for (RowPredicate predicate : all) {
+                        if (!predicate.test(row)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+            return row -> {
+                for (RowPredicate predicate : all) {
+                    if (predicate.test(row)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        };
+    }
+
+    private static RowPredicate not(RowPredicate predicate) {
+        if (predicate == RowPredicate.ALWAYS_TRUE) {
+            return RowPredicate.ALWAYS_FALSE;
+        }
+        if (predicate == RowPredicate.ALWAYS_FALSE) {
+            return RowPredicate.ALWAYS_TRUE;
+        }
+        return row -> !predicate.test(row);
+    }
+
+    private CompiledPredicate nullTest(Expr operand) {
+        FieldRef field = fieldOf(operand);
+        if (field != null) {
+            Column column = field.getColumn();
+            if (field.getType() == Type.STRING) {
+                return batch -> {
+                    int[] codes = batch.codes(column);
+                    return row -> codes[row] < 0;
+                };
+            }
+            return batch -> {
+                long[] nulls = batch.nulls(column);
+                return row -> isNullBit(nulls, row);
+            };
+        }
+        CompiledNumeric numeric = numeric(operand);
+        return batch -> {
+            NumericColumn values = numeric.bind(batch);
+            return values::isNull;
+        };
+    }
+
+    private CompiledPredicate compare(Expr.Compare compare) {
+        Expr left = compare.left;
+        Expr right = compare.right;
+        Expr.CompareOp op = compare.op;
+        // 字段统一放在左侧
+        if (isLiteral(left) && !isLiteral(right)) {
+            Expr swap = left;
+            left = right;
+            right = swap;
+            op = op.flip();
+        }
+        if (isLiteral(right) && ((Expr.Literal) right).value == null) {
+            CompiledPredicate test = nullTest(left);
+            if (op == Expr.CompareOp.EQ) {
+                return test;
+            }
+            if (op == Expr.CompareOp.NE) {
+                return batch -> not(test.bind(batch));
+            }
+            throw new IllegalArgumentException("NULL只能用于=或!=比较: " + compare);
+        }
+
+        FieldRef field = fieldOf(left);
+        if (field != null && isLiteral(right)) {
+            Expr.Literal literal = (Expr.Literal) right;
+            switch (field.getType()) {
+                case STRING:
+                    return dictionaryMask(field, stringTest(op, literal, compare));
+                case TIME:
+                    return timeMask(field, timeTest(op, literal, compare));
+                default:
+                    if (literal.isNumber()) {
+                        return numericCompare(field, op, ((Number) literal.value).doubleValue());
+                    }
+                    throw new IllegalArgumentException("数值字段 " + field.getFieldName() + " 不能与 " + literal
+                            + " 比较: " + compare);
+            }
+        }
+
+        requireNumericOperand(left, compare);
+        requireNumericOperand(right, compare);
+        CompiledNumeric leftValues = numeric(left);
+        CompiledNumeric rightValues = numeric(right);
+        Expr.CompareOp finalOp = op;
+        return batch -> {
+            NumericColumn l = leftValues.bind(batch);
+            NumericColumn r = rightValues.bind(batch);
+            return row -> !l.isNull(row) && !r.isNull(row) && finalOp.test(Double.compare(l.get(row), r.get(row)));
+        };
+    }
+
+    private CompiledPredicate in(Expr.In in) {
+        FieldRef field = fieldOf(in.operand);
+        CompiledPredicate predicate;
+        if (field != null && field.getType() == Type.STRING) {
+            List<Predicate<String>> tests = new ArrayList<>();
+            for (Expr.Literal literal : in.values) {
+                tests.add(stringTest(Expr.CompareOp.EQ, literal, in));
+            }
+            predicate = dictionaryMask(field, entry -> {
+                for (Predicate<String> test : tests) {
+                    if (test.test(entry)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        } else if (field != null && field.getType() == Type.TIME) {
+            List<LongPredicate> tests = new ArrayList<>();
+            for (Expr.Literal literal : in.values) {
+                tests.add(timeTest(Expr.CompareOp.EQ, literal, in));
+            }
+            predicate = timeMask(field, seconds -> {
+                for (LongPredicate test : tests) {
+                    if (test.test(seconds)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        } else {
+            requireNumericOperand(in.operand, in);
+            double[] values = new double[in.values.size()];
+            for (int i = 0; i < values.length; i++) {
+                Expr.Literal literal = in.values.get(i);
+                if (!literal.isNumber()) {
+                    throw new IllegalArgumentException("数值IN列表只允许数字: " + in);
+                }
+                values[i] = ((Number) literal.value).doubleValue();
+            }
+            Arrays.sort(values);
+            CompiledNumeric operand = numeric(in.operand);
+            predicate = batch -> {
+                NumericColumn column = operand.bind(batch);
+                return row -> !column.isNull(row) && Arrays.binarySearch(values, column.get(row)) >= 0;
+            };
+        }
+        if (!in.negated) {
+            return predicate;
+        }
+        // NOT IN 对空值为假
+        CompiledPredicate notNull = nullTest(in.operand);
+        return batch -> {
+            RowPredicate matches = predicate.bind(batch);
+            RowPredicate isNull = notNull.bind(batch);
+            return row -> !isNull.test(row) && !matches.test(row);
+        };
+    }
+
+    private CompiledPredicate between(Expr.Between between) {
+        FieldRef field = fieldOf(between.operand);
+        CompiledPredicate predicate;
+        if (field != null && isLiteral(between.low) && isLiteral(between.high)) {
+            Expr.Literal low = (Expr.Literal) between.low;
+            Expr.Literal high = (Expr.Literal) between.high;
+            switch (field.getType()) {
+                case STRING: {
+                    Predicate<String> lowTest = stringTest(Expr.CompareOp.GE, low, between);
+                    Predicate<String> highTest = stringTest(Expr.CompareOp.LE, high, between);
+                    predicate = dictionaryMask(field, entry -> lowTest.test(entry) && highTest.test(entry));
+                    break;
+                }
+                case TIME: {
+                    LongPredicate lowTest = timeTest(Expr.CompareOp.GE, low, between);
+                    LongPredicate highTest = timeTest(Expr.CompareOp.LE, high, between);
+                    predicate = timeMask(field, seconds -> lowTest.test(seconds) && highTest.test(seconds));
+                    break;
+                }
+                default: {
+                    if (!low.isNumber() || !high.isNumber()) {
+                        throw new IllegalArgumentException("数值BETWEEN的上下界必须是数字: " + between);
+                    }
+                    predicate = numericRange(field, ((Number) low.value).doubleValue(),
+                            ((Number) high.value).doubleValue());
+                    break;
+                }
+            }
+        } else {
+            requireNumericOperand(between.operand, between);
+            requireNumericOperand(between.low, between);
+            requireNumericOperand(between.high, between);
+            CompiledNumeric operand = numeric(between.operand);
+            CompiledNumeric low = numeric(between.low);
+            CompiledNumeric high = numeric(between.high);
+            predicate = batch -> {
+                NumericColumn v = operand.bind(batch);
+                NumericColumn lo = low.bind(batch);
+                NumericColumn hi = high.bind(batch);
+                return row -> !v.isNull(row) && !lo.isNull(row) && !hi.isNull(row)
+                        && v.get(row) >= lo.get(row) && v.get(row) <= hi.get(row);
+            };
+        }
+        if (!between.negated) {
+            return predicate;
+        }
+        CompiledPredicate isNull = nullTest(between.operand);
+        return batch -> {
+            RowPredicate matches = predicate.bind(batch);
+            RowPredicate nulls = isNull.bind(batch);
+            return row -> !nulls.test(row) && !matches.test(row);
+        };
+    }
+
+    // ==================== 字符串列：字典掩码 ====================
+
+    /**
+     * 对字典中的每个值求值一次，行过滤只比较编码
+     */
+    private static CompiledPredicate dictionaryMask(FieldRef field, Predicate<String> test) {
+        Column column = field.getColumn();
+        return batch -> {
+            String[] dictionary = batch.dictionary(column);
+            boolean[] mask = new boolean[dictionary.length];
+            int matchedCodes = 0;
+            int lastCode = -1;
+            for (int code = 0; code < dictionary.length; code++) {
+                if (test.test(dictionary[code])) {
+                    mask[code] = true;
+                    matchedCodes++;
+                    lastCode = code;
+                }
+            }
+            int[] codes = batch.codes(column);
+            if (matchedCodes == 0) {
+                return RowPredicate.ALWAYS_FALSE;
+            }
+            if (matchedCodes == 1) {
+                int code = lastCode;
+                return row -> codes[row] == code;
+            }
+            return row -> {
+                int code = codes[row];
+                return code >= 0 && mask[code];
+            };
+        };
+    }
+
+    /**
+     * 字典值与字面量的比较：字符串按字典序，数字按数值，日期按日期（无法解析的值不匹配）
+     */
+    private static Predicate<String> stringTest(Expr.CompareOp op, Expr.Literal literal, Expr context) {
+        Object value = literal.value;
+        if (value instanceof String) {
+            String expected = (String) value;
+            return entry -> op.test(entry.compareTo(expected));
+        }
+        if (value instanceof Number) {
+            double expected = ((Number) value).doubleValue();
+            return entry -> {
+                try {
+                    return op.test(Double.compare(Double.parseDouble(entry.trim()), expected));
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            };
+        }
+        if (value instanceof LocalDate) {
+            LocalDate expected = (LocalDate) value;
+            return entry -> {
+                LocalDate date = parseDate(entry);
+                return date != null && op.test(date.compareTo(expected));
+            };
+        }
+        throw new IllegalArgumentException("字符串字段不能与 " + literal + " 比较: " + context);
+    }
+
+    private static LocalDate parseDate(String text) {
+        try {
+            return LocalDate.parse(text.length() > 10 ? text.substring(0, 10) : text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // ==================== 时间列：秒数区间 ====================
+
+    private static CompiledPredicate timeMask(FieldRef field, LongPredicate test) {
+        Column column = field.getColumn();
+        return batch -> {
+            long[] seconds = batch.longs(column);
+            long[] nulls = batch.nulls(column);
+            return row -> !isNullBit(nulls, row) && test.test(seconds[row]);
+        };
+    }
+
+    /**
+     * 时间与字面量的比较；日期字面量表示当天的区间[0点, 次日0点)，日期时间字面量精确到秒
+     */
+    private static LongPredicate timeTest(Expr.CompareOp op, Expr.Literal literal, Expr context) {
+        long from;
+        long until;
+        if (literal.value instanceof LocalDate) {
+            from = ((LocalDate) literal.value).toEpochDay() * SECONDS_PER_DAY;
+            until = from + SECONDS_PER_DAY;
+        } else if (literal.value instanceof String) {
+            String text = (String) literal.value;
+            try {
+                if (text.length() <= 10) {
+                    from = LocalDate.parse(text).toEpochDay() * SECONDS_PER_DAY;
+                    until = from + SECONDS_PER_DAY;
+                } else {
+                    from = LocalDateTime.parse(text.replace(' ', 'T')).toEpochSecond(ZoneOffset.UTC);
+                    until = from + 1;
+                }
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("无效的时间 " + literal + ": " + context);
+            }
+        } else {
+            throw new IllegalArgumentException("时间字段只能与日期或时间字符串比较: " + context);
+        }
+        switch (op) {
+            case EQ:
+                return seconds -> seconds >= from && seconds < until;
+            case NE:
+                return seconds -> seconds < from || seconds >= until;
+            case LT:
+                return seconds -> seconds < from;
+            case LE:
+                return seconds -> seconds < until;
+            case GT:
+                return seconds -> seconds >= until;
+            case GE:
+            default:
+                return seconds -> seconds >= from;
+        }
+    }
+
+    // ==================== 数值列与常量 ====================
+
+    private static CompiledPredicate numericCompare(FieldRef field, Expr.CompareOp op, double constant) {
+        Column column = field.getColumn();
+        switch (field.getType()) {
+            case DOUBLE:
+                return batch -> doubleCompare(batch.doubles(column), batch.nulls(column), op, constant);
+            case INT:
+                return batch -> intCompare(batch.ints(column), batch.nulls(column), op, constant);
+            case LONG:
+            default:
+                return batch -> longCompare(batch.longs(column), batch.nulls(column), op, constant);
+        }
+    }
+
+    private static RowPredicate doubleCompare(double[] v, long[] nulls, Expr.CompareOp op, double c) {
+        switch (op) {
+            case EQ:
+                return row -> v[row] == c && !isNullBit(nulls, row);
+            case NE:
+                return row -> v[row] != c && !isNullBit(nulls, row);
+            case LT:
+                return row -> v[row] < c && !isNullBit(nulls, row);
+            case LE:
+                return row -> v[row] <= c && !isNullBit(nulls, row);
+            case GT:
+                return row -> v[row] > c && !isNullBit(nulls, row);
+            case GE:
+            default:
+                return row -> v[row] >= c && !isNullBit(nulls, row);
+        }
+    }
+
+    private static RowPredicate intCompare(int[] v, long[] nulls, Expr.CompareOp op, double c) {
+        switch (op) {
+            case EQ:
+                return row -> v[row] == c && !isNullBit(nulls, row);
+            case NE:
+                return row -> v[row] != c && !isNullBit(nulls, row);
+            case LT:
+                return row -> v[row] < c && !isNullBit(nulls, row);
+            case LE:
+                return row -> v[row] <= c && !isNullBit(nulls, row);
+            case GT:
+                return row -> v[row] > c && !isNullBit(nulls, row);
+            case GE:
+            default:
+                return row -> v[row] >= c && !isNullBit(nulls, row);
+        }
+    }
+
+    private static RowPredicate longCompare(long[] v, long[] nulls, Expr.CompareOp op, double c) {
+        switch (op) {
+            case EQ:
+                return row -> v[row] == c && !isNullBit(nulls, row);
+            case NE:
+                return row -> v[row] != c && !isNullBit(nulls, row);
+            case LT:
+                return row -> v[row] < c && !isNullBit(nulls, row);
+            case LE:
+                return row -> v[row] <= c && !isNullBit(nulls, row);
+            case GT:
+                return row -> v[row] > c && !isNullBit(nulls, row);
+            case GE:
+            default:
+                return row -> v[row] >= c && !isNullBit(nulls, row);
+        }
+    }
+
+    private static CompiledPredicate numericRange(FieldRef field, double low, double high) {
+        Column column = field.getColumn();
+        switch (field.getType()) {
+            case DOUBLE:
+                return batch -> {
+                    double[] v = batch.doubles(column);
+                    long[] nulls = batch.nulls(column);
+                    return row -> v[row] >= low && v[row] <= high && !isNullBit(nulls, row);
+                };
+            case INT:
+                return batch -> {
+                    int[] v = batch.ints(column);
+                    long[] nulls = batch.nulls(column);
+                    return row -> v[row] >= low && v[row] <= high && !isNullBit(nulls, row);
+                };
+            case LONG:
+            default:
+                return batch -> {
+                    long[] v = batch.longs(column);
+                    long[] nulls = batch.nulls(column);
+                    return row -> v[row] >= low && v[row] <= high && !isNullBit(nulls, row);
+                };
+        }
+    }
+
+    // ==================== 数值表达式 ====================
+
+    private CompiledNumeric numeric(Expr expr) {
+        if (expr instanceof Expr.Literal) {
+            Object value = ((Expr.Literal) expr).value;
+            if (!(value instanceof Number)) {
+                throw new IllegalArgumentException("应为数值: " + expr);
+            }
+            NumericColumn constant = constant(((Number) value).doubleValue());
+            return batch -> constant;
+        }
+        if (expr instanceof Expr.Field) {
+            FieldRef field = fieldOf(expr);
+            if (field == null || !field.isNumeric()) {
+                throw new IllegalArgumentException("字段 " + expr + " 不是数值类型");
+            }
+            return fieldColumn(field);
+        }
+        if (expr instanceof Expr.Negate) {
+            CompiledNumeric operand = numeric(((Expr.Negate) expr).operand);
+            return batch -> {
+                NumericColumn v = operand.bind(batch);
+                return new NumericColumn() {
+                    public boolean isNull(int row) { return v.isNull(row); }
+                    public double get(int row) { return -v.get(row); }
+                };
+            };
+        }
+        if (expr instanceof Expr.Arithmetic) {
+            return arithmetic((Expr.Arithmetic) expr);
+        }
+        if (expr instanceof Expr.Call) {
+            return call((Expr.Call) expr);
+        }
+        throw new IllegalArgumentException("不是数值表达式: " + expr);
+    }
+
+    private static NumericColumn constant(double value) {
+        return new NumericColumn() {
+            public boolean isNull(int row) { return false; }
+            public double get(int row) { return value; }
+        };
+    }
+
+    private static CompiledNumeric fieldColumn(FieldRef field) {
+        Column column = field.getColumn();
+        switch (field.getType()) {
+            case DOUBLE:
+                return batch -> {
+                    double[] v = batch.doubles(column);
+                    long[] nulls = batch.nulls(column);
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return isNullBit(nulls, row); }
+                        public double get(int row) { return v[row]; }
+                    };
+                };
+            case INT:
+                return batch -> {
+                    int[] v = batch.ints(column);
+                    long[] nulls = batch.nulls(column);
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return isNullBit(nulls, row); }
+                        public double get(int row) { return v[row]; }
+                    };
+                };
+            case LONG:
+            default:
+                return batch -> {
+                    long[] v = batch.longs(column);
+                    long[] nulls = batch.nulls(column);
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return isNullBit(nulls, row); }
+                        public double get(int row) { return v[row]; }
+                    };
+                };
+        }
+    }
+
+    private CompiledNumeric arithmetic(Expr.Arithmetic arithmetic) {
+        CompiledNumeric left = numeric(arithmetic.left);
+        CompiledNumeric right = numeric(arithmetic.right);
+        char op = arithmetic.op;
+        return batch -> {
+            NumericColumn l = left.bind(batch);
+            NumericColumn r = right.bind(batch);
+            switch (op) {
+                case '+':
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return l.isNull(row) || r.isNull(row); }
+                        public double get(int row) { return l.get(row) + r.get(row); }
+                    };
+                case '-':
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return l.isNull(row) || r.isNull(row); }
+                        public double get(int row) { return l.get(row) - r.get(row); }
+                    };
+                case '*':
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return l.isNull(row) || r.isNull(row); }
+                        public double get(int row) { return l.get(row) * r.get(row); }
+                    };
+                case '/':
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return l.isNull(row) || r.isNull(row) || r.get(row) == 0; }
+                        public double get(int row) { return l.get(row) / r.get(row); }
+                    };
+                case '%':
+                default:
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return l.isNull(row) || r.isNull(row) || r.get(row) == 0; }
+                        public double get(int row) { return l.get(row) % r.get(row); }
+                    };
+            }
+        };
+    }
+
+    private CompiledNumeric call(Expr.Call call) {
+        List<CompiledNumeric> args = new ArrayList<>();
+        for (Expr arg : call.args) {
+            args.add(numeric(arg));
+        }
+        switch (call.function) {
+            case "abs":
+                return unary(call, args, Math::abs);
+            case "floor":
+                return unary(call, args, Math::floor);
+            case "ceil":
+                return unary(call, args, Math::ceil);
+            case "round": {
+                if (args.size() == 1) {
+                    return unary(call, args, value -> (double) Math.round(value));
+                }
+                if (args.size() == 2 && isLiteral(call.args.get(1))
+                        && ((Expr.Literal) call.args.get(1)).value instanceof Long) {
+                    double scale = Math.pow(10, (Long) ((Expr.Literal) call.args.get(1)).value);
+                    CompiledNumeric operand = args.get(0);
+                    return batch -> {
+                        NumericColumn v = operand.bind(batch);
+                        return new NumericColumn() {
+                            public boolean isNull(int row) { return v.isNull(row); }
+                            public double get(int row) { return Math.round(v.get(row) * scale) / scale; }
+                        };
+                    };
+                }
+                throw new IllegalArgumentException("round(x) 或 round(x, 整数位数): " + call);
+            }
+            case "min":
+            case "max": {
+                if (args.size() != 2) {
+                    throw new IllegalArgumentException(call.function + "需要两个参数: " + call);
+                }
+                boolean min = "min".equals(call.function);
+                CompiledNumeric first = args.get(0);
+                CompiledNumeric second = args.get(1);
+                return batch -> {
+                    NumericColumn a = first.bind(batch);
+                    NumericColumn b = second.bind(batch);
+                    return new NumericColumn() {
+                        public boolean isNull(int row) { return a.isNull(row) || b.isNull(row); }
+                        public double get(int row) {
+                            return min ? Math.min(a.get(row), b.get(row)) : Math.max(a.get(row), b.get(row));
+                        }
+                    };
+                };
+            }
+            default:
+                throw new IllegalArgumentException("未知函数 " + call.function + ": " + call);
+        }
+    }
+
+    private static CompiledNumeric unary(Expr.Call call, List<CompiledNumeric> args,
+            java.util.function.DoubleUnaryOperator function) {
+        if (args.size() != 1) {
+            throw new IllegalArgumentException(call.function + "需要一个参数: " + call);
+        }
+        CompiledNumeric operand = args.get(0);
+        return batch -> {
+            NumericColumn v = operand.bind(batch);
+            return new NumericColumn() {
+                public boolean isNull(int row) { return v.isNull(row); }
+                public double get(int row) { return function.applyAsDouble(v.get(row)); }
+            };
+        };
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private FieldRef fieldOf(Expr expr) {
+        if (!(expr instanceof Expr.Field)) {
+            return null;
+        }
+        Expr.Field field = (Expr.Field) expr;
+        if (field.field != null) {
+            return field.field;
+        }
+        if (valueField == null) {
+            throw new IllegalArgumentException("value未关联字段: " + expr);
+        }
+        return valueField;
+    }
+
+    private void requireNumericOperand(Expr expr, Expr context) {
+        FieldRef field = fieldOf(expr);
+        if (field != null && !field.isNumeric()) {
+            throw new IllegalArgumentException("字段 " + field.getFieldName() + " 不是数值类型，只能与字面量比较: "
+                    + context);
+        }
+        if (expr instanceof Expr.Literal && !((Expr.Literal) expr).isNumber()) {
+            throw new IllegalArgumentException("应为数值: " + expr + "，位于: " + context);
+        }
+    }
+
+    private static boolean isLiteral(Expr expr) {
+        return expr instanceof Expr.Literal;
+    }
+
+    private static boolean isNullBit(long[] nulls, int row) {
+        return (nulls[row >>> 6] & (1L << (row & 63))) != 0;
+    }
+}
@@ -0,0 +1,416 @@
+package com.example.chart.query.expr;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.example.chart.query.FieldRef;
+
+/**
+ * 过滤/转换表达式解析器（递归下降）
+ *
+ * <pre>
+ * expr       := and (OR and)*
+ * and        := not (AND not)*
+ * not        := NOT not | comparison
+ * comparison := additive [ op additive | [NOT] IN (literal, ...) | [NOT] BETWEEN additive AND additive
+ *                          | IS [NOT] NULL ]
+ * additive   := term (('+' | '-') term)*
+ * term       := unary (('*' | '/' | '%') unary)*
+ * unary      := '-' unary | primary
+ * primary    := number | 'string' | DATE 'yyyy-MM-dd' | TRUE | FALSE | field | function(args) | (expr)
+ * </pre>
+ *
+ * 关键字不区分大小写，AND/OR/NOT也可写作&&、||、!；字段名按FieldRef解析，value表示映射的值字段
+ */
+public final class ExpressionParser {
+
+    private enum TokenType {
+        NUMBER, STRING, IDENT, OPERATOR, LPAREN, RPAREN, COMMA, END
+    }
+
+    private static final class Token {
+        final TokenType type;
+        final String text;
+        final int position;
+
+        Token(TokenType type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+    }
+
+    private final String source;
+    private final List<Token> tokens;
+    private int index;
+
+    private ExpressionParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    /**
+     * 解析表达式，语法错误或未知字段时抛出IllegalArgumentException
+     */
+    public static Expr parse(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            throw new IllegalArgumentException("表达式为空");
+        }
+        ExpressionParser parser = new ExpressionParser(source);
+        Expr expr = parser.parseOr();
+        if (parser.peek().type != TokenType.END) {
+            throw parser.error("多余的内容");
+        }
+        return expr;
+    }
+
+    // ==================== 语法分析 ====================
+
+    private Expr parseOr() {
+        List<Expr> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (acceptKeyword("OR") || acceptOperator("||")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Expr.Logical(false, operands);
+    }
+
+    private Expr parseAnd() {
+        List<Expr> operands = new ArrayList<>();
+        operands.add(parseNot());
+        while (acceptKeyword("AND") || acceptOperator("&&")) {
+            operands.add(parseNot());
+        }
+        return operands.size() == 1 ? operands.get(0) : new Expr.Logical(true, operands);
+    }
+
+    private Expr parseNot() {
+        if (acceptKeyword("NOT") || acceptOperator("!")) {
+            return new Expr.Not(parseNot());
+        }
+        return parseComparison();
+    }
+
+    private Expr parseComparison() {
+        Expr left = parseAdditive();
+        Token token = peek();
+        if (token.type == TokenType.OPERATOR) {
+            Expr.CompareOp op = compareOp(token.text);
+            if (op != null) {
+                index++;
+                return new Expr.Compare(op, left, parseAdditive());
+            }
+        }
+        if (acceptKeyword("IS")) {
+            boolean negated = acceptKeyword("NOT");
+            expectKeyword("NULL");
+            return new Expr.IsNull(left, negated);
+        }
+        boolean negated = false;
+        if (isKeyword(peek(), "NOT") && (isKeyword(peekAhead(1), "IN") || isKeyword(peekAhead(1), "BETWEEN"))) {
+            index++;
+            negated = true;
+        }
+        if (acceptKeyword("IN")) {
+            expect(TokenType.LPAREN, "(");
+            List<Expr.Literal> values = new ArrayList<>();
+            do {
+                Expr value = parseUnary();
+                if (!(value instanceof Expr.Literal)) {
+                    throw error("IN列表只允许字面量");
+                }
+                values.add((Expr.Literal) value);
+            } while (accept(TokenType.COMMA));
+            expect(TokenType.RPAREN, ")");
+            return new Expr.In(left, values, negated);
+        }
+        if (acceptKeyword("BETWEEN")) {
+            Expr low = parseAdditive();
+            expectKeyword("AND");
+            Expr high = parseAdditive();
+            return new Expr.Between(left, low, high, negated);
+        }
+        if (negated) {
+            throw error("NOT之后应为IN或BETWEEN");
+        }
+        return left;
+    }
+
+    private Expr parseAdditive() {
+        Expr left = parseTerm();
+        while (true) {
+            if (acceptOperator("+")) {
+                left = new Expr.Arithmetic('+', left, parseTerm());
+            } else if (acceptOperator("-")) {
+                left = new Expr.Arithmetic('-', left, parseTerm());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expr parseTerm() {
+        Expr left = parseUnary();
+        while (true) {
+            if (acceptOperator("*")) {
+                left = new Expr.Arithmetic('*', left, parseUnary());
+            } else if (acceptOperator("/")) {
+                left = new Expr.Arithmetic('/', left, parseUnary());
+            } else if (acceptOperator("%")) {
+                left = new Expr.Arithmetic('%', left, parseUnary());
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expr parseUnary() {
+        if (acceptOperator("-")) {
+            Expr operand = parseUnary();
+            if (operand instanceof Expr.Literal && ((Expr.Literal) operand).isNumber()) {
+                Object value = ((Expr.Literal) operand).value;
+                return new Expr.Literal(value instanceof Long ? (Object) (-(Long) value) : (Object) (-(Double) value));
+            }
+            return new Expr.Negate(operand);
+        }
+        return parsePrimary();
+    }
+
+    private Expr parsePrimary() {
+        Token token = next();
+        switch (token.type) {
+            case NUMBER:
+                return new Expr.Literal(parseNumber(token));
+            case STRING:
+                return new Expr.Literal(token.text);
+            case LPAREN: {
+                Expr expr = parseOr();
+                expect(TokenType.RPAREN, ")");
+                return expr;
+            }
+            case IDENT:
+                return parseIdentifier(token);
+            default:
+                throw error("意外的符号 '" + token.text + "'", token);
+        }
+    }
+
+    private Expr parseIdentifier(Token token) {
+        String upper = token.text.toUpperCase(Locale.ROOT);
+        switch (upper) {
+            case "TRUE":
+                return new Expr.Literal(Boolean.TRUE);
+            case "FALSE":
+                return new Expr.Literal(Boolean.FALSE);
+            case "NULL":
+                return new Expr.Literal(null);
+            default:
+                break;
+        }
+        // DATE后跟字符串时为日期字面量，否则为date字段
+        if ("DATE".equals(upper) && peek().type == TokenType.STRING) {
+            Token literal = next();
+            try {
+                return new Expr.Literal(LocalDate.parse(literal.text));
+            } catch (DateTimeParseException e) {
+                throw error("无效的日期 '" + literal.text + "'", literal);
+            }
+        }
+        if (accept(TokenType.LPAREN)) {
+            List<Expr> args = new ArrayList<>();
+            if (!accept(TokenType.RPAREN)) {
+                do {
+                    args.add(parseOr());
+                } while (accept(TokenType.COMMA));
+                expect(TokenType.RPAREN, ")");
+            }
+            return new Expr.Call(token.text.toLowerCase(Locale.ROOT), args);
+        }
+        if ("value".equalsIgnoreCase(token.text)) {
+            return new Expr.Field("value", null);
+        }
+        FieldRef field = FieldRef.resolve(token.text);
+        if (field == null) {
+            throw error("未知字段 '" + token.text + "'", token);
+        }
+        return new Expr.Field(field.getFieldName(), field);
+    }
+
+    private Object parseNumber(Token token) {
+        String text = token.text;
+        try {
+            if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+                return Long.parseLong(text);
+            }
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw error("无效的数字 '" + text + "'", token);
+        }
+    }
+
+    private static Expr.CompareOp compareOp(String text) {
+        switch (text) {
+            case "=":
+            case "==":
+                return Expr.CompareOp.EQ;
+            case "!=":
+            case "<>":
+                return Expr.CompareOp.NE;
+            case "<":
+                return Expr.CompareOp.LT;
+            case "<=":
+                return Expr.CompareOp.LE;
+            case ">":
+                return Expr.CompareOp.GT;
+            case ">=":
+                return Expr.CompareOp.GE;
+            default:
+                return null;
+        }
+    }
+
+    // ==================== 词法分析 ====================
+
+    private static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = source.length();
+        while (i < length) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(source.charAt(i + 1)))) {
+                int start = i;
+                while (i < length && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.')) {
+                    i++;
+                }
+                if (i < length && (source.charAt(i) == 'e' || source.charAt(i) == 'E')) {
+                    i++;
+                    if (i < length && (source.charAt(i) == '+' || source.charAt(i) == '-')) {
+                        i++;
+                    }
+                    while (i < length && Character.isDigit(source.charAt(i))) {
+                        i++;
+                    }
+                }
+                tokens.add(new Token(TokenType.NUMBER, source.substring(start, i), start));
+            } else if (c == '\'' || c == '"') {
+                // 字符串，连续两个引号表示引号本身
+                int start = i++;
+                StringBuilder sb = new StringBuilder();
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException("字符串未结束（位置 " + start + "）: " + source);
+                    }
+                    char ch = source.charAt(i++);
+                    if (ch == c) {
+                        if (i < length && source.charAt(i) == c) {
+                            sb.append(c);
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        sb.append(ch);
+                    }
+                }
+                tokens.add(new Token(TokenType.STRING, sb.toString(), start));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.IDENT, source.substring(start, i), start));
+            } else if (c == '(') {
+                tokens.add(new Token(TokenType.LPAREN, "(", i++));
+            } else if (c == ')') {
+                tokens.add(new Token(TokenType.RPAREN, ")", i++));
+            } else if (c == ',') {
+                tokens.add(new Token(TokenType.COMMA, ",", i++));
+            } else {
+                String two = i + 1 < length ? source.substring(i, i + 2) : "";
+                if (two.equals("<=") || two.equals(">=") || two.equals("!=") || two.equals("<>")
+                        || two.equals("==") || two.equals("&&") || two.equals("||")) {
+                    tokens.add(new Token(TokenType.OPERATOR, two, i));
+                    i += 2;
+                } else if ("=<>+-*/%!".indexOf(c) >= 0) {
+                    tokens.add(new Token(TokenType.OPERATOR, String.valueOf(c), i++));
+                } else {
+                    throw new IllegalArgumentException("无法识别的字符 '" + c + "'（位置 " + i + "）: " + source);
+                }
+            }
+        }
+        tokens.add(new Token(TokenType.END, "<结束>", length));
+        return tokens;
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private Token peek() {
+        return tokens.get(index);
+    }
+
+    private Token peekAhead(int offset) {
+        return tokens.get(Math.min(index + offset, tokens.size() - 1));
+    }
+
+    private Token next() {
+        Token token = tokens.get(index);
+        if (token.type != TokenType.END) {
+            index++;
+        }
+        return token;
+    }
+
+    private boolean accept(TokenType type) {
+        if (peek().type == type) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptOperator(String operator) {
+        Token token = peek();
+        if (token.type == TokenType.OPERATOR && token.text.equals(operator)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isKeyword(Token token, String keyword) {
+        return token.type == TokenType.IDENT && token.text.equalsIgnoreCase(keyword);
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (isKeyword(peek(), keyword)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error("应为 " + keyword);
+        }
+    }
+
+    private void expect(TokenType type, String text) {
+        if (!accept(type)) {
+            throw error("应为 '" + text + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(message, peek());
+    }
+
+    private IllegalArgumentException error(String message, Token token) {
+        return new IllegalArgumentException(message + "（位置 " + token.position + "）: " + source);
+    }
+}
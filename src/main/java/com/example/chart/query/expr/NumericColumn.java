@@ -0,0 +1,26 @@
+package com.example.chart.query.expr;
+
+/**
+ * 绑定到列向量批次的数值列（字段或算术表达式）
+ * 空值参与运算时结果为空；除数为0时结果为空
+ */
+public interface NumericColumn {
+
+    boolean isNull(int row);
+
+    double get(int row);
+
+    /**
+     * 收集给定行中的非空值到out，返回个数
+     */
+    default int gather(int[] rows, int size, double[] out) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            if (!isNull(row)) {
+                out[n++] = get(row);
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.chart.query.jdbc;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.example.chart.query.PivotQuery.NullHandling;
+
+/**
+ * 由映射项编译出的参数化SQL
+ * 过滤值全部作为参数绑定，SQL文本只由校验过的标识符和固定关键字组成，同一映射项每次生成的文本相同，
+ * 可以命中驱动和数据库的预编译语句缓存
+ */
+public final class CompiledSql {
+
+    /**
+     * 结果的形状
+     */
+    public enum Shape {
+        /** 单个值：第一行第一列 */
+        SCALAR,
+        /** 数组：每行第一列 */
+        LIST,
+        /** 与分类轴对齐的系列：第一列为分类，第二列为值（可能为NULL，按缺失值处理方式补齐） */
+        SERIES
+    }
+
+    private final String sql;
+    private final List<Object> parameters;
+    private final Shape shape;
+    private final NullHandling nullHandling;
+
+    CompiledSql(String sql, List<Object> parameters, Shape shape, NullHandling nullHandling) {
+        this.sql = sql;
+        this.parameters = Collections.unmodifiableList(parameters);
+        this.shape = shape;
+        this.nullHandling = nullHandling;
+    }
+
+    public String getSql() { return sql; }
+    public List<Object> getParameters() { return parameters; }
+    public Shape getShape() { return shape; }
+    public NullHandling getNullHandling() { return nullHandling; }
+
+    @Override
+    public String toString() {
+        return sql + " " + parameters;
+    }
+}
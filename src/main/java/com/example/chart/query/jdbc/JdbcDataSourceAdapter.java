@@ -0,0 +1,273 @@
+package com.example.chart.query.jdbc;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.Mapping;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * JDBC数据源适配器
+ * 映射项编译为参数化SQL（{@link SqlCompiler}）后在数据库中完成过滤、分组和聚合，
+ * 结果集按fetchSize分批流式读取，直接写入占位符需要的数组，不在内存中保留整行数据。
+ * 连接池在第一次查询时按chart.query.jdbc.*创建
+ */
+@Component
+public class JdbcDataSourceAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcDataSourceAdapter.class);
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    private volatile DataSource dataSource;
+    private HikariDataSource pool;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rowsFetched = new AtomicLong();
+
+    /**
+     * 是否启用：配置了url，或者直接设置了数据源
+     */
+    public boolean isEnabled() {
+        if (dataSource != null) {
+            return true;
+        }
+        ChartConfigProperties.Query.Jdbc config = chartConfigProperties.getQuery().getJdbc();
+        return config.isEnabled() && config.getUrl() != null && !config.getUrl().trim().isEmpty();
+    }
+
+    /**
+     * 执行映射定义中所有指定了数据表的映射项，返回占位符到值的映射
+     */
+    public Map<String, Object> run(Mapping mapping) throws SQLException {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Mapping.Item item : mapping.getItems()) {
+            if (item.getSource() != null && item.getSource().getTable() != null) {
+                values.put(item.getPlaceholder(), query(item));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 编译并执行一个映射项
+     *
+     * @throws IllegalArgumentException 映射项无法编译为SQL
+     */
+    public Object query(Mapping.Item item) throws SQLException {
+        return execute(SqlCompiler.compile(item));
+    }
+
+    /**
+     * 执行编译后的SQL，按结果形状读取
+     */
+    public Object execute(CompiledSql compiled) throws SQLException {
+        ChartConfigProperties.Query.Jdbc config = chartConfigProperties.getQuery().getJdbc();
+        long start = System.nanoTime();
+        queries.incrementAndGet();
+        try (Connection connection = dataSource().getConnection()) {
+            // PostgreSQL等驱动只有在事务中才按fetchSize分批读取，否则一次读入全部结果
+            boolean autoCommit = connection.getAutoCommit();
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(compiled.getSql(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(config.getFetchSize());
+                statement.setMaxRows(config.getMaxRows());
+                statement.setQueryTimeout(config.getQueryTimeoutSeconds());
+                List<Object> parameters = compiled.getParameters();
+                for (int i = 0; i < parameters.size(); i++) {
+                    statement.setObject(i + 1, parameters.get(i));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    Object value = read(resultSet, compiled);
+                    logger.debug("✅ [JDBC数据源] {} 耗时 {}ms", compiled, (System.nanoTime() - start) / 1_000_000);
+                    return value;
+                }
+            } finally {
+                // 只读查询，结束事务后归还连接
+                if (autoCommit) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            logger.warn("❌ [JDBC数据源] 查询失败: {}，SQL: {}", e.getMessage(), compiled.getSql());
+            throw e;
+        }
+    }
+
+    private Object read(ResultSet resultSet, CompiledSql compiled) throws SQLException {
+        long rows = 0;
+        try {
+            switch (compiled.getShape()) {
+                case SCALAR:
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    rows++;
+                    return normalize(resultSet.getObject(1));
+                case SERIES: {
+                    // 分类轴由数据库按分类排序返回，值为NULL的分类按缺失值处理方式补齐
+                    List<Object> values = new ArrayList<>();
+                    Object previous = 0;
+                    while (resultSet.next()) {
+                        rows++;
+                        Object value = normalize(resultSet.getObject(2));
+                        if (value == null) {
+                            switch (compiled.getNullHandling()) {
+                                case SKIP:
+                                    break;
+                                case FILL:
+                                    value = previous;
+                                    break;
+                                case ZERO:
+                                default:
+                                    value = 0;
+                                    break;
+                            }
+                        } else {
+                            previous = value;
+                        }
+                        values.add(value);
+                    }
+                    return values;
+                }
+                case LIST:
+                default: {
+                    List<Object> values = new ArrayList<>();
+                    while (resultSet.next()) {
+                        rows++;
+                        values.add(normalize(resultSet.getObject(1)));
+                    }
+                    return values;
+                }
+            }
+        } finally {
+            rowsFetched.addAndGet(rows);
+        }
+    }
+
+    /**
+     * 数据库的DECIMAL聚合结果转为double，与内存聚合的输出类型一致
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+
+    /**
+     * 读取数据库中的表和列
+     */
+    public Map<String, Object> describeSchema() throws SQLException {
+        List<Map<String, Object>> tables = new ArrayList<>();
+        try (Connection connection = dataSource().getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, List<String>> columnsByTable = new LinkedHashMap<>();
+            try (ResultSet resultSet = metaData.getColumns(connection.getCatalog(), connection.getSchema(), "%", "%")) {
+                while (resultSet.next()) {
+                    columnsByTable.computeIfAbsent(resultSet.getString("TABLE_NAME"), key -> new ArrayList<>())
+                            .add(resultSet.getString("COLUMN_NAME"));
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : columnsByTable.entrySet()) {
+                Map<String, Object> table = new LinkedHashMap<>();
+                table.put("name", entry.getKey());
+                table.put("columns", entry.getValue());
+                tables.add(table);
+            }
+            Map<String, Object> schema = new LinkedHashMap<>();
+            schema.put("database", metaData.getDatabaseProductName());
+            schema.put("tables", tables);
+            return schema;
+        }
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("queries", queries.get());
+        stats.put("failures", failures.get());
+        stats.put("rowsFetched", rowsFetched.get());
+        HikariDataSource current = pool;
+        if (current != null && current.getHikariPoolMXBean() != null) {
+            HikariPoolMXBean mxBean = current.getHikariPoolMXBean();
+            stats.put("activeConnections", mxBean.getActiveConnections());
+            stats.put("idleConnections", mxBean.getIdleConnections());
+            stats.put("threadsAwaitingConnection", mxBean.getThreadsAwaitingConnection());
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        HikariDataSource current = pool;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * 首次查询时创建连接池
+     */
+    private DataSource dataSource() {
+        DataSource current = dataSource;
+        if (current == null) {
+            synchronized (this) {
+                current = dataSource;
+                if (current == null) {
+                    ChartConfigProperties.Query.Jdbc config = chartConfigProperties.getQuery().getJdbc();
+                    if (!isEnabled()) {
+                        throw new IllegalStateException("未配置JDBC数据源（chart.query.jdbc.url）");
+                    }
+                    HikariConfig hikari = new HikariConfig();
+                    hikari.setPoolName("chart-jdbc");
+                    hikari.setJdbcUrl(config.getUrl());
+                    hikari.setUsername(config.getUsername());
+                    hikari.setPassword(config.getPassword());
+                    if (config.getDriverClassName() != null && !config.getDriverClassName().trim().isEmpty()) {
+                        hikari.setDriverClassName(config.getDriverClassName());
+                    }
+                    hikari.setMaximumPoolSize(config.getMaximumPoolSize());
+                    hikari.setMinimumIdle(config.getMinimumIdle());
+                    hikari.setConnectionTimeout(config.getConnectionTimeoutMs());
+                    hikari.setReadOnly(true);
+                    config.getDataSourceProperties().forEach(hikari::addDataSourceProperty);
+                    pool = new HikariDataSource(hikari);
+                    current = pool;
+                    dataSource = current;
+                    logger.info("✅ [JDBC数据源] 创建连接池 {}，最大连接数 {}", config.getUrl(),
+                            config.getMaximumPoolSize());
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.chart.query.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import com.example.chart.model.Mapping;
+import com.example.chart.query.CompiledMapping.Aggregation;
+import com.example.chart.query.PivotQuery.NullHandling;
+
+/**
+ * 把映射项编译为参数化SQL，过滤、分组、聚合、排序和limit都下推到数据库执行
+ * <ul>
+ * <li>标量（string/number）：聚合值，没有聚合时取第一行</li>
+ * <li>数组且source.column就是透视的分类字段：分组后的分类轴</li>
+ * <li>数组且有透视分类字段：按分类分组的聚合值；过滤条件中系列字段上的条件改写为
+ * CASE WHEN条件聚合，这样每个系列都输出完整的分类轴，缺失的分类由数据库返回NULL</li>
+ * <li>数组且有groupBy：每组一个聚合值</li>
+ * <li>其他数组：原始值列表</li>
+ * </ul>
+ * 分类轴和各系列是独立的查询，只靠相同的WHERE、分组和排序对齐，所以透视映射项只能按分类字段排序。
+ * 表名和列名只允许字母、数字和下划线，过滤值全部作为参数绑定
+ */
+public final class SqlCompiler {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final Pattern TABLE = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    /**
+     * 聚合值的列别名（VALUE在部分数据库中是保留字）
+     */
+    private static final String VALUE_ALIAS = "agg_value";
+
+    private SqlCompiler() {
+    }
+
+    /**
+     * 编译映射项
+     *
+     * @throws IllegalArgumentException 没有数据表、标识符非法、过滤操作或聚合类型不支持
+     */
+    public static CompiledSql compile(Mapping.Item item) {
+        Mapping.Source source = item.getSource();
+        if (source == null || isBlank(source.getTable())) {
+            throw new IllegalArgumentException("映射项没有指定数据表: " + item.getPlaceholder());
+        }
+        String table = table(source.getTable());
+        String column = isBlank(source.getColumn()) ? null : identifier(source.getColumn());
+        Mapping.Transform transform = item.getTransform() != null ? item.getTransform() : new Mapping.Transform();
+        Mapping.Pivot pivot = item.getPivot();
+        String categoryKey = pivot != null && !isBlank(pivot.getCategoryKey()) ? identifier(pivot.getCategoryKey())
+                : null;
+        String seriesKey = pivot != null && !isBlank(pivot.getSeriesKey()) ? identifier(pivot.getSeriesKey()) : null;
+        List<Mapping.Filter> filters = transform.getFilters() != null ? transform.getFilters()
+                : Collections.emptyList();
+        List<String> groupBy = new ArrayList<>();
+        if (transform.getGroupBy() != null) {
+            for (String group : transform.getGroupBy()) {
+                groupBy.add(identifier(group));
+            }
+        }
+        Aggregation aggregation = Aggregation.parse(transform.getAggregation());
+        if (aggregation == Aggregation.MEDIAN || aggregation == Aggregation.PERCENTILE) {
+            throw new IllegalArgumentException("JDBC数据源不支持分位数聚合: " + transform.getAggregation());
+        }
+        boolean array = "array".equalsIgnoreCase(item.getDataType());
+        boolean aggregated = aggregation != Aggregation.NONE && aggregation != Aggregation.LIST;
+
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<String> where = new ArrayList<>();
+        List<String> groups = new ArrayList<>();
+        String defaultOrder = null;
+        String value = null;
+        boolean pivoted = array && categoryKey != null;
+        Integer limit = transform.getLimit();
+        CompiledSql.Shape shape;
+
+        if (array && categoryKey != null && categoryKey.equalsIgnoreCase(String.valueOf(column))) {
+            // 分类轴：与各系列使用相同的过滤条件（系列字段上的条件除外）
+            sql.append(categoryKey);
+            where.add(categoryKey + " IS NOT NULL");
+            for (Mapping.Filter filter : filters) {
+                if (seriesKey == null || !seriesKey.equalsIgnoreCase(filter.getField())) {
+                    where.add(condition(filter, parameters));
+                }
+            }
+            groups.add(categoryKey);
+            defaultOrder = categoryKey;
+            shape = CompiledSql.Shape.LIST;
+        } else if (array && categoryKey != null) {
+            // 条件聚合：系列字段上的全部条件移入CASE WHEN，WHERE与分类轴的查询相同；
+            // 参数出现在SELECT中，需在WHERE的参数之前加入
+            List<String> seriesConditions = new ArrayList<>();
+            for (Mapping.Filter filter : filters) {
+                if (isSeriesFilter(filter, seriesKey)) {
+                    seriesConditions.add(condition(filter, parameters));
+                }
+            }
+            String target = column;
+            if (!seriesConditions.isEmpty()) {
+                target = "CASE WHEN " + String.join(" AND ", seriesConditions) + " THEN "
+                        + (column != null ? column : "1") + " END";
+            }
+            value = aggregate(aggregation, target, true);
+            sql.append(categoryKey).append(", ").append(value).append(" AS ").append(VALUE_ALIAS);
+            where.add(categoryKey + " IS NOT NULL");
+            for (Mapping.Filter filter : filters) {
+                if (!isSeriesFilter(filter, seriesKey)) {
+                    where.add(condition(filter, parameters));
+                }
+            }
+            groups.add(categoryKey);
+            defaultOrder = categoryKey;
+            shape = CompiledSql.Shape.SERIES;
+        } else if (!groupBy.isEmpty()) {
+            value = aggregate(aggregation, column, true);
+            sql.append(value).append(" AS ").append(VALUE_ALIAS);
+            for (Mapping.Filter filter : filters) {
+                where.add(condition(filter, parameters));
+            }
+            groups.addAll(groupBy);
+            defaultOrder = String.join(", ", groupBy);
+            shape = array ? CompiledSql.Shape.LIST : CompiledSql.Shape.SCALAR;
+        } else if (aggregated) {
+            value = aggregate(aggregation, column, false);
+            sql.append(value).append(" AS ").append(VALUE_ALIAS);
+            for (Mapping.Filter filter : filters) {
+                where.add(condition(filter, parameters));
+            }
+            shape = array ? CompiledSql.Shape.LIST : CompiledSql.Shape.SCALAR;
+        } else {
+            if (column == null) {
+                throw new IllegalArgumentException("映射项没有指定字段: " + item.getPlaceholder());
+            }
+            sql.append(column);
+            for (Mapping.Filter filter : filters) {
+                where.add(condition(filter, parameters));
+            }
+            shape = array ? CompiledSql.Shape.LIST : CompiledSql.Shape.SCALAR;
+            if (!array) {
+                limit = 1;
+            }
+        }
+
+        sql.append(" FROM ").append(table);
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+        if (!groups.isEmpty()) {
+            sql.append(" GROUP BY ").append(String.join(", ", groups));
+        }
+        String order = orderBy(transform.getOrderBy(), value, !groups.isEmpty() || aggregated,
+                pivoted ? categoryKey : null, defaultOrder);
+        if (order != null) {
+            sql.append(" ORDER BY ").append(order);
+        }
+        if (limit != null) {
+            if (limit < 0) {
+                throw new IllegalArgumentException("limit不能为负数: " + limit);
+            }
+            sql.append(" LIMIT ").append(limit.intValue());
+        }
+        return new CompiledSql(sql.toString(), parameters, shape, NullHandling.parse(transform.getNullHandling()));
+    }
+
+    /**
+     * 聚合表达式；分组查询没有指定聚合时取组内最小值作为代表值
+     */
+    private static String aggregate(Aggregation aggregation, String target, boolean grouped) {
+        switch (aggregation) {
+            case SUM:
+                return "SUM(" + required(target, aggregation) + ")";
+            case AVG:
+                return "AVG(" + required(target, aggregation) + ")";
+            case MIN:
+                return "MIN(" + required(target, aggregation) + ")";
+            case MAX:
+                return "MAX(" + required(target, aggregation) + ")";
+            case COUNT:
+                return "COUNT(" + (target != null ? target : "*") + ")";
+            case COUNT_DISTINCT:
+                return "COUNT(DISTINCT " + required(target, aggregation) + ")";
+            case LIST:
+                throw new IllegalArgumentException("分组查询不支持list聚合");
+            case NONE:
+            default:
+                if (!grouped) {
+                    throw new IllegalArgumentException("未指定聚合类型");
+                }
+                return "MIN(" + required(target, aggregation) + ")";
+        }
+    }
+
+    private static String required(String target, Aggregation aggregation) {
+        if (target == null) {
+            throw new IllegalArgumentException(aggregation.name().toLowerCase(Locale.ROOT) + "聚合需要指定字段");
+        }
+        return target;
+    }
+
+    /**
+     * 过滤条件，值为null的等值/不等条件编译为IS NULL/IS NOT NULL
+     */
+    private static String condition(Mapping.Filter filter, List<Object> parameters) {
+        String field = identifier(filter.getField());
+        String op = filter.getOp() == null ? "eq" : filter.getOp().trim().toLowerCase(Locale.ROOT);
+        Object value = filter.getValue();
+        switch (op) {
+            case "eq":
+                if (value == null) {
+                    return field + " IS NULL";
+                }
+                parameters.add(value);
+                return field + " = ?";
+            case "neq":
+                if (value == null) {
+                    return field + " IS NOT NULL";
+                }
+                parameters.add(value);
+                return field + " <> ?";
+            case "gt":
+                return compare(field, ">", value, parameters);
+            case "gte":
+                return compare(field, ">=", value, parameters);
+            case "lt":
+                return compare(field, "<", value, parameters);
+            case "lte":
+                return compare(field, "<=", value, parameters);
+            case "like":
+                return compare(field, "LIKE", value, parameters);
+            case "in":
+            case "notin": {
+                List<?> values = values(value);
+                boolean negated = "notin".equals(op);
+                if (values.isEmpty()) {
+                    return negated ? "1 = 1" : "1 = 0";
+                }
+                StringBuilder sql = new StringBuilder(field).append(negated ? " NOT IN (" : " IN (");
+                for (int i = 0; i < values.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                    parameters.add(values.get(i));
+                }
+                return sql.append(')').toString();
+            }
+            default:
+                throw new IllegalArgumentException("不支持的过滤操作: " + filter.getOp());
+        }
+    }
+
+    private static String compare(String field, String operator, Object value, List<Object> parameters) {
+        if (value == null) {
+            throw new IllegalArgumentException("过滤条件缺少比较值: " + field + " " + operator);
+        }
+        parameters.add(value);
+        return field + " " + operator + " ?";
+    }
+
+    private static boolean isSeriesFilter(Mapping.Filter filter, String seriesKey) {
+        return seriesKey != null && seriesKey.equalsIgnoreCase(filter.getField());
+    }
+
+    private static List<?> values(Object value) {
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (value instanceof Collection) {
+            return new ArrayList<>((Collection<?>) value);
+        }
+        if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value);
+        }
+        return Collections.singletonList(value);
+    }
+
+    /**
+     * 排序：value为聚合值，count为行数（只用于聚合查询），其他为字段名；没有配置时使用默认排序。
+     * 透视映射项（pivotKey不为空）只能按分类字段排序
+     */
+    private static String orderBy(List<Mapping.Order> orders, String value, boolean aggregated, String pivotKey,
+            String defaultOrder) {
+        if (orders == null || orders.isEmpty()) {
+            return defaultOrder;
+        }
+        List<String> terms = new ArrayList<>();
+        for (Mapping.Order order : orders) {
+            String field = order.getField() == null ? "value" : order.getField().trim();
+            String expression;
+            if (pivotKey != null && !pivotKey.equalsIgnoreCase(field)) {
+                throw new IllegalArgumentException("JDBC数据源的透视映射只能按分类字段排序: " + field);
+            } else if ("value".equalsIgnoreCase(field)) {
+                if (value == null) {
+                    throw new IllegalArgumentException("没有聚合值，不能按value排序");
+                }
+                expression = VALUE_ALIAS;
+            } else if ("count".equalsIgnoreCase(field)) {
+                if (!aggregated) {
+                    throw new IllegalArgumentException("没有分组或聚合，不能按count排序");
+                }
+                expression = "COUNT(*)";
+            } else {
+                expression = identifier(field);
+            }
+            boolean descending = order.getDir() != null && "desc".equalsIgnoreCase(order.getDir().trim());
+            terms.add(expression + (descending ? " DESC" : " ASC"));
+        }
+        if (defaultOrder != null) {
+            // 排序键相同时按默认顺序，结果稳定
+            terms.add(defaultOrder);
+        }
+        return String.join(", ", terms);
+    }
+
+    private static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name.trim()).matches()) {
+            throw new IllegalArgumentException("非法的字段名: " + name);
+        }
+        return name.trim();
+    }
+
+    private static String table(String name) {
+        if (!TABLE.matcher(name.trim()).matches()) {
+            throw new IllegalArgumentException("非法的表名: " + name);
+        }
+        return name.trim();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.chart.query.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog基数估计
+ * 输入为64位哈希值，哈希的高precision位选择寄存器，其余位的前导零个数决定寄存器的值。
+ * 相同精度的两个实例可以按寄存器取最大值合并，合并结果与把全部输入加入同一个实例完全相同，
+ * 因此分区并行扫描和按分组保存的部分结果都可以直接合并。相对误差约为 1.04 / sqrt(2^precision)。
+ * 不同值较少（不超过寄存器数的1/32）时使用稀疏表示：直接保存不同的哈希值，计数是精确的，
+ * 超过后才转换为寄存器数组，因此大量小分组（如透视单元格）不会各自占用整块寄存器内存
+ */
+public final class HyperLogLog {
+
+    /**
+     * 默认精度：16384个寄存器，占用16KB，相对误差约0.8%
+     */
+    public static final int DEFAULT_PRECISION = 14;
+
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte SPARSE_FORMAT_VERSION = 2;
+
+    private final int precision;
+    private final int sparseLimit;
+    /**
+     * 寄存器数组，稀疏表示时为null
+     */
+    private byte[] registers;
+    /**
+     * 稀疏表示：开放寻址的哈希值集合，0表示空槽（哈希值0单独记录）
+     */
+    private long[] sparse;
+    private int sparseSize;
+    private boolean sparseZero;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog精度超出范围[" + MIN_PRECISION + ", " + MAX_PRECISION + "]: "
+                    + precision);
+        }
+        this.precision = precision;
+        // 稀疏表的容量不超过4倍上限，占用内存不超过寄存器数组
+        this.sparseLimit = (1 << precision) >> 5;
+        if (sparseLimit > 0) {
+            this.sparse = new long[8];
+        } else {
+            this.registers = new byte[1 << precision];
+        }
+    }
+
+    /**
+     * 64位整数的哈希（MurmurHash3的fmix64），相邻整数的哈希值各位分布均匀
+     */
+    public static long hash(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * 浮点数的哈希：0.0与-0.0、所有NaN分别视为同一个值
+     */
+    public static long hash(double value) {
+        if (value == 0.0) {
+            return hash(0L);
+        }
+        return hash(Double.doubleToLongBits(value));
+    }
+
+    public static long hash(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long h = 0x9e3779b97f4a7c15L ^ bytes.length;
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash(h);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * 是否仍为稀疏表示
+     */
+    public boolean isSparse() {
+        return registers == null;
+    }
+
+    /**
+     * 加入一个哈希值
+     */
+    public void addHash(long hash) {
+        if (registers != null) {
+            addToRegisters(hash);
+            return;
+        }
+        if (hash == 0) {
+            if (!sparseZero) {
+                sparseZero = true;
+                sparseAdded();
+            }
+            return;
+        }
+        int mask = sparse.length - 1;
+        int slot = (int) hash & mask;
+        while (sparse[slot] != 0) {
+            if (sparse[slot] == hash) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        sparse[slot] = hash;
+        sparseAdded();
+    }
+
+    private void sparseAdded() {
+        sparseSize++;
+        if (sparseSize > sparseLimit) {
+            toDense();
+        } else if (sparseSize * 2 > sparse.length) {
+            long[] old = sparse;
+            sparse = new long[old.length * 2];
+            int mask = sparse.length - 1;
+            for (long hash : old) {
+                if (hash != 0) {
+                    int slot = (int) hash & mask;
+                    while (sparse[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    sparse[slot] = hash;
+                }
+            }
+        }
+    }
+
+    private void toDense() {
+        registers = new byte[1 << precision];
+        for (long hash : sparse) {
+            if (hash != 0) {
+                addToRegisters(hash);
+            }
+        }
+        if (sparseZero) {
+            addToRegisters(0);
+        }
+        sparse = null;
+        sparseSize = 0;
+        sparseZero = false;
+    }
+
+    private void addToRegisters(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // 低位补1，前导零个数不超过64 - precision
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        int rank = Long.numberOfLeadingZeros(remaining) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * 合并另一个相同精度的实例
+     *
+     * @throws IllegalArgumentException 精度不同
+     */
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("HyperLogLog精度不同，无法合并: " + precision + " / " + other.precision);
+        }
+        if (other == this) {
+            return this;
+        }
+        if (other.registers == null) {
+            for (long hash : other.sparse) {
+                if (hash != 0) {
+                    addHash(hash);
+                }
+            }
+            if (other.sparseZero) {
+                addHash(0);
+            }
+            return this;
+        }
+        if (registers == null) {
+            toDense();
+        }
+        byte[] theirs = other.registers;
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], theirs[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 估计不同值的个数
+     */
+    public long estimate() {
+        if (registers == null) {
+            return sparseSize;
+        }
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += Double.longBitsToDouble((1023L - register) << 52);
+            zeros += register == 0 ? 1 : 0;
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // 基数较小时用线性计数修正
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 序列化：[byte 版本][byte 精度][寄存器]；稀疏表示为[byte 版本][byte 精度][int 个数][long 哈希值...]
+     */
+    public byte[] toBytes() {
+        if (registers == null) {
+            ByteBuffer buffer = ByteBuffer.allocate(6 + 8 * sparseSize);
+            buffer.put(SPARSE_FORMAT_VERSION).put((byte) precision).putInt(sparseSize);
+            for (long hash : sparse) {
+                if (hash != 0) {
+                    buffer.putLong(hash);
+                }
+            }
+            if (sparseZero) {
+                buffer.putLong(0);
+            }
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(2 + registers.length);
+        buffer.put(FORMAT_VERSION).put((byte) precision).put(registers);
+        return buffer.array();
+    }
+
+    /**
+     * 从{@link #toBytes()}的结果恢复
+     *
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < 2 || (bytes[0] != FORMAT_VERSION && bytes[0] != SPARSE_FORMAT_VERSION)) {
+            throw new IllegalArgumentException("无法识别的HyperLogLog格式");
+        }
+        HyperLogLog sketch = new HyperLogLog(bytes[1]);
+        if (bytes[0] == SPARSE_FORMAT_VERSION) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+            int count = bytes.length >= 6 ? buffer.getInt() : -1;
+            if (count < 0 || count > sketch.sparseLimit || bytes.length != 6 + 8L * count) {
+                throw new IllegalArgumentException("HyperLogLog数据长度不正确: " + bytes.length);
+            }
+            for (int i = 0; i < count; i++) {
+                sketch.addHash(buffer.getLong());
+            }
+            return sketch;
+        }
+        if (sketch.registers == null) {
+            sketch.toDense();
+        }
+        if (bytes.length != 2 + sketch.registers.length) {
+            throw new IllegalArgumentException("HyperLogLog数据长度不正确: " + bytes.length);
+        }
+        System.arraycopy(bytes, 2, sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.chart.query.sketch;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * t-digest分位数估计（合并式实现）
+ * 新值先进入缓冲区，缓冲区满时与已有质心一起排序，按k1尺度函数合并相邻质心：
+ * 靠近两端的质心只容纳很少的值，中位数附近可以容纳较多的值，因此尾部分位数（p95、p99）更精确。
+ * 两个实例可以合并（把对方的质心作为带权重的值加入），占用空间只与压缩参数有关，与输入个数无关
+ */
+public final class TDigest {
+
+    /**
+     * 默认压缩参数：最多约200个质心
+     */
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final double compression;
+    private final int bufferLimit;
+
+    // 已合并的质心，按均值升序
+    private double[] means = new double[INITIAL_CAPACITY];
+    private double[] weights = new double[INITIAL_CAPACITY];
+    private int centroids;
+
+    // 未合并的值和权重
+    private double[] bufferMeans = new double[INITIAL_CAPACITY];
+    private double[] bufferWeights = new double[INITIAL_CAPACITY];
+    private int buffered;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public TDigest(double compression) {
+        if (!(compression >= 10)) {
+            throw new IllegalArgumentException("t-digest压缩参数不能小于10: " + compression);
+        }
+        this.compression = compression;
+        this.bufferLimit = (int) (5 * compression);
+    }
+
+    public double getCompression() {
+        return compression;
+    }
+
+    /**
+     * 加入的值的总个数（合并时为总权重）
+     */
+    public long size() {
+        return Math.round(totalWeight);
+    }
+
+    /**
+     * 加入一个值，NaN被忽略
+     */
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * 加入连续缓冲区的前n个值
+     */
+    public void add(double[] values, int n) {
+        for (int i = 0; i < n; i++) {
+            add(values[i], 1);
+        }
+    }
+
+    private void add(double mean, double weight) {
+        if (Double.isNaN(mean)) {
+            return;
+        }
+        if (buffered == bufferMeans.length) {
+            if (buffered >= bufferLimit) {
+                compress();
+            } else {
+                int capacity = Math.min(bufferLimit, buffered * 2);
+                bufferMeans = Arrays.copyOf(bufferMeans, capacity);
+                bufferWeights = Arrays.copyOf(bufferWeights, capacity);
+            }
+        }
+        bufferMeans[buffered] = mean;
+        bufferWeights[buffered] = weight;
+        buffered++;
+        totalWeight += weight;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+    }
+
+    /**
+     * 合并另一个实例
+     */
+    public TDigest merge(TDigest other) {
+        if (other.totalWeight == 0) {
+            return this;
+        }
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        // 端点由对方的真实最小最大值决定，而不是质心均值
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * 估计分位数
+     *
+     * @param q 0到1之间
+     * @return 没有任何值时返回NaN
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("分位数必须在0到1之间: " + q);
+        }
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double index = q * totalWeight;
+        if (index < 1) {
+            return min;
+        }
+        if (index > totalWeight - 1) {
+            return max;
+        }
+        // 第一个质心的左半部分在最小值和质心均值之间插值
+        if (weights[0] > 1 && index < weights[0] / 2) {
+            return min + (index - 1) / (weights[0] / 2 - 1) * (means[0] - min);
+        }
+        double weightSoFar = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (weightSoFar + step > index) {
+                double left = index - weightSoFar;
+                double right = weightSoFar + step - index;
+                return (means[i] * right + means[i + 1] * left) / step;
+            }
+            weightSoFar += step;
+        }
+        int last = centroids - 1;
+        double remaining = totalWeight - index;
+        if (weights[last] > 1 && remaining <= weights[last] / 2) {
+            return max - (remaining - 1) / (weights[last] / 2 - 1) * (max - means[last]);
+        }
+        return max;
+    }
+
+    /**
+     * 把缓冲区与已有质心合并
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        sort(bufferMeans, bufferWeights, buffered);
+        int total = centroids + buffered;
+        double[] newMeans = new double[Math.max(INITIAL_CAPACITY, Math.min(total, (int) (2 * compression) + 1))];
+        double[] newWeights = new double[newMeans.length];
+        int count = 0;
+
+        double normalizer = compression / (2 * Math.PI);
+        double weightSoFar = 0;
+        double limit = totalWeight * inverseScale(scale(0, normalizer) + 1, normalizer);
+        double currentMean = 0;
+        double currentWeight = 0;
+        // 已有质心和缓冲区都是有序的，按均值归并
+        int i = 0;
+        int j = 0;
+        while (i < centroids || j < buffered) {
+            double mean;
+            double weight;
+            if (j >= buffered || (i < centroids && means[i] <= bufferMeans[j])) {
+                mean = means[i];
+                weight = weights[i];
+                i++;
+            } else {
+                mean = bufferMeans[j];
+                weight = bufferWeights[j];
+                j++;
+            }
+            if (currentWeight > 0 && weightSoFar + currentWeight + weight <= limit) {
+                currentWeight += weight;
+                currentMean += (mean - currentMean) * weight / currentWeight;
+                continue;
+            }
+            if (currentWeight > 0) {
+                if (count == newMeans.length) {
+                    newMeans = Arrays.copyOf(newMeans, count * 2);
+                    newWeights = Arrays.copyOf(newWeights, count * 2);
+                }
+                newMeans[count] = currentMean;
+                newWeights[count] = currentWeight;
+                count++;
+                weightSoFar += currentWeight;
+                limit = totalWeight * inverseScale(scale(weightSoFar / totalWeight, normalizer) + 1, normalizer);
+            }
+            currentMean = mean;
+            currentWeight = weight;
+        }
+        if (count == newMeans.length) {
+            newMeans = Arrays.copyOf(newMeans, count + 1);
+            newWeights = Arrays.copyOf(newWeights, count + 1);
+        }
+        newMeans[count] = currentMean;
+        newWeights[count] = currentWeight;
+        count++;
+
+        means = newMeans;
+        weights = newWeights;
+        centroids = count;
+        buffered = 0;
+    }
+
+    /**
+     * k1尺度函数：k(q) = δ / (2π) · asin(2q - 1)，相邻质心的k值相差不超过1
+     */
+    private static double scale(double q, double normalizer) {
+        return normalizer * Math.asin(2 * Math.min(1, Math.max(0, q)) - 1);
+    }
+
+    private static double inverseScale(double k, double normalizer) {
+        return (Math.sin(Math.min(k / normalizer, Math.PI / 2)) + 1) / 2;
+    }
+
+    /**
+     * 按均值对缓冲区排序（堆排序，权重随均值一起移动）
+     */
+    private static void sort(double[] keys, double[] values, int size) {
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(keys, values, i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(keys, values, 0, end);
+            siftDown(keys, values, 0, end);
+        }
+    }
+
+    private static void siftDown(double[] keys, double[] values, int index, int size) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && keys[child + 1] > keys[child]) {
+                child++;
+            }
+            if (keys[index] >= keys[child]) {
+                return;
+            }
+            swap(keys, values, index, child);
+            index = child;
+        }
+    }
+
+    private static void swap(double[] keys, double[] values, int a, int b) {
+        double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    /**
+     * 序列化：[byte 版本][double 压缩参数][double 最小值][double 最大值][int 质心数][各质心的均值和权重]
+     */
+    public byte[] toBytes() {
+        compress();
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 * 3 + 4 + centroids * 16);
+        buffer.put(FORMAT_VERSION).putDouble(compression).putDouble(min).putDouble(max).putInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            buffer.putDouble(means[i]).putDouble(weights[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 从{@link #toBytes()}的结果恢复
+     *
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static TDigest fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("无法识别的t-digest格式");
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            TDigest digest = new TDigest(buffer.getDouble());
+            double min = buffer.getDouble();
+            double max = buffer.getDouble();
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() != count * 16L) {
+                throw new IllegalArgumentException("t-digest数据长度不正确: " + bytes.length);
+            }
+            digest.means = new double[Math.max(INITIAL_CAPACITY, count)];
+            digest.weights = new double[digest.means.length];
+            for (int i = 0; i < count; i++) {
+                digest.means[i] = buffer.getDouble();
+                digest.weights[i] = buffer.getDouble();
+                digest.totalWeight += digest.weights[i];
+            }
+            digest.centroids = count;
+            digest.min = min;
+            digest.max = max;
+            return digest;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("t-digest数据长度不正确: " + bytes.length);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.chart.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.UniversalChartDataView;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * 批量数据导入服务
+ * 以流的方式解析NDJSON或CSV请求体，按批写入SimpleUniversalDataCrudService，
+ * 整个请求体不会一次性读入内存
+ */
+@Service
+public class BulkDataImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkDataImportService.class);
+
+    @Autowired
+    private SimpleUniversalDataCrudService dataService;
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * 可导入的字段，名称与UniversalChartDataView的JSON属性一致
+     * created_at / updated_at 由存储统一设置，导入时忽略
+     */
+    enum Column {
+        ID, YEAR, MONTH, DATE, CATEGORY, CHANNEL, PRODUCT, REGION, AMOUNT, QUANTITY, PERCENTAGE, SALESMAN;
+
+        static Column of(String name) {
+            if (name == null) {
+                return null;
+            }
+            switch (name.trim().toLowerCase()) {
+                case "id": return ID;
+                case "year": return YEAR;
+                case "month": return MONTH;
+                case "date": return DATE;
+                case "category": return CATEGORY;
+                case "channel": return CHANNEL;
+                case "product": return PRODUCT;
+                case "region": return REGION;
+                case "amount": return AMOUNT;
+                case "quantity": return QUANTITY;
+                case "percentage": return PERCENTAGE;
+                case "salesman": return SALESMAN;
+                default: return null;
+            }
+        }
+    }
+
+    /**
+     * 导入结果
+     */
+    public static class ImportResult {
+        private final String format;
+        private long imported;
+        private long rejected;
+        private int batches;
+        private long elapsedMs;
+        private final List<String> errors = new ArrayList<>();
+
+        ImportResult(String format) {
+            this.format = format;
+        }
+
+        public String getFormat() { return format; }
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+        public int getBatches() { return batches; }
+        public long getElapsedMs() { return elapsedMs; }
+        public List<String> getErrors() { return errors; }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("format", format);
+            map.put("imported", imported);
+            map.put("rejected", rejected);
+            map.put("batches", batches);
+            map.put("elapsedMs", elapsedMs);
+            map.put("errors", errors);
+            return map;
+        }
+    }
+
+    /**
+     * 导入NDJSON（每行一个JSON对象，也接受以空白分隔的对象序列）
+     */
+    public ImportResult importNdjson(InputStream in) throws IOException {
+        ImportResult result = new ImportResult("ndjson");
+        long start = System.currentTimeMillis();
+        Batch batch = new Batch(result);
+
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    reject(result, "第 " + parser.getCurrentLocation().getLineNr() + " 行不是JSON对象");
+                    parser.skipChildren();
+                    continue;
+                }
+                long line = parser.getCurrentLocation().getLineNr();
+                UniversalChartDataView data = new UniversalChartDataView();
+                String error = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    Column column = Column.of(parser.getCurrentName());
+                    JsonToken value = parser.nextToken();
+                    if (column == null || value == JsonToken.VALUE_NULL) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        if (error == null) {
+                            error = "第 " + line + " 行字段 " + column.name().toLowerCase() + " 不是标量值";
+                        }
+                        continue;
+                    }
+                    try {
+                        applyJsonValue(data, column, parser, value);
+                    } catch (NumberFormatException | IOException e) {
+                        if (error == null) {
+                            error = "第 " + line + " 行字段 " + column.name().toLowerCase() + " 解析失败: " + e.getMessage();
+                        }
+                    }
+                }
+                if (error != null) {
+                    reject(result, error);
+                } else {
+                    batch.add(data);
+                }
+            }
+        } finally {
+            batch.flush();
+            result.elapsedMs = System.currentTimeMillis() - start;
+        }
+
+        logger.info("📥 [批量导入] NDJSON导入完成: 成功 {} 条, 拒绝 {} 条, {} 批, 耗时 {}ms",
+                result.imported, result.rejected, result.batches, result.elapsedMs);
+        return result;
+    }
+
+    /**
+     * 导入CSV（首行为表头，列名与字段名一致，未知列忽略）
+     */
+    public ImportResult importCsv(InputStream in) throws IOException {
+        ImportResult result = new ImportResult("csv");
+        long start = System.currentTimeMillis();
+        Batch batch = new Batch(result);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024)) {
+            CsvTokenizer csv = new CsvTokenizer(reader);
+            if (!csv.next()) {
+                result.elapsedMs = System.currentTimeMillis() - start;
+                return result;
+            }
+            Column[] columns = new Column[csv.getFieldCount()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Column.of(csv.getString(i));
+            }
+
+            while (csv.next()) {
+                if (csv.isBlankLine()) {
+                    continue;
+                }
+                UniversalChartDataView data = new UniversalChartDataView();
+                try {
+                    int count = Math.min(columns.length, csv.getFieldCount());
+                    for (int i = 0; i < count; i++) {
+                        if (columns[i] != null && !csv.isEmpty(i)) {
+                            applyCsvValue(data, columns[i], csv, i);
+                        }
+                    }
+                    batch.add(data);
+                } catch (NumberFormatException e) {
+                    reject(result, "第 " + csv.getLineNumber() + " 行解析失败: " + e.getMessage());
+                }
+            }
+        } finally {
+            batch.flush();
+            result.elapsedMs = System.currentTimeMillis() - start;
+        }
+
+        logger.info("📥 [批量导入] CSV导入完成: 成功 {} 条, 拒绝 {} 条, {} 批, 耗时 {}ms",
+                result.imported, result.rejected, result.batches, result.elapsedMs);
+        return result;
+    }
+
+    private void applyJsonValue(UniversalChartDataView data, Column column, JsonParser parser, JsonToken value)
+            throws IOException {
+        boolean numeric = value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT;
+        switch (column) {
+            case ID:
+                data.setId(numeric ? parser.getLongValue() : Long.parseLong(parser.getText().trim()));
+                break;
+            case QUANTITY:
+                data.setQuantity(numeric ? parser.getIntValue() : Integer.parseInt(parser.getText().trim()));
+                break;
+            case AMOUNT:
+                data.setAmount(numeric ? parser.getDoubleValue() : Double.parseDouble(parser.getText().trim()));
+                break;
+            case PERCENTAGE:
+                data.setPercentage(numeric ? parser.getDoubleValue() : Double.parseDouble(parser.getText().trim()));
+                break;
+            default:
+                setString(data, column, parser.getText());
+        }
+    }
+
+    private void applyCsvValue(UniversalChartDataView data, Column column, CsvTokenizer csv, int index) {
+        switch (column) {
+            case ID:
+                data.setId(csv.getLong(index));
+                break;
+            case QUANTITY:
+                long quantity = csv.getLong(index);
+                if (quantity < Integer.MIN_VALUE || quantity > Integer.MAX_VALUE) {
+                    // 与NDJSON导入一致，超出int范围的数量按解析失败拒绝整行
+                    throw new NumberFormatException("数量超出整数范围: " + quantity);
+                }
+                data.setQuantity((int) quantity);
+                break;
+            case AMOUNT:
+                data.setAmount(csv.getDouble(index));
+                break;
+            case PERCENTAGE:
+                data.setPercentage(csv.getDouble(index));
+                break;
+            default:
+                setString(data, column, csv.getString(index));
+        }
+    }
+
+    private void setString(UniversalChartDataView data, Column column, String value) {
+        switch (column) {
+            case YEAR: data.setYear(value); break;
+            case MONTH: data.setMonth(value); break;
+            case DATE: data.setDate(value); break;
+            case CATEGORY: data.setCategory(value); break;
+            case CHANNEL: data.setChannel(value); break;
+            case PRODUCT: data.setProduct(value); break;
+            case REGION: data.setRegion(value); break;
+            case SALESMAN: data.setSalesman(value); break;
+            default: break;
+        }
+    }
+
+    private void reject(ImportResult result, String error) {
+        result.rejected++;
+        if (result.errors.size() < chartConfigProperties.getIngest().getMaxErrorDetails()) {
+            result.errors.add(error);
+        }
+    }
+
+    /**
+     * 批次缓冲：攒满后一次性写入存储
+     */
+    private class Batch {
+        private final ImportResult result;
+        private final int size = Math.max(1, chartConfigProperties.getIngest().getBatchSize());
+        private List<UniversalChartDataView> rows = new ArrayList<>(size);
+
+        Batch(ImportResult result) {
+            this.result = result;
+        }
+
+        void add(UniversalChartDataView data) {
+            rows.add(data);
+            if (rows.size() >= size) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            result.imported += dataService.saveAll(rows);
+            result.batches++;
+            rows = new ArrayList<>(size);
+        }
+    }
+}
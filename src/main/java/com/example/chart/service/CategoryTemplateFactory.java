@@ -1,33 +1,95 @@
 package com.example.chart.service;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.example.chart.config.ChartConfigProperties;
 import com.example.chart.model.TemplateType;
+import com.example.chart.store.CopyOnWriteTree;
 
 /**
  * 分类模板工厂
  * 根据模板类型创建对应的通用模板
- * 解决硬编码问题，支持配置化的系列数量
+ * 解决硬编码问题，支持配置化的系列数量。
+ * 启动时为每种模板类型和1~maxCount的每个系列数量预先构建冻结的模板及其占位符集合，
+ * 请求时返回写时复制视图，不再重复构建
  */
 @Service
 public class CategoryTemplateFactory {
 
+    private static final Logger logger = LoggerFactory.getLogger(CategoryTemplateFactory.class);
+
     @Autowired
     private ChartConfigProperties chartConfigProperties;
 
+    private final Map<TemplateType, Prebuilt> prebuilt = new EnumMap<>(TemplateType.class);
+
+    /**
+     * 某个模板类型的预构建模板（冻结，可共享）
+     */
+    private static final class Prebuilt {
+        private final Map<String, Object> defaultTemplate;
+        private final Set<String> defaultPlaceholders;
+        // 下标为系列数量-1
+        private final List<Map<String, Object>> bySeriesCount;
+        private final List<Set<String>> placeholdersBySeriesCount;
+
+        Prebuilt(Map<String, Object> defaultTemplate, List<Map<String, Object>> bySeriesCount) {
+            this.defaultTemplate = defaultTemplate;
+            this.defaultPlaceholders = Collections.unmodifiableSet(extractPlaceholders(defaultTemplate));
+            this.bySeriesCount = bySeriesCount;
+            List<Set<String>> placeholders = new ArrayList<>(bySeriesCount.size());
+            for (Map<String, Object> template : bySeriesCount) {
+                placeholders.add(Collections.unmodifiableSet(extractPlaceholders(template)));
+            }
+            this.placeholdersBySeriesCount = placeholders;
+        }
+
+        Map<String, Object> forSeriesCount(int seriesCount) {
+            return seriesCount >= 1 && seriesCount <= bySeriesCount.size() ? bySeriesCount.get(seriesCount - 1) : null;
+        }
+    }
+
+    /**
+     * 预构建全部模板
+     */
+    @PostConstruct
+    public void prebuild() {
+        int built = 0;
+        for (TemplateType templateType : TemplateType.values()) {
+            int maxCount = Math.max(1, chartConfigProperties.getMaxSeriesCount(templateType.name()));
+            List<Map<String, Object>> bySeriesCount = new ArrayList<>(maxCount);
+            for (int count = 1; count <= maxCount; count++) {
+                bySeriesCount.add(freeze(buildTemplateWithSeriesCount(templateType, count)));
+            }
+            prebuilt.put(templateType, new Prebuilt(freeze(buildTemplate(templateType)),
+                    Collections.unmodifiableList(bySeriesCount)));
+            built += maxCount + 1;
+        }
+        logger.info("✅ [分类模板] 已预构建 {} 个模板", built);
+    }
+
     /**
-     * 根据模板类型创建对应的通用模板
+     * 根据模板类型创建对应的通用模板（写时复制视图，可修改）
      */
     public Map<String, Object> createTemplate(TemplateType templateType) {
+        return CopyOnWriteTree.mapView(prebuilt.get(templateType).defaultTemplate);
+    }
+
+    private Map<String, Object> buildTemplate(TemplateType templateType) {
         switch (templateType) {
             case CARTESIAN:
                 return createCartesianTemplate();
@@ -86,8 +148,6 @@ public class CategoryTemplateFactory {
         int seriesCount = customSeriesCount != null ? customSeriesCount
                 : chartConfigProperties.getDefaultSeriesCount("CARTESIAN");
 
-        System.out.println("📊 创建CARTESIAN模板，系列数量: " + seriesCount);
-
         // 动态创建系列
         for (int i = 1; i <= seriesCount; i++) {
             Map<String, Object> seriesItem = new HashMap<>();
@@ -237,17 +297,29 @@ public class CategoryTemplateFactory {
     }
 
     /**
-     * 获取模板的所有占位符
+     * 获取模板的所有占位符（预先计算，不可修改）
      */
     public Set<String> getTemplatePlaceholders(TemplateType templateType) {
-        Map<String, Object> template = createTemplate(templateType);
-        return extractPlaceholders(template);
+        return prebuilt.get(templateType).defaultPlaceholders;
+    }
+
+    /**
+     * 获取指定系列数量的模板的所有占位符（不可修改）
+     */
+    public Set<String> getTemplatePlaceholders(TemplateType templateType, Integer customSeriesCount) {
+        Prebuilt templates = prebuilt.get(templateType);
+        int seriesCount = resolveSeriesCount(templateType, customSeriesCount);
+        if (seriesCount >= 1 && seriesCount <= templates.placeholdersBySeriesCount.size()) {
+            return templates.placeholdersBySeriesCount.get(seriesCount - 1);
+        }
+        return Collections.unmodifiableSet(
+                extractPlaceholders(buildTemplateWithSeriesCount(templateType, customSeriesCount)));
     }
 
     /**
      * 递归提取占位符
      */
-    private Set<String> extractPlaceholders(Object obj) {
+    private static Set<String> extractPlaceholders(Object obj) {
         Set<String> placeholders = new HashSet<>();
 
         if (obj instanceof String) {
@@ -287,9 +359,34 @@ public class CategoryTemplateFactory {
     }
 
     /**
-     * 创建模板（支持自定义系列数量）
+     * 创建模板（支持自定义系列数量，写时复制视图，可修改）
+     * 超出预构建范围的系列数量按需构建
      */
     public Map<String, Object> createTemplateWithSeriesCount(TemplateType templateType, Integer customSeriesCount) {
+        Map<String, Object> template = prebuilt.get(templateType)
+                .forSeriesCount(resolveSeriesCount(templateType, customSeriesCount));
+        if (template != null) {
+            return CopyOnWriteTree.mapView(template);
+        }
+        logger.debug("📊 [分类模板] 系列数量 {} 超出预构建范围，按需构建 {} 模板", customSeriesCount, templateType);
+        return buildTemplateWithSeriesCount(templateType, customSeriesCount);
+    }
+
+    // 饼图和仪表盘固定1个系列
+    private int resolveSeriesCount(TemplateType templateType, Integer customSeriesCount) {
+        if (templateType == TemplateType.PIE || templateType == TemplateType.GAUGE) {
+            return 1;
+        }
+        return customSeriesCount != null ? customSeriesCount
+                : chartConfigProperties.getDefaultSeriesCount(templateType.name());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> freeze(Map<String, Object> template) {
+        return (Map<String, Object>) CopyOnWriteTree.freeze(template);
+    }
+
+    private Map<String, Object> buildTemplateWithSeriesCount(TemplateType templateType, Integer customSeriesCount) {
         switch (templateType) {
             case CARTESIAN:
                 return createCartesianTemplate(customSeriesCount);
@@ -334,8 +431,6 @@ public class CategoryTemplateFactory {
         int seriesCount = customSeriesCount != null ? customSeriesCount
                 : chartConfigProperties.getDefaultSeriesCount("RADAR");
 
-        System.out.println("📊 创建RADAR模板，系列数量: " + seriesCount);
-
         // 动态创建系列
         for (int i = 1; i <= seriesCount; i++) {
             Map<String, Object> seriesItem = new HashMap<>();
@@ -2,6 +2,8 @@ package com.example.chart.service;
 
 import com.example.chart.model.ChartRegistry;
 import com.example.chart.repository.InMemoryChartRegistryRepository;
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.StoredArtifact;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -14,16 +16,28 @@ public class ChartRegistryService {
     @Autowired
     private InMemoryChartRegistryRepository repository;
 
+    @Autowired
+    private ArtifactStore artifactStore;
+
+    @Autowired
+    private RenderedOutputCache renderedOutputCache;
+
     public List<ChartRegistry> list() { return repository.listAll(); }
 
     public Optional<ChartRegistry> get(String chartId) { return repository.get(chartId); }
 
+    /**
+     * 激活版本；模板/规范版本可以是制品存储中的哈希或其前缀，会被规范化为完整哈希
+     */
     public ChartRegistry activate(String chartId, String templateVersion, String specVersion, String mappingVersion) {
         ChartRegistry reg = repository.get(chartId).orElseGet(() -> { ChartRegistry r = new ChartRegistry(); r.setChartId(chartId); return r; });
-        reg.setActiveTemplateVersion(templateVersion);
-        reg.setActiveSpecVersion(specVersion);
+        reg.setActiveTemplateVersion(artifactStore.normalizeVersion(StoredArtifact.Kind.TEMPLATE, templateVersion));
+        reg.setActiveSpecVersion(artifactStore.normalizeVersion(StoredArtifact.Kind.JOLT_SPEC, specVersion));
         reg.setActiveMappingVersion(mappingVersion);
-        return repository.upsert(reg);
+        ChartRegistry saved = repository.upsert(reg);
+        // 激活的版本变化后，按旧版本渲染的结果不能再使用
+        renderedOutputCache.invalidate(chartId);
+        return saved;
     }
 }
 
@@ -0,0 +1,163 @@
+package com.example.chart.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.chart.diagnostics.RenderProfile;
+import com.example.chart.diagnostics.RenderTrace;
+import com.example.chart.diagnostics.RenderTracer;
+import com.example.chart.diagnostics.SlowRenderLog;
+import com.example.chart.store.ArtifactStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 图表渲染服务
+ * 执行完整的两阶段转换并返回最终ECharts配置的JSON字节，结果按数据、映射、模板和制品的版本缓存
+ */
+@Service
+public class ChartRenderService {
+
+    @Autowired
+    private TemplateService templateService;
+
+    @Autowired
+    private TwoStageTransformationService transformationService;
+
+    @Autowired
+    private PlaceholderMappingManager mappingManager;
+
+    @Autowired
+    private SimpleUniversalDataCrudService dataService;
+
+    @Autowired
+    private ArtifactStore artifactStore;
+
+    @Autowired
+    private RenderedOutputCache renderedOutputCache;
+
+    @Autowired
+    private RenderTracer renderTracer;
+
+    @Autowired
+    private SlowRenderLog slowRenderLog;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 渲染结果
+     */
+    public static class RenderResult {
+        private final RenderedOutputCache.Entry entry;
+        private final boolean cacheHit;
+
+        RenderResult(RenderedOutputCache.Entry entry, boolean cacheHit) {
+            this.entry = entry;
+            this.cacheHit = cacheHit;
+        }
+
+        public RenderedOutputCache.Entry getEntry() {
+            return entry;
+        }
+
+        public boolean isCacheHit() {
+            return cacheHit;
+        }
+    }
+
+    /**
+     * 渲染图表，命中缓存时直接返回缓存字节
+     */
+    public RenderResult render(String chartId) throws Exception {
+        String version = currentVersion();
+        RenderedOutputCache.Entry cached = renderedOutputCache.get(chartId, version);
+        if (cached != null) {
+            return new RenderResult(cached, true);
+        }
+
+        RenderTrace trace = renderTracer.maybeBegin(chartId);
+        String outcome = "failure";
+        try {
+            byte[] raw = execute(chartId);
+            outcome = "success";
+            return new RenderResult(renderedOutputCache.put(chartId, version, raw), false);
+        } finally {
+            renderTracer.finish(trace, outcome);
+        }
+    }
+
+    /**
+     * 不经过缓存执行一次完整渲染并记录完整轨迹（调试接口使用）
+     */
+    public Map<String, Object> renderWithTrace(String chartId) {
+        RenderTrace trace = renderTracer.begin(chartId);
+        Map<String, Object> response = new LinkedHashMap<>();
+        String outcome = "failure";
+        try {
+            byte[] raw = execute(chartId);
+            outcome = "success";
+            response.put("resultBytes", raw.length);
+        } catch (Exception e) {
+            outcome = "failure: " + e.getMessage();
+            response.put("error", e.getMessage());
+        } finally {
+            renderTracer.finish(trace, outcome);
+        }
+        if (trace != null) {
+            response.put("trace", trace.toMap());
+        }
+        return response;
+    }
+
+    private byte[] execute(String chartId) throws Exception {
+        RenderProfile profile = slowRenderLog.begin(chartId);
+        String outcome = "failure";
+        int resultBytes = -1;
+        try {
+            RenderTrace.event("render", "开始渲染 {}", chartId);
+            long start = System.nanoTime();
+            Map<String, Object> template = templateService.getTemplateByChartId(chartId);
+            RenderProfile.stage("template", System.nanoTime() - start);
+
+            start = System.nanoTime();
+            TwoStageTransformationService.TransformationResult stage1Result = transformationService
+                    .executeStage1Transformation(chartId, template);
+            RenderProfile.stage("structure", System.nanoTime() - start);
+            if (!stage1Result.isSuccess()) {
+                throw new IllegalStateException("第一阶段转换失败: " + stage1Result.getMessage());
+            }
+
+            start = System.nanoTime();
+            PlaceholderMappingManager.MappingResult stage2Result = mappingManager.executeMapping(chartId,
+                    stage1Result.getResult());
+            RenderProfile.stage("backfill", System.nanoTime() - start);
+            if (!stage2Result.isSuccess()) {
+                throw new IllegalStateException("第二阶段转换失败: " + stage2Result.getMessage());
+            }
+
+            start = System.nanoTime();
+            byte[] raw = objectMapper.writeValueAsBytes(stage2Result.getData().get("result"));
+            RenderProfile.stage("serialize", System.nanoTime() - start);
+            RenderTrace.event("render", "序列化完成: {} 字节", raw.length);
+            outcome = "success";
+            resultBytes = raw.length;
+            return raw;
+        } catch (Exception e) {
+            outcome = "failure: " + e.getMessage();
+            throw e;
+        } finally {
+            slowRenderLog.finish(profile, outcome, resultBytes);
+        }
+    }
+
+    /**
+     * 当前缓存版本：数据版本 + 映射版本 + 模板修订号 + 制品存储修订号
+     * 保存模板或上传新的模板/规范版本后，旧的渲染结果和ETag不再命中
+     */
+    private String currentVersion() {
+        return dataService.getDataVersion() + ":" + mappingManager.getMappingVersion() + ":"
+                + templateService.getRevision() + ":" + artifactStore.getRevision();
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.chart.service;
 
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.StoredArtifact;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
@@ -25,6 +28,9 @@ public class ConfigurableJoltSpecService {
     
     private final ObjectMapper yamlMapper = new ObjectMapper(new YAMLFactory());
     
+    @Autowired
+    private ArtifactStore artifactStore;
+    
     // 缓存配置数据
     private Map<String, String> chartToJoltSpecMapping = new HashMap<>();
     private Map<String, String> joltSpecDescriptions = new HashMap<>();
@@ -111,7 +117,7 @@ public class ConfigurableJoltSpecService {
             return defaultJoltSpec;
         }
         
-        logger.info("📋 图表类型 {} 使用JOLT规范: {}", chartId, specFile);
+        logger.debug("📋 图表类型 {} 使用JOLT规范: {}", chartId, specFile);
         return specFile;
     }
     
@@ -155,8 +161,7 @@ public class ConfigurableJoltSpecService {
      */
     public boolean validateJoltSpecFile(String specFile) {
         try {
-            ClassPathResource resource = new ClassPathResource("jolt-specs/" + specFile);
-            return resource.exists();
+            return artifactStore.latest(StoredArtifact.Kind.JOLT_SPEC, null, specFile).isPresent();
         } catch (Exception e) {
             logger.error("验证Jolt规范文件失败: {}", specFile, e);
             return false;
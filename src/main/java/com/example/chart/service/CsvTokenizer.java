@@ -0,0 +1,239 @@
+package com.example.chart.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * 流式CSV分词器
+ * 按RFC 4180解析（支持引号、转义引号和字段内换行），字段以字符区间的形式暴露，
+ * 数值字段直接从字符区间解析，只有字符串字段才会创建String
+ */
+public class CsvTokenizer {
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    // 当前记录：字段内容连续存放在record中，fieldStarts/fieldEnds记录各字段区间
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private long lineNumber;
+
+    public CsvTokenizer(Reader reader) {
+        this(reader, 64 * 1024);
+    }
+
+    public CsvTokenizer(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * 读取下一条记录，流结束时返回false
+     */
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        recordLength = 0;
+        if (pos >= limit && !fill()) {
+            return false;
+        }
+        lineNumber++;
+
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        while (true) {
+            if (pos >= limit && !fill()) {
+                if (inQuotes) {
+                    throw new IOException("CSV第 " + lineNumber + " 行存在未闭合的引号");
+                }
+                endField(fieldStart);
+                return true;
+            }
+            char c = buffer[pos++];
+            if (inQuotes) {
+                if (c == '"') {
+                    if (peek() == '"') {
+                        pos++;
+                        append('"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    append(c);
+                }
+            } else if (c == ',') {
+                endField(fieldStart);
+                fieldStart = recordLength;
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == '\n') {
+                endField(fieldStart);
+                return true;
+            } else if (c != '\r') {
+                append(c);
+            }
+        }
+    }
+
+    /**
+     * 当前记录是否为空行
+     */
+    public boolean isBlankLine() {
+        return fieldCount == 1 && fieldEnds[0] == fieldStarts[0];
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public boolean isEmpty(int index) {
+        return index >= fieldCount || fieldEnds[index] == fieldStarts[index];
+    }
+
+    public String getString(int index) {
+        if (index >= fieldCount) {
+            return null;
+        }
+        String value = new String(record, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+        // 去除UTF-8 BOM
+        return index == 0 && lineNumber == 1 && value.startsWith("\uFEFF") ? value.substring(1) : value;
+    }
+
+    /**
+     * 直接从字符区间解析整数
+     */
+    public long getLong(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && record[start] == ' ') {
+            start++;
+        }
+        while (end > start && record[end - 1] == ' ') {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("空数值");
+        }
+        boolean negative = record[start] == '-';
+        int i = negative || record[start] == '+' ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            return Long.parseLong(new String(record, start, end - start));
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            char c = record[i];
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("非法整数: " + new String(record, start, end - start));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * 直接从字符区间解析浮点数
+     * 尾数不超过2^53且小数位不超过22位时，一次除法即可得到正确舍入的结果；其余情况回退到Double.parseDouble
+     */
+    public double getDouble(int index) {
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && record[start] == ' ') {
+            start++;
+        }
+        while (end > start && record[end - 1] == ' ') {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("空数值");
+        }
+        boolean negative = record[start] == '-';
+        int i = negative || record[start] == '+' ? start + 1 : start;
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = record[i];
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) {
+                    return slowDouble(start, end);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return slowDouble(start, end);
+            }
+        }
+        if (digits == 0) {
+            return slowDouble(start, end);
+        }
+        if (scale < 0) {
+            scale = 0;
+        }
+        if (mantissa > (1L << 53) || scale >= POW10.length) {
+            return slowDouble(start, end);
+        }
+        double value = scale == 0 ? mantissa : mantissa / POW10[scale];
+        return negative ? -value : value;
+    }
+
+    private double slowDouble(int start, int end) {
+        return Double.parseDouble(new String(record, start, end - start));
+    }
+
+    private int peek() throws IOException {
+        if (pos >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            eof = true;
+            return false;
+        }
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, record.length * 2);
+        }
+        record[recordLength++] = c;
+    }
+
+    private void endField(int start) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = recordLength;
+        fieldCount++;
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.chart.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.StoredArtifact;
+import com.example.chart.store.StoredArtifact.Kind;
+
+/**
+ * ECharts示例目录索引
+ * 目录结构（分类 -> 示例文件，含chartId和实现状态）由制品存储中的示例构建，只在存储修订号变化时重建；
+ * 构建结果不可变，附带按内容计算的ETag，前端可用If-None-Match跳过重复获取。
+ * 配置了chart.examples.directory时，启动时同步该目录并通过WatchService监听文件增删改
+ */
+@Service
+public class EChartsExampleCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(EChartsExampleCatalog.class);
+
+    private static final String JSON_SUFFIX = ".json";
+
+    // 示例文件路径 -> chartId
+    private static final Map<String, String> PATH_TO_CHART_ID;
+
+    private static final Set<String> IMPLEMENTED_CHARTS = Set.of(
+            "stacked_line_chart", "basic_bar_chart", "stacked_bar_chart",
+            "basic_line_chart", "smooth_line_chart", "basic_pie_chart",
+            "ring_chart", "nested_pie_chart", "basic_radar_chart", "basic_gauge_chart",
+            "progress_gauge_chart", "grade_gauge_chart");
+
+    private static final Set<String> PLANNED_CHARTS = Set.of(
+            "basic_area_chart", "rose_chart", "filled_radar_chart");
+
+    static {
+        Map<String, String> mapping = new HashMap<>();
+        mapping.put("折线图/基础折线图.json", "basic_line_chart");
+        mapping.put("折线图/基础平滑折线图.json", "smooth_line_chart");
+        mapping.put("折线图/折线图堆叠.json", "stacked_line_chart");
+        mapping.put("柱状图/基础柱状图.json", "basic_bar_chart");
+        mapping.put("柱状图/堆叠柱状图.json", "stacked_bar_chart");
+        mapping.put("饼图/富文本标签.json", "basic_pie_chart");
+        mapping.put("饼图/圆角环形图.json", "ring_chart");
+        mapping.put("饼图/嵌套饼图.json", "nested_pie_chart");
+        mapping.put("雷达图/基础雷达图.json", "basic_radar_chart");
+        mapping.put("仪表盘/基础仪表盘.json", "basic_gauge_chart");
+        mapping.put("仪表盘/进度仪表盘.json", "progress_gauge_chart");
+        mapping.put("仪表盘/等级仪表盘.json", "grade_gauge_chart");
+        PATH_TO_CHART_ID = Collections.unmodifiableMap(mapping);
+    }
+
+    @Autowired
+    private ArtifactStore artifactStore;
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    private volatile Snapshot snapshot;
+
+    private Path watchedDirectory;
+    private WatchService watchService;
+    private Thread watchThread;
+    private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 目录索引快照（不可变）
+     */
+    public static final class Snapshot {
+        private final long revision;
+        private final String etag;
+        private final int totalFiles;
+        private final Map<String, Object> view;
+
+        Snapshot(long revision, String etag, int totalFiles, Map<String, Object> view) {
+            this.revision = revision;
+            this.etag = etag;
+            this.totalFiles = totalFiles;
+            this.view = view;
+        }
+
+        public long getRevision() { return revision; }
+        public String getEtag() { return etag; }
+        public int getTotalFiles() { return totalFiles; }
+        public int getTotalCategories() { return (Integer) view.get("totalCategories"); }
+
+        /**
+         * 接口返回的目录结构（directoryStructure、categories、totalCategories、totalFiles、etag）
+         */
+        public Map<String, Object> getView() { return view; }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        ChartConfigProperties.Examples config = chartConfigProperties.getExamples();
+        if (config.getDirectory() == null || config.getDirectory().trim().isEmpty()) {
+            logger.info("📁 [示例目录] 未配置外部目录，使用制品存储中的示例");
+            return;
+        }
+        Path root = Paths.get(config.getDirectory().trim()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            logger.warn("⚠️ [示例目录] 配置的目录不存在: {}", root);
+            return;
+        }
+        watchedDirectory = root;
+        int synced = syncAll();
+        logger.info("✅ [示例目录] 已同步目录 {}，{} 个文件", root, synced);
+
+        if (config.isWatch()) {
+            try {
+                startWatching();
+            } catch (IOException e) {
+                logger.warn("⚠️ [示例目录] 无法监听目录 {}: {}", root, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("关闭目录监听失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 当前目录索引；制品存储有变化时重建
+     */
+    public Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        long revision = artifactStore.getRevision();
+        if (current != null && current.getRevision() == revision) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            revision = artifactStore.getRevision();
+            if (current == null || current.getRevision() != revision) {
+                current = build(revision);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 根据文件路径（分类/文件名）获取chartId
+     */
+    public static String chartIdOf(String filePath) {
+        return PATH_TO_CHART_ID.getOrDefault(filePath,
+                filePath.replace(JSON_SUFFIX, "").replaceAll("[/\\\\]", "_"));
+    }
+
+    /**
+     * 图表实现状态：implemented / planned / unknown
+     */
+    public static String implementationStatusOf(String chartId) {
+        if (IMPLEMENTED_CHARTS.contains(chartId)) {
+            return "implemented";
+        } else if (PLANNED_CHARTS.contains(chartId)) {
+            return "planned";
+        }
+        return "unknown";
+    }
+
+    private Snapshot build(long revision) {
+        long start = System.nanoTime();
+        Map<String, List<Map<String, String>>> directoryStructure = new TreeMap<>();
+        StringBuilder fingerprint = new StringBuilder();
+        int totalFiles = 0;
+
+        for (StoredArtifact artifact : artifactStore.list(Kind.ECHARTS_EXAMPLE, null)) {
+            String fileName = artifact.getName();
+            String filePath = artifact.getCategory() + "/" + fileName;
+            String chartId = chartIdOf(filePath);
+
+            Map<String, String> fileInfo = new LinkedHashMap<>();
+            fileInfo.put("fileName", fileName);
+            fileInfo.put("displayName", fileName.replace(JSON_SUFFIX, ""));
+            fileInfo.put("filePath", filePath);
+            fileInfo.put("chartId", chartId);
+            fileInfo.put("status", implementationStatusOf(chartId));
+            directoryStructure.computeIfAbsent(artifact.getCategory(), k -> new ArrayList<>())
+                    .add(Collections.unmodifiableMap(fileInfo));
+
+            fingerprint.append(filePath).append(':').append(artifact.getHash()).append('\n');
+            totalFiles++;
+        }
+        directoryStructure.replaceAll((category, files) -> Collections.unmodifiableList(files));
+
+        String etag = "\"" + ArtifactStore.sha256(fingerprint.toString().getBytes(StandardCharsets.UTF_8))
+                .substring(0, 32) + "\"";
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("directoryStructure", Collections.unmodifiableMap(directoryStructure));
+        view.put("categories", Collections.unmodifiableSet(directoryStructure.keySet()));
+        view.put("totalCategories", directoryStructure.size());
+        view.put("totalFiles", totalFiles);
+        view.put("etag", etag);
+
+        logger.info("📁 [示例目录] 索引已重建: {} 个类别, {} 个文件, 修订号 {}, 耗时 {}μs",
+                directoryStructure.size(), totalFiles, revision, (System.nanoTime() - start) / 1000);
+        return new Snapshot(revision, etag, totalFiles, Collections.unmodifiableMap(view));
+    }
+
+    // ==================== 外部目录同步 ====================
+
+    private int syncAll() {
+        int synced = 0;
+        try (DirectoryStream<Path> categories = Files.newDirectoryStream(watchedDirectory, Files::isDirectory)) {
+            for (Path category : categories) {
+                synced += syncCategory(category);
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ [示例目录] 读取目录失败 {}: {}", watchedDirectory, e.getMessage());
+        }
+        return synced;
+    }
+
+    private int syncCategory(Path categoryDir) {
+        int synced = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(categoryDir, "*" + JSON_SUFFIX)) {
+            for (Path file : files) {
+                if (syncFile(file)) {
+                    synced++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("⚠️ [示例目录] 读取类别目录失败 {}: {}", categoryDir, e.getMessage());
+        }
+        return synced;
+    }
+
+    private boolean syncFile(Path file) {
+        String category = file.getParent().getFileName().toString();
+        String name = file.getFileName().toString();
+        try {
+            byte[] content = Files.readAllBytes(file);
+            if (content.length == 0) {
+                // 新建文件的第一个事件通常还没有内容
+                return false;
+            }
+            artifactStore.syncFromDirectory(Kind.ECHARTS_EXAMPLE, category, name, content);
+            return true;
+        } catch (IllegalArgumentException e) {
+            // 编辑器保存过程中可能读到不完整的内容，等待下一次修改事件
+            logger.warn("⚠️ [示例目录] 跳过无效文件 {}/{}: {}", category, name, e.getMessage());
+        } catch (IOException e) {
+            logger.warn("⚠️ [示例目录] 读取文件失败 {}/{}: {}", category, name, e.getMessage());
+        }
+        return false;
+    }
+
+    private void removeFile(String category, String name) {
+        try {
+            artifactStore.remove(Kind.ECHARTS_EXAMPLE, category, name);
+        } catch (IOException e) {
+            logger.warn("⚠️ [示例目录] 删除示例失败 {}/{}: {}", category, name, e.getMessage());
+        }
+    }
+
+    private void startWatching() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        register(watchedDirectory);
+        try (DirectoryStream<Path> categories = Files.newDirectoryStream(watchedDirectory, Files::isDirectory)) {
+            for (Path category : categories) {
+                register(category);
+            }
+        }
+        watchThread = new Thread(this::watchLoop, "echarts-example-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("👀 [示例目录] 开始监听 {} 个目录", watchKeys.size());
+    }
+
+    private void register(Path dir) throws IOException {
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchKeys.put(key, dir);
+    }
+
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchKeys.get(key);
+            if (dir != null) {
+                try {
+                    handleEvents(dir, key);
+                } catch (RuntimeException e) {
+                    logger.warn("⚠️ [示例目录] 处理目录事件失败 {}: {}", dir, e.getMessage(), e);
+                }
+            }
+            if (!key.reset()) {
+                watchKeys.remove(key);
+            }
+        }
+    }
+
+    private void handleEvents(Path dir, WatchKey key) {
+        boolean root = dir.equals(watchedDirectory);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warn("⚠️ [示例目录] 监听事件溢出，重新同步整个目录");
+                syncAll();
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            String name = child.getFileName().toString();
+
+            if (root) {
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                    try {
+                        register(child);
+                    } catch (IOException e) {
+                        logger.warn("⚠️ [示例目录] 无法监听新类别 {}: {}", name, e.getMessage());
+                    }
+                    syncCategory(child);
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    for (StoredArtifact artifact : artifactStore.list(Kind.ECHARTS_EXAMPLE, name)) {
+                        removeFile(name, artifact.getName());
+                    }
+                }
+                continue;
+            }
+
+            if (!name.endsWith(JSON_SUFFIX)) {
+                continue;
+            }
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                removeFile(dir.getFileName().toString(), name);
+            } else if (Files.isRegularFile(child)) {
+                syncFile(child);
+            }
+        }
+    }
+}
@@ -7,15 +7,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.query.ColumnBatch;
+import com.example.chart.query.FieldRef;
+import com.example.chart.store.ColumnTable.Column;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -26,13 +29,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @Service
 public class MappingRelationshipService {
 
+    private static final Logger logger = LoggerFactory.getLogger(MappingRelationshipService.class);
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // 统一数据视图映射关系存储
     private final Map<String, Map<String, Object>> chartMappings = new HashMap<>();
 
-    // 字段提取器映射 - 用于从UniversalChartDataView中提取数据
-    private final Map<String, Function<UniversalChartDataView, Object>> fieldExtractors = new HashMap<>();
+    // 字段引用 - 字段名在初始化时解析为列，提取时直接读取列向量
+    private final Map<String, FieldRef> fieldRefs = new HashMap<>();
 
     @Autowired
     private UniversalChartDataService dataService;
@@ -53,9 +58,9 @@ public class MappingRelationshipService {
                     initializeFieldExtractors();
                     initializeUniversalMappings();
                     initialized = true;
-                    System.out.println("✅ 映射关系服务初始化完成，支持图表类型数量: " + chartMappings.size());
+                    logger.info("✅ [映射关系] 服务初始化完成，支持图表类型数量: {}", chartMappings.size());
                 } catch (Exception e) {
-                    System.err.println("❌ 映射关系服务初始化失败: " + e.getMessage());
+                    logger.error("❌ [映射关系] 服务初始化失败: {}", e.getMessage(), e);
                     throw new RuntimeException("映射关系服务初始化失败", e);
                 }
             }
@@ -63,35 +68,37 @@ public class MappingRelationshipService {
     }
 
     /**
-     * 初始化字段提取器
+     * 初始化字段引用
      */
     private void initializeFieldExtractors() {
-        // 12个核心业务字段提取器
-
-        // 系统字段
-        fieldExtractors.put("id", data -> data.getId() != null ? data.getId().toString() : null);
-
-        // 时间维度字段
-        fieldExtractors.put("year", UniversalChartDataView::getYear);
-        fieldExtractors.put("month", UniversalChartDataView::getMonth);
-        fieldExtractors.put("date", UniversalChartDataView::getDate);
-
-        // 业务分类字段
-        fieldExtractors.put("category", UniversalChartDataView::getCategory);
-        fieldExtractors.put("channel", UniversalChartDataView::getChannel);
-        fieldExtractors.put("product", UniversalChartDataView::getProduct);
-        fieldExtractors.put("region", UniversalChartDataView::getRegion);
-        fieldExtractors.put("salesman", UniversalChartDataView::getSalesman);
-
-        // 数值字段
-        fieldExtractors.put("amount", data -> data.getAmount() != null ? data.getAmount().toString() : null);
-        fieldExtractors.put("quantity", data -> data.getQuantity() != null ? data.getQuantity().toString() : null);
-        fieldExtractors.put("percentage",
-                data -> data.getPercentage() != null ? data.getPercentage().toString() : null);
-
-        // 系统时间字段
-        fieldExtractors.put("created_at", data -> data.getCreatedAt() != null ? data.getCreatedAt().toString() : null);
-        fieldExtractors.put("updated_at", data -> data.getUpdatedAt() != null ? data.getUpdatedAt().toString() : null);
+        // 12个核心业务字段及系统字段
+        String[] fieldNames = { "id", "year", "month", "date", "category", "channel", "product", "region",
+                "salesman", "amount", "quantity", "percentage", "created_at", "updated_at" };
+        for (String fieldName : fieldNames) {
+            fieldRefs.put(fieldName, FieldRef.resolve(fieldName));
+        }
+    }
+
+    /**
+     * 读取一行的字段值，字符串列直接取字典值，其余类型输出为字符串
+     */
+    private static String readAsString(FieldRef field, ColumnBatch batch, int row) {
+        Column column = field.getColumn();
+        if (batch.isNull(column, row)) {
+            return null;
+        }
+        switch (field.getType()) {
+            case STRING:
+                return batch.dictionary(column)[batch.codes(column)[row]];
+            case LONG:
+                return Long.toString(batch.longs(column)[row]);
+            case INT:
+                return Integer.toString(batch.ints(column)[row]);
+            case DOUBLE:
+                return Double.toString(batch.doubles(column)[row]);
+            default:
+                return String.valueOf(field.get(batch, row));
+        }
     }
 
     /**
@@ -333,8 +340,8 @@ public class MappingRelationshipService {
 
         chartMappings.put("universal", universalMappings); // 通用模板
 
-        System.out.println("✅ 初始化通用映射关系完成，包含 " + universalMappings.size() + " 个映射项");
-        System.out.println("📋 支持的图表类型: " + chartMappings.keySet());
+        logger.info("✅ [映射关系] 初始化通用映射关系完成，包含 {} 个映射项", universalMappings.size());
+        logger.debug("📋 [映射关系] 支持的图表类型: {}", chartMappings.keySet());
     }
 
     /**
@@ -375,14 +382,16 @@ public class MappingRelationshipService {
         try {
             // 获取图表类型对应的数据
             List<UniversalChartDataView> dataList = dataService.getDataByChartType(chartId);
+            // 所有占位符共享同一份列向量
+            ColumnBatch batch = ColumnBatch.of(dataList);
 
             for (String placeholder : placeholders) {
-                Object extractedValue = extractPlaceholderValue(placeholder, dataList);
+                Object extractedValue = extractPlaceholderValue(placeholder, batch);
                 extractedData.put(placeholder, extractedValue);
             }
 
         } catch (Exception e) {
-            System.err.println("从统一数据视图提取数据失败: " + e.getMessage());
+            logger.warn("⚠️ [映射关系] 从统一数据视图提取数据失败，回退到模拟数据: {}", e.getMessage());
             // 回退到模拟数据
             return simulateDataQuery(chartId, placeholders);
         }
@@ -393,37 +402,44 @@ public class MappingRelationshipService {
     /**
      * 提取单个占位符的值
      */
-    private Object extractPlaceholderValue(String placeholder, List<UniversalChartDataView> dataList) {
+    private Object extractPlaceholderValue(String placeholder, ColumnBatch batch) {
         Map<String, Object> chartMapping = getChartMappings("universal");
         @SuppressWarnings("unchecked")
         Map<String, Object> mapping = (Map<String, Object>) chartMapping.get(placeholder);
 
-        if (mapping == null || dataList.isEmpty()) {
+        if (mapping == null || batch.getRowCount() == 0) {
             return null;
         }
 
         String fieldName = (String) mapping.get("fieldName");
         String dataType = (String) mapping.get("dataType");
-        Function<UniversalChartDataView, Object> extractor = fieldExtractors.get(fieldName);
+        FieldRef field = fieldName == null ? null : fieldRefs.get(fieldName);
 
-        if (extractor == null) {
+        if (field == null) {
             return null;
         }
 
+        int rows = batch.getRowCount();
         // 根据数据类型处理返回值
         if ("array".equals(dataType)) {
             // 对于数组类型，收集所有数据
-            return dataList.stream()
-                    .map(extractor)
-                    .filter(java.util.Objects::nonNull)
-                    .collect(Collectors.toList());
+            List<Object> values = new ArrayList<>();
+            for (int row = 0; row < rows; row++) {
+                String value = readAsString(field, batch, row);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+            return values;
         } else {
             // 对于单值类型，返回第一个非空值
-            return dataList.stream()
-                    .map(extractor)
-                    .filter(java.util.Objects::nonNull)
-                    .findFirst()
-                    .orElse(null);
+            for (int row = 0; row < rows; row++) {
+                String value = readAsString(field, batch, row);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
         }
     }
 
@@ -434,12 +450,12 @@ public class MappingRelationshipService {
         synchronized (initLock) {
             try {
                 chartMappings.clear();
-                fieldExtractors.clear();
+                fieldRefs.clear();
                 initializeFieldExtractors();
                 initializeUniversalMappings();
-                System.out.println("✅ 映射关系重新加载完成，支持图表类型数量: " + chartMappings.size());
+                logger.info("✅ [映射关系] 重新加载完成，支持图表类型数量: {}", chartMappings.size());
             } catch (Exception e) {
-                System.err.println("❌ 映射关系重新加载失败: " + e.getMessage());
+                logger.error("❌ [映射关系] 重新加载失败: {}", e.getMessage(), e);
                 throw new RuntimeException("映射关系重新加载失败", e);
             }
         }
@@ -464,7 +480,7 @@ public class MappingRelationshipService {
      */
     public void saveChartMappings(String chartId, Map<String, Object> mappings) {
         chartMappings.put(chartId, mappings);
-        System.out.println("✅ 保存图表 " + chartId + " 的映射关系，包含 " + mappings.size() + " 个映射项");
+        logger.info("✅ [映射关系] 保存图表 {} 的映射关系，包含 {} 个映射项", chartId, mappings.size());
     }
 
     /**
@@ -523,11 +539,11 @@ public class MappingRelationshipService {
 
         // 添加null检查
         if (dataType == null) {
-            System.err.println("⚠️ dataType为null，使用默认值");
+            logger.debug("⚠️ [模拟数据] {} 的dataType为null，使用默认值", chartId);
             dataType = "string";
         }
         if (columnName == null) {
-            System.err.println("⚠️ columnName为null，使用默认值");
+            logger.debug("⚠️ [模拟数据] {} 的columnName为null，使用默认值", chartId);
             columnName = "default_column";
         }
 
@@ -692,16 +708,16 @@ public class MappingRelationshipService {
             case "smooth_style":
                 // 🔧 根据图表类型设置平滑样式
                 if ("basic_line_chart".equals(chartId)) {
-                    System.out.println("🔧 [SMOOTH_STYLE] 基础折线图 -> smooth: false");
+                    logger.trace("🔧 [SMOOTH_STYLE] 基础折线图 -> smooth: false");
                     return false; // 基础折线图：直线连接
                 } else if ("smooth_line_chart".equals(chartId)) {
-                    System.out.println("🔧 [SMOOTH_STYLE] 平滑折线图 -> smooth: true");
+                    logger.trace("🔧 [SMOOTH_STYLE] 平滑折线图 -> smooth: true");
                     return true; // 平滑折线图：曲线连接
                 } else if ("stacked_line_chart".equals(chartId)) {
-                    System.out.println("🔧 [SMOOTH_STYLE] 堆叠折线图 -> smooth: false");
+                    logger.trace("🔧 [SMOOTH_STYLE] 堆叠折线图 -> smooth: false");
                     return false; // 堆叠折线图：直线连接（突出堆叠效果）
                 } else {
-                    System.out.println("🔧 [SMOOTH_STYLE] 其他图表类型(" + chartId + ") -> smooth: true");
+                    logger.trace("🔧 [SMOOTH_STYLE] 其他图表类型({}) -> smooth: true", chartId);
                     return true; // 其他图表类型默认使用平滑样式
                 }
             default:
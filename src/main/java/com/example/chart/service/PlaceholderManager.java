@@ -4,19 +4,21 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.example.chart.metrics.ChartMetrics;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.TextNode;
 
 /**
  * 占位符管理器
@@ -25,10 +27,15 @@ import com.fasterxml.jackson.databind.node.TextNode;
 @Service
 public class PlaceholderManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(PlaceholderManager.class);
+
     private static final String PLACEHOLDER_PATTERN = "\\$\\{([^}]+)\\}";
     private static final Pattern PATTERN = Pattern.compile(PLACEHOLDER_PATTERN);
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Autowired(required = false)
+    private ChartMetrics chartMetrics;
+
     /**
      * 从字符串中提取所有占位符
      */
@@ -49,14 +56,19 @@ public class PlaceholderManager {
      */
     public Set<String> extractPlaceholdersFromJson(Object jsonObj) {
         Set<String> placeholders = new HashSet<>();
+        long start = System.nanoTime();
         try {
             String jsonString = objectMapper.writeValueAsString(jsonObj);
             placeholders = extractPlaceholders(jsonString);
-            System.out.println("📋 [PlaceholderManager] 提取占位符数量: " + placeholders.size() + ", 列表: " + placeholders);
+            logger.trace("📋 [PlaceholderManager] 提取占位符数量: {}, 列表: {}", placeholders.size(), placeholders);
             return placeholders;
         } catch (Exception e) {
-            System.err.println("❌ [PlaceholderManager] 提取占位符时出错: " + e.getMessage());
+            logger.error("❌ [PlaceholderManager] 提取占位符时出错: {}", e.getMessage());
             return placeholders;
+        } finally {
+            if (chartMetrics != null) {
+                chartMetrics.recordExtraction(System.nanoTime() - start);
+            }
         }
     }
 
@@ -123,51 +135,58 @@ public class PlaceholderManager {
      * 在JSON对象中递归替换占位符
      */
     public Object replacePlaceholdersInJson(Object jsonObj, Map<String, Object> values) {
+        long start = System.nanoTime();
         try {
             JsonNode jsonNode = objectMapper.valueToTree(jsonObj);
-            JsonNode replacedNode = replacePlaceholdersInJsonNode(jsonNode, values);
-            return objectMapper.treeToValue(replacedNode, Object.class);
+            return replacePlaceholdersInJsonNode(jsonNode, values);
         } catch (Exception e) {
-            System.err.println("替换JSON占位符时出错: " + e.getMessage());
+            logger.error("替换JSON占位符时出错: {}", e.getMessage());
             return jsonObj;
+        } finally {
+            if (chartMetrics != null) {
+                chartMetrics.recordReplacement(System.nanoTime() - start);
+            }
         }
     }
 
     /**
-     * 递归替换JsonNode中的占位符
+     * 递归替换JsonNode中的占位符，并还原为Java对象
+     * 整个字符串就是一个占位符时直接放入原始值（如DoubleSeries），不再经过JsonNode中转，
+     * 大数据序列在最终序列化时才写出。查询结果缓存里的值已冻结为只读，按引用放入多个输出树是安全的
      */
-    private JsonNode replacePlaceholdersInJsonNode(JsonNode node, Map<String, Object> values) {
+    private Object replacePlaceholdersInJsonNode(JsonNode node, Map<String, Object> values) {
         if (node.isTextual()) {
             // 处理文本节点中的占位符
             String text = node.asText();
-            String replacedText = replacePlaceholders(text, values);
 
-            // 如果整个字符串就是一个占位符，尝试保持原始数据类型
+            // 如果整个字符串就是一个占位符，保持原始数据类型
             if (isValidPlaceholder(text) && values.containsKey(text)) {
-                Object value = values.get(text);
-                return objectMapper.valueToTree(value);
+                return values.get(text);
             }
 
-            return new TextNode(replacedText);
+            return replacePlaceholders(text, values);
         } else if (node.isArray()) {
             // 处理数组节点
-            ArrayNode arrayNode = objectMapper.createArrayNode();
+            List<Object> list = new ArrayList<>(node.size());
             for (JsonNode item : node) {
-                arrayNode.add(replacePlaceholdersInJsonNode(item, values));
+                list.add(replacePlaceholdersInJsonNode(item, values));
             }
-            return arrayNode;
+            return list;
         } else if (node.isObject()) {
             // 处理对象节点
-            ObjectNode objectNode = objectMapper.createObjectNode();
-            node.fields().forEachRemaining(entry -> {
-                String key = entry.getKey();
-                JsonNode value = entry.getValue();
-                objectNode.set(key, replacePlaceholdersInJsonNode(value, values));
-            });
-            return objectNode;
+            Map<String, Object> map = new LinkedHashMap<>();
+            node.fields().forEachRemaining(entry -> map.put(entry.getKey(),
+                    replacePlaceholdersInJsonNode(entry.getValue(), values)));
+            return map;
+        } else if (node.isNumber()) {
+            return node.numberValue();
+        } else if (node.isBoolean()) {
+            return node.booleanValue();
+        } else if (node.isNull() || node.isMissingNode()) {
+            return null;
         }
 
-        return node; // 其他类型节点直接返回
+        return objectMapper.convertValue(node, Object.class); // 其他类型节点按默认方式转换
     }
 
     /**
@@ -6,17 +6,30 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.diagnostics.PlaceholderResolutionEvent;
+import com.example.chart.diagnostics.RenderProfile;
+import com.example.chart.diagnostics.RenderTrace;
+import com.example.chart.diagnostics.SlowRenderLog;
+import com.example.chart.diagnostics.Stage2ReplacementEvent;
+import com.example.chart.metrics.ChartMetrics;
+import com.example.chart.model.Mapping;
+import com.example.chart.query.ColumnBatch;
+import com.example.chart.query.CompiledMapping;
+import com.example.chart.query.ParallelScanExecutor;
+import com.example.chart.query.PivotQuery;
+import com.example.chart.query.QueryResultCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -26,6 +39,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @Service
 public class PlaceholderMappingManager {
 
+    private static final Logger logger = LoggerFactory.getLogger(PlaceholderMappingManager.class);
+
     private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
 
     @Autowired
@@ -37,6 +52,18 @@ public class PlaceholderMappingManager {
     @Autowired
     private TemplateService templateService;
 
+    @Autowired(required = false)
+    private ChartMetrics chartMetrics;
+
+    @Autowired(required = false)
+    private ParallelScanExecutor scanExecutor;
+
+    @Autowired(required = false)
+    private QueryResultCache queryCache;
+
+    @Autowired(required = false)
+    private SlowRenderLog slowRenderLog;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     // 映射关系存储：chartId -> (placeholder -> fieldMapping)
@@ -44,12 +71,15 @@ public class PlaceholderMappingManager {
     private final Map<String, Map<String, FieldMapping>> mappingStore = Collections
             .synchronizedMap(new LinkedHashMap<>());
 
+    // 映射配置版本号：任何映射变更都会递增，用于渲染结果缓存失效
+    private final AtomicLong mappingVersion = new AtomicLong();
+
     /**
      * 初始化预置映射关系
      */
     @PostConstruct
     public void initializePresetMappings() {
-        System.out.println("🔧 [映射管理] 开始初始化预置映射关系...");
+        logger.info("🔧 [映射管理] 开始初始化预置映射关系...");
 
         // 按照实例ID顺序初始化，确保实例名称对应正确
         // 实例ID=1：折线图 - "张三和李四2025年销售业绩排行"
@@ -73,7 +103,7 @@ public class PlaceholderMappingManager {
         initializeScatterChartMappings();
         initializeHeatmapChartMappings();
 
-        System.out.println("✅ [映射管理] 预置映射关系初始化完成，共配置 " + mappingStore.size() + " 种图表类型");
+        logger.info("✅ [映射管理] 预置映射关系初始化完成，共配置 {} 种图表类型", mappingStore.size());
 
         // 验证模板类型映射关系
         validateTemplateTypeMappings();
@@ -83,27 +113,25 @@ public class PlaceholderMappingManager {
      * 验证模板类型映射关系是否符合系统设计
      */
     private void validateTemplateTypeMappings() {
-        System.out.println("🔍 [映射管理] 开始验证模板类型映射关系...");
+        logger.debug("🔍 [映射管理] 开始验证模板类型映射关系...");
 
         // 测试所有已初始化的图表类型
         for (String chartId : mappingStore.keySet()) {
             String chartType = getChartTypeFromId(chartId);
             String universalTemplate = getUniversalTemplateByCategory(chartType);
 
-            System.out.println("📊 [映射验证] " + chartId +
-                    " -> 图表分类: " + chartType +
-                    " -> 通用模板: " + universalTemplate);
+            logger.debug("📊 [映射验证] {} -> 图表分类: {} -> 通用模板: {}", chartId, chartType, universalTemplate);
         }
 
         // 验证四大模板类型的正确性
-        System.out.println("🎯 [映射验证] 四大模板类型验证:");
-        System.out.println("   折线图 -> " + getUniversalTemplateByCategory("折线图"));
-        System.out.println("   柱状图 -> " + getUniversalTemplateByCategory("柱状图"));
-        System.out.println("   饼图 -> " + getUniversalTemplateByCategory("饼图"));
-        System.out.println("   雷达图 -> " + getUniversalTemplateByCategory("雷达图"));
-        System.out.println("   仪表盘 -> " + getUniversalTemplateByCategory("仪表盘"));
-
-        System.out.println("✅ [映射管理] 模板类型映射关系验证完成");
+        logger.debug("🎯 [映射验证] 四大模板类型验证:");
+        logger.debug("   折线图 -> {}", getUniversalTemplateByCategory("折线图"));
+        logger.debug("   柱状图 -> {}", getUniversalTemplateByCategory("柱状图"));
+        logger.debug("   饼图 -> {}", getUniversalTemplateByCategory("饼图"));
+        logger.debug("   雷达图 -> {}", getUniversalTemplateByCategory("雷达图"));
+        logger.debug("   仪表盘 -> {}", getUniversalTemplateByCategory("仪表盘"));
+
+        logger.info("✅ [映射管理] 模板类型映射关系验证完成");
     }
 
     /**
@@ -112,9 +140,16 @@ public class PlaceholderMappingManager {
     public static class FieldMapping {
         private String fieldName; // 数据库字段名
         private String dataType; // 数据类型
-        private String aggregationType; // 聚合类型：sum, avg, count, max, min
+        private String aggregationType; // 聚合类型：sum, avg, count, max, min, count_distinct, median, p95
         private Map<String, Object> filters; // 过滤条件
-        private String transformExpression; // 转换表达式
+        private String filterExpression; // 过滤表达式，如 amount > 500 AND region IN ('华北', '华东')
+        private String transformExpression; // 转换表达式，如 value / 1000
+        private PivotMapping pivot; // 分组透视，为null时按普通聚合查询
+        private Integer cacheTtlSeconds; // 查询结果缓存时间（秒），为null时使用默认值，0表示不缓存
+
+        // 编译后的形式：配置映射时生成，任一属性通过setter修改后失效
+        private volatile CompiledMapping compiled;
+        private volatile PivotQuery compiledPivot;
 
         public FieldMapping() {
         }
@@ -133,6 +168,7 @@ public class PlaceholderMappingManager {
 
         public void setFieldName(String fieldName) {
             this.fieldName = fieldName;
+            this.compiled = null;
         }
 
         public String getDataType() {
@@ -141,6 +177,7 @@ public class PlaceholderMappingManager {
 
         public void setDataType(String dataType) {
             this.dataType = dataType;
+            this.compiled = null;
         }
 
         public String getAggregationType() {
@@ -149,6 +186,7 @@ public class PlaceholderMappingManager {
 
         public void setAggregationType(String aggregationType) {
             this.aggregationType = aggregationType;
+            this.compiled = null;
         }
 
         public Map<String, Object> getFilters() {
@@ -157,6 +195,7 @@ public class PlaceholderMappingManager {
 
         public void setFilters(Map<String, Object> filters) {
             this.filters = filters;
+            this.compiled = null;
         }
 
         public String getTransformExpression() {
@@ -165,6 +204,127 @@ public class PlaceholderMappingManager {
 
         public void setTransformExpression(String transformExpression) {
             this.transformExpression = transformExpression;
+            this.compiled = null;
+        }
+
+        public String getFilterExpression() {
+            return filterExpression;
+        }
+
+        public void setFilterExpression(String filterExpression) {
+            this.filterExpression = filterExpression;
+            this.compiled = null;
+        }
+
+        public PivotMapping getPivot() {
+            return pivot;
+        }
+
+        public void setPivot(PivotMapping pivot) {
+            this.pivot = pivot;
+            this.compiled = null;
+        }
+
+        public Integer getCacheTtlSeconds() {
+            return cacheTtlSeconds;
+        }
+
+        public void setCacheTtlSeconds(Integer cacheTtlSeconds) {
+            this.cacheTtlSeconds = cacheTtlSeconds;
+        }
+
+        /**
+         * 重新编译（直接修改filters或pivot内容后需要调用）
+         */
+        public CompiledMapping compile() {
+            CompiledMapping result = CompiledMapping.compile(fieldName, aggregationType, dataType, filters,
+                    filterExpression, transformExpression);
+            this.compiledPivot = pivot == null ? null
+                    : PivotQuery.compile(fieldName, aggregationType, dataType, filters, filterExpression,
+                            transformExpression, pivot.getCategoryKey(), pivot.getTimeBucket(), pivot.getSeriesKey(),
+                            pivot.getNullHandling(), pivot.getOrderBy(), pivot.getLimit());
+            this.compiled = result;
+            return result;
+        }
+
+        /**
+         * 编译后的透视查询，未配置pivot时返回null
+         */
+        public PivotQuery compiledPivot() {
+            if (pivot == null) {
+                return null;
+            }
+            if (compiled == null) {
+                compile();
+            }
+            return compiledPivot;
+        }
+
+        /**
+         * 编译后的形式，尚未编译时编译一次
+         */
+        public CompiledMapping compiled() {
+            CompiledMapping result = compiled;
+            return result != null ? result : compile();
+        }
+    }
+
+    /**
+     * 分组透视配置
+     * 分组条件（分类字段、系列字段、值字段、聚合、过滤）相同的映射在一次渲染中共用一次扫描，
+     * 各占位符只取结果中的不同部分
+     */
+    public static class PivotMapping {
+        private String categoryKey; // 分类轴字段，如 month
+        private String timeBucket; // 时间分桶：day | week | month | quarter | year，分类轴为date/year/month时可用
+        private String seriesKey; // 系列字段，如 channel，为空时只有一个系列
+        private String seriesValue; // output为series时取哪个系列
+        private String output = "series"; // categories | seriesNames | series | seriesList
+        private String nullHandling = "zero"; // skip | zero | fill
+        private List<Mapping.Order> orderBy = new ArrayList<>(); // 分类排序，如按value降序
+        private Integer limit; // 只保留前N个分类（排行榜）
+
+        public PivotMapping() {
+        }
+
+        public PivotMapping(String categoryKey, String seriesKey, String output) {
+            this.categoryKey = categoryKey;
+            this.seriesKey = seriesKey;
+            this.output = output;
+        }
+
+        public String getCategoryKey() { return categoryKey; }
+        public void setCategoryKey(String categoryKey) { this.categoryKey = categoryKey; }
+        public String getTimeBucket() { return timeBucket; }
+        public void setTimeBucket(String timeBucket) { this.timeBucket = timeBucket; }
+        public String getSeriesKey() { return seriesKey; }
+        public void setSeriesKey(String seriesKey) { this.seriesKey = seriesKey; }
+        public String getSeriesValue() { return seriesValue; }
+        public void setSeriesValue(String seriesValue) { this.seriesValue = seriesValue; }
+        public String getOutput() { return output; }
+        public void setOutput(String output) { this.output = output; }
+        public String getNullHandling() { return nullHandling; }
+        public void setNullHandling(String nullHandling) { this.nullHandling = nullHandling; }
+        public List<Mapping.Order> getOrderBy() { return orderBy; }
+        public void setOrderBy(List<Mapping.Order> orderBy) { this.orderBy = orderBy; }
+        public Integer getLimit() { return limit; }
+        public void setLimit(Integer limit) { this.limit = limit; }
+
+        /**
+         * 从透视结果中取出本占位符需要的部分
+         */
+        Object select(PivotQuery.Result result) {
+            switch (output == null ? "series" : output) {
+                case "categories":
+                    return result.getCategories();
+                case "seriesNames":
+                    return result.getSeriesNames();
+                case "seriesList":
+                    return result.getSeriesList();
+                case "series":
+                default:
+                    return result.getSeries(seriesValue);
+            }
         }
     }
 
@@ -222,8 +382,13 @@ public class PlaceholderMappingManager {
      * 配置图表的占位符映射关系
      */
     public void configureMappings(String chartId, Map<String, FieldMapping> mappings) {
+        // 配置时解析字段、过滤条件和表达式，查询时不再处理字段名；表达式有误时抛出IllegalArgumentException
+        for (FieldMapping mapping : mappings.values()) {
+            mapping.compile();
+        }
         mappingStore.put(chartId, new HashMap<>(mappings));
-        System.out.println("✅ [映射管理] 配置图表 " + chartId + " 的映射关系，共 " + mappings.size() + " 个映射");
+        mappingVersion.incrementAndGet();
+        logger.info("✅ [映射管理] 配置图表 {} 的映射关系，共 {} 个映射", chartId, mappings.size());
     }
 
     /**
@@ -233,208 +398,188 @@ public class PlaceholderMappingManager {
         return mappingStore.getOrDefault(chartId, new HashMap<>());
     }
 
+    /**
+     * 获取映射配置版本号
+     */
+    public long getMappingVersion() {
+        return mappingVersion.get();
+    }
+
     /**
      * 根据映射关系动态查询数据并替换占位符
+     * 渲染接口之外的入口（第二阶段转换、映射验证和测试）也经过这里，慢渲染日志在此收集剖面；
+     * 已在完整渲染中时沿用外层剖面
      */
     public MappingResult executeMapping(String chartId, Object templateWithPlaceholders) {
+        RenderProfile profile = slowRenderLog != null ? slowRenderLog.begin(chartId) : null;
+        String outcome = "failure";
+        long start = System.nanoTime();
+        boolean success = false;
         try {
             // 1. 提取模板中的占位符
             Set<String> placeholders = placeholderManager.extractPlaceholdersFromJson(templateWithPlaceholders);
-            System.out.println("🔍 [映射执行] 发现占位符: " + placeholders);
+            logger.debug("🔍 [映射执行] 发现占位符: {}", placeholders);
+            boolean tracing = RenderTrace.isActive();
 
             // 2. 获取映射配置
             Map<String, FieldMapping> mappings = getMappings(chartId);
             if (mappings.isEmpty()) {
+                outcome = "failure: 未配置映射关系";
                 return new MappingResult(false, "图表 " + chartId + " 未配置映射关系");
             }
 
             // 3. 执行数据查询和映射
             Map<String, Object> mappedData = new HashMap<>();
             List<String> unmappedPlaceholders = new ArrayList<>();
+            // 透视查询按签名共用：分类轴和各系列数据只扫描一次
+            Map<String, PivotQuery.Result> pivotResults = new HashMap<>();
 
             for (String placeholder : placeholders) {
                 FieldMapping mapping = mappings.get(placeholder);
 
                 if (mapping != null) {
-                    Object value = queryDataByMapping(mapping);
+                    long queryStart = tracing ? System.nanoTime() : 0;
+                    Object value = queryDataByMapping(chartId, placeholder, mapping, pivotResults);
                     mappedData.put(placeholder, value);
-                    System.out.println("✅ [映射执行] " + placeholder + " -> " + value);
+                    // 值可能是整列数据，日志和轨迹中只记录简短描述
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("✅ [映射执行] {} -> {}", placeholder, RenderTrace.describe(value));
+                    }
+                    if (tracing) {
+                        RenderTrace.event("placeholder", "{} 字段={} 聚合={} -> {} ({}μs)", placeholder,
+                                mapping.getFieldName(), mapping.getAggregationType(), RenderTrace.describe(value),
+                                (System.nanoTime() - queryStart) / 1000);
+                    }
                 } else {
                     unmappedPlaceholders.add(placeholder);
-                    System.out.println("⚠️ [映射执行] 未找到映射: " + placeholder);
+                    logger.debug("⚠️ [映射执行] 未找到映射: {}", placeholder);
+                    RenderTrace.event("placeholder", "{} 未配置映射", placeholder);
                 }
             }
 
             // 4. 替换占位符
+            Stage2ReplacementEvent replacementEvent = new Stage2ReplacementEvent();
+            replacementEvent.begin();
+            long replaceStart = System.nanoTime();
             Object result = placeholderManager.replacePlaceholdersInJson(templateWithPlaceholders, mappedData);
+            RenderProfile.stage("replace", System.nanoTime() - replaceStart);
+            replacementEvent.end();
+            if (replacementEvent.shouldCommit()) {
+                int resultSize = 0;
+                for (Object value : mappedData.values()) {
+                    resultSize += RenderTrace.sizeOf(value);
+                }
+                replacementEvent.chartId = chartId;
+                replacementEvent.placeholderCount = mappedData.size();
+                replacementEvent.unmappedCount = unmappedPlaceholders.size();
+                replacementEvent.resultSize = resultSize;
+                replacementEvent.commit();
+            }
+            RenderTrace.event("replace", "替换占位符 {} 个，未映射 {} 个", mappedData.size(),
+                    unmappedPlaceholders.size());
 
             MappingResult mappingResult = new MappingResult(true, "映射执行成功");
             mappingResult.setData(Map.of("result", result, "mappedData", mappedData));
             mappingResult.setUnmappedPlaceholders(unmappedPlaceholders);
+            success = true;
+            outcome = "success";
 
             return mappingResult;
 
         } catch (Exception e) {
-            System.err.println("❌ [映射执行] 执行失败: " + e.getMessage());
+            logger.error("❌ [映射执行] 执行失败: {}", e.getMessage());
+            outcome = "failure: " + e.getMessage();
             return new MappingResult(false, "映射执行失败: " + e.getMessage());
+        } finally {
+            if (chartMetrics != null) {
+                chartMetrics.recordStage(ChartMetrics.STAGE_BACKFILL, chartId, success, System.nanoTime() - start);
+            }
+            if (slowRenderLog != null) {
+                // 只映射不序列化，结果字节数未知
+                slowRenderLog.finish(profile, outcome, -1);
+            }
         }
     }
 
     /**
      * 根据字段映射查询数据
+     *
+     * @param pivotResults 本次映射执行中已完成的透视查询结果（按签名），透视映射优先从中取值
      */
-    private Object queryDataByMapping(FieldMapping mapping) {
+    private Object queryDataByMapping(String chartId, String placeholder, FieldMapping mapping,
+            Map<String, PivotQuery.Result> pivotResults) {
+        PlaceholderResolutionEvent event = new PlaceholderResolutionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int rowsScanned = 0;
+        int rowsMatched = 0;
+        Object value = null;
         try {
-            List<UniversalChartDataView> allData = dataService.findAll();
-
-            // 应用过滤条件
-            List<UniversalChartDataView> filteredData = applyFilters(allData, mapping.getFilters());
-
-            // 提取字段值
-            List<Object> fieldValues = extractFieldValues(filteredData, mapping.getFieldName());
-
-            // 应用聚合
-            return applyAggregation(fieldValues, mapping.getAggregationType(), mapping.getDataType());
-
-        } catch (Exception e) {
-            System.err.println("❌ [数据查询] 查询失败: " + e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * 应用过滤条件
-     */
-    private List<UniversalChartDataView> applyFilters(List<UniversalChartDataView> data, Map<String, Object> filters) {
-        if (filters == null || filters.isEmpty()) {
-            return data;
-        }
-
-        return data.stream().filter(item -> {
-            for (Map.Entry<String, Object> filter : filters.entrySet()) {
-                Object fieldValue = getFieldValue(item, filter.getKey());
-                if (!Objects.equals(fieldValue, filter.getValue())) {
-                    return false;
+            // 在当前数据版本的列向量上执行编译后的过滤和聚合，大表按分区并行扫描；
+            // 版本号先于列向量读取，结果按这个版本号缓存
+            long dataVersion = dataService.getDataVersion();
+            ColumnBatch batch = dataService.getColumnBatch();
+            int[] scanned = new int[1];
+            PivotQuery pivot = mapping.compiledPivot();
+            if (pivot != null) {
+                PivotQuery.Result pivotResult = pivotResults.get(pivot.getSignature());
+                if (pivotResult == null) {
+                    pivotResult = cached("pivot:" + pivot.getSignature(), pivot.getShape(), dataVersion, mapping,
+                            () -> {
+                                scanned[0] = batch.getRowCount();
+                                return pivot.execute(batch, scanExecutor);
+                            });
+                    pivotResults.put(pivot.getSignature(), pivotResult);
                 }
+                rowsScanned = scanned[0];
+                rowsMatched = pivotResult.getRowsMatched();
+                value = mapping.getPivot().select(pivotResult);
+                return value;
             }
-            return true;
-        }).collect(Collectors.toList());
-    }
+            CompiledMapping compiled = mapping.compiled();
+            CompiledMapping.Result result = cached("scalar:" + compiled.getSignature(), compiled.getShape(),
+                    dataVersion, mapping, () -> {
+                        scanned[0] = batch.getRowCount();
+                        return compiled.execute(batch, scanExecutor);
+                    });
+            rowsScanned = scanned[0];
+            rowsMatched = result.getRowsMatched();
+            value = result.getValue();
+            return value;
 
-    /**
-     * 提取字段值
-     */
-    private List<Object> extractFieldValues(List<UniversalChartDataView> data, String fieldName) {
-        return data.stream()
-                .map(item -> getFieldValue(item, fieldName))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * 获取对象字段值（反射方式）
-     */
-    private Object getFieldValue(UniversalChartDataView item, String fieldName) {
-        try {
-            switch (fieldName.toLowerCase()) {
-                case "id":
-                    return item.getId();
-                case "year":
-                    return item.getYear();
-                case "month":
-                    return item.getMonth();
-                case "date":
-                    return item.getDate();
-                case "category":
-                    return item.getCategory();
-                case "channel":
-                    return item.getChannel();
-                case "product":
-                    return item.getProduct();
-                case "region":
-                    return item.getRegion();
-                case "amount":
-                    return item.getAmount();
-                case "quantity":
-                    return item.getQuantity();
-                case "percentage":
-                    return item.getPercentage();
-                case "salesman":
-                    return item.getSalesman();
-                default:
-                    return null;
-            }
         } catch (Exception e) {
+            logger.warn("❌ [数据查询] 查询失败: {}", e.getMessage());
             return null;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            if (chartMetrics != null) {
+                chartMetrics.recordQuery(mapping.getAggregationType(), chartId, elapsed);
+            }
+            RenderProfile.placeholder(placeholder, mapping.getFieldName(), mapping.getFilters(),
+                    mapping.getAggregationType(), rowsScanned, rowsMatched, RenderTrace.sizeOf(value), elapsed);
+            event.end();
+            if (event.shouldCommit()) {
+                event.chartId = chartId;
+                event.placeholder = placeholder;
+                event.fieldName = mapping.getFieldName();
+                event.aggregationType = mapping.getAggregationType();
+                event.rowsScanned = rowsScanned;
+                event.rowsMatched = rowsMatched;
+                event.resultSize = RenderTrace.sizeOf(value);
+                event.commit();
+            }
         }
     }
 
     /**
-     * 应用聚合函数
-     */
-    private Object applyAggregation(List<Object> values, String aggregationType, String dataType) {
-        if (values.isEmpty()) {
-            return getDefaultValue(dataType);
-        }
-
-        switch (aggregationType.toLowerCase()) {
-            case "sum":
-                return values.stream()
-                        .filter(v -> v instanceof Number)
-                        .mapToDouble(v -> ((Number) v).doubleValue())
-                        .sum();
-
-            case "avg":
-                return values.stream()
-                        .filter(v -> v instanceof Number)
-                        .mapToDouble(v -> ((Number) v).doubleValue())
-                        .average()
-                        .orElse(0.0);
-
-            case "count":
-                return values.size();
-
-            case "max":
-                return values.stream()
-                        .filter(v -> v instanceof Number)
-                        .mapToDouble(v -> ((Number) v).doubleValue())
-                        .max()
-                        .orElse(0.0);
-
-            case "min":
-                return values.stream()
-                        .filter(v -> v instanceof Number)
-                        .mapToDouble(v -> ((Number) v).doubleValue())
-                        .min()
-                        .orElse(0.0);
-
-            case "list":
-                return values;
-
-            case "none":
-            default:
-                return values.isEmpty() ? getDefaultValue(dataType) : values.get(0);
-        }
-    }
-
-    /**
-     * 获取数据类型的默认值
+     * 经查询结果缓存执行：同一数据版本内签名相同的查询（可能来自不同图表）只扫描一次
      */
-    private Object getDefaultValue(String dataType) {
-        switch (dataType.toLowerCase()) {
-            case "number":
-                return 0;
-            case "string":
-                return "";
-            case "boolean":
-                return false;
-            case "array":
-                return new ArrayList<>();
-            case "object":
-                return new HashMap<>();
-            default:
-                return null;
+    private <T> T cached(String fingerprint, String shape, long dataVersion, FieldMapping mapping,
+            Supplier<T> query) {
+        if (queryCache == null) {
+            return query.get();
         }
+        return queryCache.get(fingerprint, shape, dataVersion, mapping.getCacheTtlSeconds(), query);
     }
 
     /**
@@ -534,7 +679,7 @@ public class PlaceholderMappingManager {
         mappings.put("${chart_type}", chartTypeMapping);
 
         configureMappings(chartId, mappings);
-        System.out.println("✅ [映射管理] 张三和李四销售业绩折线图映射关系配置完成");
+        logger.info("✅ [映射管理] 张三和李四销售业绩折线图映射关系配置完成");
     }
 
     /**
@@ -573,7 +718,7 @@ public class PlaceholderMappingManager {
         mappings.put("${smooth_style}", smoothMapping);
 
         configureMappings(chartId, mappings);
-        System.out.println("✅ [映射管理] 平滑折线图映射关系配置完成");
+        logger.info("✅ [映射管理] 平滑折线图映射关系配置完成");
     }
 
     /**
@@ -634,15 +779,15 @@ public class PlaceholderMappingManager {
         mappings.put("${stack_group}", stackGroupMapping);
 
         configureMappings(chartId, mappings);
-        System.out.println("✅ [映射管理] 堆叠折线图映射关系配置完成");
+        logger.info("✅ [映射管理] 堆叠折线图映射关系配置完成");
     }
 
     /**
      * 获取所有映射配置列表
      */
     public List<Map<String, Object>> getAllMappingConfigurations() {
-        System.out.println("📋 [映射管理] 开始获取所有映射配置列表...");
-        System.out.println("📊 [映射管理] 当前映射存储中的图表数量: " + mappingStore.size());
+        logger.debug("📋 [映射管理] 开始获取所有映射配置列表...");
+        logger.debug("📊 [映射管理] 当前映射存储中的图表数量: {}", mappingStore.size());
 
         List<Map<String, Object>> configList = new ArrayList<>();
         int instanceId = 1; // 自增实例ID
@@ -651,7 +796,7 @@ public class PlaceholderMappingManager {
             String chartId = entry.getKey();
             Map<String, FieldMapping> mappings = entry.getValue();
 
-            System.out.println("🔍 [映射管理] 处理图表: " + chartId + ", 映射数量: " + mappings.size());
+            logger.debug("🔍 [映射管理] 处理图表: {}, 映射数量: {}", chartId, mappings.size());
 
             String chartType = getChartTypeFromId(chartId);
             String chartName = getChartNameFromId(chartId);
@@ -660,12 +805,8 @@ public class PlaceholderMappingManager {
             String joltSpecFile = getJoltSpecFileFromId(chartId);
             int placeholderCount = getPlaceholderCountForChart(chartId);
 
-            System.out.println("📝 [映射管理] 图表详情 - ID: " + chartId +
-                    ", 类型: " + chartType +
-                    ", 名称: " + chartName +
-                    ", 模板: " + universalTemplate +
-                    ", 规范: " + joltSpecFile +
-                    ", 占位符数: " + placeholderCount);
+            logger.debug("📝 [映射管理] 图表详情 - ID: {}, 类型: {}, 名称: {}, 模板: {}, 规范: {}, 占位符数: {}",
+                    chartId, chartType, chartName, universalTemplate, joltSpecFile, placeholderCount);
 
             // 生成实例名称
             String instanceName = generateInstanceName(chartType, chartName);
@@ -699,7 +840,7 @@ public class PlaceholderMappingManager {
             instanceId++; // 递增实例ID
         }
 
-        System.out.println("✅ [映射管理] 映射配置列表生成完成，共 " + configList.size() + " 条记录");
+        logger.debug("✅ [映射管理] 映射配置列表生成完成，共 {} 条记录", configList.size());
         return configList;
     }
 
@@ -810,7 +951,7 @@ public class PlaceholderMappingManager {
         }
 
         configureMappings(targetChartId, targetMappings);
-        System.out.println("✅ [映射管理] 成功复制映射配置: " + sourceChartId + " -> " + targetChartId);
+        logger.info("✅ [映射管理] 成功复制映射配置: {} -> {}", sourceChartId, targetChartId);
         return true;
     }
 
@@ -823,12 +964,13 @@ public class PlaceholderMappingManager {
         for (String chartId : chartIds) {
             if (mappingStore.containsKey(chartId)) {
                 mappingStore.remove(chartId);
+                mappingVersion.incrementAndGet();
                 deletedCount++;
-                System.out.println("✅ [映射管理] 删除映射配置: " + chartId);
+                logger.info("✅ [映射管理] 删除映射配置: {}", chartId);
             }
         }
 
-        System.out.println("✅ [映射管理] 批量删除完成，共删除 " + deletedCount + " 个配置");
+        logger.info("✅ [映射管理] 批量删除完成，共删除 {} 个配置", deletedCount);
         return deletedCount;
     }
 
@@ -988,12 +1130,12 @@ public class PlaceholderMappingManager {
             Set<String> placeholders = placeholderManager.extractPlaceholdersFromJson(template);
             int actualCount = placeholders.size();
 
-            System.out.println("📊 [占位符计数] 图表 " + chartId + " 实际占位符数量: " + actualCount);
-            System.out.println("📊 [占位符计数] 占位符列表: " + placeholders);
+            logger.debug("📊 [占位符计数] 图表 {} 实际占位符数量: {}", chartId, actualCount);
+            logger.debug("📊 [占位符计数] 占位符列表: {}", placeholders);
 
             return actualCount;
         } catch (Exception e) {
-            System.err.println("❌ [占位符计数] 获取图表 " + chartId + " 占位符数量失败: " + e.getMessage());
+            logger.warn("❌ [占位符计数] 获取图表 {} 占位符数量失败: {}", chartId, e.getMessage());
             // 回退到默认值
             return getDefaultPlaceholderCount(chartId);
         }
@@ -1044,7 +1186,7 @@ public class PlaceholderMappingManager {
         mappings.put("${series_1_data}", seriesDataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化基础柱状图映射关系完成");
+        logger.info("✅ [映射管理] 初始化基础柱状图映射关系完成");
     }
 
     /**
@@ -1075,7 +1217,7 @@ public class PlaceholderMappingManager {
         mappings.put("${series_2_data}", series2DataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化堆叠柱状图映射关系完成");
+        logger.info("✅ [映射管理] 初始化堆叠柱状图映射关系完成");
     }
 
     /**
@@ -1096,7 +1238,7 @@ public class PlaceholderMappingManager {
         mappings.put("${pie_data}", dataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化基础饼图映射关系完成");
+        logger.info("✅ [映射管理] 初始化基础饼图映射关系完成");
     }
 
     /**
@@ -1117,7 +1259,7 @@ public class PlaceholderMappingManager {
         mappings.put("${ring_data}", dataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化环形图映射关系完成");
+        logger.info("✅ [映射管理] 初始化环形图映射关系完成");
     }
 
     /**
@@ -1143,7 +1285,7 @@ public class PlaceholderMappingManager {
         mappings.put("${inner_data}", innerDataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化嵌套饼图映射关系完成");
+        logger.info("✅ [映射管理] 初始化嵌套饼图映射关系完成");
     }
 
     /**
@@ -1169,7 +1311,7 @@ public class PlaceholderMappingManager {
         mappings.put("${radar_data}", dataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化基础雷达图映射关系完成");
+        logger.info("✅ [映射管理] 初始化基础雷达图映射关系完成");
     }
 
     /**
@@ -1195,7 +1337,7 @@ public class PlaceholderMappingManager {
         mappings.put("${gauge_max}", maxMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化基础仪表盘映射关系完成");
+        logger.info("✅ [映射管理] 初始化基础仪表盘映射关系完成");
     }
 
     /**
@@ -1221,7 +1363,7 @@ public class PlaceholderMappingManager {
         mappings.put("${series_1_data}", seriesDataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化面积图映射关系完成");
+        logger.info("✅ [映射管理] 初始化面积图映射关系完成");
     }
 
     /**
@@ -1247,7 +1389,7 @@ public class PlaceholderMappingManager {
         mappings.put("${y_data}", yDataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化散点图映射关系完成");
+        logger.info("✅ [映射管理] 初始化散点图映射关系完成");
     }
 
     /**
@@ -1278,6 +1420,6 @@ public class PlaceholderMappingManager {
         mappings.put("${heat_data}", heatDataMapping);
 
         mappingStore.put(chartId, mappings);
-        System.out.println("✅ [映射管理] 初始化热力图映射关系完成");
+        logger.info("✅ [映射管理] 初始化热力图映射关系完成");
     }
 }
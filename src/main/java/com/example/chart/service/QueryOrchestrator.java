@@ -1,5 +1,6 @@
 package com.example.chart.service;
 
+import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -9,26 +10,41 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.example.chart.model.Mapping;
+import com.example.chart.query.jdbc.JdbcDataSourceAdapter;
 
 /**
  * 查询编排层：基于映射定义，将扁平数据聚合/分组/透视为占位符值。
- * 现阶段使用内存模拟：从 MappingRelationshipService 的模拟数据生成器推导样例。
+ * 配置了JDBC数据源时，指定了source.table的映射项编译为SQL在数据库中执行（见 JdbcDataSourceAdapter）；
+ * 其余映射项使用内存模拟：从 MappingRelationshipService 的模拟数据生成器推导样例。
  */
 @Service
 public class QueryOrchestrator {
 
+    @Autowired(required = false)
+    private JdbcDataSourceAdapter jdbcAdapter;
+
     /**
-     * 简化：根据 mapping 的 transform/pivot 模拟返回值
-     * 实际接DB时：编译SQL/ORM → rows → 聚合/分组 → 透视
+     * 根据 mapping 的 transform/pivot 返回占位符的值
+     * 接DB时：编译SQL → 数据库中过滤/分组/聚合 → 流式读取结果；否则按样例模拟
      */
     public Map<String, Object> run(String chartId, Mapping mapping, Map<String, Object> sampleUniverse) {
         Map<String, Object> values = new HashMap<>();
+        boolean jdbcEnabled = jdbcAdapter != null && jdbcAdapter.isEnabled();
 
         for (Mapping.Item item : mapping.getItems()) {
             String ph = item.getPlaceholder();
+            if (jdbcEnabled && item.getSource() != null && item.getSource().getTable() != null) {
+                try {
+                    values.put(ph, jdbcAdapter.query(item));
+                } catch (SQLException e) {
+                    throw new IllegalStateException("数据库查询失败: " + ph + " - " + e.getMessage(), e);
+                }
+                continue;
+            }
             switch (item.getDataType()) {
                 case "string":
                 case "number":
@@ -0,0 +1,281 @@
+package com.example.chart.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.example.chart.config.ChartConfigProperties;
+
+/**
+ * 渲染结果缓存
+ * 缓存最终ECharts配置的JSON字节，并在后台线程中预先生成gzip/deflate压缩版本，
+ * 请求线程只做字节拷贝，不再重复序列化和压缩
+ */
+@Service
+public class RenderedOutputCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderedOutputCache.class);
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    // chartId -> 缓存条目，按访问顺序淘汰
+    private final Map<String, Entry> entries = Collections.synchronizedMap(
+            new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > chartConfigProperties.getRender().getCache().getMaxEntries();
+                }
+            });
+
+    // 压缩在独立的后台线程中执行，每次缓存填充只压缩一次
+    private final ExecutorService compressionExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "render-cache-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong compressedServes = new AtomicLong();
+    private final AtomicLong compressions = new AtomicLong();
+
+    /**
+     * 缓存条目：原始字节 + 预压缩字节
+     */
+    public static class Entry {
+        private final String chartId;
+        private final String version;
+        private final byte[] raw;
+        private final String etag;
+        private volatile byte[] gzip;
+        private volatile byte[] deflate;
+
+        Entry(String chartId, String version, byte[] raw) {
+            this.chartId = chartId;
+            this.version = version;
+            this.raw = raw;
+            this.etag = computeEtag(raw);
+        }
+
+        public String getChartId() {
+            return chartId;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public byte[] getRaw() {
+            return raw;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * 指定编码的响应体对应的强ETag：压缩版本的字节不同，在原始ETag后加编码后缀
+         *
+         * @param encoding gzip、deflate，或null表示原始字节
+         */
+        public String getEtag(String encoding) {
+            if ("gzip".equals(encoding)) {
+                return etag.substring(0, etag.length() - 1) + "-gz\"";
+            }
+            if ("deflate".equals(encoding)) {
+                return etag.substring(0, etag.length() - 1) + "-df\"";
+            }
+            return etag;
+        }
+
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        public byte[] getDeflate() {
+            return deflate;
+        }
+
+        /**
+         * 两种压缩版本都已生成（compress先发布deflate再发布gzip）
+         */
+        public boolean isCompressed() {
+            return gzip != null;
+        }
+    }
+
+    /**
+     * 按版本获取缓存条目，版本不一致视为未命中
+     */
+    public Entry get(String chartId, String version) {
+        if (!chartConfigProperties.getRender().getCache().isEnabled()) {
+            return null;
+        }
+        Entry entry = entries.get(chartId);
+        if (entry != null && entry.version.equals(version)) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * 写入缓存，超过阈值的内容在后台线程中压缩
+     */
+    public Entry put(String chartId, String version, byte[] raw) {
+        Entry entry = new Entry(chartId, version, raw);
+        if (!chartConfigProperties.getRender().getCache().isEnabled()) {
+            return entry;
+        }
+        entries.put(chartId, entry);
+
+        if (raw.length >= chartConfigProperties.getRender().getCache().getCompressionMinBytes()) {
+            try {
+                compressionExecutor.execute(() -> compress(entry));
+            } catch (RejectedExecutionException e) {
+                logger.debug("压缩任务被拒绝（服务关闭中）: {}", chartId);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * 使指定图表的缓存失效
+     */
+    public void invalidate(String chartId) {
+        entries.remove(chartId);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * 记录一次压缩版本的响应
+     */
+    public void recordCompressedServe() {
+        compressedServes.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 获取缓存统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        long rawBytes = 0;
+        long gzipBytes = 0;
+        int compressedEntries = 0;
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                rawBytes += entry.raw.length;
+                byte[] gz = entry.gzip;
+                if (gz != null) {
+                    gzipBytes += gz.length;
+                    compressedEntries++;
+                }
+            }
+            stats.put("entries", entries.size());
+        }
+        stats.put("compressedEntries", compressedEntries);
+        stats.put("rawBytes", rawBytes);
+        stats.put("gzipBytes", gzipBytes);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("compressions", compressions.get());
+        stats.put("compressedServes", compressedServes.get());
+        stats.put("compressionMinBytes", chartConfigProperties.getRender().getCache().getCompressionMinBytes());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compressionExecutor.shutdownNow();
+    }
+
+    private void compress(Entry entry) {
+        int level = chartConfigProperties.getRender().getCache().getCompressionLevel();
+        try {
+            // 两种压缩都成功后才发布：先deflate后gzip，看到gzip时deflate一定可用
+            byte[] gz = gzip(entry.raw, level);
+            byte[] df = deflate(entry.raw, level);
+            entry.deflate = df;
+            entry.gzip = gz;
+            compressions.incrementAndGet();
+            logger.debug("🗜️ [渲染缓存] {} 压缩完成: {} -> {} 字节", entry.chartId, entry.raw.length, gz.length);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("⚠️ [渲染缓存] {} 压缩失败: {}", entry.chartId, e.getMessage());
+        }
+    }
+
+    private static byte[] gzip(byte[] raw, int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            gz.write(raw);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw, int level) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        Deflater deflater = new Deflater(level);
+        try (DeflaterOutputStream df = new DeflaterOutputStream(out, deflater, 8192)) {
+            df.write(raw);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    private static String computeEtag(byte[] raw) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(raw);
+            StringBuilder sb = new StringBuilder("\"");
+            for (int i = 0; i < 12; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            return "\"" + Integer.toHexString(java.util.Arrays.hashCode(raw)) + "\"";
+        }
+    }
+}
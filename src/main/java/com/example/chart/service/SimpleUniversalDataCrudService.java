@@ -1,22 +1,30 @@
 package com.example.chart.service;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.query.ColumnBatch;
+import com.example.chart.store.ColumnTable;
+import com.example.chart.store.ColumnTable.Column;
+import com.example.chart.store.DataStoreJournal;
+import com.example.chart.store.RecordStore;
 
 /**
  * 简化的UniversalChartDataView CRUD服务
@@ -30,14 +38,29 @@ public class SimpleUniversalDataCrudService {
 
     private static final Logger logger = LoggerFactory.getLogger(SimpleUniversalDataCrudService.class);
 
-    // 内存存储
-    private final Map<Long, UniversalChartDataView> dataStore = new ConcurrentHashMap<>();
+    // 记录存储：按ID有序，保证遍历顺序稳定并支持游标分页；恢复时底层映射列式快照
+    private final RecordStore dataStore = new RecordStore();
     private final AtomicLong idGenerator = new AtomicLong(1);
 
+    // 数据版本号：每次写操作递增，供下游缓存判断数据是否变化
+    private final AtomicLong dataVersion = new AtomicLong();
+
+    // 当前数据版本的列向量批次，按版本号惰性重建
+    private volatile VersionedBatch columnBatch;
+    private final Object batchLock = new Object();
+
+    @Autowired
+    private DataStoreJournal journal;
+
     @PostConstruct
-    public void initialize() {
+    public void initialize() throws IOException {
+        if (journal != null && journal.recover(new JournalAccess())) {
+            dataVersion.incrementAndGet();
+            logger.info("✅ 简化数据CRUD服务初始化完成，从持久化存储恢复了 {} 条数据", count());
+            return;
+        }
         generateSampleData();
-        logger.info("✅ 简化数据CRUD服务初始化完成，生成了 {} 条示例数据", dataStore.size());
+        logger.info("✅ 简化数据CRUD服务初始化完成，生成了 {} 条示例数据", count());
     }
 
     /**
@@ -57,8 +80,9 @@ public class SimpleUniversalDataCrudService {
         Random random = new Random();
 
         // 1. 首先生成张三和李四2025年的专门数据（12个月，每月1条）
-        generateSpecificSalesData("张三", "2025", categories, channels, products, regions, random);
-        generateSpecificSalesData("李四", "2025", categories, channels, products, regions, random);
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        generateSpecificSalesData("张三", "2025", categories, channels, products, regions, random, commits);
+        generateSpecificSalesData("李四", "2025", categories, channels, products, regions, random, commits);
 
         // 2. 生成其他通用测试数据
         for (int i = 0; i < 40; i++) {
@@ -97,10 +121,14 @@ public class SimpleUniversalDataCrudService {
             data.setCreatedAt(LocalDateTime.now().minusDays(random.nextInt(30)));
             data.setUpdatedAt(LocalDateTime.now());
 
-            dataStore.put(data.getId(), data);
+            commits.add(putRecord(data));
         }
-
-        logger.info("✅ 生成了 {} 条示例数据，包含张三和李四2025年专门数据", dataStore.size());
+        try {
+            awaitDurable(commits);
+        } finally {
+            dataVersion.incrementAndGet();
+        }
+        logger.info("✅ 生成了 {} 条示例数据，包含张三和李四2025年专门数据", count());
 
         // 输出分布统计用于验证
         logDataDistribution();
@@ -111,7 +139,8 @@ public class SimpleUniversalDataCrudService {
      * 为特定销售人员生成2025年的月度销售数据
      */
     private void generateSpecificSalesData(String salesman, String year, String[] categories,
-            String[] channels, String[] products, String[] regions, Random random) {
+            String[] channels, String[] products, String[] regions, Random random,
+            List<CompletableFuture<Void>> commits) {
         for (int month = 1; month <= 12; month++) {
             UniversalChartDataView data = new UniversalChartDataView();
 
@@ -148,7 +177,7 @@ public class SimpleUniversalDataCrudService {
             data.setCreatedAt(LocalDateTime.now().minusDays(random.nextInt(30)));
             data.setUpdatedAt(LocalDateTime.now());
 
-            dataStore.put(data.getId(), data);
+            commits.add(putRecord(data));
         }
 
         logger.info("✅ 为销售人员 {} 生成了 {} 年的12个月销售数据", salesman, year);
@@ -199,16 +228,10 @@ public class SimpleUniversalDataCrudService {
      */
     private void logDataDistribution() {
         // 年份分布
-        Map<String, Long> yearDistribution = dataStore.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        UniversalChartDataView::getYear,
-                        java.util.stream.Collectors.counting()));
+        Map<String, Long> yearDistribution = dataStore.countBy(Column.YEAR, UniversalChartDataView::getYear);
 
         // 地区分布
-        Map<String, Long> regionDistribution = dataStore.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        UniversalChartDataView::getRegion,
-                        java.util.stream.Collectors.counting()));
+        Map<String, Long> regionDistribution = dataStore.countBy(Column.REGION, UniversalChartDataView::getRegion);
 
         logger.info("📊 年份分布: {}", yearDistribution);
         logger.info("📊 地区分布: {}", regionDistribution);
@@ -219,17 +242,15 @@ public class SimpleUniversalDataCrudService {
      */
     private void logSalesmanDataDistribution() {
         // 销售人员分布
-        Map<String, Long> salesmanDistribution = dataStore.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        UniversalChartDataView::getSalesman,
-                        java.util.stream.Collectors.counting()));
+        Map<String, Long> salesmanDistribution = dataStore.countBy(Column.SALESMAN,
+                UniversalChartDataView::getSalesman);
 
         // 张三和李四2025年数据统计
-        long zhangsan2025Count = dataStore.values().stream()
+        long zhangsan2025Count = dataStore.stream()
                 .filter(data -> "张三".equals(data.getSalesman()) && "2025".equals(data.getYear()))
                 .count();
 
-        long lisi2025Count = dataStore.values().stream()
+        long lisi2025Count = dataStore.stream()
                 .filter(data -> "李四".equals(data.getSalesman()) && "2025".equals(data.getYear()))
                 .count();
 
@@ -254,13 +275,97 @@ public class SimpleUniversalDataCrudService {
         return colors[new Random().nextInt(colors.length)];
     }
 
+    /**
+     * 写入存储并维护记录数（启用持久化时先记录预写日志，落盘后才修改内存）
+     */
+    private CompletableFuture<Void> putRecord(UniversalChartDataView data) {
+        if (journal == null) {
+            applyPut(data);
+            return null;
+        }
+        return journal.put(data, () -> applyPut(data));
+    }
+
+    private void applyPut(UniversalChartDataView data) {
+        dataStore.put(data);
+    }
+
+    private void applyClear() {
+        dataStore.clear();
+        idGenerator.set(1);
+    }
+
+    /**
+     * 等待预写日志落盘
+     */
+    private void awaitDurable(CompletableFuture<Void> commit) {
+        if (journal != null && commit != null) {
+            journal.await(commit);
+        }
+    }
+
+    /**
+     * 等待一批写入全部落盘；写入失败后日志会丢弃未提交的部分继续写入，因此不能只等待最后一条
+     */
+    private void awaitDurable(List<CompletableFuture<Void>> commits) {
+        if (journal != null && !commits.isEmpty()) {
+            journal.await(CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0])));
+        }
+    }
+
+    /**
+     * 供预写日志恢复和快照使用的存储访问
+     */
+    private class JournalAccess implements DataStoreJournal.StoreAccess {
+
+        @Override
+        public void applyPut(UniversalChartDataView data) {
+            SimpleUniversalDataCrudService.this.applyPut(data);
+            idGenerator.accumulateAndGet(data.getId() + 1, Math::max);
+        }
+
+        @Override
+        public void applyDelete(long id) {
+            dataStore.remove(id);
+        }
+
+        @Override
+        public void attachBase(ColumnTable base) {
+            dataStore.attachBase(base);
+        }
+
+        @Override
+        public void applyClear() {
+            SimpleUniversalDataCrudService.this.applyClear();
+        }
+
+        @Override
+        public void restoreIdGenerator(long nextId) {
+            idGenerator.accumulateAndGet(nextId, Math::max);
+        }
+
+        @Override
+        public long currentIdGenerator() {
+            return idGenerator.get();
+        }
+
+        @Override
+        public List<UniversalChartDataView> copyRecords() {
+            return findAll();
+        }
+    }
+
     // ==================== CRUD 操作 ====================
 
     /**
      * 获取所有数据
      */
     public List<UniversalChartDataView> findAll() {
-        return new ArrayList<>(dataStore.values());
+        List<UniversalChartDataView> result = new ArrayList<>((int) Math.min(count(), Integer.MAX_VALUE - 8));
+        for (UniversalChartDataView data : dataStore.values()) {
+            result.add(data);
+        }
+        return result;
     }
 
     /**
@@ -274,24 +379,87 @@ public class SimpleUniversalDataCrudService {
      * 保存数据（新增或更新）
      */
     public UniversalChartDataView save(UniversalChartDataView data) {
+        LocalDateTime now = LocalDateTime.now();
         if (data.getId() == null) {
             // 新增
             data.setId(idGenerator.getAndIncrement());
-            data.setCreatedAt(LocalDateTime.now());
+            data.setCreatedAt(now);
         }
-        data.setUpdatedAt(LocalDateTime.now());
-
-        dataStore.put(data.getId(), data);
-        logger.info("💾 保存数据记录: ID={}", data.getId());
+        data.setUpdatedAt(now);
+
+        CompletableFuture<Void> commit = putRecord(data);
+        try {
+            awaitDurable(commit);
+        } finally {
+            // 落盘并应用到内存之后再递增，读到新版本号的查询一定能看到这次写入
+            dataVersion.incrementAndGet();
+        }
+        logger.debug("💾 保存数据记录: ID={}", data.getId());
         return data;
     }
 
+    /**
+     * 批量保存数据
+     * 整批共用一个时间戳，ID一次性分配，数据版本只递增一次
+     */
+    public int saveAll(List<UniversalChartDataView> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        int newRecords = 0;
+        long maxExplicitId = 0;
+        for (UniversalChartDataView data : batch) {
+            if (data.getId() == null) {
+                newRecords++;
+            } else {
+                maxExplicitId = Math.max(maxExplicitId, data.getId());
+            }
+        }
+        // 显式ID可能超过当前生成器，先推进生成器避免后续新增冲突
+        if (maxExplicitId > 0) {
+            final long floor = maxExplicitId + 1;
+            idGenerator.accumulateAndGet(floor, Math::max);
+        }
+        long nextId = idGenerator.getAndAdd(newRecords);
+
+        List<CompletableFuture<Void>> commits = new ArrayList<>(batch.size());
+        for (UniversalChartDataView data : batch) {
+            if (data.getId() == null) {
+                data.setId(nextId++);
+                data.setCreatedAt(now);
+            } else if (data.getCreatedAt() == null) {
+                data.setCreatedAt(now);
+            }
+            data.setUpdatedAt(now);
+            commits.add(putRecord(data));
+        }
+
+        try {
+            // 整批只等待一次落盘
+            awaitDurable(commits);
+        } finally {
+            // 部分写入失败时已落盘的记录仍然可见，版本号同样需要递增
+            dataVersion.incrementAndGet();
+        }
+        logger.debug("💾 批量保存数据记录: {} 条", batch.size());
+        return batch.size();
+    }
+
     /**
      * 删除数据
      */
     public boolean deleteById(Long id) {
-        UniversalChartDataView removed = dataStore.remove(id);
-        if (removed != null) {
+        boolean[] removed = new boolean[1];
+        Runnable apply = () -> removed[0] = dataStore.remove(id);
+        if (journal != null) {
+            awaitDurable(journal.delete(id, () -> dataStore.contains(id), apply));
+        } else {
+            apply.run();
+        }
+        if (removed[0]) {
+            dataVersion.incrementAndGet();
             logger.info("🗑️ 删除数据记录: ID={}", id);
             return true;
         }
@@ -316,7 +484,7 @@ public class SimpleUniversalDataCrudService {
      * 根据分类查询
      */
     public List<UniversalChartDataView> findByCategory(String category) {
-        return dataStore.values().stream()
+        return dataStore.stream()
                 .filter(data -> category.equals(data.getCategory()))
                 .collect(java.util.stream.Collectors.toList());
     }
@@ -325,7 +493,7 @@ public class SimpleUniversalDataCrudService {
      * 根据渠道查询
      */
     public List<UniversalChartDataView> findByChannel(String channel) {
-        return dataStore.values().stream()
+        return dataStore.stream()
                 .filter(data -> channel.equals(data.getChannel()))
                 .collect(java.util.stream.Collectors.toList());
     }
@@ -334,7 +502,7 @@ public class SimpleUniversalDataCrudService {
      * 根据年份查询
      */
     public List<UniversalChartDataView> findByYear(String year) {
-        return dataStore.values().stream()
+        return dataStore.stream()
                 .filter(data -> year.equals(data.getYear()))
                 .collect(java.util.stream.Collectors.toList());
     }
@@ -343,7 +511,7 @@ public class SimpleUniversalDataCrudService {
      * 根据地区查询
      */
     public List<UniversalChartDataView> findByRegion(String region) {
-        return dataStore.values().stream()
+        return dataStore.stream()
                 .filter(data -> region.equals(data.getRegion()))
                 .collect(java.util.stream.Collectors.toList());
     }
@@ -352,7 +520,7 @@ public class SimpleUniversalDataCrudService {
      * 组合条件查询（年份和地区筛选）
      */
     public List<UniversalChartDataView> findWithFilters(String year, String region) {
-        return dataStore.values().stream()
+        return dataStore.stream()
                 .filter(data -> {
                     boolean matchYear = (year == null || year.trim().isEmpty()) || year.equals(data.getYear());
                     boolean matchRegion = (region == null || region.trim().isEmpty())
@@ -364,17 +532,49 @@ public class SimpleUniversalDataCrudService {
 
     /**
      * 分页查询
+     * 按ID顺序跳过前面的记录，不复制整个存储
      */
     public List<UniversalChartDataView> findWithPagination(int page, int size) {
-        List<UniversalChartDataView> allData = findAll();
-        int start = page * size;
-        int end = Math.min(start + size, allData.size());
+        List<UniversalChartDataView> result = new ArrayList<>(Math.max(0, Math.min(size, 1000)));
+        if (page < 0 || size <= 0) {
+            return result;
+        }
+        long skip = (long) page * size;
+        Iterator<UniversalChartDataView> iterator = dataStore.values().iterator();
+        while (skip > 0 && iterator.hasNext()) {
+            iterator.next();
+            skip--;
+        }
+        while (result.size() < size && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
 
-        if (start >= allData.size()) {
-            return new ArrayList<>();
+    /**
+     * 游标分页：返回ID大于afterId的前limit条记录（按ID升序）
+     * afterId为空时从头开始
+     */
+    public List<UniversalChartDataView> findAfter(Long afterId, int limit) {
+        List<UniversalChartDataView> result = new ArrayList<>(Math.max(0, Math.min(limit, 1000)));
+        if (limit <= 0) {
+            return result;
+        }
+        for (UniversalChartDataView data : recordsAfter(afterId)) {
+            result.add(data);
+            if (result.size() >= limit) {
+                break;
+            }
         }
+        return result;
+    }
 
-        return allData.subList(start, end);
+    /**
+     * 按ID升序遍历afterId之后的记录，用于流式导出
+     * 迭代器是弱一致的，遍历期间的并发写入不会抛出异常
+     */
+    public Iterable<UniversalChartDataView> recordsAfter(Long afterId) {
+        return dataStore.tail(afterId);
     }
 
     /**
@@ -384,12 +584,68 @@ public class SimpleUniversalDataCrudService {
         return dataStore.size();
     }
 
+    /**
+     * 获取数据版本号（每次写操作后递增）
+     */
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * 当前数据的列向量批次（映射查询使用）
+     * 同一数据版本内复用，并发请求只构建一次；先读版本号再取切点构建，构建期间发生写入时下次调用会再更新。
+     * 两次构建之间只有ID递增的新增记录时，在上一个批次后追加这些记录，否则完整重建；
+     * 底层映射表的行直接从列缓冲区复制，不还原为数据对象
+     */
+    public ColumnBatch getColumnBatch() {
+        VersionedBatch current = columnBatch;
+        long version = dataVersion.get();
+        if (current != null && current.version >= version) {
+            return current.batch;
+        }
+        synchronized (batchLock) {
+            current = columnBatch;
+            if (current != null && current.version >= version) {
+                return current.batch;
+            }
+            RecordStore.Cut cut = dataStore.cut();
+            ColumnBatch batch;
+            if (current != null && cut.isAppendOnlySince(current.cut)) {
+                ColumnBatch.Builder builder = current.batch.extend();
+                dataStore.scanAppended(current.cut, cut, builder);
+                batch = builder.build();
+            } else {
+                ColumnBatch.Builder builder = new ColumnBatch.Builder((int) Math.min(count(), Integer.MAX_VALUE - 8));
+                dataStore.scan(cut, builder);
+                batch = builder.build();
+            }
+            columnBatch = new VersionedBatch(version, batch, cut);
+            return batch;
+        }
+    }
+
+    private static final class VersionedBatch {
+        private final long version;
+        private final ColumnBatch batch;
+        private final RecordStore.Cut cut;
+
+        VersionedBatch(long version, ColumnBatch batch, RecordStore.Cut cut) {
+            this.version = version;
+            this.batch = batch;
+            this.cut = cut;
+        }
+    }
+
     /**
      * 清空所有数据
      */
     public void deleteAll() {
-        dataStore.clear();
-        idGenerator.set(1);
+        if (journal != null) {
+            awaitDurable(journal.clear(this::applyClear));
+        } else {
+            applyClear();
+        }
+        dataVersion.incrementAndGet();
         logger.info("🗑️ 清空所有数据记录");
     }
 
@@ -399,7 +655,7 @@ public class SimpleUniversalDataCrudService {
     public void regenerateSampleData() {
         deleteAll();
         generateSampleData();
-        logger.info("🔄 重新生成示例数据: {} 条", dataStore.size());
+        logger.info("🔄 重新生成示例数据: {} 条", count());
     }
 
     /**
@@ -409,28 +665,19 @@ public class SimpleUniversalDataCrudService {
         Map<String, Object> stats = new HashMap<>();
 
         // 基本统计
-        stats.put("totalRecords", dataStore.size());
+        stats.put("totalRecords", count());
         stats.put("totalFields", 12);
 
         // 分类分布
-        Map<String, Long> categoryStats = dataStore.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        UniversalChartDataView::getCategory,
-                        java.util.stream.Collectors.counting()));
+        Map<String, Long> categoryStats = dataStore.countBy(Column.CATEGORY, UniversalChartDataView::getCategory);
         stats.put("categoryDistribution", categoryStats);
 
         // 渠道分布
-        Map<String, Long> channelStats = dataStore.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        UniversalChartDataView::getChannel,
-                        java.util.stream.Collectors.counting()));
+        Map<String, Long> channelStats = dataStore.countBy(Column.CHANNEL, UniversalChartDataView::getChannel);
         stats.put("channelDistribution", channelStats);
 
         // 地区分布
-        Map<String, Long> regionStats = dataStore.values().stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                        UniversalChartDataView::getRegion,
-                        java.util.stream.Collectors.counting()));
+        Map<String, Long> regionStats = dataStore.countBy(Column.REGION, UniversalChartDataView::getRegion);
         stats.put("regionDistribution", regionStats);
 
         return stats;
@@ -6,10 +6,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import com.example.chart.model.TemplateType;
+import com.example.chart.model.echarts.EChartsOption;
+import com.example.chart.model.echarts.EChartsSeries;
 
 /**
  * 智能转换引擎
@@ -18,6 +22,8 @@ import com.example.chart.model.TemplateType;
 @Service
 public class SmartTransformationEngine {
 
+    private static final Logger logger = LoggerFactory.getLogger(SmartTransformationEngine.class);
+
     @Autowired
     private CategoryTemplateFactory templateFactory;
 
@@ -25,12 +31,12 @@ public class SmartTransformationEngine {
      * 第一阶段：语义化转换（新版本 - 使用分类模板）
      * 根据图表类型选择对应的分类模板并转换为ECharts结构
      */
-    public Map<String, Object> semanticTransformWithCategory(String chartType, Map<String, Object> universalTemplate) {
-        System.out.println("🔄 使用分类模板进行语义转换，图表类型: " + chartType);
+    public EChartsOption semanticTransformWithCategory(String chartType, Map<String, Object> universalTemplate) {
+        logger.debug("🔄 使用分类模板进行语义转换，图表类型: {}", chartType);
 
         // 推断模板类型
         TemplateType templateType = TemplateType.inferFromChartType(chartType);
-        System.out.println("📋 推断的模板类型: " + templateType);
+        logger.debug("📋 推断的模板类型: {}", templateType);
 
         // 根据模板类型进行转换
         switch (templateType) {
@@ -340,222 +346,185 @@ public class SmartTransformationEngine {
     /**
      * 转换直角坐标系图表（折线图、柱状图）
      */
-    private Map<String, Object> transformCartesianChart(Map<String, Object> universalTemplate, String chartType) {
-        Map<String, Object> echarts = new HashMap<>();
+    private EChartsOption transformCartesianChart(Map<String, Object> universalTemplate, String chartType) {
+        EChartsOption.Builder echarts = EChartsOption.builder();
 
         // 处理图表信息
-        @SuppressWarnings("unchecked")
-        Map<String, Object> chart = (Map<String, Object>) universalTemplate.get("chart");
+        Map<?, ?> chart = asMap(universalTemplate.get("chart"));
         if (chart != null) {
-            Map<String, Object> title = new HashMap<>();
-            title.put("text", chart.get("title"));
-            echarts.put("title", title);
+            echarts.title(new EChartsOption.Title(chart.get("title")));
         }
 
         // 处理坐标系
-        @SuppressWarnings("unchecked")
-        Map<String, Object> coordinates = (Map<String, Object>) universalTemplate.get("coordinates");
+        Map<?, ?> coordinates = asMap(universalTemplate.get("coordinates"));
         if (coordinates != null) {
-            echarts.put("xAxis", coordinates.get("xAxis"));
-            echarts.put("yAxis", coordinates.get("yAxis"));
+            echarts.xAxis(EChartsOption.Axis.fromTemplate(asMap(coordinates.get("xAxis"))));
+            echarts.yAxis(EChartsOption.Axis.fromTemplate(asMap(coordinates.get("yAxis"))));
         }
 
         // 处理数据系列
-        @SuppressWarnings("unchecked")
-        Map<String, Object> data = (Map<String, Object>) universalTemplate.get("data");
-        if (data != null) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> universalSeries = (List<Map<String, Object>>) data.get("series");
-            if (universalSeries != null) {
-                List<Map<String, Object>> echartsSeriesList = new ArrayList<>();
-                List<String> legendData = new ArrayList<>();
-
-                for (Map<String, Object> item : universalSeries) {
-                    Map<String, Object> series = new HashMap<>();
-                    series.put("name", item.get("name"));
-                    series.put("data", item.get("data"));
-
-                    // 根据图表类型设置系列类型
-                    if (chartType.contains("line")) {
-                        series.put("type", "line");
-                        if (item.get("smooth") != null) {
-                            series.put("smooth", item.get("smooth"));
-                        }
-                    } else if (chartType.contains("bar")) {
-                        series.put("type", "bar");
-                    }
-
-                    // 处理堆叠
-                    if (item.get("stack") != null) {
-                        series.put("stack", item.get("stack"));
-                    }
-
-                    echartsSeriesList.add(series);
-                    legendData.add((String) item.get("name"));
+        List<?> universalSeries = templateSeries(universalTemplate);
+        if (universalSeries != null) {
+            String seriesType = chartType.contains("line") ? "line" : chartType.contains("bar") ? "bar" : null;
+            List<EChartsSeries> echartsSeriesList = new ArrayList<>(universalSeries.size());
+            List<Object> legendData = new ArrayList<>(universalSeries.size());
+
+            for (Object element : universalSeries) {
+                Map<?, ?> item = asMap(element);
+                if (item == null) {
+                    continue;
+                }
+                EChartsSeries.Cartesian.Builder series = EChartsSeries.cartesian(seriesType)
+                        .name(item.get("name"))
+                        .data(item.get("data"))
+                        // 处理堆叠
+                        .stack(item.get("stack"));
+
+                // 平滑仅对折线图有效
+                if ("line".equals(seriesType)) {
+                    series.smooth(item.get("smooth"));
                 }
 
-                echarts.put("series", echartsSeriesList);
-
-                // 图例
-                Map<String, Object> legend = new HashMap<>();
-                legend.put("data", legendData);
-                legend.put("show", true);
-                echarts.put("legend", legend);
+                echartsSeriesList.add(series.build());
+                legendData.add(item.get("name"));
             }
+
+            echarts.series(echartsSeriesList);
+
+            // 图例
+            echarts.legend(new EChartsOption.Legend(legendData, true));
         }
 
         // 处理布局
         addDefaultLayout(echarts, universalTemplate);
 
-        return echarts;
+        return echarts.build();
     }
 
     /**
      * 转换饼图
      */
-    private Map<String, Object> transformPieChart(Map<String, Object> universalTemplate, String chartType) {
-        Map<String, Object> echarts = new HashMap<>();
+    private EChartsOption transformPieChart(Map<String, Object> universalTemplate, String chartType) {
+        EChartsOption.Builder echarts = EChartsOption.builder();
 
         // 处理图表信息
-        @SuppressWarnings("unchecked")
-        Map<String, Object> chart = (Map<String, Object>) universalTemplate.get("chart");
+        Map<?, ?> chart = asMap(universalTemplate.get("chart"));
         if (chart != null) {
-            Map<String, Object> title = new HashMap<>();
-            title.put("text", chart.get("title"));
-            echarts.put("title", title);
+            echarts.title(new EChartsOption.Title(chart.get("title")));
         }
 
         // 处理数据系列
-        @SuppressWarnings("unchecked")
-        Map<String, Object> data = (Map<String, Object>) universalTemplate.get("data");
-        if (data != null) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> universalSeries = (List<Map<String, Object>>) data.get("series");
-            if (universalSeries != null && !universalSeries.isEmpty()) {
-                Map<String, Object> firstSeries = universalSeries.get(0);
-
-                Map<String, Object> series = new HashMap<>();
-                series.put("type", "pie");
-                series.put("radius", firstSeries.get("radius"));
-                series.put("center", firstSeries.get("center"));
-                series.put("data", firstSeries.get("data"));
-
-                echarts.put("series", Arrays.asList(series));
-            }
+        Map<?, ?> firstSeries = firstTemplateSeries(universalTemplate);
+        if (firstSeries != null) {
+            echarts.addSeries(EChartsSeries.pie()
+                    .radius(firstSeries.get("radius"))
+                    .center(firstSeries.get("center"))
+                    .data(firstSeries.get("data"))
+                    .build());
         }
 
         // 处理布局
         addDefaultLayout(echarts, universalTemplate);
 
-        return echarts;
+        return echarts.build();
     }
 
     /**
      * 转换雷达图
      */
-    private Map<String, Object> transformRadarChart(Map<String, Object> universalTemplate, String chartType) {
-        Map<String, Object> echarts = new HashMap<>();
+    private EChartsOption transformRadarChart(Map<String, Object> universalTemplate, String chartType) {
+        EChartsOption.Builder echarts = EChartsOption.builder();
 
         // 处理图表信息
-        @SuppressWarnings("unchecked")
-        Map<String, Object> chart = (Map<String, Object>) universalTemplate.get("chart");
+        Map<?, ?> chart = asMap(universalTemplate.get("chart"));
         if (chart != null) {
-            Map<String, Object> title = new HashMap<>();
-            title.put("text", chart.get("title"));
-            echarts.put("title", title);
+            echarts.title(new EChartsOption.Title(chart.get("title")));
         }
 
         // 处理雷达坐标系
-        @SuppressWarnings("unchecked")
-        Map<String, Object> coordinates = (Map<String, Object>) universalTemplate.get("coordinates");
+        Map<?, ?> coordinates = asMap(universalTemplate.get("coordinates"));
         if (coordinates != null) {
-            echarts.put("radar", coordinates.get("radar"));
+            echarts.radar(EChartsOption.RadarCoordinate.fromTemplate(asMap(coordinates.get("radar"))));
         }
 
         // 处理数据系列
-        @SuppressWarnings("unchecked")
-        Map<String, Object> data = (Map<String, Object>) universalTemplate.get("data");
-        if (data != null) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> universalSeries = (List<Map<String, Object>>) data.get("series");
-            if (universalSeries != null && !universalSeries.isEmpty()) {
-                Map<String, Object> firstSeries = universalSeries.get(0);
-
-                Map<String, Object> series = new HashMap<>();
-                series.put("type", "radar");
-                series.put("data", firstSeries.get("data"));
-
-                echarts.put("series", Arrays.asList(series));
-            }
+        Map<?, ?> firstSeries = firstTemplateSeries(universalTemplate);
+        if (firstSeries != null) {
+            echarts.addSeries(EChartsSeries.radar()
+                    .data(firstSeries.get("data"))
+                    .build());
         }
 
         // 处理布局
         addDefaultLayout(echarts, universalTemplate);
 
-        return echarts;
+        return echarts.build();
     }
 
     /**
      * 转换仪表盘
      */
-    private Map<String, Object> transformGaugeChart(Map<String, Object> universalTemplate, String chartType) {
-        Map<String, Object> echarts = new HashMap<>();
+    private EChartsOption transformGaugeChart(Map<String, Object> universalTemplate, String chartType) {
+        EChartsOption.Builder echarts = EChartsOption.builder();
 
         // 处理数据系列
-        @SuppressWarnings("unchecked")
-        Map<String, Object> data = (Map<String, Object>) universalTemplate.get("data");
-        if (data != null) {
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> universalSeries = (List<Map<String, Object>>) data.get("series");
-            if (universalSeries != null && !universalSeries.isEmpty()) {
-                Map<String, Object> firstSeries = universalSeries.get(0);
-
-                Map<String, Object> series = new HashMap<>();
-                series.put("type", "gauge");
-                series.put("min", firstSeries.get("min"));
-                series.put("max", firstSeries.get("max"));
-                series.put("data", firstSeries.get("data"));
-                series.put("detail", firstSeries.get("detail"));
-                series.put("pointer", firstSeries.get("pointer"));
-
-                echarts.put("series", Arrays.asList(series));
-            }
+        Map<?, ?> firstSeries = firstTemplateSeries(universalTemplate);
+        if (firstSeries != null) {
+            echarts.addSeries(EChartsSeries.gauge()
+                    .min(firstSeries.get("min"))
+                    .max(firstSeries.get("max"))
+                    .data(firstSeries.get("data"))
+                    .detail(firstSeries.get("detail"))
+                    .pointer(firstSeries.get("pointer"))
+                    .build());
         }
 
         // 处理布局
         addDefaultLayout(echarts, universalTemplate);
 
-        return echarts;
+        return echarts.build();
     }
 
     /**
      * 添加默认布局配置
      */
-    private void addDefaultLayout(Map<String, Object> echarts, Map<String, Object> universalTemplate) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> layout = (Map<String, Object>) universalTemplate.get("layout");
-        if (layout != null) {
-            // 提示框
-            Map<String, Object> tooltip = new HashMap<>();
-            tooltip.put("trigger", "axis");
-            echarts.put("tooltip", tooltip);
-
-            // 工具箱
-            Map<String, Object> toolbox = new HashMap<>();
-            Map<String, Object> feature = new HashMap<>();
-            feature.put("saveAsImage", new HashMap<>());
-            toolbox.put("feature", feature);
-            echarts.put("toolbox", toolbox);
+    private void addDefaultLayout(EChartsOption.Builder echarts, Map<String, Object> universalTemplate) {
+        if (universalTemplate.get("layout") instanceof Map) {
+            // 提示框、工具箱均为不可变共享实例
+            echarts.tooltip(EChartsOption.Tooltip.AXIS);
+            echarts.toolbox(EChartsOption.Toolbox.SAVE_AS_IMAGE);
 
             // 网格（仅直角坐标系）
-            if (echarts.containsKey("xAxis")) {
-                Map<String, Object> grid = new HashMap<>();
-                grid.put("left", "3%");
-                grid.put("right", "4%");
-                grid.put("bottom", "3%");
-                grid.put("containLabel", true);
-                echarts.put("grid", grid);
+            if (echarts.hasXAxis()) {
+                echarts.grid(EChartsOption.Grid.DEFAULT);
             }
         }
     }
+
+    /**
+     * 读取通用模板中的系列列表，结构不符时返回null
+     */
+    private List<?> templateSeries(Map<String, Object> universalTemplate) {
+        Map<?, ?> data = asMap(universalTemplate.get("data"));
+        if (data == null) {
+            return null;
+        }
+        Object series = data.get("series");
+        return series instanceof List ? (List<?>) series : null;
+    }
+
+    /**
+     * 读取通用模板中的第一个系列
+     */
+    private Map<?, ?> firstTemplateSeries(Map<String, Object> universalTemplate) {
+        List<?> series = templateSeries(universalTemplate);
+        if (series == null || series.isEmpty()) {
+            return null;
+        }
+        return asMap(series.get(0));
+    }
+
+    private static Map<?, ?> asMap(Object value) {
+        return value instanceof Map ? (Map<?, ?>) value : null;
+    }
 }
@@ -1,13 +1,15 @@
 package com.example.chart.service;
 
 import com.bazaarvoice.jolt.Chainr;
-import com.bazaarvoice.jolt.JsonUtils;
+import com.example.chart.diagnostics.JoltExecutionEvent;
+import com.example.chart.diagnostics.RenderTrace;
+import com.example.chart.metrics.ChartMetrics;
+import com.example.chart.store.ArtifactStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -19,6 +21,12 @@ public class StackedLineChartValidationService {
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Autowired
+    private ArtifactStore artifactStore;
+
+    @Autowired
+    private ChartMetrics chartMetrics;
+
     /**
      * 模拟数据库查询结果
      * 模拟ORM框架已经完成数据提取的场景
@@ -148,16 +156,22 @@ public class StackedLineChartValidationService {
      * 使用Jolt转换为ECharts配置
      */
     public Map<String, Object> transformWithJolt(Map<String, Object> universalData) throws IOException {
-        // 加载Jolt规范文件
-        ClassPathResource resource = new ClassPathResource("jolt-specs/line-chart-stacked.json");
-        String joltSpecContent = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-        
-        // 解析Jolt规范
-        List<Object> joltSpec = JsonUtils.jsonToList(joltSpecContent);
-        Chainr chainr = Chainr.fromSpec(joltSpec);
+        // 从制品存储获取已编译的Jolt规范
+        Chainr chainr = artifactStore.compiledSpec("stacked_line_chart", "line-chart-stacked.json");
         
         // 执行Jolt转换
+        JoltExecutionEvent event = new JoltExecutionEvent();
+        event.begin();
+        long start = System.nanoTime();
         Object transformedObj = chainr.transform(universalData);
+        chartMetrics.recordJolt("line-chart-stacked.json", "stacked_line_chart", System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.chartId = "stacked_line_chart";
+            event.specFile = "line-chart-stacked.json";
+            event.resultSize = RenderTrace.sizeOf(transformedObj);
+            event.commit();
+        }
         
         return (Map<String, Object>) transformedObj;
     }
@@ -5,9 +5,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -22,6 +25,8 @@ import com.example.chart.repository.model.UniversalTemplateEntity;
 @Service
 public class TemplateService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TemplateService.class);
+
     @Autowired
     private InMemoryUniversalTemplateRepository repository;
 
@@ -31,6 +36,9 @@ public class TemplateService {
     @Autowired
     private CategoryTemplateFactory categoryTemplateFactory;
 
+    // 每次保存或删除模板时递增，渲染结果缓存按此判断模板是否变化
+    private final AtomicLong revision = new AtomicLong();
+
     @PostConstruct
     public void init() {
         // 新设计：只有一个真正通用的模板
@@ -42,7 +50,7 @@ public class TemplateService {
                 "真正通用的语义化图表模板，支持所有图表类型",
                 universalTemplate.toMap()));
 
-        System.out.println("✅ 初始化通用模板完成");
+        logger.info("✅ 初始化通用模板完成");
     }
 
     public Map<String, Object> getTemplateByChartId(String chartId) {
@@ -56,14 +64,14 @@ public class TemplateService {
      * 根据图表类型获取分类模板（新版本）
      */
     public Map<String, Object> getCategoryTemplateByChartId(String chartId) {
-        System.out.println("📋 获取分类模板，图表类型: " + chartId);
+        logger.debug("📋 获取分类模板，图表类型: {}", chartId);
 
         // 使用分类模板工厂创建对应的模板
         Map<String, Object> template = categoryTemplateFactory.createTemplateForChartType(chartId);
 
         // 推断模板类型
         TemplateType templateType = TemplateType.inferFromChartType(chartId);
-        System.out.println("📋 使用模板类型: " + templateType);
+        logger.debug("📋 使用模板类型: {}", templateType);
 
         return template;
     }
@@ -73,11 +81,21 @@ public class TemplateService {
     }
 
     public UniversalTemplateEntity save(UniversalTemplateEntity entity) {
-        return repository.save(entity);
+        UniversalTemplateEntity saved = repository.save(entity);
+        revision.incrementAndGet();
+        return saved;
     }
 
     public void delete(String chartId) {
         repository.deleteById(chartId);
+        revision.incrementAndGet();
+    }
+
+    /**
+     * 模板修订号，每次保存或删除时递增
+     */
+    public long getRevision() {
+        return revision.get();
     }
 
     // 生成基础模板（与旧服务中的模板结构一致，含占位符）
@@ -1,18 +1,23 @@
 package com.example.chart.service;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import com.bazaarvoice.jolt.Chainr;
-import com.bazaarvoice.jolt.JsonUtils;
+import com.example.chart.diagnostics.JoltExecutionEvent;
+import com.example.chart.diagnostics.RenderTrace;
+import com.example.chart.diagnostics.Stage1TransformEvent;
+import com.example.chart.metrics.ChartMetrics;
+import com.example.chart.model.echarts.EChartsOption;
+import com.example.chart.store.ArtifactStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -22,6 +27,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @Service
 public class TwoStageTransformationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TwoStageTransformationService.class);
+
     @Autowired
     private PlaceholderManager placeholderManager;
 
@@ -40,6 +47,12 @@ public class TwoStageTransformationService {
     @Autowired
     private TemplateService templateService;
 
+    @Autowired
+    private ArtifactStore artifactStore;
+
+    @Autowired
+    private ChartMetrics chartMetrics;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -132,10 +145,10 @@ public class TwoStageTransformationService {
      */
     public TransformationResult executeFullTransformation(String chartId, Map<String, Object> universalTemplate) {
         try {
-            System.out.println("=== 开始两阶段转换流程 ===");
+            logger.debug("=== 开始两阶段转换流程 ===");
 
             // 第一阶段：结构转换（保持占位符）
-            System.out.println("第一阶段：执行结构转换...");
+            logger.debug("第一阶段：执行结构转换...");
             TransformationResult stage1Result = executeStage1Transformation(universalTemplate);
 
             if (!stage1Result.isSuccess()) {
@@ -143,17 +156,17 @@ public class TwoStageTransformationService {
             }
 
             // 第二阶段：数据回填（替换占位符）
-            System.out.println("第二阶段：执行数据回填...");
+            logger.debug("第二阶段：执行数据回填...");
             TransformationResult stage2Result = executeStage2Transformation(chartId, stage1Result.getResult());
 
             if (stage2Result.isSuccess()) {
-                System.out.println("✅ 两阶段转换完成");
+                logger.debug("✅ 两阶段转换完成");
             }
 
             return stage2Result;
 
         } catch (Exception e) {
-            System.err.println("两阶段转换失败: " + e.getMessage());
+            logger.error("两阶段转换失败: {}", e.getMessage());
             return new TransformationResult(false, "转换失败: " + e.getMessage(), null);
         }
     }
@@ -162,34 +175,53 @@ public class TwoStageTransformationService {
      * 第一阶段：结构转换（保持占位符）
      */
     public TransformationResult executeStage1Transformation(String chartId, Map<String, Object> universalTemplate) {
+        Stage1TransformEvent event = new Stage1TransformEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        int placeholderCount = 0;
         try {
-            System.out.println("=== 第一阶段转换开始（分类模板语义转换）===");
-            System.out.println("图表类型: " + chartId);
+            logger.debug("=== 第一阶段转换开始（分类模板语义转换）===");
+            logger.debug("图表类型: {}", chartId);
 
             // 提取模板中的占位符
             Set<String> placeholders = placeholderManager.extractPlaceholdersFromJson(universalTemplate);
-            System.out.println("发现占位符: " + placeholders);
+            logger.debug("发现占位符: {}", placeholders);
+            RenderTrace.event("stage1", "模板占位符 {} 个", placeholders.size());
 
             // 使用新的分类模板转换引擎
-            Map<String, Object> structuralResult = smartEngine.semanticTransformWithCategory(chartId,
+            EChartsOption structuralResult = smartEngine.semanticTransformWithCategory(chartId,
                     universalTemplate);
-            System.out.println("使用分类模板转换引擎，根据图表类型自动适配");
+            logger.debug("使用分类模板转换引擎，根据图表类型自动适配");
 
             // 验证转换后占位符是否保持
             Set<String> afterPlaceholders = placeholderManager.extractPlaceholdersFromJson(structuralResult);
-            System.out.println("转换后占位符: " + afterPlaceholders);
+            logger.debug("转换后占位符: {}", afterPlaceholders);
+            RenderTrace.event("stage1", "结构转换完成，保留占位符 {} 个", afterPlaceholders.size());
+            placeholderCount = afterPlaceholders.size();
 
             TransformationResult result = new TransformationResult(true, "第一阶段转换成功", structuralResult);
             result.setPlaceholders(afterPlaceholders);
             result.setUsedJoltSpec("CategoryTemplateEngine"); // 使用分类模板引擎
 
-            System.out.println("=== 第一阶段转换完成 ===");
+            logger.debug("=== 第一阶段转换完成 ===");
+            success = true;
             return result;
 
         } catch (Exception e) {
-            System.err.println("第一阶段转换失败: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("第一阶段转换失败: {}", e.getMessage(), e);
+            RenderTrace.event("stage1", "失败: {}", e.getMessage());
             return new TransformationResult(false, "第一阶段转换失败: " + e.getMessage(), null);
+        } finally {
+            chartMetrics.recordStage(ChartMetrics.STAGE_STRUCTURE, chartId, success, System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.chartId = chartId;
+                event.specFile = "CategoryTemplateEngine";
+                event.placeholderCount = placeholderCount;
+                event.success = success;
+                event.commit();
+            }
         }
     }
 
@@ -201,7 +233,7 @@ public class TwoStageTransformationService {
      */
     @Deprecated
     public TransformationResult executeStage1Transformation(Map<String, Object> universalTemplate) {
-        System.out.println("⚠️ 使用了已废弃的API，默认使用堆叠折线图规范");
+        logger.warn("⚠️ 使用了已废弃的API，默认使用堆叠折线图规范");
         return executeStage1Transformation("stacked_line_chart", universalTemplate);
     }
 
@@ -210,26 +242,27 @@ public class TwoStageTransformationService {
      */
     public TransformationResult executeStage2Transformation(String chartId, Object echartsTemplate) {
         try {
-            System.out.println("=== 第二阶段转换开始（数据回填）===");
-            System.out.println("图表类型: " + chartId);
+            logger.debug("=== 第二阶段转换开始（数据回填）===");
+            logger.debug("图表类型: {}", chartId);
 
             // 提取占位符
             Set<String> placeholders = placeholderManager.extractPlaceholdersFromJson(echartsTemplate);
-            System.out.println("发现占位符: " + placeholders);
+            logger.debug("发现占位符: {}", placeholders);
+            RenderTrace.event("stage2", "待回填占位符 {} 个", placeholders.size());
 
             if (placeholders.isEmpty()) {
-                System.out.println("⚠️ 未发现占位符，直接返回原始配置");
+                logger.debug("⚠️ 未发现占位符，直接返回原始配置");
                 return new TransformationResult(true, "无需数据回填", echartsTemplate);
             }
 
             // 优先尝试使用新的映射管理器
             try {
-                System.out.println("🔄 [两阶段转换] 尝试使用映射管理器进行数据回填...");
+                logger.debug("🔄 [两阶段转换] 尝试使用映射管理器进行数据回填...");
                 PlaceholderMappingManager.MappingResult mappingResult = mappingManager.executeMapping(chartId,
                         echartsTemplate);
 
                 if (mappingResult.isSuccess()) {
-                    System.out.println("✅ [两阶段转换] 映射管理器数据回填成功");
+                    logger.debug("✅ [两阶段转换] 映射管理器数据回填成功");
                     Object finalResult = mappingResult.getData().get("result");
                     Map<String, Object> mappedData = (Map<String, Object>) mappingResult.getData().get("mappedData");
 
@@ -244,31 +277,36 @@ public class TwoStageTransformationService {
                     result.setMappingCoverage(
                             calculateMappingCoverage(placeholders, mappingResult.getUnmappedPlaceholders()));
 
-                    System.out.println("📊 [两阶段转换] 数据来源: " + dataSourceInfo +
-                            ", 映射覆盖率: " + result.getMappingCoverage() + "%");
+                    logger.debug("📊 [两阶段转换] 数据来源: {}, 映射覆盖率: {}%", dataSourceInfo,
+                            result.getMappingCoverage());
+                    RenderTrace.event("stage2", "数据来源: {}, 映射覆盖率: {}%", dataSourceInfo,
+                            result.getMappingCoverage());
                     return result;
                 } else {
-                    System.out.println("⚠️ [两阶段转换] 映射管理器执行失败，回退到传统方式: " + mappingResult.getMessage());
+                    logger.warn("⚠️ [两阶段转换] 映射管理器执行失败，回退到传统方式: {}", mappingResult.getMessage());
+                    RenderTrace.event("stage2", "映射管理器失败，回退到旧映射服务: {}", mappingResult.getMessage());
                 }
             } catch (Exception e) {
-                System.out.println("⚠️ [两阶段转换] 映射管理器异常，回退到传统方式: " + e.getMessage());
+                logger.warn("⚠️ [两阶段转换] 映射管理器异常，回退到传统方式: {}", e.getMessage());
+                RenderTrace.event("stage2", "映射管理器异常，回退到旧映射服务: {}", e.getMessage());
             }
 
             // 回退到传统的映射服务和注册表
             // 检查注册表中是否有激活的映射版本（暂时跳过新映射服务以避免循环依赖）
             var registry = chartRegistryService.get(chartId);
             if (registry.isPresent() && registry.get().getActiveMappingVersion() != null) {
-                System.out.println("📋 检测到注册表中的激活映射版本: " + registry.get().getActiveMappingVersion() + "，但暂时使用旧映射服务");
+                logger.debug("📋 检测到注册表中的激活映射版本: {}，但暂时使用旧映射服务", registry.get().getActiveMappingVersion());
             }
 
             // 回退到旧的映射服务
-            System.out.println("📋 回退到旧映射服务");
+            logger.debug("📋 回退到旧映射服务");
+            long legacyStart = System.nanoTime();
 
             // 初始化映射关系（关键步骤！）
             mappingService.initializeSampleMappings();
-            System.out.println("✅ 映射关系初始化完成");
+            logger.debug("✅ 映射关系初始化完成");
 
-            System.out.println("需要替换的占位符: " + placeholders);
+            logger.debug("需要替换的占位符: {}", placeholders);
 
             // 验证映射关系
             List<String> missingMappings = mappingService.validateMappings(chartId, placeholders);
@@ -278,7 +316,7 @@ public class TwoStageTransformationService {
 
             // 模拟数据库查询
             Map<String, Object> queryResults = mappingService.simulateDataQuery(chartId, placeholders);
-            System.out.println("查询结果: " + queryResults.keySet());
+            logger.debug("查询结果: {}", queryResults.keySet());
 
             // 验证转换前数据
             if (!validateTransformationData(echartsTemplate, queryResults)) {
@@ -290,11 +328,13 @@ public class TwoStageTransformationService {
 
             TransformationResult result = new TransformationResult(true, "第二阶段转换成功", finalResult);
             result.setQueryResults(queryResults);
+            chartMetrics.recordStage(ChartMetrics.STAGE_BACKFILL_LEGACY, chartId, true,
+                    System.nanoTime() - legacyStart);
 
             return result;
 
         } catch (Exception e) {
-            System.err.println("第二阶段转换失败: " + e.getMessage());
+            logger.error("第二阶段转换失败: {}", e.getMessage());
             return new TransformationResult(false, "第二阶段转换失败: " + e.getMessage(), null);
         }
     }
@@ -306,22 +346,29 @@ public class TwoStageTransformationService {
             throws IOException {
         // 根据图表类型获取对应的Jolt规范文件
         String joltSpecFile = getJoltSpecFileByChartId(chartId);
-        System.out.println("使用Jolt规范文件: " + joltSpecFile);
+        logger.debug("使用Jolt规范文件: {}", joltSpecFile);
 
-        // 加载对应的Jolt规范
-        ClassPathResource resource = new ClassPathResource("jolt-specs/" + joltSpecFile);
-        if (!resource.exists()) {
-            throw new IOException("Jolt规范文件不存在: jolt-specs/" + joltSpecFile);
+        // 从制品存储获取已编译的Jolt规范（注册表中激活的规范版本优先）
+        Chainr chainr;
+        try {
+            chainr = artifactStore.compiledSpec(chartId, joltSpecFile);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
         }
 
-        String joltSpecContent = new String(resource.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
-
-        // 解析Jolt规范
-        List<Object> joltSpec = JsonUtils.jsonToList(joltSpecContent);
-        Chainr chainr = Chainr.fromSpec(joltSpec);
-
         // 执行Jolt转换
+        JoltExecutionEvent event = new JoltExecutionEvent();
+        event.begin();
+        long start = System.nanoTime();
         Object transformedObj = chainr.transform(universalTemplate);
+        chartMetrics.recordJolt(joltSpecFile, chartId, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.chartId = chartId;
+            event.specFile = joltSpecFile;
+            event.resultSize = RenderTrace.sizeOf(transformedObj);
+            event.commit();
+        }
 
         return (Map<String, Object>) transformedObj;
     }
@@ -334,7 +381,7 @@ public class TwoStageTransformationService {
      */
     @Deprecated
     private Map<String, Object> transformStructureWithJolt(Map<String, Object> universalTemplate) throws IOException {
-        System.out.println("⚠️ 使用了已废弃的transformStructureWithJolt方法");
+        logger.warn("⚠️ 使用了已废弃的transformStructureWithJolt方法");
         return transformStructureWithJolt("stacked_line_chart", universalTemplate);
     }
 
@@ -345,20 +392,20 @@ public class TwoStageTransformationService {
         try {
             // 1. 验证模板不为空
             if (template == null) {
-                System.err.println("❌ 模板数据为空");
+                logger.warn("❌ 模板数据为空");
                 return false;
             }
 
             // 2. 验证查询结果不为空
             if (queryResults == null || queryResults.isEmpty()) {
-                System.err.println("❌ 查询结果为空");
+                logger.warn("❌ 查询结果为空");
                 return false;
             }
 
             // 3. 验证模板是否为有效JSON
             String templateJson = objectMapper.writeValueAsString(template);
             if (templateJson.length() < 10) { // 基本长度检查
-                System.err.println("❌ 模板JSON过短，可能无效");
+                logger.warn("❌ 模板JSON过短，可能无效");
                 return false;
             }
 
@@ -368,7 +415,7 @@ public class TwoStageTransformationService {
                 Object value = entry.getValue();
 
                 if (value == null) {
-                    System.out.println("⚠️ 占位符 " + key + " 的值为null");
+                    logger.debug("⚠️ 占位符 {} 的值为null", key);
                     continue;
                 }
 
@@ -377,17 +424,17 @@ public class TwoStageTransformationService {
                     try {
                         objectMapper.writeValueAsString(value);
                     } catch (Exception e) {
-                        System.err.println("❌ 占位符 " + key + " 的值无法序列化: " + e.getMessage());
+                        logger.warn("❌ 占位符 {} 的值无法序列化: {}", key, e.getMessage());
                         return false;
                     }
                 }
             }
 
-            System.out.println("✅ 转换前数据验证通过");
+            logger.debug("✅ 转换前数据验证通过");
             return true;
 
         } catch (Exception e) {
-            System.err.println("❌ 数据验证过程中出错: " + e.getMessage());
+            logger.warn("❌ 数据验证过程中出错: {}", e.getMessage());
             return false;
         }
     }
@@ -440,11 +487,11 @@ public class TwoStageTransformationService {
 
         String specFile = chartToSpecMapping.get(chartId);
         if (specFile == null) {
-            System.out.println("⚠️ 未找到图表类型 " + chartId + " 对应的Jolt规范，使用默认的折线图规范");
+            logger.debug("⚠️ 未找到图表类型 {} 对应的Jolt规范，使用默认的折线图规范", chartId);
             return "line-chart-placeholder.json";
         }
 
-        System.out.println("📋 图表类型 " + chartId + " 使用JOLT规范: " + specFile);
+        logger.debug("📋 图表类型 {} 使用JOLT规范: {}", chartId, specFile);
         return specFile;
     }
 
@@ -1,23 +1,25 @@
 package com.example.chart.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.chart.store.ArtifactStore;
+import com.example.chart.store.CopyOnWriteTree;
+import com.example.chart.store.StoredArtifact;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FileCopyUtils;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import javax.annotation.PostConstruct;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 通用模板服务类
- * 提供通用模板的业务逻辑处理和占位符管理功能
+ * 提供通用模板的业务逻辑处理和占位符管理功能。
+ * 解析后的模板以不可变形式缓存，占位符和校验结果随缓存一起预先计算；
+ * 每次读取按制品存储中最新版本的哈希校验，上传或删除后自动重建
  */
 @Service
 public class UniversalTemplateService {
@@ -25,9 +27,17 @@ public class UniversalTemplateService {
     private static final Logger logger = LoggerFactory.getLogger(UniversalTemplateService.class);
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private ArtifactStore artifactStore;
     
-    private static final String CLASSPATH_TEMPLATE_BASE = "universal-templates/";
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^}]+)\\}");
+    
+    private static final String[] REQUIRED_KEYS = {"chartMeta", "dataStructure", "styleConfig"};
+    private static final String[] REQUIRED_META_KEYS = {"title", "chartType", "templateCategory"};
+    
+    // 模板键 -> 已解析模板
+    private final Map<String, ParsedTemplate> parsedTemplates = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheLoads = new AtomicLong();
     
     // 通用模板文件映射
     private static final Map<String, String> TEMPLATE_MAPPINGS = new HashMap<String, String>() {{
@@ -90,6 +100,124 @@ public class UniversalTemplateService {
         put("ring_progress_chart", "gauge-chart-template");
     }};
 
+    // 模板键 -> 支持的图表类型
+    private static final Map<String, List<String>> TEMPLATE_TO_CHART_TYPES = new HashMap<>();
+    
+    static {
+        for (Map.Entry<String, String> entry : CHART_TYPE_TO_TEMPLATE.entrySet()) {
+            TEMPLATE_TO_CHART_TYPES.computeIfAbsent(entry.getValue(), k -> new ArrayList<>()).add(entry.getKey());
+        }
+        TEMPLATE_TO_CHART_TYPES.replaceAll((k, v) -> Collections.unmodifiableList(v));
+    }
+
+    /**
+     * 已解析的通用模板（不可变，可在线程间共享）
+     */
+    public static final class ParsedTemplate {
+        private final String templateKey;
+        private final String fileName;
+        private final String hash;
+        private final Map<String, Object> template;
+        private final List<String> placeholders;
+        private final Map<String, Integer> placeholderStats;
+        private final List<String> missingKeys;
+
+        ParsedTemplate(String templateKey, String fileName, String hash, Map<String, Object> template,
+                List<String> placeholders, Map<String, Integer> placeholderStats, List<String> missingKeys) {
+            this.templateKey = templateKey;
+            this.fileName = fileName;
+            this.hash = hash;
+            this.template = template;
+            this.placeholders = placeholders;
+            this.placeholderStats = placeholderStats;
+            this.missingKeys = missingKeys;
+        }
+
+        public String getTemplateKey() { return templateKey; }
+        public String getFileName() { return fileName; }
+        public String getHash() { return hash; }
+
+        /**
+         * 冻结的模板树，修改会抛出UnsupportedOperationException
+         */
+        public Map<String, Object> getTemplate() { return template; }
+        public List<String> getPlaceholders() { return placeholders; }
+        public Map<String, Integer> getPlaceholderStats() { return placeholderStats; }
+        public List<String> getMissingKeys() { return missingKeys; }
+    }
+
+    /**
+     * 启动时预先解析全部通用模板
+     */
+    @PostConstruct
+    public void warmUp() {
+        int loaded = 0;
+        for (String templateKey : TEMPLATE_MAPPINGS.keySet()) {
+            if (!checkTemplateExists(templateKey)) {
+                continue;
+            }
+            try {
+                getParsedTemplate(templateKey);
+                loaded++;
+            } catch (RuntimeException e) {
+                logger.warn("⚠️ [通用模板] 预加载失败: {}: {}", templateKey, e.getMessage());
+            }
+        }
+        logger.info("✅ [通用模板] 已预加载 {} 个通用模板", loaded);
+    }
+
+    /**
+     * 获取已解析的通用模板；存储中的内容变化后自动重新构建
+     */
+    public ParsedTemplate getParsedTemplate(String templateKey) {
+        String templateFile = TEMPLATE_MAPPINGS.get(templateKey);
+        if (templateFile == null) {
+            throw new RuntimeException("未知的模板键: " + templateKey);
+        }
+        StoredArtifact artifact = artifactStore.latest(StoredArtifact.Kind.TEMPLATE, null, templateFile)
+                .orElseThrow(() -> new RuntimeException("通用模板文件不存在: " + templateFile));
+
+        ParsedTemplate cached = parsedTemplates.get(templateKey);
+        if (cached != null && cached.getHash().equals(artifact.getHash())) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        ParsedTemplate parsed = parse(templateKey, artifact);
+        parsedTemplates.put(templateKey, parsed);
+        cacheLoads.incrementAndGet();
+        return parsed;
+    }
+
+    /**
+     * 丢弃模板缓存（上传或删除模板后调用），templateKey为空时全部丢弃
+     */
+    public void invalidate(String templateKey) {
+        if (templateKey == null) {
+            parsedTemplates.clear();
+        } else {
+            parsedTemplates.remove(templateKey);
+        }
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheLoads() {
+        return cacheLoads.get();
+    }
+
+    /**
+     * 模板缓存统计
+     */
+    public Map<String, Object> getCacheStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedTemplates", parsedTemplates.size());
+        stats.put("hits", cacheHits.get());
+        stats.put("loads", cacheLoads.get());
+        return stats;
+    }
+
     /**
      * 根据图表类型获取对应的通用模板
      */
@@ -110,23 +238,11 @@ public class UniversalTemplateService {
 
     /**
      * 根据模板键获取通用模板
+     * 返回缓存模板上的写时复制视图，调用方可以修改，只有被访问的层级会被复制
      */
     public Map<String, Object> getUniversalTemplate(String templateKey) {
         try {
-            String templateFile = TEMPLATE_MAPPINGS.get(templateKey);
-            if (templateFile == null) {
-                throw new RuntimeException("未知的模板键: " + templateKey);
-            }
-            
-            Resource resource = new ClassPathResource(CLASSPATH_TEMPLATE_BASE + templateFile);
-            if (!resource.exists()) {
-                throw new RuntimeException("通用模板文件不存在: " + templateFile);
-            }
-            
-            InputStream inputStream = resource.getInputStream();
-            String content = new String(FileCopyUtils.copyToByteArray(inputStream), StandardCharsets.UTF_8);
-            
-            return objectMapper.readValue(content, Map.class);
+            return CopyOnWriteTree.mapView(getParsedTemplate(templateKey).getTemplate());
             
         } catch (Exception e) {
             logger.error("获取通用模板失败: " + templateKey, e);
@@ -139,10 +255,7 @@ public class UniversalTemplateService {
      */
     public List<String> extractPlaceholdersFromTemplate(String templateKey) {
         try {
-            Map<String, Object> template = getUniversalTemplate(templateKey);
-            String jsonString = objectMapper.writeValueAsString(template);
-            
-            return extractPlaceholdersFromJson(jsonString);
+            return getParsedTemplate(templateKey).getPlaceholders();
             
         } catch (Exception e) {
             logger.error("从通用模板提取占位符失败: " + templateKey, e);
@@ -175,45 +288,15 @@ public class UniversalTemplateService {
         Map<String, Object> validationResult = new HashMap<>();
         
         try {
-            Map<String, Object> template = getUniversalTemplate(templateKey);
-            
-            // 检查必要的顶级结构
-            List<String> missingKeys = new ArrayList<>();
-            String[] requiredKeys = {"chartMeta", "dataStructure", "styleConfig"};
-            
-            for (String key : requiredKeys) {
-                if (!template.containsKey(key)) {
-                    missingKeys.add(key);
-                }
-            }
-            
-            // 检查chartMeta中的必要字段
-            if (template.containsKey("chartMeta")) {
-                Map<String, Object> chartMeta = (Map<String, Object>) template.get("chartMeta");
-                String[] metaKeys = {"title", "chartType", "templateCategory"};
-                
-                for (String key : metaKeys) {
-                    if (!chartMeta.containsKey(key)) {
-                        missingKeys.add("chartMeta." + key);
-                    }
-                }
-            }
-            
-            // 提取占位符
-            List<String> placeholders = extractPlaceholdersFromTemplate(templateKey);
-            
-            // 统计占位符数量
-            Map<String, Integer> placeholderStats = new HashMap<>();
-            for (String placeholder : placeholders) {
-                String category = categorizePlaceholder(placeholder);
-                placeholderStats.put(category, placeholderStats.getOrDefault(category, 0) + 1);
-            }
+            ParsedTemplate parsed = getParsedTemplate(templateKey);
+            List<String> missingKeys = parsed.getMissingKeys();
+            List<String> placeholders = parsed.getPlaceholders();
             
             validationResult.put("valid", missingKeys.isEmpty());
             validationResult.put("missingKeys", missingKeys);
             validationResult.put("placeholders", placeholders);
             validationResult.put("placeholderCount", placeholders.size());
-            validationResult.put("placeholderStats", placeholderStats);
+            validationResult.put("placeholderStats", parsed.getPlaceholderStats());
             validationResult.put("templateKey", templateKey);
             validationResult.put("templateCategory", getTemplateCategory(templateKey));
             
@@ -245,10 +328,8 @@ public class UniversalTemplateService {
             templateInfo.put("exists", checkTemplateExists(templateKey));
             
             // 获取支持的图表类型
-            List<String> supportedChartTypes = CHART_TYPE_TO_TEMPLATE.entrySet().stream()
-                .filter(chartEntry -> chartEntry.getValue().equals(templateKey))
-                .map(Map.Entry::getKey)
-                .collect(java.util.stream.Collectors.toList());
+            List<String> supportedChartTypes = TEMPLATE_TO_CHART_TYPES.getOrDefault(templateKey,
+                Collections.emptyList());
             
             templateInfo.put("supportedChartTypes", supportedChartTypes);
             templateInfo.put("supportedCount", supportedChartTypes.size());
@@ -270,19 +351,59 @@ public class UniversalTemplateService {
 
     // 私有辅助方法
 
-    private List<String> extractPlaceholdersFromJson(String jsonString) {
-        List<String> placeholders = new ArrayList<>();
-        Pattern pattern = Pattern.compile("\\$\\{([^}]+)\\}");
-        Matcher matcher = pattern.matcher(jsonString);
+    @SuppressWarnings("unchecked")
+    private ParsedTemplate parse(String templateKey, StoredArtifact artifact) {
+        long start = System.nanoTime();
+        Map<String, Object> template = (Map<String, Object>) CopyOnWriteTree.freeze(artifact.getParsed());
+        
+        // 检查必要的顶级结构和chartMeta中的必要字段
+        List<String> missingKeys = new ArrayList<>();
+        for (String key : REQUIRED_KEYS) {
+            if (!template.containsKey(key)) {
+                missingKeys.add(key);
+            }
+        }
+        if (template.get("chartMeta") instanceof Map) {
+            Map<String, Object> chartMeta = (Map<String, Object>) template.get("chartMeta");
+            for (String key : REQUIRED_META_KEYS) {
+                if (!chartMeta.containsKey(key)) {
+                    missingKeys.add("chartMeta." + key);
+                }
+            }
+        }
+        
+        // 直接遍历模板树提取占位符，不再序列化为字符串
+        Set<String> uniquePlaceholders = new TreeSet<>();
+        collectPlaceholders(template, uniquePlaceholders);
+        List<String> placeholders = Collections.unmodifiableList(new ArrayList<>(uniquePlaceholders));
         
-        Set<String> uniquePlaceholders = new HashSet<>();
-        while (matcher.find()) {
-            uniquePlaceholders.add(matcher.group(0));
+        Map<String, Integer> placeholderStats = new HashMap<>();
+        for (String placeholder : placeholders) {
+            placeholderStats.merge(categorizePlaceholder(placeholder), 1, Integer::sum);
         }
         
-        placeholders.addAll(uniquePlaceholders);
-        Collections.sort(placeholders);
-        return placeholders;
+        logger.debug("📄 [通用模板] 解析 {} (版本 {}): {} 个占位符, 耗时 {}μs", templateKey,
+                artifact.getHash().substring(0, 12), placeholders.size(), (System.nanoTime() - start) / 1000);
+        return new ParsedTemplate(templateKey, artifact.getName(), artifact.getHash(), template, placeholders,
+                Collections.unmodifiableMap(placeholderStats), Collections.unmodifiableList(missingKeys));
+    }
+
+    private void collectPlaceholders(Object node, Set<String> placeholders) {
+        if (node instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) node).entrySet()) {
+                collectPlaceholders(entry.getKey(), placeholders);
+                collectPlaceholders(entry.getValue(), placeholders);
+            }
+        } else if (node instanceof List) {
+            for (Object item : (List<?>) node) {
+                collectPlaceholders(item, placeholders);
+            }
+        } else if (node instanceof String && ((String) node).indexOf("${") >= 0) {
+            Matcher matcher = PLACEHOLDER_PATTERN.matcher((String) node);
+            while (matcher.find()) {
+                placeholders.add(matcher.group(0));
+            }
+        }
     }
 
     private String categorizePlaceholder(String placeholder) {
@@ -306,8 +427,7 @@ public class UniversalTemplateService {
             String templateFile = TEMPLATE_MAPPINGS.get(templateKey);
             if (templateFile == null) return false;
             
-            Resource resource = new ClassPathResource(CLASSPATH_TEMPLATE_BASE + templateFile);
-            return resource.exists();
+            return artifactStore.latest(StoredArtifact.Kind.TEMPLATE, null, templateFile).isPresent();
         } catch (Exception e) {
             return false;
         }
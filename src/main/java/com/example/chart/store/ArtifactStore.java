@@ -0,0 +1,507 @@
+package com.example.chart.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+
+import com.bazaarvoice.jolt.Chainr;
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.ChartRegistry;
+import com.example.chart.repository.InMemoryChartRegistryRepository;
+import com.example.chart.store.StoredArtifact.Kind;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * 内容寻址的模板/规范存储
+ * 通用模板、Jolt规范和ECharts示例按内容SHA-256存放在 objects/前两位/哈希 下，index.json记录每个名称的版本历史。
+ * 启动时加载持久化的索引和类路径中自带的文件，之后所有读取都走内存索引，不再访问文件系统。
+ * 图表注册表中激活的模板/规范版本（哈希或至少8位前缀）优先于最新版本
+ */
+@Component
+public class ArtifactStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactStore.class);
+
+    private static final String SOURCE_BUNDLED = "bundled";
+    private static final String SOURCE_UPLOAD = "upload";
+    private static final String SOURCE_DIRECTORY = "directory";
+    private static final int MIN_VERSION_PREFIX = 8;
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    @Autowired
+    private InMemoryChartRegistryRepository registryRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // 名称键 -> 版本历史（按创建顺序，最后一个为最新），列表整体替换，读取无需加锁
+    private final Map<String, List<StoredArtifact>> histories = new ConcurrentHashMap<>();
+    // 哈希 -> 已解析的内容，相同内容只解析一次
+    private final Map<String, StoredArtifact> blobs = new ConcurrentHashMap<>();
+    // 被删除的名称键，避免重启后自带文件重新出现
+    private final Set<String> removed = ConcurrentHashMap.newKeySet();
+    // 每次内容变化递增，供下游缓存判断是否需要重建
+    private final AtomicLong revision = new AtomicLong();
+
+    private Path directory;
+
+    /**
+     * 索引文件中的一条记录
+     */
+    public static class IndexEntry {
+        public Kind kind;
+        public String name;
+        public String category;
+        public String chartId;
+        public String hash;
+        public long createdAt;
+        public String source;
+        public String description;
+    }
+
+    /**
+     * 索引文件
+     */
+    public static class IndexFile {
+        public List<IndexEntry> entries = new ArrayList<>();
+        public List<String> removed = new ArrayList<>();
+    }
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        long start = System.nanoTime();
+        directory = Paths.get(chartConfigProperties.getArtifacts().getDirectory()).toAbsolutePath();
+        boolean changed = loadIndex();
+        changed |= seedBundledResources();
+        if (changed) {
+            persistIndex();
+        }
+        logger.info("✅ [制品存储] 初始化完成: {} 个名称, {} 个内容对象, 耗时 {}ms, 目录 {}",
+                histories.size(), blobs.size(), (System.nanoTime() - start) / 1_000_000, directory);
+    }
+
+    // ==================== 读取（只访问内存索引） ====================
+
+    /**
+     * 获取某个名称的最新版本
+     */
+    public Optional<StoredArtifact> latest(Kind kind, String category, String name) {
+        List<StoredArtifact> history = histories.get(key(kind, category, name));
+        return history == null || history.isEmpty() ? Optional.empty()
+                : Optional.of(history.get(history.size() - 1));
+    }
+
+    /**
+     * 列出某类制品每个名称的最新版本，category为空时列出全部
+     */
+    public List<StoredArtifact> list(Kind kind, String category) {
+        List<StoredArtifact> result = new ArrayList<>();
+        for (List<StoredArtifact> history : histories.values()) {
+            StoredArtifact latest = history.get(history.size() - 1);
+            if (latest.getKind() == kind && (category == null || category.equals(latest.getCategory()))) {
+                result.add(latest);
+            }
+        }
+        result.sort(Comparator.comparing(StoredArtifact::getPath));
+        return result;
+    }
+
+    /**
+     * 某个名称的全部版本（从旧到新）
+     */
+    public List<StoredArtifact> history(Kind kind, String category, String name) {
+        List<StoredArtifact> history = histories.get(key(kind, category, name));
+        return history == null ? Collections.emptyList() : history;
+    }
+
+    /**
+     * 按版本（完整哈希或至少8位的唯一前缀）查找
+     */
+    public Optional<StoredArtifact> findByVersion(Kind kind, String version) {
+        if (version == null || version.length() < MIN_VERSION_PREFIX) {
+            return Optional.empty();
+        }
+        String prefix = version.toLowerCase();
+        StoredArtifact match = null;
+        for (List<StoredArtifact> history : histories.values()) {
+            for (StoredArtifact artifact : history) {
+                if (artifact.getKind() != kind || !artifact.getHash().startsWith(prefix)) {
+                    continue;
+                }
+                if (match != null && !match.getHash().equals(artifact.getHash())) {
+                    // 前缀不唯一
+                    return Optional.empty();
+                }
+                if (match == null || artifact.getCreatedAt() > match.getCreatedAt()) {
+                    match = artifact;
+                }
+            }
+        }
+        return Optional.ofNullable(match);
+    }
+
+    /**
+     * 按图表解析制品：注册表中激活的版本优先，否则使用该名称的最新版本
+     */
+    public Optional<StoredArtifact> resolveForChart(Kind kind, String chartId, String category, String name) {
+        if (chartId != null) {
+            Optional<ChartRegistry> registry = registryRepository.get(chartId);
+            String pinned = registry.map(r -> kind == Kind.TEMPLATE ? r.getActiveTemplateVersion()
+                    : kind == Kind.JOLT_SPEC ? r.getActiveSpecVersion() : null).orElse(null);
+            Optional<StoredArtifact> artifact = findByVersion(kind, pinned);
+            if (artifact.isPresent()) {
+                return artifact;
+            }
+        }
+        return latest(kind, category, name);
+    }
+
+    /**
+     * 获取已编译的Jolt规范
+     */
+    public Chainr compiledSpec(String chartId, String specName) {
+        StoredArtifact spec = resolveForChart(Kind.JOLT_SPEC, chartId, null, specName)
+                .orElseThrow(() -> new IllegalArgumentException("Jolt规范不存在: " + specName));
+        if (spec.getCompiled() == null) {
+            throw new IllegalArgumentException("Jolt规范无法编译: " + specName);
+        }
+        return (Chainr) spec.getCompiled();
+    }
+
+    /**
+     * 把版本字符串规范化为完整哈希，不是已知制品版本时原样返回
+     */
+    public String normalizeVersion(Kind kind, String version) {
+        return findByVersion(kind, version).map(StoredArtifact::getHash).orElse(version);
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 存入一个新版本：校验JSON（Jolt规范还会编译），内容不变时返回已有版本
+     *
+     * @throws IllegalArgumentException 名称无效、JSON无效或Jolt规范无法编译
+     */
+    public StoredArtifact put(Kind kind, String category, String name, String chartId, byte[] content,
+            String description) throws IOException {
+        return store(kind, category, name, chartId, content, description, SOURCE_UPLOAD);
+    }
+
+    /**
+     * 同步外部目录中的文件（由目录监听调用），内容不变时不产生新版本
+     */
+    public StoredArtifact syncFromDirectory(Kind kind, String category, String name, byte[] content)
+            throws IOException {
+        return store(kind, category, name, null, content, null, SOURCE_DIRECTORY);
+    }
+
+    private synchronized StoredArtifact store(Kind kind, String category, String name, String chartId,
+            byte[] content, String description, String source) throws IOException {
+        validateName(name);
+        if (category != null) {
+            validateName(category);
+        }
+        String hash = sha256(content);
+        StoredArtifact blob = blob(kind, category, name, hash, content, true);
+
+        String key = key(kind, category, name);
+        Optional<StoredArtifact> latest = latest(kind, category, name);
+        if (latest.isPresent() && latest.get().getHash().equals(hash)) {
+            return latest.get();
+        }
+
+        writeBlob(hash, content);
+        StoredArtifact artifact = blob.withMetadata(chartId, System.currentTimeMillis(), source, description);
+        artifact = rename(artifact, kind, category, name);
+        append(key, artifact);
+        removed.remove(key);
+        revision.incrementAndGet();
+        persistIndex();
+        logger.info("✅ [制品存储] 新版本: {} -> {}", artifact.getPath(), hash.substring(0, 12));
+        return artifact;
+    }
+
+    /**
+     * 删除一个名称（已激活的历史版本仍可按哈希解析）
+     */
+    public synchronized boolean remove(Kind kind, String category, String name) throws IOException {
+        String key = key(kind, category, name);
+        List<StoredArtifact> history = histories.remove(key);
+        if (history == null) {
+            return false;
+        }
+        removed.add(key);
+        revision.incrementAndGet();
+        persistIndex();
+        logger.info("🗑️ [制品存储] 删除: {}", key);
+        return true;
+    }
+
+    /**
+     * 内容修订号，每次新增版本或删除时递增
+     */
+    public long getRevision() {
+        return revision.get();
+    }
+
+    /**
+     * 存储统计信息
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<Kind, Integer> names = new LinkedHashMap<>();
+        int versions = 0;
+        for (List<StoredArtifact> history : histories.values()) {
+            names.merge(history.get(0).getKind(), 1, Integer::sum);
+            versions += history.size();
+        }
+        long bytes = blobs.values().stream().mapToLong(StoredArtifact::getSize).sum();
+        stats.put("names", names);
+        stats.put("versions", versions);
+        stats.put("objects", blobs.size());
+        stats.put("objectBytes", bytes);
+        stats.put("revision", revision.get());
+        stats.put("directory", String.valueOf(directory));
+        return stats;
+    }
+
+    // ==================== 加载与持久化 ====================
+
+    private boolean loadIndex() throws IOException {
+        Path indexFile = directory.resolve("index.json");
+        if (!Files.exists(indexFile)) {
+            return false;
+        }
+        IndexFile index = objectMapper.readValue(indexFile.toFile(), new TypeReference<IndexFile>() {});
+        boolean changed = false;
+        for (IndexEntry entry : index.entries) {
+            Path blobFile = blobPath(entry.hash);
+            if (!Files.exists(blobFile)) {
+                logger.warn("⚠️ [制品存储] 内容对象缺失，跳过: {} {}", entry.name, entry.hash);
+                changed = true;
+                continue;
+            }
+            byte[] content = Files.readAllBytes(blobFile);
+            if (!sha256(content).equals(entry.hash)) {
+                logger.warn("⚠️ [制品存储] 内容对象校验失败，跳过: {} {}", entry.name, entry.hash);
+                changed = true;
+                continue;
+            }
+            StoredArtifact blob;
+            try {
+                blob = blob(entry.kind, entry.category, entry.name, entry.hash, content, false);
+            } catch (IllegalArgumentException e) {
+                logger.warn("⚠️ [制品存储] 内容对象无效，跳过: {} {}", entry.name, e.getMessage());
+                changed = true;
+                continue;
+            }
+            StoredArtifact artifact = rename(blob.withMetadata(entry.chartId, entry.createdAt, entry.source,
+                    entry.description), entry.kind, entry.category, entry.name);
+            append(key(entry.kind, entry.category, entry.name), artifact);
+        }
+        removed.addAll(index.removed);
+        return changed;
+    }
+
+    /**
+     * 导入类路径中自带的文件：尚无版本的名称直接导入；最新版本仍是自带文件但内容已更新时追加新版本
+     */
+    private boolean seedBundledResources() throws IOException {
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        boolean changed = false;
+        for (Kind kind : Kind.values()) {
+            String pattern = kind == Kind.ECHARTS_EXAMPLE ? "classpath*:echarts/*/*.json"
+                    : "classpath*:" + kind.getResourceRoot() + "/*.json";
+            for (Resource resource : resolver.getResources(pattern)) {
+                String[] segments = decodedPath(resource).split("/");
+                String name = segments[segments.length - 1];
+                String category = kind == Kind.ECHARTS_EXAMPLE ? segments[segments.length - 2] : null;
+                String key = key(kind, category, name);
+                if (removed.contains(key)) {
+                    continue;
+                }
+                byte[] content;
+                try (InputStream in = resource.getInputStream()) {
+                    content = FileCopyUtils.copyToByteArray(in);
+                }
+                String hash = sha256(content);
+                Optional<StoredArtifact> latest = latest(kind, category, name);
+                if (latest.isPresent() && (latest.get().getHash().equals(hash)
+                        || !SOURCE_BUNDLED.equals(latest.get().getSource()))) {
+                    continue;
+                }
+                StoredArtifact blob;
+                try {
+                    blob = blob(kind, category, name, hash, content, false);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("⚠️ [制品存储] 跳过无效的自带文件 {}: {}", key, e.getMessage());
+                    continue;
+                }
+                writeBlob(hash, content);
+                append(key, rename(blob.withMetadata(null, System.currentTimeMillis(), SOURCE_BUNDLED, null),
+                        kind, category, name));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private void persistIndex() throws IOException {
+        IndexFile index = new IndexFile();
+        for (List<StoredArtifact> history : histories.values()) {
+            for (StoredArtifact artifact : history) {
+                IndexEntry entry = new IndexEntry();
+                entry.kind = artifact.getKind();
+                entry.name = artifact.getName();
+                entry.category = artifact.getCategory();
+                entry.chartId = artifact.getChartId();
+                entry.hash = artifact.getHash();
+                entry.createdAt = artifact.getCreatedAt();
+                entry.source = artifact.getSource();
+                entry.description = artifact.getDescription();
+                index.entries.add(entry);
+            }
+        }
+        index.entries.sort(Comparator.comparingLong((IndexEntry e) -> e.createdAt));
+        index.removed.addAll(new LinkedHashSet<>(removed));
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve("index.json");
+        Path temp = directory.resolve("index.json.tmp");
+        Files.write(temp, objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(index));
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeBlob(String hash, byte[] content) throws IOException {
+        Path target = blobPath(hash);
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(hash + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path blobPath(String hash) {
+        return directory.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * 获取内容对象，相同哈希只解析一次；作为Jolt规范使用而此前未编译时重新解析并编译
+     */
+    private StoredArtifact blob(Kind kind, String category, String name, String hash, byte[] content,
+            boolean strict) {
+        StoredArtifact blob = blobs.get(hash);
+        if (blob == null || (kind == Kind.JOLT_SPEC && blob.getCompiled() == null)) {
+            blob = parse(kind, category, name, hash, content, strict);
+            blobs.put(hash, blob);
+        }
+        return blob;
+    }
+
+    /**
+     * 解析内容；Jolt规范同时编译为Chainr。strict为false时编译失败只记录警告
+     */
+    private StoredArtifact parse(Kind kind, String category, String name, String hash, byte[] content,
+            boolean strict) {
+        Object parsed;
+        try {
+            parsed = objectMapper.readValue(content, Object.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("JSON格式无效: " + e.getMessage());
+        }
+        Object compiled = null;
+        if (kind == Kind.JOLT_SPEC) {
+            try {
+                compiled = Chainr.fromSpec(parsed);
+            } catch (RuntimeException e) {
+                if (strict) {
+                    throw new IllegalArgumentException("Jolt规范无法编译: " + e.getMessage());
+                }
+                logger.warn("⚠️ [制品存储] Jolt规范无法编译 {}: {}", name, e.getMessage());
+            }
+        }
+        return new StoredArtifact(kind, name, category, null, hash, 0L, null, null, content, parsed, compiled);
+    }
+
+    private StoredArtifact rename(StoredArtifact artifact, Kind kind, String category, String name) {
+        if (artifact.getKind() == kind && name.equals(artifact.getName())
+                && Objects.equals(category, artifact.getCategory())) {
+            return artifact;
+        }
+        Object compiled = kind == Kind.JOLT_SPEC ? artifact.getCompiled() : null;
+        return new StoredArtifact(kind, name, category, artifact.getChartId(), artifact.getHash(),
+                artifact.getCreatedAt(), artifact.getSource(), artifact.getDescription(), artifact.getContent(),
+                artifact.getParsed(), compiled);
+    }
+
+    private void append(String key, StoredArtifact artifact) {
+        histories.compute(key, (k, history) -> {
+            List<StoredArtifact> next = history == null ? new ArrayList<>(1) : new ArrayList<>(history);
+            next.add(artifact);
+            return Collections.unmodifiableList(next);
+        });
+    }
+
+    private static String key(Kind kind, String category, String name) {
+        return kind + ":" + (category == null ? "" : category + "/") + name;
+    }
+
+    private static void validateName(String name) {
+        if (name == null || name.isEmpty() || name.contains("/") || name.contains("\\") || name.contains("..")) {
+            throw new IllegalArgumentException("无效的名称: " + name);
+        }
+    }
+
+    private static String decodedPath(Resource resource) throws IOException {
+        String path = resource.getURL().getPath().replace("+", "%2B");
+        return URLDecoder.decode(path, StandardCharsets.UTF_8.name());
+    }
+
+    public static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >>> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
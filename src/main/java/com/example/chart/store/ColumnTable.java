@@ -0,0 +1,191 @@
+package com.example.chart.store;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import com.example.chart.model.UniversalChartDataView;
+
+/**
+ * 只读列式数据表
+ * 每列对应一个内存映射的列文件，字符串列按字典编码；按ID升序存放，支持二分查找。
+ * 读取直接访问映射缓冲区，打开表的开销与行数无关
+ */
+public final class ColumnTable {
+
+    /**
+     * 列的物理类型
+     */
+    public enum Type {
+        LONG(8), INT(4), DOUBLE(8), STRING(4), TIME(12);
+
+        private final int width;
+
+        Type(int width) {
+            this.width = width;
+        }
+
+        public int getWidth() { return width; }
+    }
+
+    /**
+     * 数据记录的列定义，顺序即列文件编号
+     */
+    public enum Column {
+        ID("id", Type.LONG),
+        YEAR("year", Type.STRING),
+        MONTH("month", Type.STRING),
+        DATE("date", Type.STRING),
+        CATEGORY("category", Type.STRING),
+        CHANNEL("channel", Type.STRING),
+        PRODUCT("product", Type.STRING),
+        REGION("region", Type.STRING),
+        AMOUNT("amount", Type.DOUBLE),
+        QUANTITY("quantity", Type.INT),
+        PERCENTAGE("percentage", Type.DOUBLE),
+        SALESMAN("salesman", Type.STRING),
+        CREATED_AT("createdAt", Type.TIME),
+        UPDATED_AT("updatedAt", Type.TIME);
+
+        private final String fieldName;
+        private final Type type;
+
+        Column(String fieldName, Type type) {
+            this.fieldName = fieldName;
+            this.type = type;
+        }
+
+        public String getFieldName() { return fieldName; }
+        public Type getType() { return type; }
+    }
+
+    private final long seq;
+    private final long idGenerator;
+    private final int rowCount;
+    private final ByteBuffer[] buffers;
+    private final int[] valueOffsets;
+    private final String[][] dictionaries;
+    private final long mappedBytes;
+
+    ColumnTable(long seq, long idGenerator, int rowCount, ByteBuffer[] buffers, int[] valueOffsets,
+            String[][] dictionaries, long mappedBytes) {
+        this.seq = seq;
+        this.idGenerator = idGenerator;
+        this.rowCount = rowCount;
+        this.buffers = buffers;
+        this.valueOffsets = valueOffsets;
+        this.dictionaries = dictionaries;
+        this.mappedBytes = mappedBytes;
+    }
+
+    public long getSeq() { return seq; }
+    public long getIdGenerator() { return idGenerator; }
+    public int getRowCount() { return rowCount; }
+    public long getMappedBytes() { return mappedBytes; }
+
+    public long getId(int row) {
+        return buffers[Column.ID.ordinal()].getLong(valueOffsets[Column.ID.ordinal()] + row * 8);
+    }
+
+    /**
+     * 按ID查找行号，不存在时返回负数
+     */
+    public int rowOf(long id) {
+        int low = 0;
+        int high = rowCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = getId(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * 第一条ID大于afterId的行号
+     */
+    public int firstRowAfter(long afterId) {
+        int row = rowOf(afterId);
+        return row >= 0 ? row + 1 : -(row + 1);
+    }
+
+    public boolean isNull(Column column, int row) {
+        // 空值位图紧跟在文件头之后
+        long word = buffers[column.ordinal()].getLong(ColumnarSnapshot.HEADER_BYTES + (row >>> 6) * 8);
+        return (word & (1L << (row & 63))) != 0;
+    }
+
+    public long getLong(Column column, int row) {
+        return buffers[column.ordinal()].getLong(valueOffsets[column.ordinal()] + row * 8);
+    }
+
+    public int getInt(Column column, int row) {
+        return buffers[column.ordinal()].getInt(valueOffsets[column.ordinal()] + row * 4);
+    }
+
+    public double getDouble(Column column, int row) {
+        return buffers[column.ordinal()].getDouble(valueOffsets[column.ordinal()] + row * 8);
+    }
+
+    /**
+     * 字符串列的字典编码，空值为-1
+     */
+    public int getCode(Column column, int row) {
+        return buffers[column.ordinal()].getInt(valueOffsets[column.ordinal()] + row * 4);
+    }
+
+    public String[] getDictionary(Column column) {
+        return dictionaries[column.ordinal()];
+    }
+
+    public String getString(Column column, int row) {
+        int code = getCode(column, row);
+        return code < 0 ? null : dictionaries[column.ordinal()][code];
+    }
+
+    public LocalDateTime getTime(Column column, int row) {
+        if (isNull(column, row)) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(getSeconds(column, row), getNanos(column, row), ZoneOffset.UTC);
+    }
+
+    /**
+     * 时间列的UTC秒数（时间列先存放全部秒数，再存放全部纳秒）
+     */
+    public long getSeconds(Column column, int row) {
+        return buffers[column.ordinal()].getLong(valueOffsets[column.ordinal()] + row * 8);
+    }
+
+    public int getNanos(Column column, int row) {
+        return buffers[column.ordinal()].getInt(valueOffsets[column.ordinal()] + rowCount * 8 + row * 4);
+    }
+
+    /**
+     * 将一行还原为数据对象（每次调用返回新对象）
+     */
+    public UniversalChartDataView materialize(int row) {
+        UniversalChartDataView data = new UniversalChartDataView();
+        data.setId(getId(row));
+        data.setYear(getString(Column.YEAR, row));
+        data.setMonth(getString(Column.MONTH, row));
+        data.setDate(getString(Column.DATE, row));
+        data.setCategory(getString(Column.CATEGORY, row));
+        data.setChannel(getString(Column.CHANNEL, row));
+        data.setProduct(getString(Column.PRODUCT, row));
+        data.setRegion(getString(Column.REGION, row));
+        data.setAmount(isNull(Column.AMOUNT, row) ? null : getDouble(Column.AMOUNT, row));
+        data.setQuantity(isNull(Column.QUANTITY, row) ? null : getInt(Column.QUANTITY, row));
+        data.setPercentage(isNull(Column.PERCENTAGE, row) ? null : getDouble(Column.PERCENTAGE, row));
+        data.setSalesman(getString(Column.SALESMAN, row));
+        data.setCreatedAt(getTime(Column.CREATED_AT, row));
+        data.setUpdatedAt(getTime(Column.UPDATED_AT, row));
+        return data;
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.chart.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.store.ColumnTable.Column;
+import com.example.chart.store.ColumnTable.Type;
+
+/**
+ * 列式快照
+ * 每个快照是一个目录 columns-序号/，每列一个列文件（字符串列另有字典文件），最后写入table.meta。
+ * 列文件：[int 魔数][int 类型][int 行数][int 保留][空值位图][值]，字节序固定为小端。
+ * 目录先以.tmp结尾写入并逐个fsync，再原子重命名；打开时只校验文件大小并映射，不读取数据
+ */
+public final class ColumnarSnapshot {
+
+    static final int HEADER_BYTES = 16;
+
+    private static final int TABLE_MAGIC = 0x4354424C; // "CTBL"
+    private static final int COLUMN_MAGIC = 0x43434F4C; // "CCOL"
+    private static final int DICTIONARY_MAGIC = 0x43444943; // "CDIC"
+    private static final int FORMAT_VERSION = 1;
+    private static final String PREFIX = "columns-";
+    private static final String META_FILE = "table.meta";
+
+    private ColumnarSnapshot() {
+    }
+
+    /**
+     * 写入列式快照，records必须按ID升序，返回快照目录
+     */
+    public static Path write(Path directory, long seq, long idGenerator, List<UniversalChartDataView> records)
+            throws IOException {
+        int rows = records.size();
+        long widest = HEADER_BYTES + bitmapBytes(rows) + (long) rows * Type.TIME.getWidth();
+        if (widest > Integer.MAX_VALUE) {
+            throw new IOException("列文件超过2GB，无法映射: " + rows + " 行");
+        }
+        for (int i = 1; i < rows; i++) {
+            if (records.get(i - 1).getId() >= records.get(i).getId()) {
+                throw new IOException("快照记录未按ID升序排列: " + records.get(i).getId());
+            }
+        }
+
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("%s%020d", PREFIX, seq));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        deleteRecursively(temp);
+        Files.createDirectories(temp);
+
+        for (Column column : Column.values()) {
+            writeColumn(temp, column, records);
+        }
+        try (ColumnFileWriter out = new ColumnFileWriter(temp.resolve(META_FILE))) {
+            out.putInt(TABLE_MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putLong(seq);
+            out.putLong(idGenerator);
+            out.putInt(rows);
+            out.putInt(Column.values().length);
+        }
+        deleteRecursively(target);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /**
+     * 打开列式快照：映射全部列文件并加载字符串字典
+     */
+    public static ColumnTable open(Path snapshot) throws IOException {
+        ByteBuffer meta = ByteBuffer.wrap(Files.readAllBytes(snapshot.resolve(META_FILE)))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        if (meta.remaining() < 32 || meta.getInt() != TABLE_MAGIC) {
+            throw new IOException("列式快照元数据无效: " + snapshot.getFileName());
+        }
+        int version = meta.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("不支持的列式快照版本: " + version);
+        }
+        long seq = meta.getLong();
+        long idGenerator = meta.getLong();
+        int rows = meta.getInt();
+        int columnCount = meta.getInt();
+        if (columnCount != Column.values().length) {
+            throw new IOException("列式快照列数不匹配: " + columnCount);
+        }
+
+        ByteBuffer[] buffers = new ByteBuffer[columnCount];
+        int[] valueOffsets = new int[columnCount];
+        String[][] dictionaries = new String[columnCount][];
+        long mappedBytes = 0;
+        for (Column column : Column.values()) {
+            Path file = snapshot.resolve(column.getFieldName() + ".col");
+            long expected = HEADER_BYTES + bitmapBytes(rows) + (long) rows * column.getType().getWidth();
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (channel.size() != expected) {
+                    throw new IOException("列文件大小不匹配: " + file.getFileName());
+                }
+                // 映射在通道关闭后仍然有效
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, expected).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            if (buffer.getInt(0) != COLUMN_MAGIC || buffer.getInt(4) != column.getType().ordinal()
+                    || buffer.getInt(8) != rows) {
+                throw new IOException("列文件头无效: " + file.getFileName());
+            }
+            buffers[column.ordinal()] = buffer;
+            valueOffsets[column.ordinal()] = HEADER_BYTES + bitmapBytes(rows);
+            mappedBytes += expected;
+            if (column.getType() == Type.STRING) {
+                dictionaries[column.ordinal()] = readDictionary(snapshot.resolve(column.getFieldName() + ".dict"));
+            }
+        }
+        return new ColumnTable(seq, idGenerator, rows, buffers, valueOffsets, dictionaries, mappedBytes);
+    }
+
+    /**
+     * 列出目录中已完成的列式快照，按序号从新到旧排列
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path path : stream) {
+                if (Files.isDirectory(path) && !path.getFileName().toString().endsWith(".tmp")) {
+                    snapshots.add(path);
+                }
+            }
+        }
+        snapshots.sort(Comparator.comparingLong(ColumnarSnapshot::seqOf).reversed());
+        return snapshots;
+    }
+
+    public static long seqOf(Path snapshot) {
+        return Long.parseLong(snapshot.getFileName().toString().substring(PREFIX.length()));
+    }
+
+    /**
+     * 删除快照目录；其他进程仍在映射时，类Unix系统上映射继续有效
+     */
+    public static void delete(Path snapshot) throws IOException {
+        deleteRecursively(snapshot);
+    }
+
+    private static void writeColumn(Path directory, Column column, List<UniversalChartDataView> records)
+            throws IOException {
+        int rows = records.size();
+        Object[] values = new Object[rows];
+        long[] nulls = new long[bitmapBytes(rows) / 8];
+        for (int row = 0; row < rows; row++) {
+            values[row] = valueOf(records.get(row), column);
+            if (values[row] == null) {
+                nulls[row >>> 6] |= 1L << (row & 63);
+            }
+        }
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        try (ColumnFileWriter out = new ColumnFileWriter(directory.resolve(column.getFieldName() + ".col"))) {
+            out.putInt(COLUMN_MAGIC);
+            out.putInt(column.getType().ordinal());
+            out.putInt(rows);
+            out.putInt(0);
+            for (long word : nulls) {
+                out.putLong(word);
+            }
+            for (int row = 0; row < rows; row++) {
+                Object value = values[row];
+                switch (column.getType()) {
+                    case LONG:
+                        out.putLong(value == null ? 0L : (Long) value);
+                        break;
+                    case INT:
+                        out.putInt(value == null ? 0 : (Integer) value);
+                        break;
+                    case DOUBLE:
+                        out.putDouble(value == null ? 0.0 : (Double) value);
+                        break;
+                    case STRING:
+                        if (value == null) {
+                            out.putInt(-1);
+                        } else {
+                            Integer code = dictionary.get(value);
+                            if (code == null) {
+                                code = entries.size();
+                                dictionary.put((String) value, code);
+                                entries.add((String) value);
+                            }
+                            out.putInt(code);
+                        }
+                        break;
+                    case TIME:
+                        out.putLong(value == null ? 0L : ((LocalDateTime) value).toEpochSecond(ZoneOffset.UTC));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (column.getType() == Type.TIME) {
+                for (int row = 0; row < rows; row++) {
+                    out.putInt(values[row] == null ? 0 : ((LocalDateTime) values[row]).getNano());
+                }
+            }
+        }
+        if (column.getType() == Type.STRING) {
+            writeDictionary(directory.resolve(column.getFieldName() + ".dict"), entries);
+        }
+    }
+
+    private static Object valueOf(UniversalChartDataView data, Column column) {
+        switch (column) {
+            case ID: return data.getId();
+            case YEAR: return data.getYear();
+            case MONTH: return data.getMonth();
+            case DATE: return data.getDate();
+            case CATEGORY: return data.getCategory();
+            case CHANNEL: return data.getChannel();
+            case PRODUCT: return data.getProduct();
+            case REGION: return data.getRegion();
+            case AMOUNT: return data.getAmount();
+            case QUANTITY: return data.getQuantity();
+            case PERCENTAGE: return data.getPercentage();
+            case SALESMAN: return data.getSalesman();
+            case CREATED_AT: return data.getCreatedAt();
+            case UPDATED_AT: return data.getUpdatedAt();
+            default: return null;
+        }
+    }
+
+    /**
+     * 字典文件：[int 魔数][int 条目数][int 偏移 × (条目数+1)][UTF-8字节]
+     */
+    private static void writeDictionary(Path file, List<String> entries) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(entries.size());
+        for (String entry : entries) {
+            encoded.add(entry.getBytes(StandardCharsets.UTF_8));
+        }
+        try (ColumnFileWriter out = new ColumnFileWriter(file)) {
+            out.putInt(DICTIONARY_MAGIC);
+            out.putInt(entries.size());
+            int offset = 0;
+            out.putInt(offset);
+            for (byte[] bytes : encoded) {
+                offset += bytes.length;
+                out.putInt(offset);
+            }
+            for (byte[] bytes : encoded) {
+                out.put(bytes);
+            }
+        }
+    }
+
+    private static String[] readDictionary(Path file) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.getInt() != DICTIONARY_MAGIC) {
+            throw new IOException("字典文件无效: " + file.getFileName());
+        }
+        int count = in.getInt();
+        int base = 8 + (count + 1) * 4;
+        String[] entries = new String[count];
+        for (int i = 0; i < count; i++) {
+            int start = in.getInt(8 + i * 4);
+            int end = in.getInt(8 + (i + 1) * 4);
+            entries[i] = new String(in.array(), base + start, end - start, StandardCharsets.UTF_8);
+        }
+        return entries;
+    }
+
+    private static int bitmapBytes(int rows) {
+        return ((rows + 63) >>> 6) * 8;
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            List<Path> paths = new ArrayList<>();
+            walk.forEach(paths::add);
+            for (int i = paths.size() - 1; i >= 0; i--) {
+                Files.deleteIfExists(paths.get(i));
+            }
+        }
+    }
+
+    /**
+     * 带缓冲的小端文件写入器，关闭时fsync
+     */
+    private static final class ColumnFileWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(256 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+        ColumnFileWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.chart.store;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JSON树（Map/List）的不可变冻结和写时复制视图
+ * 冻结后的树可被多个线程共享；视图在读取标量时直接访问共享树，只有访问到的层级才会浅拷贝一次，
+ * 未访问的子树不复制，修改只作用于视图自身
+ */
+public final class CopyOnWriteTree {
+
+    private CopyOnWriteTree() {
+    }
+
+    /**
+     * 深度冻结：返回不可修改的副本（修改会抛出UnsupportedOperationException）
+     */
+    @SuppressWarnings("unchecked")
+    public static Object freeze(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> source = (Map<String, Object>) value;
+            Map<String, Object> copy = new LinkedHashMap<>(source.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                copy.put(entry.getKey(), freeze(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List) {
+            List<Object> source = (List<Object>) value;
+            List<Object> copy = new ArrayList<>(source.size());
+            for (Object item : source) {
+                copy.add(freeze(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    /**
+     * 冻结树上的可修改视图
+     */
+    public static Map<String, Object> mapView(Map<String, Object> frozen) {
+        return new MapView(frozen);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object view(Object value) {
+        if (value instanceof Map) {
+            return new MapView((Map<String, Object>) value);
+        }
+        if (value instanceof List) {
+            return new ListView((List<Object>) value);
+        }
+        return value;
+    }
+
+    private static final class MapView extends AbstractMap<String, Object> {
+        private final Map<String, Object> base;
+        private Map<String, Object> local;
+
+        MapView(Map<String, Object> base) {
+            this.base = base;
+        }
+
+        // 首次访问子容器或修改时，浅拷贝本层并把子容器替换为视图
+        private Map<String, Object> local() {
+            if (local == null) {
+                Map<String, Object> copy = new LinkedHashMap<>(base.size() * 4 / 3 + 1);
+                for (Map.Entry<String, Object> entry : base.entrySet()) {
+                    copy.put(entry.getKey(), view(entry.getValue()));
+                }
+                local = copy;
+            }
+            return local;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (local != null) {
+                return local.get(key);
+            }
+            Object value = base.get(key);
+            return value instanceof Map || value instanceof List ? local().get(key) : value;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return local != null ? local.containsKey(key) : base.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return local != null ? local.size() : base.size();
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            return local().put(key, value);
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return local().remove(key);
+        }
+
+        @Override
+        public void clear() {
+            local().clear();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return local().entrySet();
+        }
+    }
+
+    private static final class ListView extends AbstractList<Object> {
+        private final List<Object> base;
+        private List<Object> local;
+
+        ListView(List<Object> base) {
+            this.base = base;
+        }
+
+        private List<Object> local() {
+            if (local == null) {
+                List<Object> copy = new ArrayList<>(base.size());
+                for (Object item : base) {
+                    copy.add(view(item));
+                }
+                local = copy;
+            }
+            return local;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (local != null) {
+                return local.get(index);
+            }
+            Object value = base.get(index);
+            return value instanceof Map || value instanceof List ? local().get(index) : value;
+        }
+
+        @Override
+        public int size() {
+            return local != null ? local.size() : base.size();
+        }
+
+        @Override
+        public Object set(int index, Object element) {
+            return local().set(index, element);
+        }
+
+        @Override
+        public void add(int index, Object element) {
+            local().add(index, element);
+            modCount++;
+        }
+
+        @Override
+        public Object remove(int index) {
+            modCount++;
+            return local().remove(index);
+        }
+    }
+}
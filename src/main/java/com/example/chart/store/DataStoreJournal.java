@@ -0,0 +1,403 @@
+package com.example.chart.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.UniversalChartDataView;
+
+/**
+ * 数据存储日志
+ * 为内存存储提供持久化：写操作先追加到预写日志（组提交），定期生成列式快照并清理旧日志段，
+ * 启动时直接映射最新的列式快照作为只读底层，只回放其后的日志尾部。
+ * 未调用recover或未启用时，所有写操作只执行内存修改
+ */
+@Component
+public class DataStoreJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataStoreJournal.class);
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    @Autowired
+    private ChartConfigProperties chartConfigProperties;
+
+    /**
+     * 内存存储的访问接口，由数据服务实现
+     */
+    public interface StoreAccess {
+        /** 回放写入（不记日志） */
+        void applyPut(UniversalChartDataView data);
+
+        /** 回放删除（不记日志） */
+        void applyDelete(long id);
+
+        /** 回放清空（不记日志） */
+        void applyClear();
+
+        /** 挂载映射的列式快照作为底层数据 */
+        void attachBase(ColumnTable base);
+
+        void restoreIdGenerator(long nextId);
+
+        long currentIdGenerator();
+
+        /** 返回当前全部记录的副本（按ID升序，弱一致） */
+        List<UniversalChartDataView> copyRecords();
+    }
+
+    // 序号分配和入队在同一把锁内完成，写线程按日志顺序落盘并修改内存
+    private final Object lock = new Object();
+    private final Object snapshotLock = new Object();
+
+    private volatile WriteAheadLog wal;
+    private StoreAccess access;
+    private Path directory;
+    private long lastSeq;
+    private ScheduledExecutorService scheduler;
+
+    // 统计信息
+    private volatile long snapshotSeq;
+    // 当前作为底层被映射的列式快照序号，清理旧快照时保留
+    private volatile long baseSeq = -1;
+    private volatile long baseRows;
+    private volatile long mappedBytes;
+    private volatile long recoveryTimeMs;
+    private volatile long recoveredRecords;
+    private volatile long replayedEntries;
+    private volatile long truncatedBytes;
+    private volatile long snapshotCount;
+    private volatile long lastSnapshotMs;
+    private volatile long lastSnapshotBytes;
+
+    /**
+     * 是否已启用持久化
+     */
+    public boolean isActive() {
+        return wal != null;
+    }
+
+    /**
+     * 从快照和日志恢复内存存储，并打开新的日志段
+     *
+     * @return 是否存在此前持久化的状态（不存在时调用方可以生成示例数据）
+     */
+    public boolean recover(StoreAccess storeAccess) throws IOException {
+        this.access = storeAccess;
+        ChartConfigProperties.Store config = chartConfigProperties.getStore();
+        if (!config.isEnabled()) {
+            logger.info("ℹ️ [数据持久化] 未启用，数据仅保存在内存中");
+            return false;
+        }
+
+        long start = System.nanoTime();
+        directory = Paths.get(config.getDirectory()).toAbsolutePath();
+        Files.createDirectories(directory);
+
+        boolean persisted = false;
+        long fromSeq = 0;
+        for (Path snapshot : listSnapshots()) {
+            try {
+                if (Files.isDirectory(snapshot)) {
+                    // 列式快照只映射文件，不逐条反序列化
+                    ColumnTable table = ColumnarSnapshot.open(snapshot);
+                    storeAccess.attachBase(table);
+                    storeAccess.restoreIdGenerator(table.getIdGenerator());
+                    fromSeq = table.getSeq();
+                    recoveredRecords = table.getRowCount();
+                    baseSeq = fromSeq;
+                    baseRows = table.getRowCount();
+                    mappedBytes = table.getMappedBytes();
+                } else {
+                    // 兼容早期的按行快照
+                    SnapshotFile.Header header = SnapshotFile.read(snapshot, storeAccess::applyPut);
+                    storeAccess.restoreIdGenerator(header.getIdGenerator());
+                    fromSeq = header.getSeq();
+                    recoveredRecords = header.getRecordCount();
+                }
+                persisted = true;
+                break;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("⚠️ [数据持久化] 快照 {} 不可用: {}", snapshot.getFileName(), e.getMessage());
+            }
+        }
+        snapshotSeq = fromSeq;
+
+        persisted |= !WriteAheadLog.listSegments(directory).isEmpty();
+        WriteAheadLog.ReplayResult replay = WriteAheadLog.replay(directory, fromSeq, this::replayEntry);
+        lastSeq = replay.getLastSeq();
+        replayedEntries = replay.getEntries();
+        truncatedBytes = replay.getTruncatedBytes();
+
+        wal = new WriteAheadLog(directory, lastSeq + 1, config.isFsync(), config.getGroupCommitMaxSize());
+        recoveryTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("✅ [数据持久化] 恢复完成: 快照序号 {}, 回放日志 {} 条, 耗时 {}ms, 目录 {}",
+                fromSeq, replayedEntries, recoveryTimeMs, directory);
+
+        int interval = config.getSnapshotIntervalSeconds();
+        if (interval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "data-store-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshotIfNeeded, interval, interval, TimeUnit.SECONDS);
+        }
+        return persisted;
+    }
+
+    /**
+     * 记录写入操作，apply在日志落盘后按日志顺序执行；写入失败时不修改内存
+     */
+    public CompletableFuture<Void> put(UniversalChartDataView data, Runnable apply) {
+        if (wal == null) {
+            apply.run();
+            return DONE;
+        }
+        byte[] payload = RecordCodec.encode(data);
+        return append(WriteAheadLog.OP_PUT, payload, () -> true, apply);
+    }
+
+    /**
+     * 记录删除操作，exists返回false（记录不存在）时不写日志；apply在日志落盘后执行
+     */
+    public CompletableFuture<Void> delete(long id, BooleanSupplier exists, Runnable apply) {
+        if (wal == null) {
+            apply.run();
+            return DONE;
+        }
+        return append(WriteAheadLog.OP_DELETE, ByteBuffer.allocate(8).putLong(id).array(), exists, apply);
+    }
+
+    /**
+     * 记录清空操作
+     */
+    public CompletableFuture<Void> clear(Runnable apply) {
+        if (wal == null) {
+            apply.run();
+            return DONE;
+        }
+        return append(WriteAheadLog.OP_CLEAR, null, () -> true, apply);
+    }
+
+    private CompletableFuture<Void> append(byte op, byte[] payload, BooleanSupplier precondition, Runnable apply) {
+        synchronized (lock) {
+            if (!precondition.getAsBoolean()) {
+                return DONE;
+            }
+            // 内存修改由写线程在落盘后执行：失败的写入不会对读者可见，也不需要撤销
+            return wal.append(++lastSeq, op, payload, apply);
+        }
+    }
+
+    /**
+     * 等待日志落盘，超过commit-timeout-seconds仍未完成时报错
+     */
+    public void await(CompletableFuture<Void> commit) {
+        int timeoutSeconds = Math.max(1, chartConfigProperties.getStore().getCommitTimeoutSeconds());
+        try {
+            commit.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("数据持久化失败: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("数据持久化超时: " + timeoutSeconds + " 秒内日志未落盘", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待数据持久化时被中断", e);
+        }
+    }
+
+    /**
+     * 生成快照并删除已被覆盖的日志段
+     */
+    public Map<String, Object> snapshot() throws IOException {
+        if (wal == null) {
+            throw new IllegalStateException("数据持久化未启用");
+        }
+        synchronized (snapshotLock) {
+            long start = System.nanoTime();
+            long seq;
+            long idGenerator;
+            List<UniversalChartDataView> records;
+            CompletableFuture<Void> rolled;
+            synchronized (lock) {
+                seq = lastSeq;
+                idGenerator = access.currentIdGenerator();
+                rolled = wal.roll(seq + 1);
+            }
+            // 切换完成时，序号不大于seq的条目都已落盘并应用到内存
+            await(rolled);
+            // 在锁外复制记录，不阻塞写入：副本可能包含序号之后的部分写入，
+            // 这些写入的日志都在新日志段中，恢复时按序重放后结果相同（写入、删除、清空都是幂等的）
+            records = access.copyRecords();
+
+            Path written = ColumnarSnapshot.write(directory, seq, idGenerator, records);
+            for (Path older : listSnapshots()) {
+                if (snapshotSeqOf(older) >= seq) {
+                    continue;
+                }
+                if (!Files.isDirectory(older)) {
+                    Files.deleteIfExists(older);
+                } else if (snapshotSeqOf(older) != baseSeq) {
+                    ColumnarSnapshot.delete(older);
+                }
+            }
+            int deletedSegments = wal.deleteSegmentsCoveredBy(seq);
+
+            snapshotSeq = seq;
+            snapshotCount++;
+            lastSnapshotMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            lastSnapshotBytes = directorySize(written);
+            logger.info("📸 [数据持久化] 快照完成: 序号 {}, {} 条记录, {} 字节, 清理日志段 {} 个, 耗时 {}ms",
+                    seq, records.size(), lastSnapshotBytes, deletedSegments, lastSnapshotMs);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("seq", seq);
+            result.put("records", records.size());
+            result.put("bytes", lastSnapshotBytes);
+            result.put("deletedSegments", deletedSegments);
+            result.put("elapsedMs", lastSnapshotMs);
+            return result;
+        }
+    }
+
+    /**
+     * 列出全部快照（列式目录和早期的按行文件），按序号从新到旧排列
+     */
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>(ColumnarSnapshot.list(directory));
+        snapshots.addAll(SnapshotFile.list(directory));
+        snapshots.sort(Comparator.comparingLong(DataStoreJournal::snapshotSeqOf).reversed());
+        return snapshots;
+    }
+
+    private static long snapshotSeqOf(Path snapshot) {
+        return Files.isDirectory(snapshot) ? ColumnarSnapshot.seqOf(snapshot) : SnapshotFile.seqOf(snapshot);
+    }
+
+    private static long directorySize(Path snapshot) throws IOException {
+        long bytes = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(snapshot)) {
+            for (Path file : files) {
+                bytes += Files.size(file);
+            }
+        }
+        return bytes;
+    }
+
+    private void snapshotIfNeeded() {
+        try {
+            if (wal != null && wal.getLogBytes() >= chartConfigProperties.getStore().getSnapshotMinLogBytes()) {
+                snapshot();
+            }
+        } catch (Exception e) {
+            logger.error("❌ [数据持久化] 定期快照失败: {}", e.getMessage());
+        }
+    }
+
+    private void replayEntry(long seq, byte op, ByteBuffer payload) {
+        switch (op) {
+            case WriteAheadLog.OP_PUT:
+                access.applyPut(RecordCodec.decode(payload));
+                break;
+            case WriteAheadLog.OP_DELETE:
+                access.applyDelete(payload.getLong());
+                break;
+            case WriteAheadLog.OP_CLEAR:
+                access.applyClear();
+                break;
+            default:
+                logger.warn("⚠️ [数据持久化] 未知日志操作 {}，序号 {}", op, seq);
+        }
+    }
+
+    /**
+     * 持久化统计信息：恢复耗时、日志大小、fsync延迟等
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new HashMap<>();
+        WriteAheadLog log = wal;
+        stats.put("enabled", log != null);
+        if (log == null) {
+            return stats;
+        }
+        long fsyncCount = log.getFsyncCount();
+        long groupCommits = log.getGroupCommits();
+        synchronized (lock) {
+            stats.put("lastSeq", lastSeq);
+        }
+        stats.put("directory", directory.toString());
+        stats.put("snapshotSeq", snapshotSeq);
+        stats.put("snapshotCount", snapshotCount);
+        stats.put("lastSnapshotMs", lastSnapshotMs);
+        stats.put("lastSnapshotBytes", lastSnapshotBytes);
+        stats.put("recoveryTimeMs", recoveryTimeMs);
+        stats.put("recoveredSnapshotRecords", recoveredRecords);
+        stats.put("baseSeq", baseSeq);
+        stats.put("baseRows", baseRows);
+        stats.put("mappedBytes", mappedBytes);
+        stats.put("replayedEntries", replayedEntries);
+        stats.put("truncatedBytes", truncatedBytes);
+        stats.put("logBytes", log.getLogBytes());
+        stats.put("queueDepth", log.getQueueDepth());
+        stats.put("entriesWritten", log.getEntriesWritten());
+        stats.put("groupCommits", groupCommits);
+        stats.put("avgGroupSize", groupCommits == 0 ? 0.0 : (double) log.getEntriesWritten() / groupCommits);
+        stats.put("fsyncCount", fsyncCount);
+        stats.put("fsyncAvgMicros", fsyncCount == 0 ? 0 : log.getFsyncTotalNanos() / fsyncCount / 1000);
+        stats.put("fsyncMaxMicros", log.getFsyncMaxNanos() / 1000);
+        stats.put("lastFsyncMicros", log.getLastFsyncNanos() / 1000);
+        return stats;
+    }
+
+    public long getRecoveryTimeMs() { return recoveryTimeMs; }
+    public long getMappedBytes() { return mappedBytes; }
+    public long getBaseRows() { return baseRows; }
+
+    public long getLogBytes() {
+        WriteAheadLog log = wal;
+        return log == null ? 0 : log.getLogBytes();
+    }
+
+    public WriteAheadLog getWriteAheadLog() {
+        return wal;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        WriteAheadLog log = wal;
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                logger.warn("⚠️ [数据持久化] 关闭日志失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.chart.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import com.example.chart.model.UniversalChartDataView;
+
+/**
+ * 数据记录的二进制编解码
+ * 格式：[short 空值掩码][各非空字段]，字符串为 [int 长度][UTF-8字节]，时间为 [long 秒][int 纳秒]（UTC）
+ */
+public final class RecordCodec {
+
+    private static final int F_ID = 0;
+    private static final int F_YEAR = 1;
+    private static final int F_MONTH = 2;
+    private static final int F_DATE = 3;
+    private static final int F_CATEGORY = 4;
+    private static final int F_CHANNEL = 5;
+    private static final int F_PRODUCT = 6;
+    private static final int F_REGION = 7;
+    private static final int F_AMOUNT = 8;
+    private static final int F_QUANTITY = 9;
+    private static final int F_PERCENTAGE = 10;
+    private static final int F_SALESMAN = 11;
+    private static final int F_CREATED_AT = 12;
+    private static final int F_UPDATED_AT = 13;
+
+    private RecordCodec() {
+    }
+
+    /**
+     * 编码一条记录
+     */
+    public static byte[] encode(UniversalChartDataView data) {
+        Writer out = new Writer(128);
+        int mask = 0;
+        Object[] values = {
+                data.getId(), data.getYear(), data.getMonth(), data.getDate(), data.getCategory(),
+                data.getChannel(), data.getProduct(), data.getRegion(), data.getAmount(), data.getQuantity(),
+                data.getPercentage(), data.getSalesman(), data.getCreatedAt(), data.getUpdatedAt() };
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                mask |= 1 << i;
+            }
+        }
+        out.putShort((short) mask);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            switch (i) {
+                case F_ID:
+                    out.putLong((Long) value);
+                    break;
+                case F_AMOUNT:
+                case F_PERCENTAGE:
+                    out.putDouble((Double) value);
+                    break;
+                case F_QUANTITY:
+                    out.putInt((Integer) value);
+                    break;
+                case F_CREATED_AT:
+                case F_UPDATED_AT:
+                    LocalDateTime time = (LocalDateTime) value;
+                    out.putLong(time.toEpochSecond(ZoneOffset.UTC));
+                    out.putInt(time.getNano());
+                    break;
+                default:
+                    out.putString((String) value);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码一条记录
+     */
+    public static UniversalChartDataView decode(ByteBuffer in) {
+        UniversalChartDataView data = new UniversalChartDataView();
+        int mask = in.getShort() & 0xFFFF;
+        data.setCreatedAt(null);
+        data.setUpdatedAt(null);
+        for (int i = 0; i <= F_UPDATED_AT; i++) {
+            if ((mask & (1 << i)) == 0) {
+                continue;
+            }
+            switch (i) {
+                case F_ID: data.setId(in.getLong()); break;
+                case F_YEAR: data.setYear(getString(in)); break;
+                case F_MONTH: data.setMonth(getString(in)); break;
+                case F_DATE: data.setDate(getString(in)); break;
+                case F_CATEGORY: data.setCategory(getString(in)); break;
+                case F_CHANNEL: data.setChannel(getString(in)); break;
+                case F_PRODUCT: data.setProduct(getString(in)); break;
+                case F_REGION: data.setRegion(getString(in)); break;
+                case F_AMOUNT: data.setAmount(in.getDouble()); break;
+                case F_QUANTITY: data.setQuantity(in.getInt()); break;
+                case F_PERCENTAGE: data.setPercentage(in.getDouble()); break;
+                case F_SALESMAN: data.setSalesman(getString(in)); break;
+                case F_CREATED_AT: data.setCreatedAt(getTime(in)); break;
+                case F_UPDATED_AT: data.setUpdatedAt(getTime(in)); break;
+                default: break;
+            }
+        }
+        return data;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static LocalDateTime getTime(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    /**
+     * 可增长的大端字节写入器
+     */
+    static final class Writer {
+        private byte[] buffer;
+        private int length;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void putShort(short value) {
+            ensure(2);
+            buffer[length++] = (byte) (value >>> 8);
+            buffer[length++] = (byte) value;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putDouble(double value) {
+            putLong(Double.doubleToRawLongBits(value));
+        }
+
+        void putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            length += bytes.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.chart.store;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.store.ColumnTable.Column;
+
+/**
+ * 分层记录存储
+ * 底层为只读的内存映射列式表（启动时打开的最新列式快照），其上是按ID有序的跳表增量层。
+ * 增量层中的记录和已删除的底层记录会遮蔽底层同ID的行；遍历时按ID归并两层，迭代器是弱一致的
+ */
+public class RecordStore {
+
+    /**
+     * 按列读取存储的接收方：底层行按行号直接读取映射的列缓冲区，增量层记录按对象读取
+     */
+    public interface RowSink {
+        void addBaseRow(ColumnTable table, int row);
+
+        void addRecord(UniversalChartDataView data);
+    }
+
+    private final ConcurrentSkipListMap<Long, UniversalChartDataView> delta = new ConcurrentSkipListMap<>();
+
+    // 被增量层覆盖或已删除的底层记录ID
+    private final Set<Long> shadowed = ConcurrentHashMap.newKeySet();
+
+    private volatile ColumnTable base;
+
+    // 跳表的size()需要遍历，记录数单独维护
+    private final AtomicLong size = new AtomicLong();
+
+    // 最大记录ID和非追加修改（覆盖、删除、插入到最大ID之前、清空）的计数，由写入锁保护；
+    // 两次切点之间计数不变时，其间的变化只有ID递增的新增记录，列向量批次可以只追加
+    private final Object writeLock = new Object();
+    private long maxId;
+    private long rewrites;
+
+    /**
+     * 存储的一致切点：ID不大于maxId的记录在切点时已全部写入
+     */
+    public static final class Cut {
+        private final long maxId;
+        private final long rewrites;
+
+        Cut(long maxId, long rewrites) {
+            this.maxId = maxId;
+            this.rewrites = rewrites;
+        }
+
+        public long getMaxId() { return maxId; }
+
+        /**
+         * 从earlier到这个切点之间是否只有ID递增的新增记录
+         */
+        public boolean isAppendOnlySince(Cut earlier) {
+            return rewrites == earlier.rewrites && maxId >= earlier.maxId;
+        }
+    }
+
+    /**
+     * 挂载底层列式表，存储中已有的数据会被清空
+     */
+    public void attachBase(ColumnTable table) {
+        synchronized (writeLock) {
+            clear();
+            base = table;
+            size.set(table.getRowCount());
+            maxId = table.getRowCount() == 0 ? 0 : table.getId(table.getRowCount() - 1);
+        }
+    }
+
+    public ColumnTable getBase() {
+        return base;
+    }
+
+    public UniversalChartDataView get(Long id) {
+        if (id == null) {
+            return null;
+        }
+        UniversalChartDataView data = delta.get(id);
+        ColumnTable table = base;
+        if (data != null || table == null || shadowed.contains(id)) {
+            return data;
+        }
+        int row = table.rowOf(id);
+        return row < 0 ? null : table.materialize(row);
+    }
+
+    /**
+     * 记录是否存在（不还原底层行）
+     */
+    public boolean contains(long id) {
+        if (delta.containsKey(id)) {
+            return true;
+        }
+        ColumnTable table = base;
+        return table != null && !shadowed.contains(id) && table.rowOf(id) >= 0;
+    }
+
+    /**
+     * 写入记录，返回是否为新增
+     */
+    public boolean put(UniversalChartDataView data) {
+        Long id = data.getId();
+        synchronized (writeLock) {
+            boolean replaced = delta.put(id, data) != null;
+            ColumnTable table = base;
+            if (table != null && table.rowOf(id) >= 0 && shadowed.add(id)) {
+                replaced = true;
+            }
+            if (!replaced) {
+                size.incrementAndGet();
+            }
+            // 计数在修改之后递增：读到新计数的切点一定能看到这次修改
+            if (replaced || id <= maxId) {
+                rewrites++;
+            } else {
+                maxId = id;
+            }
+            return !replaced;
+        }
+    }
+
+    /**
+     * 删除记录，返回记录是否存在
+     */
+    public boolean remove(long id) {
+        synchronized (writeLock) {
+            boolean removed = delta.remove(id) != null;
+            ColumnTable table = base;
+            if (table != null && table.rowOf(id) >= 0 && shadowed.add(id)) {
+                removed = true;
+            }
+            if (removed) {
+                size.decrementAndGet();
+                rewrites++;
+            }
+            return removed;
+        }
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            base = null;
+            shadowed.clear();
+            delta.clear();
+            size.set(0);
+            maxId = 0;
+            rewrites++;
+        }
+    }
+
+    /**
+     * 当前的一致切点
+     */
+    public Cut cut() {
+        synchronized (writeLock) {
+            return new Cut(maxId, rewrites);
+        }
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    /**
+     * 按ID升序遍历全部记录
+     */
+    public Iterable<UniversalChartDataView> values() {
+        return tail(null);
+    }
+
+    /**
+     * 按ID升序遍历afterId之后的记录，afterId为空时从头开始
+     */
+    public Iterable<UniversalChartDataView> tail(Long afterId) {
+        return () -> new MergingIterator(base, afterId);
+    }
+
+    public Stream<UniversalChartDataView> stream() {
+        return StreamSupport.stream(values().spliterator(), false);
+    }
+
+    /**
+     * 按ID升序把ID不大于切点maxId的记录交给sink，底层行不还原为对象；与遍历一样是弱一致的
+     */
+    public void scan(Cut cut, RowSink sink) {
+        ColumnTable table = base;
+        int rows = table == null ? 0 : table.getRowCount();
+        int row = 0;
+        Iterator<UniversalChartDataView> deltaIterator = delta.headMap(cut.maxId, true).values().iterator();
+        UniversalChartDataView pendingDelta = deltaIterator.hasNext() ? deltaIterator.next() : null;
+        boolean checkShadowed = !shadowed.isEmpty();
+        while (row < rows || pendingDelta != null) {
+            long baseId = row < rows ? table.getId(row) : Long.MAX_VALUE;
+            if (pendingDelta != null && pendingDelta.getId() <= baseId) {
+                sink.addRecord(pendingDelta);
+                if (pendingDelta.getId() == baseId) {
+                    row++;
+                }
+                pendingDelta = deltaIterator.hasNext() ? deltaIterator.next() : null;
+                continue;
+            }
+            if (!checkShadowed || !shadowed.contains(baseId)) {
+                sink.addBaseRow(table, row);
+            }
+            row++;
+        }
+    }
+
+    /**
+     * 按ID升序把两个切点之间新增的记录交给sink（to.isAppendOnlySince(from)时，这些记录都在增量层中）
+     */
+    public void scanAppended(Cut from, Cut to, RowSink sink) {
+        for (UniversalChartDataView data : delta.subMap(from.maxId, false, to.maxId, true).values()) {
+            sink.addRecord(data);
+        }
+    }
+
+    /**
+     * 按字符串列计数，底层表直接按字典编码统计，不还原对象；空值不计入
+     */
+    public Map<String, Long> countBy(Column column, Function<UniversalChartDataView, String> getter) {
+        Map<String, Long> counts = new HashMap<>();
+        ColumnTable table = base;
+        if (table != null) {
+            String[] dictionary = table.getDictionary(column);
+            long[] codeCounts = new long[dictionary.length];
+            boolean checkShadowed = !shadowed.isEmpty();
+            for (int row = 0, rows = table.getRowCount(); row < rows; row++) {
+                int code = table.getCode(column, row);
+                if (code >= 0 && (!checkShadowed || !shadowed.contains(table.getId(row)))) {
+                    codeCounts[code]++;
+                }
+            }
+            for (int code = 0; code < dictionary.length; code++) {
+                if (codeCounts[code] > 0) {
+                    counts.merge(dictionary[code], codeCounts[code], Long::sum);
+                }
+            }
+        }
+        for (UniversalChartDataView data : delta.values()) {
+            String value = getter.apply(data);
+            if (value != null) {
+                counts.merge(value, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 按ID归并底层表和增量层；同ID时以增量层为准
+     */
+    private final class MergingIterator implements Iterator<UniversalChartDataView> {
+        private final ColumnTable table;
+        private final int rows;
+        private final Iterator<UniversalChartDataView> deltaIterator;
+        private int row;
+        private UniversalChartDataView pendingDelta;
+        private UniversalChartDataView next;
+
+        MergingIterator(ColumnTable table, Long afterId) {
+            this.table = table;
+            this.rows = table == null ? 0 : table.getRowCount();
+            this.row = table == null || afterId == null ? 0 : table.firstRowAfter(afterId);
+            this.deltaIterator = (afterId == null ? delta : delta.tailMap(afterId, false)).values().iterator();
+            this.pendingDelta = deltaIterator.hasNext() ? deltaIterator.next() : null;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (row < rows || pendingDelta != null) {
+                long baseId = row < rows ? table.getId(row) : Long.MAX_VALUE;
+                if (pendingDelta != null && pendingDelta.getId() <= baseId) {
+                    next = pendingDelta;
+                    if (pendingDelta.getId() == baseId) {
+                        row++;
+                    }
+                    pendingDelta = deltaIterator.hasNext() ? deltaIterator.next() : null;
+                    return;
+                }
+                int current = row++;
+                if (!shadowed.contains(baseId)) {
+                    next = table.materialize(current);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public UniversalChartDataView next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            UniversalChartDataView current = next;
+            advance();
+            return current;
+        }
+    }
+}
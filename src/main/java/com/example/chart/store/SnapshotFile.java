@@ -0,0 +1,164 @@
+package com.example.chart.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import com.example.chart.model.UniversalChartDataView;
+
+/**
+ * 按行存储的快照文件（早期格式，恢复时仍可读取；新快照使用ColumnarSnapshot）
+ * 格式：[int 魔数][int 版本][long 快照序号][long ID生成器][long 记录数]{[int 长度][记录]}*[long CRC32]
+ * 先写临时文件并fsync，再原子重命名为snapshot-序号.bin
+ */
+public final class SnapshotFile {
+
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+
+    /**
+     * 快照头信息
+     */
+    public static class Header {
+        private final long seq;
+        private final long idGenerator;
+        private final long recordCount;
+
+        Header(long seq, long idGenerator, long recordCount) {
+            this.seq = seq;
+            this.idGenerator = idGenerator;
+            this.recordCount = recordCount;
+        }
+
+        public long getSeq() { return seq; }
+        public long getIdGenerator() { return idGenerator; }
+        public long getRecordCount() { return recordCount; }
+    }
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * 写入快照，返回快照文件路径
+     */
+    public static Path write(Path directory, long seq, long idGenerator, long recordCount,
+            Iterable<UniversalChartDataView> records) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, seq, SUFFIX));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream raw = Channels.newOutputStream(channel);
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(raw, 256 * 1024),
+                    new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(seq);
+            out.writeLong(idGenerator);
+            out.writeLong(recordCount);
+            long written = 0;
+            for (UniversalChartDataView record : records) {
+                if (written == recordCount) {
+                    break;
+                }
+                byte[] bytes = RecordCodec.encode(record);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                written++;
+            }
+            if (written != recordCount) {
+                throw new IOException("快照记录数不一致: 预期 " + recordCount + ", 实际 " + written);
+            }
+            long crc = checked.getChecksum().getValue();
+            out.writeLong(crc);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+
+    /**
+     * 读取快照，逐条回调记录；校验失败时抛出IOException
+     */
+    public static Header read(Path snapshot, Consumer<UniversalChartDataView> consumer) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(snapshot), 256 * 1024)) {
+            CheckedInputStream checked = new CheckedInputStream(raw, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("快照魔数不匹配: " + snapshot.getFileName());
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("不支持的快照版本: " + version);
+            }
+            long seq = in.readLong();
+            long idGenerator = in.readLong();
+            long count = in.readLong();
+
+            // 先完整读出并校验，再交给调用方，避免应用半个损坏的快照
+            List<UniversalChartDataView> records = new ArrayList<>((int) Math.min(count, 1 << 20));
+            byte[] buffer = new byte[256];
+            for (long i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                records.add(RecordCodec.decode(ByteBuffer.wrap(buffer, 0, length).slice()));
+            }
+            long expected = checked.getChecksum().getValue();
+            long actual = new DataInputStream(raw).readLong();
+            if (expected != actual) {
+                throw new IOException("快照校验失败: " + snapshot.getFileName());
+            }
+            records.forEach(consumer);
+            return new Header(seq, idGenerator, count);
+        }
+    }
+
+    /**
+     * 列出目录中的快照，按序号从新到旧排列
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                snapshots.add(path);
+            }
+        }
+        snapshots.sort(Comparator.comparingLong(SnapshotFile::seqOf).reversed());
+        return snapshots;
+    }
+
+    public static long seqOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.chart.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * 内容寻址存储中的一个制品版本
+ * 版本号即内容的SHA-256；原始字节、解析后的JSON树和编译结果（Jolt规范的Chainr）都常驻内存，
+ * 相同内容的多个版本共享同一份数据。解析结果被所有读取方共享，只读使用，需要修改时调用copyParsed
+ */
+public class StoredArtifact {
+
+    /**
+     * 制品类型
+     */
+    public enum Kind {
+        /** 通用模板（universal-templates） */
+        TEMPLATE("universal-templates"),
+        /** Jolt规范（jolt-specs） */
+        JOLT_SPEC("jolt-specs"),
+        /** ECharts官方示例（echarts/分类） */
+        ECHARTS_EXAMPLE("echarts");
+
+        private final String resourceRoot;
+
+        Kind(String resourceRoot) {
+            this.resourceRoot = resourceRoot;
+        }
+
+        public String getResourceRoot() { return resourceRoot; }
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String category;
+    private final String chartId;
+    private final String hash;
+    private final long createdAt;
+    private final String source;
+    private final String description;
+    private final byte[] content;
+    private final Object parsed;
+    private final Object compiled;
+
+    StoredArtifact(Kind kind, String name, String category, String chartId, String hash, long createdAt,
+            String source, String description, byte[] content, Object parsed, Object compiled) {
+        this.kind = kind;
+        this.name = name;
+        this.category = category;
+        this.chartId = chartId;
+        this.hash = hash;
+        this.createdAt = createdAt;
+        this.source = source;
+        this.description = description;
+        this.content = content;
+        this.parsed = parsed;
+        this.compiled = compiled;
+    }
+
+    public Kind getKind() { return kind; }
+    public String getName() { return name; }
+    public String getCategory() { return category; }
+    public String getChartId() { return chartId; }
+    public String getHash() { return hash; }
+    public long getCreatedAt() { return createdAt; }
+    public String getSource() { return source; }
+    public String getDescription() { return description; }
+    public long getSize() { return content.length; }
+
+    /**
+     * 逻辑路径，例如 echarts/折线图/基础折线图.json
+     */
+    public String getPath() {
+        return kind.getResourceRoot() + "/" + (category == null ? "" : category + "/") + name;
+    }
+
+    @JsonIgnore
+    public byte[] getContent() { return content; }
+
+    @JsonIgnore
+    public String getContentAsString() { return new String(content, StandardCharsets.UTF_8); }
+
+    /**
+     * 共享的解析结果（Map/List树），不要修改
+     */
+    @JsonIgnore
+    public Object getParsed() { return parsed; }
+
+    /**
+     * 编译结果：Jolt规范为Chainr，其他类型为null
+     */
+    @JsonIgnore
+    public Object getCompiled() { return compiled; }
+
+    /**
+     * 解析结果的深拷贝，供需要修改的调用方使用
+     */
+    @JsonIgnore
+    public Object copyParsed() {
+        return deepCopy(parsed);
+    }
+
+    StoredArtifact withMetadata(String chartId, long createdAt, String source, String description) {
+        return new StoredArtifact(kind, name, category, chartId, hash, createdAt, source, description, content,
+                parsed, compiled);
+    }
+
+    /**
+     * 文件信息视图（用于列表接口）
+     */
+    public Map<String, Object> toFileInfo() {
+        Map<String, Object> info = new HashMap<>();
+        info.put("name", name);
+        info.put("path", getPath());
+        info.put("size", getSize());
+        info.put("lastModified", createdAt);
+        info.put("hash", hash);
+        info.put("source", source);
+        if (category != null) {
+            info.put("category", category);
+        }
+        if (chartId != null) {
+            info.put("chartId", chartId);
+        }
+        if (description != null) {
+            info.put("description", description);
+        }
+        return info;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object deepCopy(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> source = (Map<String, Object>) value;
+            Map<String, Object> copy = new LinkedHashMap<>(source.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                copy.put(entry.getKey(), deepCopy(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof List) {
+            List<Object> source = (List<Object>) value;
+            List<Object> copy = new ArrayList<>(source.size());
+            for (Object item : source) {
+                copy.add(deepCopy(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
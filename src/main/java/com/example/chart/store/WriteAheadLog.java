@@ -0,0 +1,468 @@
+package com.example.chart.store;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 追加写的预写日志（WAL）
+ * 日志按段存放（wal-起始序号.log），单独的写线程把排队中的条目合并成一组写入并只做一次fsync（组提交）。
+ * 条目格式：[int 负载长度][long 序号][byte 操作][负载][int CRC32(序号+操作+负载)]
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    public static final byte OP_PUT = 1;
+    public static final byte OP_DELETE = 2;
+    public static final byte OP_CLEAR = 3;
+
+    private static final int MAGIC = 0x4357414C; // "CWAL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_OVERHEAD = 4 + 8 + 1 + 4;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 回放回调
+     */
+    public interface ReplayHandler {
+        void apply(long seq, byte op, ByteBuffer payload);
+    }
+
+    /**
+     * 回放结果
+     */
+    public static class ReplayResult {
+        private final long lastSeq;
+        private final long entries;
+        private final long truncatedBytes;
+
+        ReplayResult(long lastSeq, long entries, long truncatedBytes) {
+            this.lastSeq = lastSeq;
+            this.entries = entries;
+            this.truncatedBytes = truncatedBytes;
+        }
+
+        public long getLastSeq() { return lastSeq; }
+        public long getEntries() { return entries; }
+        public long getTruncatedBytes() { return truncatedBytes; }
+    }
+
+    private static final class Pending {
+        final long seq;
+        final byte op;
+        final byte[] payload;
+        final boolean roll;
+        final Runnable onCommit;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(long seq, byte op, byte[] payload, boolean roll, Runnable onCommit) {
+            this.seq = seq;
+            this.op = op;
+            this.payload = payload;
+            this.roll = roll;
+            this.onCommit = onCommit;
+        }
+    }
+
+    private final Path directory;
+    private final boolean fsync;
+    private final int maxGroupSize;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    // 关闭检查和入队在同一把锁下进行，close翻转running之后不会再有条目进入队列
+    private final Object stateLock = new Object();
+    private volatile boolean running = true;
+
+    private FileChannel channel;
+    // 当前段中最后一次成功提交的末尾位置，写入失败时截断到这里
+    private long committedPosition;
+    private ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+
+    private final AtomicLong fsyncCount = new AtomicLong();
+    private final AtomicLong fsyncTotalNanos = new AtomicLong();
+    private final AtomicLong fsyncMaxNanos = new AtomicLong();
+    private final AtomicLong lastFsyncNanos = new AtomicLong();
+    private final AtomicLong groupCommits = new AtomicLong();
+    private final AtomicLong entriesWritten = new AtomicLong();
+
+    /**
+     * 打开新的日志段并启动写线程，startSeq为下一条日志的序号
+     */
+    public WriteAheadLog(Path directory, long startSeq, boolean fsync, int maxGroupSize) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        Files.createDirectories(directory);
+        this.channel = openSegment(startSeq);
+        this.writer = new Thread(this::runWriter, "data-store-wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 追加一条日志，返回的Future在该条目落盘后完成
+     */
+    public CompletableFuture<Void> append(long seq, byte op, byte[] payload) {
+        return append(seq, op, payload, null);
+    }
+
+    /**
+     * 追加一条日志；onCommit在该条目落盘后、Future完成前由写线程按序号顺序执行，写入失败时不执行
+     */
+    public CompletableFuture<Void> append(long seq, byte op, byte[] payload, Runnable onCommit) {
+        Pending pending = new Pending(seq, op, payload == null ? new byte[0] : payload, false, onCommit);
+        enqueue(pending);
+        return pending.future;
+    }
+
+    /**
+     * 切换到新的日志段（快照前调用），nextSeq为新段的起始序号
+     */
+    public CompletableFuture<Void> roll(long nextSeq) {
+        Pending pending = new Pending(nextSeq, (byte) 0, null, true, null);
+        enqueue(pending);
+        return pending.future;
+    }
+
+    private void enqueue(Pending pending) {
+        synchronized (stateLock) {
+            if (running) {
+                queue.add(pending);
+                return;
+            }
+        }
+        pending.future.completeExceptionally(new IOException("预写日志已关闭"));
+    }
+
+    /**
+     * 删除起始序号不大于snapshotSeq的旧日志段（快照前已切换日志段，这些段的内容已被快照覆盖）
+     */
+    public int deleteSegmentsCoveredBy(long snapshotSeq) throws IOException {
+        int deleted = 0;
+        for (Path segment : listSegments(directory)) {
+            if (segmentStartSeq(segment) <= snapshotSeq) {
+                Files.deleteIfExists(segment);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 日志目录中所有段的总字节数
+     */
+    public long getLogBytes() {
+        long total = 0;
+        try {
+            for (Path segment : listSegments(directory)) {
+                total += Files.size(segment);
+            }
+        } catch (IOException e) {
+            logger.debug("统计日志大小失败: {}", e.getMessage());
+        }
+        return total;
+    }
+
+    public long getFsyncCount() { return fsyncCount.get(); }
+    public long getFsyncTotalNanos() { return fsyncTotalNanos.get(); }
+    public long getFsyncMaxNanos() { return fsyncMaxNanos.get(); }
+    public long getLastFsyncNanos() { return lastFsyncNanos.get(); }
+    public long getGroupCommits() { return groupCommits.get(); }
+    public long getEntriesWritten() { return entriesWritten.get(); }
+    public int getQueueDepth() { return queue.size(); }
+
+    @Override
+    public void close() throws IOException {
+        // 不中断写线程：FileChannel在中断时会被强制关闭，写线程会在轮询超时后自行退出
+        synchronized (stateLock) {
+            running = false;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 写线程退出后仍可能残留未处理的条目
+        List<Pending> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            writeGroup(remaining);
+        }
+        channel.close();
+    }
+
+    // ========== 写线程 ==========
+
+    private void runWriter() {
+        List<Pending> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                // 写线程忙于fsync期间到达的条目会在这里合并为一组
+                queue.drainTo(group, maxGroupSize - 1);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void writeGroup(List<Pending> group) {
+        List<Pending> inFlight = new ArrayList<>(group.size());
+        try {
+            for (Pending pending : group) {
+                if (pending.roll) {
+                    commit(inFlight);
+                    channel.close();
+                    channel = openSegment(pending.seq);
+                    pending.future.complete(null);
+                } else {
+                    encode(pending);
+                    inFlight.add(pending);
+                }
+            }
+            commit(inFlight);
+        } catch (IOException e) {
+            logger.error("❌ [预写日志] 写入失败: {}", e.getMessage());
+            // 第一条未完成的条目（或切换）之前的内容都已提交
+            long nextSeq = -1;
+            for (Pending pending : group) {
+                if (nextSeq < 0 && !pending.future.isDone()) {
+                    nextSeq = pending.seq;
+                }
+                pending.future.completeExceptionally(e);
+            }
+            buffer.clear();
+            discardUncommitted(nextSeq);
+        }
+    }
+
+    /**
+     * 写入失败后去掉段尾未提交的字节，否则回放时会在这里截断，丢弃之后已确认的条目；
+     * 无法截断时切换到新的日志段
+     */
+    private void discardUncommitted(long nextSeq) {
+        try {
+            if (channel.size() > committedPosition) {
+                channel.truncate(committedPosition);
+            }
+            channel.position(committedPosition);
+            return;
+        } catch (IOException e) {
+            logger.error("❌ [预写日志] 截断未提交的写入失败: {}，切换日志段", e.getMessage());
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("关闭日志段失败: {}", e.getMessage());
+        }
+        try {
+            channel = openSegment(nextSeq);
+        } catch (IOException e) {
+            // 之后的写入会再次失败并重试
+            logger.error("❌ [预写日志] 打开新日志段失败: {}", e.getMessage());
+        }
+    }
+
+    private void encode(Pending pending) {
+        int size = ENTRY_OVERHEAD + pending.payload.length;
+        if (buffer.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        CRC32 crc = new CRC32();
+        int start = buffer.position();
+        buffer.putInt(pending.payload.length);
+        buffer.putLong(pending.seq);
+        buffer.put(pending.op);
+        buffer.put(pending.payload);
+        crc.update(buffer.array(), start + 4, 8 + 1 + pending.payload.length);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private void commit(List<Pending> inFlight) throws IOException {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+
+        if (fsync) {
+            long start = System.nanoTime();
+            channel.force(false);
+            long elapsed = System.nanoTime() - start;
+            fsyncCount.incrementAndGet();
+            fsyncTotalNanos.addAndGet(elapsed);
+            lastFsyncNanos.set(elapsed);
+            fsyncMaxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+        committedPosition = channel.position();
+        groupCommits.incrementAndGet();
+        entriesWritten.addAndGet(inFlight.size());
+        for (Pending pending : inFlight) {
+            if (pending.onCommit != null) {
+                try {
+                    pending.onCommit.run();
+                } catch (RuntimeException e) {
+                    logger.error("❌ [预写日志] 序号 {} 落盘后应用失败: {}", pending.seq, e.getMessage());
+                    pending.future.completeExceptionally(e);
+                    continue;
+                }
+            }
+            pending.future.complete(null);
+        }
+        inFlight.clear();
+    }
+
+    private FileChannel openSegment(long startSeq) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, startSeq, SEGMENT_SUFFIX));
+        FileChannel segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(startSeq).flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segment.force(true);
+        committedPosition = HEADER_BYTES;
+        logger.debug("📝 [预写日志] 打开日志段: {}", path.getFileName());
+        return segment;
+    }
+
+    // ========== 回放 ==========
+
+    /**
+     * 按序回放目录中序号大于afterSeq的全部日志条目
+     * 遇到不完整或校验失败的尾部条目时截断该段，视为崩溃时未落盘的写入
+     */
+    public static ReplayResult replay(Path directory, long afterSeq, ReplayHandler handler) throws IOException {
+        long lastSeq = afterSeq;
+        long entries = 0;
+        long truncated = 0;
+        if (!Files.isDirectory(directory)) {
+            return new ReplayResult(lastSeq, 0, 0);
+        }
+
+        for (Path segment : listSegments(directory)) {
+            long validLength = HEADER_BYTES;
+            long fileSize = Files.size(segment);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+                    InputStream raw = new BufferedInputStream(Channels.newInputStream(channel), 256 * 1024);
+                    DataInputStream in = new DataInputStream(raw)) {
+                if (fileSize < HEADER_BYTES || in.readInt() != MAGIC) {
+                    logger.warn("⚠️ [预写日志] 跳过无效日志段: {}", segment.getFileName());
+                    continue;
+                }
+                in.readInt();
+                in.readLong();
+
+                CRC32 crc = new CRC32();
+                byte[] payload = new byte[256];
+                while (true) {
+                    int length;
+                    long seq;
+                    byte op;
+                    try {
+                        length = in.readInt();
+                        if (length < 0 || validLength + ENTRY_OVERHEAD + length > fileSize) {
+                            break;
+                        }
+                        seq = in.readLong();
+                        op = in.readByte();
+                        if (payload.length < length) {
+                            payload = new byte[Math.max(length, payload.length * 2)];
+                        }
+                        in.readFully(payload, 0, length);
+                        int expected = in.readInt();
+
+                        crc.reset();
+                        crc.update(longBytes(seq), 0, 8);
+                        crc.update(op);
+                        crc.update(payload, 0, length);
+                        if ((int) crc.getValue() != expected) {
+                            break;
+                        }
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    validLength += ENTRY_OVERHEAD + length;
+                    if (seq > lastSeq) {
+                        handler.apply(seq, op, ByteBuffer.wrap(payload, 0, length).slice());
+                        lastSeq = seq;
+                        entries++;
+                    }
+                }
+            }
+            if (validLength < fileSize) {
+                truncated += fileSize - validLength;
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+                logger.warn("⚠️ [预写日志] 日志段 {} 尾部 {} 字节不完整，已截断", segment.getFileName(),
+                        fileSize - validLength);
+            }
+        }
+        return new ReplayResult(lastSeq, entries, truncated);
+    }
+
+    static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort(Comparator.comparingLong(WriteAheadLog::segmentStartSeq));
+        return segments;
+    }
+
+    private static long segmentStartSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+}
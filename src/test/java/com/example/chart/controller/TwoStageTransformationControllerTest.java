@@ -0,0 +1,96 @@
+package com.example.chart.controller;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.service.ChartRenderService;
+import com.example.chart.service.RenderedOutputCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 两阶段转换控制器渲染接口测试类
+ */
+@ExtendWith(MockitoExtension.class)
+class TwoStageTransformationControllerTest {
+
+    private static final byte[] RENDERED = "{\"series\":[1,2,3]}".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private ChartRenderService chartRenderService;
+
+    @Mock
+    private ChartRenderService.RenderResult renderResult;
+
+    @InjectMocks
+    private TwoStageTransformationController controller;
+
+    private RenderedOutputCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ChartConfigProperties properties = new ChartConfigProperties();
+        properties.getRender().getCache().setCompressionMinBytes(0);
+        cache = new RenderedOutputCache();
+        ReflectionTestUtils.setField(cache, "chartConfigProperties", properties);
+        ReflectionTestUtils.setField(controller, "renderedOutputCache", cache);
+        when(chartRenderService.render("basic_line_chart")).thenReturn(renderResult);
+    }
+
+    @Test
+    void testDeflateBeforeCompressionFinishesServesRawBytes() {
+        // 刚写入缓存、后台压缩尚未完成的条目
+        RenderedOutputCache.Entry entry = freshEntry();
+        when(renderResult.getEntry()).thenReturn(entry);
+
+        ResponseEntity<byte[]> response = controller.renderChart("basic_line_chart", "deflate", null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(RENDERED, response.getBody());
+        assertEquals(entry.getEtag(), response.getHeaders().getETag());
+    }
+
+    @Test
+    void testEachEncodingHasItsOwnEtag() {
+        RenderedOutputCache.Entry entry = freshEntry();
+        ReflectionTestUtils.invokeMethod(cache, "compress", entry);
+        when(renderResult.getEntry()).thenReturn(entry);
+
+        ResponseEntity<byte[]> deflated = controller.renderChart("basic_line_chart", "deflate", null);
+        assertEquals("deflate", deflated.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertArrayEquals(entry.getDeflate(), deflated.getBody());
+        String deflateEtag = deflated.getHeaders().getETag();
+        assertNotEquals(entry.getEtag(), deflateEtag);
+
+        ResponseEntity<byte[]> gzipped = controller.renderChart("basic_line_chart", "gzip", null);
+        assertNotEquals(deflateEtag, gzipped.getHeaders().getETag());
+
+        // 缓存的是deflate版本时，请求原始字节不应返回304
+        assertEquals(HttpStatus.OK, controller.renderChart("basic_line_chart", null, deflateEtag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                controller.renderChart("basic_line_chart", "deflate", "W/" + deflateEtag).getStatusCode());
+    }
+
+    private RenderedOutputCache.Entry freshEntry() {
+        // 缓存关闭时put只构建条目，不提交后台压缩
+        ChartConfigProperties properties = (ChartConfigProperties) ReflectionTestUtils.getField(cache,
+                "chartConfigProperties");
+        properties.getRender().getCache().setEnabled(false);
+        RenderedOutputCache.Entry entry = cache.put("basic_line_chart", "1:1:1:1", RENDERED);
+        properties.getRender().getCache().setEnabled(true);
+        assertFalse(entry.isCompressed());
+        return entry;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.chart.query;
+
+import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.query.sketch.HyperLogLog;
+import com.example.chart.query.sketch.TDigest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 近似聚合（不同值计数、分位数）测试类
+ */
+class ApproximateAggregationTest {
+
+    @Test
+    void testSketchesMergeAndSurviveSerialization() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 20000; i++) {
+            first.addHash(HyperLogLog.hash("customer-" + i));
+            second.addHash(HyperLogLog.hash("customer-" + (i + 10000)));
+        }
+        // 重叠的一半只计一次
+        long merged = HyperLogLog.fromBytes(first.toBytes()).merge(second).estimate();
+        assertEquals(30000, merged, 30000 * 0.03);
+        assertThrows(IllegalArgumentException.class, () -> first.merge(new HyperLogLog(12)));
+
+        TDigest left = new TDigest();
+        TDigest right = new TDigest();
+        for (int i = 1; i <= 100000; i++) {
+            (i % 2 == 0 ? left : right).add(i);
+        }
+        TDigest restored = TDigest.fromBytes(left.toBytes()).merge(right);
+        assertEquals(100000, restored.size());
+        assertEquals(50000, restored.quantile(0.5), 100000 * 0.005);
+        assertEquals(95000, restored.quantile(0.95), 100000 * 0.005);
+        assertEquals(1, restored.quantile(0), 0);
+        assertEquals(100000, restored.quantile(1), 0);
+    }
+
+    @Test
+    void testSmallSketchesStaySparseAndExact() {
+        HyperLogLog small = new HyperLogLog(12);
+        for (int i = 0; i < 100; i++) {
+            small.addHash(HyperLogLog.hash("customer-" + i));
+            small.addHash(HyperLogLog.hash("customer-" + i));
+        }
+        small.addHash(0);
+        assertTrue(small.isSparse());
+        assertEquals(101, small.estimate());
+        HyperLogLog restored = HyperLogLog.fromBytes(small.toBytes());
+        assertTrue(restored.isSparse());
+        assertEquals(101, restored.estimate());
+
+        // 超过上限后转换为寄存器数组，结果与直接加入全部哈希值的实例一致
+        HyperLogLog large = new HyperLogLog(12);
+        HyperLogLog all = new HyperLogLog(12);
+        all.addHash(0);
+        for (int i = 0; i < 1050; i++) {
+            if (i >= 50) {
+                large.addHash(HyperLogLog.hash("customer-" + i));
+            }
+            all.addHash(HyperLogLog.hash("customer-" + i));
+        }
+        assertFalse(large.isSparse());
+        HyperLogLog merged = HyperLogLog.fromBytes(small.toBytes()).merge(large);
+        assertArrayEquals(all.toBytes(), merged.toBytes());
+        assertArrayEquals(all.toBytes(), large.merge(small).toBytes());
+    }
+
+    @Test
+    void testCompiledMappingEstimatesDistinctAndPercentiles() {
+        Random random = new Random(7);
+        List<UniversalChartDataView> records = new ArrayList<>();
+        List<Double> amounts = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            UniversalChartDataView data = new UniversalChartDataView();
+            data.setId((long) i);
+            data.setRegion(i % 2 == 0 ? "华北" : "华东");
+            data.setSalesman("S" + (i % 4000));
+            data.setAmount(random.nextInt(100000) / 100.0);
+            records.add(data);
+            if (i % 2 == 0) {
+                amounts.add(data.getAmount());
+            }
+        }
+        Collections.sort(amounts);
+        ColumnBatch batch = ColumnBatch.of(records);
+
+        CompiledMapping distinct = CompiledMapping.compile("salesman", "count_distinct", "number",
+                Map.of("region", "华北"));
+        assertEquals(CompiledMapping.Aggregation.COUNT_DISTINCT, distinct.getAggregation());
+        CompiledMapping.Result result = distinct.execute(batch);
+        assertEquals(10000, result.getRowsMatched());
+        assertEquals(2000L, (long) (Long) result.getValue(), 2000 * 0.03);
+
+        CompiledMapping p95 = CompiledMapping.compile("amount", "p95", "number", Map.of("region", "华北"));
+        assertEquals(0.95, p95.getQuantile(), 0);
+        double expected = amounts.get((int) (amounts.size() * 0.95));
+        assertEquals(expected, (Double) p95.execute(batch).getValue(), 1000 * 0.01);
+
+        assertEquals(0.5, CompiledMapping.compile("amount", "median", "number", null).getQuantile(), 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> CompiledMapping.compile("amount", "percentile", "number", null));
+    }
+
+    @Test
+    void testPivotCountsDistinctPerCategory() {
+        List<UniversalChartDataView> records = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            UniversalChartDataView data = new UniversalChartDataView();
+            data.setId((long) i);
+            data.setRegion(i % 3 == 0 ? "华南" : "华北");
+            data.setSalesman("S" + (i % 100));
+            records.add(data);
+        }
+        PivotQuery query = PivotQuery.compile("salesman", "count_distinct", "array", null, null, null, "region",
+                null, null, null, null, null);
+        PivotQuery.Result result = query.execute(ColumnBatch.of(records));
+        assertEquals(List.of("华北", "华南"), result.getCategories());
+        // i % 3 == 0 的行中销售员编号为 i % 100，覆盖全部100个编号
+        List<? extends Number> counts = result.getSeries(null);
+        assertEquals(100L, counts.get(0));
+        assertEquals(100L, counts.get(1));
+    }
+}
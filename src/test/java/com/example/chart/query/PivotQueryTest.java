@@ -0,0 +1,114 @@
+package com.example.chart.query;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.UniversalChartDataView;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分组透视查询测试类
+ */
+class PivotQueryTest {
+
+    @Test
+    void testSeriesAreAlignedWithCategoryAxis() {
+        ColumnBatch batch = sampleBatch();
+        PivotQuery.Result result = pivot("amount", "sum", "zero").execute(batch);
+        // 值全部为空的分类（华南）和分组键为空的行不输出
+        assertEquals(List.of("华东", "华北"), result.getCategories());
+        assertEquals(List.of("线上", "线下"), result.getSeriesNames());
+        assertEquals(List.of(10.0, 12.0), result.getSeries("线上"));
+        assertEquals(List.of(20.0, 0.0), result.getSeries("线下"));
+        assertEquals(List.of(0.0, 0.0), result.getSeries("不存在"));
+        assertEquals(5, result.getRowsMatched());
+
+        assertEquals(Arrays.asList(20.0, null), pivot("amount", "sum", "skip").execute(batch).getSeries("线下"));
+        assertEquals(List.of(20.0, 20.0), pivot("amount", "sum", "fill").execute(batch).getSeries("线下"));
+        assertEquals(List.of(10.0, 6.0), pivot("amount", "avg", "zero").execute(batch).getSeries("线上"));
+        assertEquals(List.of(10.0, 5.0), pivot("amount", "none", "zero").execute(batch).getSeries("线上"));
+    }
+
+    @Test
+    void testNonNumericValueFieldsCanOnlyBeCounted() {
+        for (String aggregation : List.of("sum", "avg", "max", "none", "median")) {
+            assertThrows(IllegalArgumentException.class, () -> pivot("salesman", aggregation, "zero"),
+                    aggregation);
+        }
+        assertThrows(IllegalArgumentException.class, () -> pivot("unknown", "sum", "zero"));
+
+        ColumnBatch batch = sampleBatch();
+        PivotQuery.Result counts = pivot("salesman", "count", "zero").execute(batch);
+        assertEquals(List.of("华东", "华北", "华南"), counts.getCategories());
+        assertEquals(List.of(1L, 2L, 0L), counts.getSeries("线上"));
+        assertEquals(List.of(1L, 1L, 0L), pivot("salesman", "count_distinct", "zero").execute(batch).getSeries("线上"));
+        // 没有值字段时统计行数
+        assertEquals(List.of(1L, 0L, 1L), pivot(null, "none", "zero").execute(batch).getSeries("线下"));
+        // 转换表达式把字符串字段之外的值变为数值后可以求和
+        assertEquals(List.of(20.0, 24.0), PivotQuery.compile("salesman", "sum", "array", null, null, "amount * 2",
+                "region", null, "channel", "zero", null, null).execute(batch).getSeries("线上"));
+    }
+
+    @Test
+    void testHighCardinalityPivotScansSequentially() {
+        List<UniversalChartDataView> records = new ArrayList<>();
+        for (int i = 0; i < 70000; i++) {
+            records.add(record((long) i, i % 2 == 0 ? "华东" : "华北", "线上", "S" + i, (double) (i % 10)));
+        }
+        ColumnBatch batch = ColumnBatch.of(records);
+        ChartConfigProperties properties = new ChartConfigProperties();
+        properties.getQuery().getParallel().setThresholdRows(1000);
+        properties.getQuery().getParallel().setPartitionRows(4096);
+        ParallelScanExecutor executor = new ParallelScanExecutor();
+        ReflectionTestUtils.setField(executor, "chartConfigProperties", properties);
+        try {
+            // 每个分区都要分配70000个单元格，改为顺序扫描
+            PivotQuery bySalesman = PivotQuery.compile("amount", "sum", "array", null, null, null, "salesman", null,
+                    null, "zero", null, null);
+            PivotQuery.Result sequential = bySalesman.execute(batch, executor);
+            assertEquals(0, executor.getParallelScans());
+            assertEquals(70000, sequential.getCategories().size());
+
+            PivotQuery byRegion = PivotQuery.compile("amount", "sum", "array", null, null, null, "region", null,
+                    null, "zero", null, null);
+            PivotQuery.Result parallel = byRegion.execute(batch, executor);
+            assertEquals(1, executor.getParallelScans());
+            assertEquals(byRegion.execute(batch).getSeries(null), parallel.getSeries(null));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static PivotQuery pivot(String field, String aggregation, String nullHandling) {
+        return PivotQuery.compile(field, aggregation, "array", null, null, null, "region", null, "channel",
+                nullHandling, null, null);
+    }
+
+    private static ColumnBatch sampleBatch() {
+        List<UniversalChartDataView> records = new ArrayList<>();
+        records.add(record(1L, "华东", "线上", "alice", 10.0));
+        records.add(record(2L, "华东", "线下", "bob", 20.0));
+        records.add(record(3L, "华北", "线上", "carol", 5.0));
+        records.add(record(4L, "华北", "线上", "carol", 7.0));
+        records.add(record(5L, "华南", "线下", "dave", null));
+        records.add(record(6L, null, "线上", "erin", 100.0));
+        records.add(record(7L, "华东", null, "frank", 1.0));
+        return ColumnBatch.of(records);
+    }
+
+    private static UniversalChartDataView record(Long id, String region, String channel, String salesman,
+            Double amount) {
+        UniversalChartDataView data = new UniversalChartDataView();
+        data.setId(id);
+        data.setRegion(region);
+        data.setChannel(channel);
+        data.setSalesman(salesman);
+        data.setAmount(amount);
+        return data;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.chart.query;
+
+import com.example.chart.config.ChartConfigProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查询结果缓存测试类
+ */
+class QueryResultCacheTest {
+
+    private ChartConfigProperties properties;
+    private QueryResultCache cache;
+    private AtomicInteger loads;
+    private AtomicLong now;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChartConfigProperties();
+        cache = new QueryResultCache();
+        ReflectionTestUtils.setField(cache, "chartConfigProperties", properties);
+        loads = new AtomicInteger();
+        now = new AtomicLong();
+        ReflectionTestUtils.setField(cache, "clock", (LongSupplier) now::get);
+    }
+
+    @Test
+    void testResultsAreSharedUntilDataVersionChanges() {
+        assertEquals("v1", load("scalar:a", 1, null, "v1"));
+        assertEquals("v1", load("scalar:a", 1, null, "other"));
+        assertEquals(1, loads.get());
+
+        // 新版本清空缓存；持有旧版本的请求直接查询，结果不写入缓存
+        assertEquals("v2", load("scalar:a", 2, null, "v2"));
+        assertEquals("old", load("scalar:a", 1, null, "old"));
+        assertEquals("v2", load("scalar:a", 2, null, "v3"));
+        assertEquals(3, loads.get());
+
+        // 声明不缓存的映射每次都查询
+        load("scalar:b", 2, 0, "x");
+        load("scalar:b", 2, 0, "x");
+        assertEquals(5, loads.get());
+
+        Map<String, Object> stats = cache.getStatistics();
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(2L, stats.get("misses"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> shapes = (List<Map<String, Object>>) stats.get("shapes");
+        assertEquals("sum(amount)", shapes.get(0).get("shape"));
+        assertEquals(0.5, shapes.get(0).get("hitRatio"));
+    }
+
+    @Test
+    void testEntriesExpireAfterDeclaredTtl() {
+        load("scalar:a", 1, 1, "first");
+        load("scalar:b", 1, null, "kept");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertEquals("first", load("scalar:a", 1, 1, "second"));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertEquals("second", load("scalar:a", 1, 1, "second"));
+        assertEquals("kept", load("scalar:b", 1, null, "reloaded"));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testFrequentResultsSurviveOneOffScans() {
+        properties.getQuery().getCache().setMaxBytes(100_000);
+        properties.getQuery().getCache().setWindowPercent(10);
+        String payload = "x".repeat(960);
+        for (int i = 0; i < 5; i++) {
+            load("pivot:hot", 1, null, payload);
+        }
+        for (int i = 0; i < 500; i++) {
+            load("pivot:once-" + i, 1, null, payload);
+        }
+        assertTrue(cache.getWeightedBytes() <= 100_000, "超出容量: " + cache.getWeightedBytes());
+        int before = loads.get();
+        load("pivot:hot", 1, null, payload);
+        assertEquals(before, loads.get(), "常用结果被一次性查询挤出");
+
+        // 超过主区容量的结果不缓存
+        load("pivot:huge", 1, null, "x".repeat(200_000));
+        load("pivot:huge", 1, null, "x".repeat(200_000));
+        assertEquals(before + 2, loads.get());
+    }
+
+    @Test
+    void testCachedResultsCannotBeModified() {
+        DoubleSeries series = DoubleSeries.wrap(new double[] { 1, 2, 3 }, 3);
+        List<Object> names = new ArrayList<>(List.of("a", "b"));
+        @SuppressWarnings("unchecked")
+        Map<String, Object> map = (Map<String, Object>) load("scalar:map", 1, null,
+                Map.of("series", series, "names", names));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", 1));
+        assertThrows(UnsupportedOperationException.class, () -> ((DoubleSeries) map.get("series")).append(4));
+        @SuppressWarnings("unchecked")
+        List<Object> cachedNames = (List<Object>) map.get("names");
+        assertThrows(UnsupportedOperationException.class, () -> cachedNames.add("c"));
+
+        // 只读序列的数组是拷贝，修改不影响缓存的结果
+        ((DoubleSeries) map.get("series")).array()[0] = 100;
+        assertEquals(1.0, ((DoubleSeries) map.get("series")).getDouble(0));
+    }
+
+    @Test
+    void testConcurrentMissesLoadOnce() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> cache.get("pivot:slow", "pivot",
+                1, null, () -> {
+                    loads.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "slow";
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> load("pivot:slow", 1, null, "again"));
+        release.countDown();
+
+        assertEquals("slow", first.get(5, TimeUnit.SECONDS));
+        assertEquals("slow", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Object load(String fingerprint, long version, Integer ttlSeconds, Object value) {
+        return cache.get(fingerprint, "sum(amount)", version, ttlSeconds, () -> {
+            loads.incrementAndGet();
+            return value;
+        });
+    }
+}
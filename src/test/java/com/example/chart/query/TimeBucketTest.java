@@ -0,0 +1,134 @@
+package com.example.chart.query;
+
+import com.example.chart.model.UniversalChartDataView;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 时间分桶和空档补齐测试类
+ */
+class TimeBucketTest {
+
+    @Test
+    void testBucketsMatchCalendarArithmetic() {
+        for (LocalDate date = LocalDate.of(1899, 12, 1); date.isBefore(LocalDate.of(2101, 2, 1));
+                date = date.plusDays(1)) {
+            int day = (int) date.toEpochDay();
+            assertEquals(date.getYear() * 12 + date.getMonthValue() - 1, TimeBucket.MONTH.bucketOf(day), "月 " + date);
+            assertEquals(date.getYear(), TimeBucket.YEAR.bucketOf(day), "年 " + date);
+            assertEquals(date.getYear() + "-Q" + ((date.getMonthValue() - 1) / 3 + 1),
+                    TimeBucket.QUARTER.label(TimeBucket.QUARTER.bucketOf(day)), "季度 " + date);
+            // 周从周一开始，包括1970年之前的日期
+            assertEquals(date.with(DayOfWeek.MONDAY), TimeBucket.WEEK.startOf(TimeBucket.WEEK.bucketOf(day)),
+                    "周 " + date);
+        }
+    }
+
+    @Test
+    void testWeekStartAndRollover() {
+        int sunday = TimeBucket.WEEK.bucketOf(day("2025-01-05"));
+        int monday = TimeBucket.WEEK.bucketOf(day("2025-01-06"));
+        assertEquals(sunday + 1, monday);
+        assertEquals(LocalDate.parse("2025-01-06"), TimeBucket.WEEK.startOf(monday));
+        // 标签按ISO周年：2024-12-30属于2025年第1周，2021-01-03属于2020年第53周
+        assertEquals("2025-W01", TimeBucket.WEEK.label(TimeBucket.WEEK.bucketOf(day("2024-12-30"))));
+        assertEquals("2020-W53", TimeBucket.WEEK.label(TimeBucket.WEEK.bucketOf(day("2021-01-03"))));
+
+        assertEquals(TimeBucket.MONTH.bucketOf(day("2024-12-31")) + 1, TimeBucket.MONTH.bucketOf(day("2025-01-01")));
+        assertEquals("2024-12", TimeBucket.MONTH.label(TimeBucket.MONTH.bucketOf(day("2024-12-31"))));
+        assertEquals("2024-02", TimeBucket.MONTH.label(TimeBucket.MONTH.bucketOf(day("2024-02-29"))));
+        assertEquals(TimeBucket.QUARTER.bucketOf(day("2024-12-31")) + 1,
+                TimeBucket.QUARTER.bucketOf(day("2025-01-01")));
+        assertEquals("2025", TimeBucket.YEAR.label(TimeBucket.YEAR.bucketOf(day("2025-01-01"))));
+        assertEquals("2025-01-01", TimeBucket.DAY.label(day("2025-01-01")));
+    }
+
+    @Test
+    void testParse() {
+        assertNull(TimeBucket.parse(null));
+        assertNull(TimeBucket.parse(" "));
+        assertEquals(TimeBucket.WEEK, TimeBucket.parse(" Week "));
+        assertThrows(IllegalArgumentException.class, () -> TimeBucket.parse("hour"));
+        assertThrows(IllegalArgumentException.class, () -> monthly("region", "zero"));
+    }
+
+    @Test
+    void testEmptyBucketsAreFilled() {
+        ColumnBatch batch = batch();
+        PivotQuery.Result result = monthly("date", "zero").execute(batch);
+        assertEquals(List.of("2024-03", "2024-04", "2024-05", "2024-06", "2024-07", "2024-08", "2024-09", "2024-10",
+                "2024-11", "2024-12", "2025-01", "2025-02"), result.getCategories());
+        List<? extends Number> series = result.getSeries(null);
+        assertEquals(5.0, series.get(0));
+        assertEquals(0.0, series.get(1));
+        assertEquals(10.0, series.get(8));
+        assertEquals(0.0, series.get(9));
+        assertEquals(3.0, series.get(10));
+        assertEquals(20.0, series.get(11));
+
+        List<? extends Number> skipped = monthly("date", "skip").execute(batch).getSeries(null);
+        assertNull(skipped.get(9));
+        assertEquals(10.0, monthly("date", "fill").execute(batch).getSeries(null).get(9));
+
+        PivotQuery.Result yearly = PivotQuery.compile("amount", "sum", "array", null, null, null, null, "year", null,
+                "zero", null, null).execute(batch);
+        assertEquals(List.of("2024", "2025"), yearly.getCategories());
+        assertEquals(List.of(15.0, 23.0), yearly.getSeries(null));
+    }
+
+    @Test
+    void testMissingAndUnparseableDates() {
+        ColumnBatch batch = batch();
+        int[] days = batch.epochDays();
+        // 日期无法解析时退回year/month，都没有时不参与分桶
+        assertEquals(day("2024-11-15"), days[0]);
+        assertEquals(day("2025-01-07"), days[2]);
+        assertEquals(day("2024-03-01"), days[4]);
+        assertEquals(ColumnBatch.NO_DAY, days[5]);
+        assertEquals(ColumnBatch.NO_DAY, days[6]);
+        assertEquals(ColumnBatch.NO_DAY, days[7]);
+
+        PivotQuery.Result weekly = PivotQuery.compile("amount", "count", "array", null, null, null, null, "week",
+                null, "zero", null, null).execute(batch);
+        assertEquals(5, weekly.getRowsMatched());
+        assertEquals("2024-W09", weekly.getCategories().get(0));
+    }
+
+    private static PivotQuery monthly(String categoryKey, String nullHandling) {
+        return PivotQuery.compile("amount", "sum", "array", null, null, null, categoryKey, "month", null,
+                nullHandling, null, null);
+    }
+
+    private static ColumnBatch batch() {
+        List<UniversalChartDataView> records = new ArrayList<>(Arrays.asList(
+                record("2024-11-15", null, null, 10.0),
+                record("2025-02-03", null, null, 20.0),
+                record("2025/01/07", null, null, 3.0),
+                record(" 2025-02-28 10:00 ", null, null, 0.0),
+                record("bad", "2024", "03", 5.0),
+                record("bad", null, "03", 100.0),
+                record(null, "not-a-year", null, 100.0),
+                record("2025-02-30", null, null, 100.0)));
+        return ColumnBatch.of(records);
+    }
+
+    private static UniversalChartDataView record(String date, String year, String month, Double amount) {
+        UniversalChartDataView data = new UniversalChartDataView();
+        data.setDate(date);
+        data.setYear(year);
+        data.setMonth(month);
+        data.setAmount(amount);
+        return data;
+    }
+
+    private static int day(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.chart.query;
+
+import com.example.chart.model.Mapping;
+import com.example.chart.model.UniversalChartDataView;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Top-N选择和多键排序测试类
+ */
+class TopNTest {
+
+    @Test
+    void testSelectMatchesFullSortForAnyLimit() {
+        Random random = new Random(11);
+        int[] keys = new int[200];
+        int[] candidates = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            // 大量重复的排序键，按编号决胜
+            keys[i] = random.nextInt(20);
+            candidates[i] = i;
+        }
+        TopN.IntComparator comparator = (a, b) -> keys[a] != keys[b] ? Integer.compare(keys[b], keys[a])
+                : Integer.compare(a, b);
+        Integer[] expected = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            expected[i] = i;
+        }
+        Arrays.sort(expected, comparator::compare);
+
+        for (int limit : new int[] { -1, 0, 1, 7, 199, 200, 500 }) {
+            int[] selected = TopN.select(candidates, candidates.length, comparator, limit);
+            int size = limit < 0 ? keys.length : Math.min(limit, keys.length);
+            assertEquals(size, selected.length, "limit " + limit);
+            for (int i = 0; i < size; i++) {
+                assertEquals((int) expected[i], selected[i], "limit " + limit + " 第" + i + "个");
+            }
+        }
+        // 只使用前count个候选
+        assertArrayEquals(new int[] { 1, 0 }, TopN.select(new int[] { 0, 1, 2 }, 2, (a, b) -> b - a, 5));
+    }
+
+    @Test
+    void testTiesAreBrokenByCategoryKey() {
+        PivotQuery.Result result = bySalesman(null, 3, order("value", "desc")).execute(batch());
+        assertEquals(List.of("erin", "alice", "bob"), result.getCategories());
+        assertEquals(List.of(40.0, 30.0, 30.0), result.getSeries(null));
+    }
+
+    @Test
+    void testMixedDirectionsAndMultipleKeys() {
+        assertEquals(List.of("erin", "bob", "dave", "alice", "carol"),
+                bySalesman(null, null, order("value", "desc"), order("count", "asc")).execute(batch())
+                        .getCategories());
+        assertEquals(List.of("carol", "alice", "erin", "dave", "bob"),
+                bySalesman(null, null, order("count", "desc"), order("salesman", "desc")).execute(batch())
+                        .getCategories());
+        assertEquals(List.of("erin", "dave", "carol"),
+                bySalesman(null, 3, order("salesman", "desc")).execute(batch()).getCategories());
+        assertThrows(IllegalArgumentException.class, () -> bySalesman(null, null, order("region", "asc")));
+    }
+
+    @Test
+    void testLimitBeyondGroupCountAndZeroLimit() {
+        PivotQuery.Result all = bySalesman(null, 10, order("value", "asc")).execute(batch());
+        assertEquals(List.of("carol", "alice", "bob", "dave", "erin"), all.getCategories());
+        assertEquals(List.of(15.0, 30.0, 30.0, 30.0, 40.0), all.getSeries(null));
+
+        PivotQuery.Result none = bySalesman(null, 0, order("value", "desc")).execute(batch());
+        assertEquals(List.of(), none.getCategories());
+        assertEquals(List.of(), none.getSeries(null));
+        assertThrows(IllegalArgumentException.class, () -> bySalesman(null, -1));
+    }
+
+    @Test
+    void testSeriesFollowTheSelectedCategories() {
+        // 多系列时按各系列之和排序，每个系列只输出入选的分类
+        PivotQuery.Result result = bySalesman("region", 2, order("value", "desc")).execute(batch());
+        assertEquals(List.of("erin", "alice"), result.getCategories());
+        assertEquals(List.of("华东", "华北"), result.getSeriesNames());
+        assertEquals(List.of(40.0, 10.0), result.getSeries("华东"));
+        assertEquals(List.of(0.0, 20.0), result.getSeries("华北"));
+    }
+
+    private static PivotQuery bySalesman(String seriesKey, Integer limit, Mapping.Order... orders) {
+        return PivotQuery.compile("amount", "sum", "array", null, null, null, "salesman", null, seriesKey, "zero",
+                Arrays.asList(orders), limit);
+    }
+
+    private static Mapping.Order order(String field, String dir) {
+        Mapping.Order order = new Mapping.Order();
+        order.setField(field);
+        order.setDir(dir);
+        return order;
+    }
+
+    private static ColumnBatch batch() {
+        List<UniversalChartDataView> records = new ArrayList<>();
+        records.add(record("alice", "华东", 10.0));
+        records.add(record("alice", "华北", 20.0));
+        records.add(record("bob", "华北", 30.0));
+        records.add(record("carol", "华东", 5.0));
+        records.add(record("carol", "华东", 5.0));
+        records.add(record("carol", "华北", 5.0));
+        records.add(record("dave", "华东", 30.0));
+        records.add(record("erin", "华东", 40.0));
+        return ColumnBatch.of(records);
+    }
+
+    private static UniversalChartDataView record(String salesman, String region, Double amount) {
+        UniversalChartDataView data = new UniversalChartDataView();
+        data.setId((long) salesman.hashCode());
+        data.setSalesman(salesman);
+        data.setRegion(region);
+        data.setAmount(amount);
+        return data;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.chart.query.expr;
+
+import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.query.ColumnBatch;
+import com.example.chart.query.FieldRef;
+import com.example.chart.query.RowPredicate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表达式编译器测试类
+ */
+class ExpressionCompilerTest {
+
+    private ColumnBatch batch;
+
+    @BeforeEach
+    void setUp() {
+        List<UniversalChartDataView> records = new ArrayList<>();
+        records.add(record(1L, "华东", 100.0, 5, "2025-01-15", "alice", LocalDateTime.of(2025, 1, 15, 10, 0)));
+        records.add(record(2L, "华北", 50.5, null, "2025-02-01", null, LocalDateTime.of(2025, 2, 1, 0, 0)));
+        records.add(record(3L, null, null, 20, "2024-12-31", "bob", null));
+        records.add(record(4L, "华南", 200.0, 0, "bad", "carol", LocalDateTime.of(2025, 3, 1, 12, 30)));
+        batch = ColumnBatch.of(records);
+    }
+
+    @Test
+    void testNumericComparisons() {
+        assertEquals(List.of(1L, 4L), select("amount > 60"));
+        assertEquals(List.of(2L), select("amount <= 60"));
+        assertEquals(List.of(1L, 3L), select("quantity IN (5, 20)"));
+        assertEquals(List.of(1L, 2L), select("amount BETWEEN 50 AND 100"));
+        assertEquals(List.of(1L, 4L), select("amount * 2 > quantity * 30 OR quantity = 0"));
+        // 除数为0时结果为空值，比较为假
+        assertEquals(List.of(1L), select("amount / quantity > 1"));
+        assertEquals(List.of(1L, 4L), select("value > 60", "amount"));
+        assertEquals(List.of(4L), select("abs(-amount) >= max(quantity, 150)"));
+    }
+
+    @Test
+    void testStringAndDateComparisons() {
+        assertEquals(List.of(1L), select("region = '华东'"));
+        assertEquals(List.of(1L, 4L), select("region IN ('华东', '华南')"));
+        assertEquals(List.of(3L, 4L), select("salesman >= 'bob'"));
+        assertEquals(List.of(1L, 3L), select("salesman BETWEEN 'alice' AND 'bob'"));
+        // 字符串日期按日期比较，无法解析的值不匹配
+        assertEquals(List.of(1L, 2L), select("date >= DATE '2025-01-01'"));
+        assertEquals(List.of(3L), select("date < DATE '2025-01-01'"));
+    }
+
+    @Test
+    void testTimeComparisons() {
+        assertEquals(List.of(1L), select("createdAt < DATE '2025-02-01'"));
+        // 日期上界包含当天
+        assertEquals(List.of(1L, 2L), select("createdAt <= DATE '2025-02-01'"));
+        assertEquals(List.of(1L, 2L), select("created_at BETWEEN DATE '2025-01-01' AND '2025-02-01'"));
+        assertEquals(List.of(4L), select("createdAt = '2025-03-01 12:30:00'"));
+        assertEquals(List.of(1L, 2L), select("createdAt != '2025-03-01'"));
+    }
+
+    @Test
+    void testNullsAreFalseEvenUnderNot() {
+        assertEquals(List.of(2L, 4L), select("amount != 100"));
+        assertEquals(List.of(2L, 4L), select("NOT (amount = 100)"));
+        assertEquals(List.of(2L), select("NOT amount > 60"));
+        assertEquals(List.of(4L), select("quantity NOT IN (5, 20)"));
+        assertEquals(List.of(4L), select("NOT (quantity IN (5, 20))"));
+        assertEquals(List.of(4L), select("amount NOT BETWEEN 50 AND 100"));
+        assertEquals(List.of(4L), select("NOT (amount BETWEEN 50 AND 100)"));
+        assertEquals(List.of(2L, 4L), select("region != '华东'"));
+        assertEquals(List.of(2L, 4L), select("NOT region = '华东'"));
+        assertEquals(List.of(3L), select("NOT (date >= DATE '2025-01-01')"));
+        assertEquals(List.of(1L, 2L), select("NOT (createdAt = '2025-03-01')"));
+        // NOT按德摩根律展开：任一条件确定为假即为真
+        assertEquals(List.of(2L, 4L), select("NOT (amount > 60 AND quantity > 1)"));
+        assertEquals(List.of(1L, 4L), select("NOT NOT amount > 60"));
+
+        assertEquals(List.of(3L), select("amount IS NULL"));
+        assertEquals(List.of(3L), select("amount = NULL"));
+        assertEquals(List.of(1L, 2L, 4L), select("amount != NULL"));
+        assertEquals(List.of(1L, 2L, 4L), select("NOT (amount IS NULL)"));
+        assertEquals(List.of(2L), select("salesman IS NULL"));
+        assertEquals(List.of(3L), select("createdAt IS NULL"));
+    }
+
+    @Test
+    void testConstantBranchesAreFolded() {
+        assertEquals(List.of(1L, 2L, 3L, 4L), select("TRUE OR amount > 1000"));
+        assertEquals(List.of(), select("FALSE AND amount > 0"));
+        assertEquals(List.of(1L, 2L, 3L, 4L), select("NOT FALSE"));
+        assertSame(RowPredicate.ALWAYS_FALSE,
+                ExpressionCompiler.compilePredicate("region = '不存在'", null).bind(batch));
+    }
+
+    @Test
+    void testTypeErrorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compilePredicate("amount = 'x'", null));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compilePredicate("region + 1 > 2", null));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compilePredicate("createdAt = 5", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> ExpressionCompiler.compilePredicate("createdAt = 'soon'", null));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compilePredicate("amount > NULL", null));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compilePredicate("value > 1", null));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compilePredicate("foo(amount) > 1", null));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compilePredicate("amount + 1", null));
+    }
+
+    private List<Long> select(String expression) {
+        return select(expression, null);
+    }
+
+    private List<Long> select(String expression, String valueField) {
+        RowPredicate predicate = ExpressionCompiler
+                .compilePredicate(expression, valueField != null ? FieldRef.resolve(valueField) : null)
+                .bind(batch);
+        List<Long> ids = new ArrayList<>();
+        long[] idColumn = batch.longs(FieldRef.resolve("id").getColumn());
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            if (predicate.test(row)) {
+                ids.add(idColumn[row]);
+            }
+        }
+        return ids;
+    }
+
+    private static UniversalChartDataView record(Long id, String region, Double amount, Integer quantity, String date,
+            String salesman, LocalDateTime createdAt) {
+        UniversalChartDataView data = new UniversalChartDataView();
+        data.setId(id);
+        data.setRegion(region);
+        data.setAmount(amount);
+        data.setQuantity(quantity);
+        data.setDate(date);
+        data.setSalesman(salesman);
+        data.setCreatedAt(createdAt);
+        return data;
+    }
+}
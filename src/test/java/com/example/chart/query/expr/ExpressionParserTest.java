@@ -0,0 +1,63 @@
+package com.example.chart.query.expr;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表达式解析器测试类
+ */
+class ExpressionParserTest {
+
+    @Test
+    void testOperatorPrecedence() {
+        assertEquals("(amount > 1 OR (quantity < 2 AND region = 'A'))",
+                parse("amount > 1 OR quantity < 2 AND region = 'A'"));
+        assertEquals("((amount > 1 OR quantity < 2) AND region = 'A')",
+                parse("(amount > 1 || quantity < 2) && region = 'A'"));
+        // NOT只作用于紧随其后的比较
+        assertEquals("(NOT amount > 1 AND quantity = 2)", parse("not amount > 1 and quantity == 2"));
+        assertEquals("(amount + (quantity * 2)) > (10 - (percentage % 3))",
+                parse("amount + quantity * 2 > 10 - percentage % 3"));
+        assertEquals("-amount < -3", parse("-amount < -3"));
+        assertEquals("round(amount, 2) >= 1.5", parse("ROUND(amount, 2) >= 1.5"));
+    }
+
+    @Test
+    void testInBetweenNullAndLiterals() {
+        assertEquals("region IN ['A', 'it''s']", parse("region in ('A', 'it''s')"));
+        assertEquals("quantity NOT IN [1, -2]", parse("quantity NOT IN (1, -2)"));
+        assertEquals("amount NOT BETWEEN 1 AND (quantity + 1)", parse("amount not between 1 and quantity + 1"));
+        assertEquals("createdAt IS NOT NULL", parse("created_at is not null"));
+        assertEquals("salesman = null", parse("salesman = NULL"));
+        // DATE后跟字符串为日期字面量，否则为date字段
+        assertEquals("date >= DATE '2025-01-01'", parse("date >= DATE '2025-01-01'"));
+        assertEquals("(value != 0 AND true)", parse("value <> 0 AND TRUE"));
+    }
+
+    @Test
+    void testSyntaxErrorsAreReported() {
+        assertError("", "表达式为空");
+        assertError("amount >", "意外的符号");
+        assertError("amount > 1)", "多余的内容");
+        assertError("(amount > 1", "应为 ')'");
+        assertError("unknown_field = 1", "未知字段");
+        assertError("region = 'abc", "字符串未结束");
+        assertError("amount # 1", "无法识别的字符");
+        assertError("region NOT LIKE 'a'", "多余的内容");
+        assertError("region IN (amount)", "IN列表只允许字面量");
+        assertError("amount BETWEEN 1 OR 2", "应为 AND");
+        assertError("date = DATE '2025-13-01'", "无效的日期");
+        assertError("amount IS 1", "应为 NULL");
+    }
+
+    private static String parse(String source) {
+        return ExpressionParser.parse(source).toString();
+    }
+
+    private static void assertError(String source, String message) {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> ExpressionParser.parse(source));
+        assertTrue(error.getMessage().contains(message), error.getMessage());
+    }
+}
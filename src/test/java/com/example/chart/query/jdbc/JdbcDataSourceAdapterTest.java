@@ -0,0 +1,180 @@
+package com.example.chart.query.jdbc;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.Mapping;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JDBC数据源适配器测试类（H2内存数据库）
+ */
+class JdbcDataSourceAdapterTest {
+
+    private JdbcDataSourceAdapter adapter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:chart_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE marketing_data (day_name VARCHAR(8), channel_name VARCHAR(32), "
+                    + "customer VARCHAR(32), conversion_count INT, amount DECIMAL(10, 2))");
+            statement.execute("INSERT INTO marketing_data VALUES "
+                    + "('D1', 'Email', 'c1', 120, 10.50), ('D1', 'Email', 'c2', 30, 1.00), "
+                    + "('D1', 'Video Ads', 'c1', 150, 20.00), ('D2', 'Video Ads', 'c3', 232, 5.25), "
+                    + "('D3', 'Email', 'c2', 101, 2.00), ('D3', 'Video Ads', 'c4', 201, 3.00), "
+                    + "(NULL, 'Email', 'c5', 999, 0.00)");
+        }
+        adapter = new JdbcDataSourceAdapter();
+        ReflectionTestUtils.setField(adapter, "chartConfigProperties", new ChartConfigProperties());
+        ReflectionTestUtils.setField(adapter, "dataSource", dataSource);
+    }
+
+    @Test
+    void testPivotSeriesAreAlignedWithCategoryAxis() throws Exception {
+        Mapping.Item categories = item("array", "day_name", null);
+        categories.setPivot(pivot());
+        categories.getTransform().setFilters(List.of(filter("channel_name", "eq", "Email")));
+        assertEquals(List.of("D1", "D2", "D3"), adapter.query(categories));
+
+        // 系列字段上的等值条件改写为条件聚合，Email在D2没有数据
+        Mapping.Item email = item("array", "conversion_count", "sum");
+        email.setPivot(pivot());
+        email.getTransform().setFilters(List.of(filter("channel_name", "eq", "Email")));
+        CompiledSql compiled = SqlCompiler.compile(email);
+        assertTrue(compiled.getSql().contains("CASE WHEN channel_name = ?"), compiled.getSql());
+        assertEquals(Arrays.asList(150L, 0L, 101L), longs(adapter.execute(compiled)));
+
+        email.getTransform().setNullHandling("skip");
+        assertEquals(Arrays.asList(150L, null, 101L), longs(adapter.query(email)));
+        email.getTransform().setNullHandling("fill");
+        assertEquals(Arrays.asList(150L, 150L, 101L), longs(adapter.query(email)));
+    }
+
+    @Test
+    void testPivotOrderingKeepsSeriesAligned() throws Exception {
+        Mapping.Order byDay = new Mapping.Order();
+        byDay.setField("day_name");
+        byDay.setDir("desc");
+        Mapping.Item categories = item("array", "day_name", null);
+        categories.setPivot(pivot());
+        categories.getTransform().setOrderBy(List.of(byDay));
+        categories.getTransform().setLimit(2);
+        assertEquals(List.of("D3", "D2"), adapter.query(categories));
+
+        // 系列字段上的非等值条件同样移入条件聚合，分类轴不变
+        Mapping.Item video = item("array", "conversion_count", "sum");
+        video.setPivot(pivot());
+        video.getTransform().setFilters(List.of(filter("channel_name", "in", List.of("Video Ads"))));
+        video.getTransform().setOrderBy(List.of(byDay));
+        video.getTransform().setLimit(2);
+        assertEquals(Arrays.asList(201L, 232L), longs(adapter.query(video)));
+
+        // 按聚合值排序时各系列的分类顺序不同，不能与分类轴对齐
+        Mapping.Order byValue = new Mapping.Order();
+        byValue.setField("value");
+        video.getTransform().setOrderBy(List.of(byValue));
+        assertThrows(IllegalArgumentException.class, () -> SqlCompiler.compile(video));
+        categories.getTransform().setOrderBy(List.of(byValue));
+        assertThrows(IllegalArgumentException.class, () -> SqlCompiler.compile(categories));
+
+        // 没有分组的原始值查询不能按count排序
+        Mapping.Order byCount = new Mapping.Order();
+        byCount.setField("count");
+        Mapping.Item raw = item("array", "amount", null);
+        raw.getTransform().setOrderBy(List.of(byCount));
+        assertThrows(IllegalArgumentException.class, () -> SqlCompiler.compile(raw));
+    }
+
+    @Test
+    void testAggregationIsPushedDown() throws Exception {
+        Mapping.Item total = item("number", "amount", "sum");
+        total.getTransform().setFilters(List.of(filter("channel_name", "in", List.of("Email", "Video Ads")),
+                filter("day_name", "neq", null)));
+        assertEquals(41.75, (Double) adapter.query(total), 1e-9);
+
+        Mapping.Item customers = item("number", "customer", "count_distinct");
+        assertEquals(5L, ((Number) adapter.query(customers)).longValue());
+
+        // 按聚合值降序取前2个分组
+        Mapping.Item top = item("array", "conversion_count", "sum");
+        top.getTransform().setGroupBy(List.of("day_name"));
+        top.getTransform().setFilters(List.of(filter("day_name", "neq", null)));
+        Mapping.Order order = new Mapping.Order();
+        order.setField("value");
+        order.setDir("desc");
+        top.getTransform().setOrderBy(List.of(order));
+        top.getTransform().setLimit(2);
+        assertEquals(Arrays.asList(300L, 302L), longs(adapter.query(top)).stream().sorted()
+                .collect(Collectors.toList()));
+
+        Map<String, Object> stats = adapter.getStatistics();
+        assertEquals(3L, stats.get("queries"));
+        assertEquals(0L, stats.get("failures"));
+    }
+
+    @Test
+    void testUnsafeIdentifiersAndUnsupportedAggregationsAreRejected() {
+        Mapping.Item injected = item("number", "amount", "sum");
+        injected.getSource().setTable("marketing_data; DROP TABLE marketing_data");
+        assertThrows(IllegalArgumentException.class, () -> SqlCompiler.compile(injected));
+
+        Mapping.Item badColumn = item("number", "amount) FROM x --", "sum");
+        assertThrows(IllegalArgumentException.class, () -> SqlCompiler.compile(badColumn));
+
+        Mapping.Item percentile = item("number", "amount", "p95");
+        assertThrows(IllegalArgumentException.class, () -> SqlCompiler.compile(percentile));
+
+        // 过滤值作为参数绑定，不会出现在SQL文本中
+        Mapping.Item quoted = item("number", "amount", "sum");
+        quoted.getTransform().setFilters(List.of(filter("customer", "eq", "x' OR '1'='1")));
+        CompiledSql compiled = SqlCompiler.compile(quoted);
+        assertEquals("SELECT SUM(amount) AS agg_value FROM marketing_data WHERE customer = ?", compiled.getSql());
+        assertEquals(List.of("x' OR '1'='1"), compiled.getParameters());
+    }
+
+    private static Mapping.Item item(String dataType, String column, String aggregation) {
+        Mapping.Item item = new Mapping.Item();
+        item.setPlaceholder("${test}");
+        item.setDataType(dataType);
+        item.getSource().setTable("marketing_data");
+        item.getSource().setColumn(column);
+        item.getTransform().setAggregation(aggregation);
+        return item;
+    }
+
+    private static Mapping.Pivot pivot() {
+        Mapping.Pivot pivot = new Mapping.Pivot();
+        pivot.setCategoryKey("day_name");
+        pivot.setSeriesKey("channel_name");
+        return pivot;
+    }
+
+    private static Mapping.Filter filter(String field, String op, Object value) {
+        Mapping.Filter filter = new Mapping.Filter();
+        filter.setField(field);
+        filter.setOp(op);
+        filter.setValue(value);
+        return filter;
+    }
+
+    private static List<Long> longs(Object values) {
+        List<Long> result = new ArrayList<>();
+        for (Object value : (List<?>) values) {
+            result.add(value == null ? null : ((Number) value).longValue());
+        }
+        return result;
+    }
+}
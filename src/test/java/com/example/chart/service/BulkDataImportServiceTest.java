@@ -0,0 +1,115 @@
+package com.example.chart.service;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.UniversalChartDataView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量导入服务测试类
+ */
+class BulkDataImportServiceTest {
+
+    private SimpleUniversalDataCrudService dataService;
+
+    private BulkDataImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        // 不调用@PostConstruct，存储从空开始
+        dataService = new SimpleUniversalDataCrudService();
+
+        ChartConfigProperties properties = new ChartConfigProperties();
+        properties.getIngest().setBatchSize(2);
+
+        importService = new BulkDataImportService();
+        ReflectionTestUtils.setField(importService, "dataService", dataService);
+        ReflectionTestUtils.setField(importService, "chartConfigProperties", properties);
+    }
+
+    @Test
+    void testImportCsvWithQuotesAndBatches() throws Exception {
+        String csv = "year,month,salesman,amount,quantity,product,unknown\r\n"
+                + "2025,01,张三,1234.56,10,\"iPhone, 15\",x\r\n"
+                + "2025,02,李四,-0.5,20,\"带\"\"引号\"\"的产品\",y\r\n"
+                + "\r\n"
+                + "2025,03,王五,1e3,30,\"多行\n产品\",z\r\n"
+                + "2025,04,赵六,abc,40,坏数据,w\r\n";
+
+        long versionBefore = dataService.getDataVersion();
+        BulkDataImportService.ImportResult result = importService.importCsv(stream(csv));
+
+        assertEquals(3, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(2, result.getBatches());
+        assertEquals(1, result.getErrors().size());
+        // 数据版本按批递增，而不是按行
+        assertEquals(versionBefore + 2, dataService.getDataVersion());
+
+        List<UniversalChartDataView> all = dataService.findAll();
+        UniversalChartDataView first = all.stream().filter(d -> "张三".equals(d.getSalesman())).findFirst().get();
+        assertEquals(1234.56, first.getAmount());
+        assertEquals(10, first.getQuantity());
+        assertEquals("iPhone, 15", first.getProduct());
+        assertNotNull(first.getId());
+        assertNotNull(first.getCreatedAt());
+
+        UniversalChartDataView second = all.stream().filter(d -> "李四".equals(d.getSalesman())).findFirst().get();
+        assertEquals(-0.5, second.getAmount());
+        assertEquals("带\"引号\"的产品", second.getProduct());
+
+        UniversalChartDataView third = all.stream().filter(d -> "王五".equals(d.getSalesman())).findFirst().get();
+        assertEquals(1000.0, third.getAmount());
+        assertEquals("多行\n产品", third.getProduct());
+    }
+
+    @Test
+    void testImportCsvRejectsOutOfRangeQuantity() throws Exception {
+        String csv = "salesman,quantity\n"
+                + "张三,2147483648\n"
+                + "李四,-2147483649\n"
+                + "王五,2147483647\n";
+
+        BulkDataImportService.ImportResult result = importService.importCsv(stream(csv));
+
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertTrue(result.getErrors().get(0).startsWith("第 2 行解析失败"), result.getErrors().get(0));
+        assertEquals(Integer.MAX_VALUE, dataService.findAll().get(0).getQuantity());
+    }
+
+    @Test
+    void testImportNdjson() throws Exception {
+        String ndjson = "{\"id\": 100, \"year\": \"2024\", \"amount\": 10.5, \"quantity\": 3, \"extra\": {\"a\": 1}}\n"
+                + "{\"year\": 2025, \"amount\": \"20.25\", \"region\": \"华东\"}\n"
+                + "{\"amount\": [1, 2]}\n";
+
+        BulkDataImportService.ImportResult result = importService.importNdjson(stream(ndjson));
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+
+        UniversalChartDataView explicit = dataService.findById(100L);
+        assertNotNull(explicit);
+        assertEquals(10.5, explicit.getAmount());
+        assertEquals(3, explicit.getQuantity());
+
+        UniversalChartDataView generated = dataService.findAll().stream()
+                .filter(d -> "华东".equals(d.getRegion())).findFirst().get();
+        assertEquals("2025", generated.getYear());
+        assertEquals(20.25, generated.getAmount());
+        // 显式ID会推进ID生成器，新生成的ID不会与其冲突
+        assertTrue(generated.getId() > 100L);
+    }
+
+    private ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
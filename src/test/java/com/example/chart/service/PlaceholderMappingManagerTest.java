@@ -1,6 +1,7 @@
 package com.example.chart.service;
 
 import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.query.ColumnBatch;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -34,7 +35,7 @@ class PlaceholderMappingManagerTest {
     void setUp() {
         // 创建模拟数据
         mockData = createMockData();
-        when(dataService.findAll()).thenReturn(mockData);
+        when(dataService.getColumnBatch()).thenReturn(ColumnBatch.of(mockData));
     }
 
     @Test
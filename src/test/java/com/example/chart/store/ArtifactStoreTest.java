@@ -0,0 +1,75 @@
+package com.example.chart.store;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.ChartRegistry;
+import com.example.chart.repository.InMemoryChartRegistryRepository;
+import com.example.chart.store.StoredArtifact.Kind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 制品存储测试类
+ */
+class ArtifactStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final InMemoryChartRegistryRepository registryRepository = new InMemoryChartRegistryRepository();
+
+    @Test
+    void testBundledSpecsAreCompiledAndVersioned() throws Exception {
+        ArtifactStore store = newStore();
+        StoredArtifact bundled = store.latest(Kind.JOLT_SPEC, null, "line-chart-stacked.json").get();
+        assertNotNull(store.compiledSpec(null, "line-chart-stacked.json"));
+
+        byte[] spec = "[{\"operation\":\"shift\",\"spec\":{\"a\":\"b\"}}]".getBytes(StandardCharsets.UTF_8);
+        StoredArtifact uploaded = store.put(Kind.JOLT_SPEC, null, "line-chart-stacked.json", "stacked_line_chart",
+                spec, null);
+        // 相同内容不会产生新版本
+        assertSame(uploaded, store.put(Kind.JOLT_SPEC, null, "line-chart-stacked.json", null, spec, null));
+        assertEquals(2, store.history(Kind.JOLT_SPEC, null, "line-chart-stacked.json").size());
+        assertEquals(uploaded.getHash(), store.latest(Kind.JOLT_SPEC, null, "line-chart-stacked.json").get().getHash());
+
+        // 注册表激活的版本优先于最新版本
+        ChartRegistry registry = new ChartRegistry();
+        registry.setChartId("stacked_line_chart");
+        registry.setActiveSpecVersion(bundled.getHash().substring(0, 12));
+        registryRepository.upsert(registry);
+        assertEquals(bundled.getHash(), store.resolveForChart(Kind.JOLT_SPEC, "stacked_line_chart", null,
+                "line-chart-stacked.json").get().getHash());
+
+        // 重启后从索引恢复，上传的版本仍是最新
+        ArtifactStore restarted = newStore();
+        assertEquals(uploaded.getHash(),
+                restarted.latest(Kind.JOLT_SPEC, null, "line-chart-stacked.json").get().getHash());
+    }
+
+    @Test
+    void testInvalidSpecIsRejectedAndRemovalIsPersisted() throws Exception {
+        ArtifactStore store = newStore();
+        byte[] invalid = "[{\"operation\":\"unknown\"}]".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class,
+                () -> store.put(Kind.JOLT_SPEC, null, "invalid.json", null, invalid, null));
+
+        assertTrue(store.remove(Kind.TEMPLATE, null, "line-chart-template.json"));
+        assertFalse(newStore().latest(Kind.TEMPLATE, null, "line-chart-template.json").isPresent());
+    }
+
+    private ArtifactStore newStore() throws Exception {
+        ChartConfigProperties properties = new ChartConfigProperties();
+        properties.getArtifacts().setDirectory(directory.toString());
+
+        ArtifactStore store = new ArtifactStore();
+        ReflectionTestUtils.setField(store, "chartConfigProperties", properties);
+        ReflectionTestUtils.setField(store, "registryRepository", registryRepository);
+        store.initialize();
+        return store;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.chart.store;
+
+import com.example.chart.config.ChartConfigProperties;
+import com.example.chart.model.UniversalChartDataView;
+import com.example.chart.query.ColumnBatch;
+import com.example.chart.query.FieldRef;
+import com.example.chart.service.SimpleUniversalDataCrudService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据存储日志测试类
+ */
+class DataStoreJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecoverFromSnapshotAndLogTail() throws Exception {
+        DataStoreJournal journal = newJournal();
+        SimpleUniversalDataCrudService service = newService(journal);
+        long sampleCount = service.count();
+        assertTrue(sampleCount > 0);
+
+        journal.snapshot();
+
+        UniversalChartDataView data = new UniversalChartDataView();
+        data.setSalesman("张三");
+        data.setAmount(1234.5);
+        service.save(data);
+        assertTrue(service.deleteById(1L));
+        journal.shutdown();
+
+        DataStoreJournal recoveredJournal = newJournal();
+        SimpleUniversalDataCrudService recovered = newService(recoveredJournal);
+
+        // 不会重新生成示例数据，快照之后的写入和删除都被回放
+        assertEquals(sampleCount, recovered.count());
+        assertNull(recovered.findById(1L));
+        UniversalChartDataView restored = recovered.findById(data.getId());
+        assertEquals("张三", restored.getSalesman());
+        assertEquals(1234.5, restored.getAmount());
+        assertEquals(data.getCreatedAt(), restored.getCreatedAt());
+
+        // ID生成器从恢复的状态继续
+        UniversalChartDataView next = new UniversalChartDataView();
+        recovered.save(next);
+        assertTrue(next.getId() > data.getId());
+        recoveredJournal.shutdown();
+    }
+
+    @Test
+    void testColumnBatchIsBuiltFromMappedSnapshotAndDelta() throws Exception {
+        DataStoreJournal journal = newJournal();
+        newService(journal);
+        journal.snapshot();
+        journal.shutdown();
+
+        DataStoreJournal recoveredJournal = newJournal();
+        SimpleUniversalDataCrudService recovered = newService(recoveredJournal);
+        UniversalChartDataView updated = recovered.findById(3L);
+        updated.setRegion("新区域");
+        updated.setAmount(null);
+        recovered.save(updated);
+        assertTrue(recovered.deleteById(2L));
+        UniversalChartDataView added = new UniversalChartDataView();
+        added.setYear("2026");
+        added.setSalesman("张三");
+        recovered.save(added);
+
+        // 底层行直接从映射的列文件读取，结果与从记录对象构建的批次一致
+        assertSameRows(ColumnBatch.of(recovered.findAll()), recovered.getColumnBatch());
+        recoveredJournal.shutdown();
+    }
+
+    @Test
+    void testColumnBatchAppendsNewRecordsAndRebuildsAfterUpdates() throws Exception {
+        DataStoreJournal journal = newJournal();
+        SimpleUniversalDataCrudService service = newService(journal);
+        ColumnBatch first = service.getColumnBatch();
+        assertSame(first, service.getColumnBatch());
+        int firstRows = first.getRowCount();
+
+        UniversalChartDataView added = new UniversalChartDataView();
+        added.setRegion("新区域");
+        added.setDate("2026-03-01");
+        added.setAmount(null);
+        service.save(added);
+
+        // 只有新增记录时在上一个批次之后追加，上一个批次的内容不变
+        ColumnBatch appended = service.getColumnBatch();
+        assertEquals(firstRows + 1, appended.getRowCount());
+        assertEquals(firstRows, first.getRowCount());
+        assertEquals(-1, first.codeOf(ColumnTable.Column.REGION, "新区域"));
+        assertTrue(appended.codeOf(ColumnTable.Column.REGION, "新区域") >= 0);
+        assertSameRows(ColumnBatch.of(service.findAll()), appended);
+
+        // 修改已有记录后完整重建
+        UniversalChartDataView updated = service.findById(1L);
+        updated.setRegion("新区域");
+        service.save(updated);
+        assertTrue(service.deleteById(2L));
+        ColumnBatch rebuilt = service.getColumnBatch();
+        assertSameRows(ColumnBatch.of(service.findAll()), rebuilt);
+        journal.shutdown();
+    }
+
+    @Test
+    void testDeleteAllIsPersisted() throws Exception {
+        DataStoreJournal journal = newJournal();
+        SimpleUniversalDataCrudService service = newService(journal);
+        service.deleteAll();
+        journal.shutdown();
+
+        DataStoreJournal recoveredJournal = newJournal();
+        assertEquals(0, newService(recoveredJournal).count());
+        recoveredJournal.shutdown();
+    }
+
+    private static void assertSameRows(ColumnBatch expected, ColumnBatch batch) {
+        assertEquals(expected.getRowCount(), batch.getRowCount());
+        for (ColumnTable.Column column : ColumnTable.Column.values()) {
+            FieldRef field = FieldRef.resolve(column.getFieldName());
+            for (int row = 0; row < batch.getRowCount(); row++) {
+                assertEquals(field.get(expected, row), field.get(batch, row), column + " 第" + row + "行");
+            }
+        }
+        for (int row = 0; row < batch.getRowCount(); row++) {
+            assertEquals(expected.epochDays()[row], batch.epochDays()[row]);
+        }
+    }
+
+    private DataStoreJournal newJournal() {
+        ChartConfigProperties properties = new ChartConfigProperties();
+        properties.getStore().setEnabled(true);
+        properties.getStore().setDirectory(directory.toString());
+        properties.getStore().setSnapshotIntervalSeconds(0);
+
+        DataStoreJournal journal = new DataStoreJournal();
+        ReflectionTestUtils.setField(journal, "chartConfigProperties", properties);
+        return journal;
+    }
+
+    private SimpleUniversalDataCrudService newService(DataStoreJournal journal) throws Exception {
+        SimpleUniversalDataCrudService service = new SimpleUniversalDataCrudService();
+        ReflectionTestUtils.setField(service, "journal", journal);
+        service.initialize();
+        return service;
+    }
+}
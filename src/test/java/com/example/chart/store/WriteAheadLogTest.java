@@ -0,0 +1,177 @@
+package com.example.chart.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 预写日志测试类
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testFailedWriteIsDiscardedAndLaterEntriesSurviveReplay() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, 1, true, 16);
+        AtomicInteger applied = new AtomicInteger();
+        wal.append(1, WriteAheadLog.OP_PUT, bytes("first"), applied::incrementAndGet).join();
+
+        // 第二组写到一半失败：段尾留下不完整的条目
+        FileChannel channel = (FileChannel) ReflectionTestUtils.getField(wal, "channel");
+        ReflectionTestUtils.setField(wal, "channel", new TornWriteChannel(channel));
+        CompletableFuture<Void> failed = wal.append(2, WriteAheadLog.OP_PUT, bytes("second"),
+                applied::incrementAndGet);
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(1, applied.get(), "失败的写入不应用到内存");
+
+        wal.append(3, WriteAheadLog.OP_PUT, bytes("third"), applied::incrementAndGet).join();
+        assertEquals(2, applied.get());
+        wal.close();
+
+        List<String> replayed = new ArrayList<>();
+        WriteAheadLog.ReplayResult result = WriteAheadLog.replay(directory, 0, (seq, op, payload) -> {
+            byte[] data = new byte[payload.remaining()];
+            payload.get(data);
+            replayed.add(seq + ":" + new String(data, StandardCharsets.UTF_8));
+        });
+        assertEquals(List.of("1:first", "3:third"), replayed);
+        assertEquals(0, result.getTruncatedBytes());
+    }
+
+    @Test
+    void testAppendsRacingWithCloseAlwaysComplete() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, 1, false, 16);
+        CountDownLatch started = new CountDownLatch(4);
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> appenders = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long base = t * 100_000L;
+            Thread appender = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 2000; i++) {
+                    futures.add(wal.append(base + i, WriteAheadLog.OP_PUT, bytes("x")));
+                }
+            });
+            appender.start();
+            appenders.add(appender);
+        }
+        started.await();
+        wal.close();
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+
+        // 关闭前入队的条目落盘，关闭后的追加立即失败，没有永远不完成的Future
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertEquals("预写日志已关闭", e.getCause().getMessage());
+            }
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 第一次写入只写出一半就抛出异常，之后委托给原通道
+     */
+    private static final class TornWriteChannel extends FileChannel {
+        private final FileChannel delegate;
+        private boolean failed;
+
+        TornWriteChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!failed) {
+                failed = true;
+                ByteBuffer half = src.duplicate();
+                half.limit(src.position() + src.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("磁盘已满");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException { return delegate.read(dst); }
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+        @Override
+        public long position() throws IOException { return delegate.position(); }
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+        @Override
+        public long size() throws IOException { return delegate.size(); }
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+        @Override
+        public void force(boolean metaData) throws IOException { delegate.force(metaData); }
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException { return delegate.read(dst, position); }
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException { return delegate.write(src, position); }
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+        @Override
+        protected void implCloseChannel() throws IOException { delegate.close(); }
+    }
+}